@@ -26,6 +26,7 @@ package com.oracle.graal.alloc;
 import java.util.*;
 
 import com.oracle.graal.compiler.common.cfg.*;
+import com.oracle.graal.options.*;
 
 /**
  * Computes an ordering of the block that can be used by the linear scan register allocator and the
@@ -40,6 +41,11 @@ import com.oracle.graal.compiler.common.cfg.*;
  * backward jumps are always marked as aligned. Aligning the target of conditional jumps does not
  * bring a measurable benefit and is therefore avoided to keep the code size small.
  *
+ * Blocks whose probability is below {@link Options#ColdBlockProbability} (typically deoptimization
+ * and exception paths) are moved out of line: the code emission order first places all hot blocks
+ * in one contiguous region and then appends the cold blocks. Loop headers in the cold region are
+ * not aligned.
+ *
  * The linear scan register allocator order has an additional mechanism that prevents merge nodes
  * from being scheduled if there is at least one highly likely predecessor still unscheduled. This
  * increases the probability that the merge node and the corresponding predecessor are more closely
@@ -49,6 +55,15 @@ import com.oracle.graal.compiler.common.cfg.*;
  */
 public final class ComputeBlockOrder {
 
+    public static class Options {
+        // @formatter:off
+        @Option(help = "Move rarely executed blocks to the end of the method in the code emission order")
+        public static final OptionValue<Boolean> SplitColdBlocks = new OptionValue<>(true);
+        @Option(help = "Blocks executed less often than this per method invocation are considered cold")
+        public static final OptionValue<Double> ColdBlockProbability = new OptionValue<>(0.001);
+        // @formatter:on
+    }
+
     /**
      * The initial capacities of the worklists used for iteratively finding the block order.
      */
@@ -84,18 +99,27 @@ public final class ComputeBlockOrder {
         List<T> order = new ArrayList<>();
         BitSet visitedBlocks = new BitSet(blockCount);
         PriorityQueue<T> worklist = initializeWorklist(startBlock, visitedBlocks);
-        computeCodeEmittingOrder(order, worklist, visitedBlocks);
+        PriorityQueue<T> coldWorklist = new PriorityQueue<>(INITIAL_WORKLIST_CAPACITY, new BlockOrderComparator<>());
+        double coldProbability = Options.SplitColdBlocks.getValue() ? Options.ColdBlockProbability.getValue() : 0.0;
+        // Hot region: cold blocks encountered on the way are deferred to the cold worklist.
+        computeCodeEmittingOrder(order, worklist, coldWorklist, visitedBlocks, coldProbability);
+        // Cold region: everything that is left, without any further splitting.
+        computeCodeEmittingOrder(order, coldWorklist, null, visitedBlocks, 0.0);
         assert checkOrder(order, blockCount);
         return order;
     }
 
     /**
      * Iteratively adds paths to the code emission block order.
+     *
+     * @param coldWorklist the work list to which blocks with a probability below
+     *            {@code coldProbability} are deferred or {@code null} if this pass emits the cold
+     *            region
      */
-    private static <T extends AbstractBlock<T>> void computeCodeEmittingOrder(List<T> order, PriorityQueue<T> worklist, BitSet visitedBlocks) {
+    private static <T extends AbstractBlock<T>> void computeCodeEmittingOrder(List<T> order, PriorityQueue<T> worklist, PriorityQueue<T> coldWorklist, BitSet visitedBlocks, double coldProbability) {
         while (!worklist.isEmpty()) {
             T nextImportantPath = worklist.poll();
-            addPathToCodeEmittingOrder(nextImportantPath, order, worklist, visitedBlocks);
+            addPathToCodeEmittingOrder(nextImportantPath, order, worklist, coldWorklist, visitedBlocks, coldProbability);
         }
     }
 
@@ -151,15 +175,23 @@ public final class ComputeBlockOrder {
     /**
      * Add a linear path to the code emission order greedily following the most likely successor.
      */
-    private static <T extends AbstractBlock<T>> void addPathToCodeEmittingOrder(T initialBlock, List<T> order, PriorityQueue<T> worklist, BitSet visitedBlocks) {
+    private static <T extends AbstractBlock<T>> void addPathToCodeEmittingOrder(T initialBlock, List<T> order, PriorityQueue<T> worklist, PriorityQueue<T> coldWorklist, BitSet visitedBlocks,
+                    double coldProbability) {
+        boolean hot = coldWorklist != null;
         T block = initialBlock;
         while (block != null) {
+            if (hot && block.probability() < coldProbability) {
+                // The block stays marked as visited and is emitted in the cold region.
+                coldWorklist.add(block);
+                return;
+            }
+
             // Skip loop headers if there is only a single loop end block to
             // make the backward jump be a conditional jump.
             if (!skipLoopHeader(block)) {
 
                 // Align unskipped loop headers as they are the target of the backward jump.
-                if (block.isLoopHeader()) {
+                if (block.isLoopHeader() && hot) {
                     block.setAlign(true);
                 }
                 addBlock(block, order);
@@ -176,7 +208,7 @@ public final class ComputeBlockOrder {
                 // as they are the target
                 // of the backward jump.
                 for (T successor : loop.getHeader().getSuccessors()) {
-                    if (successor.getLoopDepth() == block.getLoopDepth()) {
+                    if (successor.getLoopDepth() == block.getLoopDepth() && hot) {
                         successor.setAlign(true);
                     }
                 }
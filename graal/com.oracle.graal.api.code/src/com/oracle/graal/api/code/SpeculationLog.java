@@ -24,6 +24,7 @@ package com.oracle.graal.api.code;
 
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
 import com.oracle.graal.api.meta.*;
 
@@ -32,21 +33,35 @@ import com.oracle.graal.api.meta.*;
  * 
  */
 public abstract class SpeculationLog {
+    private static final AtomicReferenceFieldUpdater<SpeculationLog, Object> lastFailedUpdater = AtomicReferenceFieldUpdater.newUpdater(SpeculationLog.class, Object.class, "lastFailed");
+
+    /**
+     * The reason of the speculation that failed last. Set by the VM when the deoptimization of a
+     * failed speculation is handled.
+     */
     private volatile Object lastFailed;
     private volatile Collection<Object> speculations;
     private Set<Object> failedSpeculations;
 
     public synchronized void collectFailedSpeculations() {
-        if (lastFailed != null) {
+        Object failed = takeLastFailed();
+        if (failed != null) {
             if (failedSpeculations == null) {
                 failedSpeculations = new HashSet<>(2);
             }
-            failedSpeculations.add(lastFailed);
-            lastFailed = null;
+            failedSpeculations.add(failed);
             speculations = null;
         }
     }
 
+    /**
+     * Gets and clears the reason of the speculation that failed last, without losing a failure
+     * reported by the VM concurrently.
+     */
+    protected final Object takeLastFailed() {
+        return lastFailedUpdater.getAndSet(this, null);
+    }
+
     public boolean maySpeculate(Object reason) {
         if (failedSpeculations != null && failedSpeculations.contains(reason)) {
             return false;
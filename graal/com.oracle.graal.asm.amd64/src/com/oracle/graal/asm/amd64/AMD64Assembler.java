@@ -2483,6 +2483,14 @@ public class AMD64Assembler extends Assembler {
         emitOperandHelper(dst, src);
     }
 
+    public final void movdqu(AMD64Address dst, Register src) {
+        emitByte(0xF3);
+        prefix(dst, src);
+        emitByte(0x0F);
+        emitByte(0x7F);
+        emitOperandHelper(src, dst);
+    }
+
     public final void movslq(AMD64Address dst, int imm32) {
         prefixq(dst);
         emitByte(0xC7);
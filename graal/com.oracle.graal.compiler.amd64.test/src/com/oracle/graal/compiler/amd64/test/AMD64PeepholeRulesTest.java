@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.compiler.amd64.test;
+
+import static com.oracle.graal.amd64.AMD64.*;
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.*;
+
+import com.oracle.graal.api.code.*;
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.lir.*;
+import com.oracle.graal.lir.amd64.*;
+import com.oracle.graal.lir.amd64.AMD64Compare.CompareOp;
+import com.oracle.graal.lir.amd64.AMD64Move.MoveFromRegOp;
+import com.oracle.graal.lir.amd64.AMD64Move.MoveToRegOp;
+
+/**
+ * Tests the rules of {@link AMD64PeepholeRules} as applied by the {@link PeepholeOptimizer}.
+ */
+public class AMD64PeepholeRulesTest {
+
+    private static final LIRKind INT = LIRKind.value(Kind.Int);
+    private static final LIRKind LONG = LIRKind.value(Kind.Long);
+
+    private static List<LIRInstruction> optimize(int expectedChanges, LIRInstruction... instructions) {
+        List<LIRInstruction> list = new ArrayList<>(Arrays.asList(instructions));
+        assertEquals(expectedChanges, new PeepholeOptimizer(new AMD64PeepholeRules()).optimize(list));
+        return list;
+    }
+
+    @Test
+    public void moveBack() {
+        StackSlot slot = StackSlot.get(LONG, 16, true);
+        LIRInstruction spill = new MoveFromRegOp(Kind.Long, slot, rax.asValue(LONG));
+        List<LIRInstruction> result = optimize(1, spill, new MoveToRegOp(Kind.Long, rax.asValue(LONG), slot));
+        assertEquals(1, result.size());
+        assertSame(spill, result.get(0));
+    }
+
+    @Test
+    public void overwrittenMove() {
+        LIRInstruction second = new MoveToRegOp(Kind.Int, rbx.asValue(INT), rcx.asValue(INT));
+        List<LIRInstruction> result = optimize(1, new MoveToRegOp(Kind.Int, rbx.asValue(INT), rax.asValue(INT)), second);
+        assertEquals(1, result.size());
+        assertSame(second, result.get(0));
+    }
+
+    @Test
+    public void overwrittenMoveReadUnderOtherKind() {
+        /* The second move reads the result of the first one, although with a different kind. */
+        LIRInstruction first = new MoveToRegOp(Kind.Long, rbx.asValue(LONG), rax.asValue(LONG));
+        LIRInstruction second = new MoveToRegOp(Kind.Long, rbx.asValue(LONG), rbx.asValue(INT));
+        List<LIRInstruction> result = optimize(0, first, second);
+        assertEquals(2, result.size());
+    }
+
+    @Test
+    public void selfMove() {
+        List<LIRInstruction> result = optimize(1, new MoveToRegOp(Kind.Int, rax.asValue(INT), rax.asValue(INT)));
+        assertEquals(0, result.size());
+    }
+
+    @Test
+    public void selfMoveOtherKind() {
+        optimize(0, new MoveToRegOp(Kind.Int, rax.asValue(INT), rax.asValue(LONG)));
+    }
+
+    @Test
+    public void compareZeroToTest() {
+        List<LIRInstruction> result = optimize(1, new CompareOp(AMD64Compare.ICMP, rax.asValue(INT), Constant.INT_0));
+        assertEquals(1, result.size());
+        assertTrue(result.get(0) instanceof AMD64TestOp);
+    }
+
+    @Test
+    public void compareNonZero() {
+        optimize(0, new CompareOp(AMD64Compare.ICMP, rax.asValue(INT), Constant.forInt(1)));
+        optimize(0, new CompareOp(AMD64Compare.ICMP, rax.asValue(INT), rbx.asValue(INT)));
+    }
+}
@@ -92,6 +92,11 @@ public abstract class AMD64LIRGenerator extends LIRGenerator {
         lirGenRes.getLIR().setSpillMoveFactory(new AMD64SpillMoveFactory());
     }
 
+    @Override
+    public PeepholeRuleSet getPeepholeRules() {
+        return new AMD64PeepholeRules();
+    }
+
     @Override
     public boolean canStoreConstant(Constant c) {
         // there is no immediate move of 64-bit constants on Intel
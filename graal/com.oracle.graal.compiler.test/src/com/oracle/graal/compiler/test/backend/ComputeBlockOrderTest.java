@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.compiler.test.backend;
+
+import static com.oracle.graal.alloc.ComputeBlockOrder.Options.*;
+
+import java.util.*;
+
+import org.junit.*;
+
+import com.oracle.graal.alloc.*;
+import com.oracle.graal.compiler.common.cfg.*;
+import com.oracle.graal.options.*;
+import com.oracle.graal.options.OptionValue.OverrideScope;
+
+/**
+ * Tests the code emission order computed by {@link ComputeBlockOrder} on a small hand-made control
+ * flow graph.
+ */
+public class ComputeBlockOrderTest {
+
+    private static final class TestLoop extends Loop<TestBlock> {
+
+        TestLoop(TestBlock header) {
+            super(null, 0, header);
+        }
+
+        @Override
+        public long numBackedges() {
+            return 1;
+        }
+    }
+
+    private static final class TestBlock extends AbstractBlockBase<TestBlock> {
+
+        private final double probability;
+        private Loop<TestBlock> loop;
+        private boolean loopEnd;
+
+        TestBlock(int id, double probability) {
+            this.id = id;
+            this.probability = probability;
+            this.predecessors = new ArrayList<>();
+            this.successors = new ArrayList<>();
+        }
+
+        void addSuccessor(TestBlock successor) {
+            successors.add(successor);
+            successor.predecessors.add(this);
+        }
+
+        public Loop<TestBlock> getLoop() {
+            return loop;
+        }
+
+        public void setLoop(Loop<TestBlock> loop) {
+            this.loop = loop;
+        }
+
+        public int getLoopDepth() {
+            return loop == null ? 0 : loop.getDepth();
+        }
+
+        public boolean isLoopHeader() {
+            return loop != null && loop.getHeader() == this;
+        }
+
+        public boolean isLoopEnd() {
+            return loopEnd;
+        }
+
+        public boolean isExceptionEntry() {
+            return false;
+        }
+
+        public TestBlock getPostdominator() {
+            return null;
+        }
+
+        public double probability() {
+            return probability;
+        }
+    }
+
+    private TestBlock start;
+    private TestBlock header;
+    private TestBlock body;
+    private TestBlock deopt;
+    private TestBlock loopEnd;
+    private TestBlock exit;
+
+    /**
+     * Builds a loop whose body has a never taken deoptimization path:
+     *
+     * <pre>
+     * start -> header -> body -> loopEnd -> header
+     *          header -> exit
+     *                    body -> deopt
+     * </pre>
+     */
+    @Before
+    public void buildGraph() {
+        start = new TestBlock(0, 1.0);
+        header = new TestBlock(1, 10.0);
+        body = new TestBlock(2, 9.0);
+        deopt = new TestBlock(3, 0.0);
+        loopEnd = new TestBlock(4, 9.0);
+        exit = new TestBlock(5, 1.0);
+        start.addSuccessor(header);
+        header.addSuccessor(body);
+        header.addSuccessor(exit);
+        body.addSuccessor(deopt);
+        body.addSuccessor(loopEnd);
+        loopEnd.addSuccessor(header);
+        loopEnd.loopEnd = true;
+
+        Loop<TestBlock> loop = new TestLoop(header);
+        for (TestBlock block : new TestBlock[]{header, body, deopt, loopEnd}) {
+            block.setLoop(loop);
+        }
+    }
+
+    private List<TestBlock> computeOrder(boolean splitColdBlocks) {
+        try (OverrideScope s = OptionValue.override(SplitColdBlocks, splitColdBlocks)) {
+            List<TestBlock> order = ComputeBlockOrder.computeCodeEmittingOrder(6, start);
+            Assert.assertEquals(6, order.size());
+            return order;
+        }
+    }
+
+    @Test
+    public void testColdBlocksLast() {
+        List<TestBlock> order = computeOrder(true);
+        Assert.assertSame(deopt, order.get(order.size() - 1));
+        Assert.assertTrue(order.indexOf(exit) < order.indexOf(deopt));
+        Assert.assertFalse(deopt.isAligned());
+    }
+
+    @Test
+    public void testColdBlocksInline() {
+        List<TestBlock> order = computeOrder(false);
+        Assert.assertTrue(order.indexOf(deopt) < order.indexOf(exit));
+    }
+
+    @Test
+    public void testLoopAligned() {
+        computeOrder(true);
+        /* The header is placed after the only loop end, so the body is the target of the jump. */
+        Assert.assertTrue(body.isAligned());
+        Assert.assertFalse(start.isAligned());
+        Assert.assertFalse(exit.isAligned());
+    }
+}
@@ -270,6 +270,7 @@ public class GraalCompiler {
                 if (lirGen.canEliminateRedundantMoves()) {
                     RedundantMoveElimination.optimize(lir, frameMap);
                 }
+                PeepholeOptimizer.optimize(lir, lirGen.getPeepholeRules());
                 NullCheckOptimizer.optimize(lir, target.implicitNullCheckLimit);
 
                 Debug.dump(lir, "After control flow optimization");
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.amd64.test;
+
+import static com.oracle.graal.api.code.CodeUtil.*;
+import static com.oracle.graal.compiler.GraalCompiler.*;
+import static com.oracle.graal.hotspot.amd64.AMD64HotSpotBackend.Options.*;
+
+import org.junit.*;
+
+import com.oracle.graal.alloc.*;
+import com.oracle.graal.api.code.*;
+import com.oracle.graal.api.code.CallingConvention.Type;
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.asm.*;
+import com.oracle.graal.compiler.common.*;
+import com.oracle.graal.compiler.common.cfg.*;
+import com.oracle.graal.compiler.test.*;
+import com.oracle.graal.hotspot.amd64.*;
+import com.oracle.graal.lir.*;
+import com.oracle.graal.lir.StandardOp.LabelOp;
+import com.oracle.graal.lir.asm.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.options.*;
+import com.oracle.graal.options.OptionValue.OverrideScope;
+import com.oracle.graal.phases.*;
+
+/**
+ * Checks the layout of the code emitted by {@link AMD64HotSpotBackend}: cold blocks are placed
+ * after all hot blocks and aligned blocks start at a multiple of the
+ * {@link AMD64HotSpotBackend.Options#LoopHeaderAlignment}.
+ */
+public class AMD64HotSpotBlockLayoutTest extends GraalCompilerTest {
+
+    /**
+     * The LIR of the last compilation.
+     */
+    private LIR lir;
+
+    public static int loopSnippet(int[] array, int n) {
+        int sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += array[i];
+        }
+        return sum;
+    }
+
+    @Override
+    protected CompilationResult compile(ResolvedJavaMethod method, StructuredGraph graph) {
+        CallingConvention cc = getCallingConvention(getCodeCache(), Type.JavaCallee, graph.method(), false);
+        return compileGraph(graph, null, cc, method, getProviders(), getBackend(), getCodeCache().getTarget(), null, getDefaultGraphBuilderSuite(), OptimisticOptimizations.ALL,
+                        getProfilingInfo(graph), getSpeculationLog(), getSuites(), new CompilationResult(), new CompilationResultBuilderFactory() {
+
+                            public CompilationResultBuilder createBuilder(CodeCacheProvider codeCache, ForeignCallsProvider foreignCalls, FrameMap frameMap, Assembler asm, FrameContext frameContext,
+                                            CompilationResult compilationResult) {
+                                return new CompilationResultBuilder(codeCache, foreignCalls, frameMap, asm, frameContext, compilationResult) {
+
+                                    @Override
+                                    public void emit(LIR emitted) {
+                                        lir = emitted;
+                                        super.emit(emitted);
+                                    }
+                                };
+                            }
+                        });
+    }
+
+    private void compileLoop(int alignment) {
+        try (OverrideScope s = OptionValue.override(LoopHeaderAlignment, alignment)) {
+            compile(getMetaAccess().lookupJavaMethod(getMethod("loopSnippet")), parse("loopSnippet"));
+        }
+    }
+
+    @Test
+    public void testColdBlocksLast() {
+        compileLoop(16);
+        double coldProbability = ComputeBlockOrder.Options.ColdBlockProbability.getValue();
+        int coldBlocks = 0;
+        for (AbstractBlock<?> block : lir.codeEmittingOrder()) {
+            if (block.probability() < coldProbability) {
+                coldBlocks++;
+            } else {
+                Assert.assertEquals("hot block " + block + " after a cold block", 0, coldBlocks);
+            }
+        }
+        Assert.assertTrue("the array accesses should have deoptimization paths", coldBlocks > 0);
+    }
+
+    @Test
+    public void testLoopHeaderAlignment() {
+        for (int alignment : new int[]{16, 32, 64}) {
+            compileLoop(alignment);
+            int alignedBlocks = 0;
+            for (AbstractBlock<?> block : lir.codeEmittingOrder()) {
+                if (block.isAligned()) {
+                    LabelOp label = (LabelOp) lir.getLIRforBlock(block).get(0);
+                    Assert.assertEquals("position of " + block, 0, label.getLabel().position() % alignment);
+                    alignedBlocks++;
+                }
+            }
+            Assert.assertTrue("the loop should have an aligned block", alignedBlocks > 0);
+        }
+    }
+
+    @Test(expected = GraalInternalError.class)
+    public void testInvalidLoopHeaderAlignment() {
+        try (OverrideScope s = OptionValue.override(LoopHeaderAlignment, 24)) {
+            AMD64HotSpotBackend.getLoopHeaderAlignment();
+        }
+    }
+}
@@ -36,6 +36,7 @@ import com.oracle.graal.api.meta.*;
 import com.oracle.graal.asm.*;
 import com.oracle.graal.asm.amd64.*;
 import com.oracle.graal.asm.amd64.AMD64Assembler.ConditionFlag;
+import com.oracle.graal.compiler.common.*;
 import com.oracle.graal.compiler.gen.*;
 import com.oracle.graal.compiler.target.*;
 import com.oracle.graal.hotspot.*;
@@ -49,12 +50,33 @@ import com.oracle.graal.lir.asm.*;
 import com.oracle.graal.lir.gen.*;
 import com.oracle.graal.nodes.*;
 import com.oracle.graal.nodes.spi.*;
+import com.oracle.graal.options.*;
 
 /**
  * HotSpot AMD64 specific backend.
  */
 public class AMD64HotSpotBackend extends HotSpotHostBackend {
 
+    public static class Options {
+        // @formatter:off
+        @Option(help = "Alignment in bytes of hot loop headers (0 disables alignment)")
+        public static final OptionValue<Integer> LoopHeaderAlignment = new OptionValue<>(16);
+        // @formatter:on
+    }
+
+    /**
+     * Gets the value of {@link Options#LoopHeaderAlignment}.
+     *
+     * @throws GraalInternalError if the value is neither 0 nor a power of 2
+     */
+    public static int getLoopHeaderAlignment() {
+        int alignment = Options.LoopHeaderAlignment.getValue();
+        if (alignment != 0 && !CodeUtil.isPowerOf2(alignment)) {
+            throw new GraalInternalError("LoopHeaderAlignment must be 0 or a power of 2, but is %d", alignment);
+        }
+        return alignment;
+    }
+
     public AMD64HotSpotBackend(HotSpotGraalRuntime runtime, HotSpotProviders providers) {
         super(runtime, providers);
     }
@@ -64,6 +86,11 @@ public class AMD64HotSpotBackend extends HotSpotHostBackend {
         return true;
     }
 
+    @Override
+    public boolean supportsBulkZeroing() {
+        return true;
+    }
+
     @Override
     public FrameMap newFrameMap(RegisterConfig registerConfig) {
         return new AMD64FrameMap(getCodeCache(), registerConfig);
@@ -223,6 +250,7 @@ public class AMD64HotSpotBackend extends HotSpotHostBackend {
         HotSpotFrameContext frameContext = new HotSpotFrameContext(stub != null, omitFrame);
         CompilationResultBuilder crb = factory.createBuilder(getCodeCache(), getForeignCalls(), frameMap, masm, frameContext, compilationResult);
         crb.setTotalFrameSize(frameMap.totalFrameSize());
+        crb.setBlockAlignment(getLoopHeaderAlignment());
         StackSlot deoptimizationRescueSlot = gen.getDeoptimizationRescueSlot();
         if (deoptimizationRescueSlot != null && stub == null) {
             crb.compilationResult.setCustomStackAreaOffset(frameMap.offsetForStackSlot(deoptimizationRescueSlot));
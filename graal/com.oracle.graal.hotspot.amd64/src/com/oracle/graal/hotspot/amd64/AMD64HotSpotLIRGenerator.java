@@ -404,6 +404,11 @@ public class AMD64HotSpotLIRGenerator extends AMD64LIRGenerator implements HotSp
         append(new AMD64HotSpotDeoptimizeCallerOp());
     }
 
+    @Override
+    public void emitZeroMemory(Value address, Value length) {
+        append(new AMD64ZeroMemoryOp(this, asAllocatable(address), asAllocatable(length)));
+    }
+
     @Override
     public void beforeRegisterAllocation() {
         super.beforeRegisterAllocation();
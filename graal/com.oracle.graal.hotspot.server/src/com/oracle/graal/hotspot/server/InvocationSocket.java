@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2011, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2011, 2014, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -36,13 +36,34 @@ import com.oracle.graal.hotspot.logging.*;
  * class waits for a result. While waiting for a result three types of objects can arrive through
  * the socket: a method invocation, a method result or an exception. Method invocation can thus be
  * recursive.
+ * 
+ * Each message starts with a tag byte. Method names are sent as strings only the first time they
+ * are used on a connection and as an index afterwards. Invocations of the methods in
+ * {@link #asyncMethodNames} are sent without waiting for a result and are only flushed together
+ * with the next synchronous message, so that a sequence of notifications costs a single round
+ * trip. No reply is ever sent for such an invocation, so an exception it throws is only logged on
+ * the side that executes it. Replying would make the next synchronous call read the exception as
+ * its own result and every later result would be off by one. The results of the methods in
+ * {@link #cachedMethodNames} cannot change and are cached per receiver and arguments.
  */
 public class InvocationSocket {
 
     private static final boolean DEBUG = false;
     private static final boolean COUNT_CALLS = false;
 
+    private static final byte INVOCATION = 1;
+    private static final byte ASYNC_INVOCATION = 2;
+    private static final byte RESULT = 3;
+    private static final byte EXCEPTION = 4;
+
+    /**
+     * Marks a method name that is sent as a string, as opposed to an index into the names received
+     * earlier.
+     */
+    private static final int NEW_NAME = -1;
+
     private static final HashSet<String> cachedMethodNames = new HashSet<>();
+    private static final HashSet<String> asyncMethodNames = new HashSet<>();
     private static final HashSet<String> forbiddenMethodNames = new HashSet<>();
 
     static {
@@ -52,6 +73,36 @@ public class InvocationSocket {
         cachedMethodNames.add("getCompilerToVM");
         cachedMethodNames.add("exactType");
         cachedMethodNames.add("isInitialized");
+
+        // CompilerToVM queries whose answers never change
+        cachedMethodNames.add("getBytecode");
+        cachedMethodNames.add("exceptionTableLength");
+        cachedMethodNames.add("exceptionTableStart");
+        cachedMethodNames.add("hasBalancedMonitors");
+        cachedMethodNames.add("methodIsIgnoredBySecurityStackWalk");
+        cachedMethodNames.add("lookupNameAndTypeRefIndexInPool");
+        cachedMethodNames.add("lookupNameRefInPool");
+        cachedMethodNames.add("lookupSignatureRefInPool");
+        cachedMethodNames.add("lookupKlassRefIndexInPool");
+        cachedMethodNames.add("constantPoolRemapInstructionOperandFromCache");
+        cachedMethodNames.add("getClassInitializer");
+        cachedMethodNames.add("getMetaspaceMethod");
+        cachedMethodNames.add("getLineNumberTable");
+        cachedMethodNames.add("getLocalVariableTableStart");
+        cachedMethodNames.add("getLocalVariableTableLength");
+        cachedMethodNames.add("getFileName");
+        cachedMethodNames.add("getJavaMirror");
+        cachedMethodNames.add("getSymbol");
+        cachedMethodNames.add("getVtableIndexForInterface");
+
+        asyncMethodNames.add("notifyCompilationStatistics");
+        asyncMethodNames.add("resetCompilationStatistics");
+        asyncMethodNames.add("doNotInlineOrCompile");
+        asyncMethodNames.add("reprofile");
+        asyncMethodNames.add("invalidateInstalledCode");
+        asyncMethodNames.add("invalidateInstalledCodes");
+        asyncMethodNames.add("writeDebugOutput");
+
         forbiddenMethodNames.add("javaClass");
     }
 
@@ -60,6 +111,10 @@ public class InvocationSocket {
 
     private final Map<String, Integer> counts = new HashMap<>();
 
+    private final Map<String, Integer> sentNames = new HashMap<>();
+    private final List<String> receivedNames = new ArrayList<>();
+    private final Map<Class<?>, Map<String, Method>> localMethods = new HashMap<>();
+
     public InvocationSocket(ObjectOutputStream output, ObjectInputStream input) {
         this.output = output;
         this.input = input;
@@ -81,40 +136,6 @@ public class InvocationSocket {
         }
     }
 
-    /**
-     * Represents one invocation of a method that is transferred via the socket connection.
-     * 
-     */
-    private static class Invocation implements Serializable {
-
-        private static final long serialVersionUID = -799162779226626066L;
-
-        public Object receiver;
-        public String methodName;
-        public Object[] args;
-
-        public Invocation(Object receiver, String methodName, Object[] args) {
-            this.receiver = receiver;
-            this.methodName = methodName;
-            this.args = args;
-        }
-    }
-
-    /**
-     * Represents the result of an invocation that is transferred via the socket connection.
-     * 
-     */
-    private static class Result implements Serializable {
-
-        private static final long serialVersionUID = -7496058356272415814L;
-
-        public Object result;
-
-        public Result(Object result) {
-            this.result = result;
-        }
-    }
-
     private void incCount(String name, Object[] args) {
         if (COUNT_CALLS) {
             String nameAndArgCount = name + (args == null ? 0 : args.length);
@@ -126,6 +147,41 @@ public class InvocationSocket {
         }
     }
 
+    private void writeName(String name) throws IOException {
+        Integer index = sentNames.get(name);
+        if (index == null) {
+            sentNames.put(name, sentNames.size());
+            output.writeInt(NEW_NAME);
+            output.writeUTF(name);
+        } else {
+            output.writeInt(index);
+        }
+    }
+
+    private String readName() throws IOException {
+        int index = input.readInt();
+        if (index == NEW_NAME) {
+            String name = input.readUTF();
+            receivedNames.add(name);
+            return name;
+        }
+        return receivedNames.get(index);
+    }
+
+    private void writeInvocation(boolean async, Object receiver, String methodName, Object[] args) throws IOException {
+        output.writeByte(async ? ASYNC_INVOCATION : INVOCATION);
+        output.writeObject(receiver);
+        writeName(methodName);
+        int argCount = args == null ? 0 : args.length;
+        output.writeByte(argCount);
+        for (int i = 0; i < argCount; i++) {
+            output.writeObject(args[i]);
+        }
+        if (!async) {
+            output.flush();
+        }
+    }
+
     /**
      * Each instance of this class handles remote invocations for one instance of a Remote class. It
      * will forward all interface methods to the other end of the socket and cache the results of
@@ -135,7 +191,7 @@ public class InvocationSocket {
     public class Handler implements InvocationHandler {
 
         private final Object receiver;
-        private final HashMap<String, Object> cache = new HashMap<>();
+        private final HashMap<Object, Object> cache = new HashMap<>();
 
         public Handler(Object receiver) {
             this.receiver = receiver;
@@ -148,10 +204,12 @@ public class InvocationSocket {
                 return method.invoke(receiver, args);
             }
             String methodName = method.getName();
-            // check if the result of this zero-arg method was cached
-            if (args == null || args.length == 0) {
-                if (cache.containsKey(methodName)) {
-                    return cache.get(methodName);
+            // check if the result of this method was cached
+            Object cacheKey = null;
+            if (cachedMethodNames.contains(methodName)) {
+                cacheKey = args == null || args.length == 0 ? methodName : Arrays.asList(methodName, Arrays.asList(args));
+                if (cache.containsKey(cacheKey)) {
+                    return cache.get(cacheKey);
                 }
             }
             if (forbiddenMethodNames.contains(methodName)) {
@@ -164,13 +222,15 @@ public class InvocationSocket {
                 }
                 incCount(methodName, args);
 
-                output.writeObject(new Invocation(receiver, methodName, args));
-                output.flush();
+                if (method.getReturnType() == void.class && asyncMethodNames.contains(methodName)) {
+                    writeInvocation(true, receiver, methodName, args);
+                    return null;
+                }
+                writeInvocation(false, receiver, methodName, args);
                 result = waitForResult(false);
 
-                // result caching for selected methods
-                if ((args == null || args.length == 0) && cachedMethodNames.contains(methodName)) {
-                    cache.put(methodName, result);
+                if (cacheKey != null) {
+                    cache.put(cacheKey, result);
                 }
                 return result;
             } catch (Throwable t) {
@@ -184,100 +244,140 @@ public class InvocationSocket {
         }
     }
 
+    private Method findLocalMethod(Class<?> receiverClass, String methodName) {
+        Map<String, Method> methods = localMethods.get(receiverClass);
+        if (methods == null) {
+            methods = new HashMap<>();
+            localMethods.put(receiverClass, methods);
+        }
+        Method method = methods.get(methodName);
+        if (method == null && !methods.containsKey(methodName)) {
+            search: for (Class<?> clazz = receiverClass; clazz != null; clazz = clazz.getSuperclass()) {
+                for (Method m : clazz.getDeclaredMethods()) {
+                    if (methodName.equals(m.getName())) {
+                        method = m;
+                        break search;
+                    }
+                }
+            }
+            methods.put(methodName, method);
+        }
+        return method;
+    }
+
     /**
      * Waits for the result of a remote method invocation. Invocations that should be executed in
      * this VM might arrive while waiting for the result, and these invocations will be executed
      * before again waiting fort he result.
      */
-    @SuppressWarnings("unused")
     public Object waitForResult(boolean eofExpected) throws IOException, ClassNotFoundException {
+        // pending asynchronous invocations must be sent before blocking
+        output.flush();
         while (true) {
-            Object in;
+            byte tag;
             try {
-                in = input.readObject();
+                tag = input.readByte();
             } catch (EOFException e) {
                 if (eofExpected) {
                     return null;
                 }
                 throw e;
             }
-            if (in instanceof Result) {
-                return ((Result) in).result;
-            } else if (in instanceof RuntimeException) {
-                throw (RuntimeException) in;
-            } else if (in instanceof Throwable) {
-                throw new RuntimeException((Throwable) in);
+            switch (tag) {
+                case RESULT:
+                    return input.readObject();
+                case EXCEPTION:
+                    Object in = input.readObject();
+                    if (in instanceof RuntimeException) {
+                        throw (RuntimeException) in;
+                    }
+                    throw new RuntimeException((Throwable) in);
+                case INVOCATION:
+                case ASYNC_INVOCATION:
+                    invokeLocal(tag == ASYNC_INVOCATION);
+                    break;
+                default:
+                    throw new StreamCorruptedException("unknown message tag " + tag);
             }
+        }
+    }
 
-            Invocation invoke = (Invocation) in;
-            Method method = null;
-            for (Class<?> clazz = invoke.receiver.getClass(); clazz != null; clazz = clazz.getSuperclass()) {
-                for (Method m : clazz.getDeclaredMethods()) {
-                    if (invoke.methodName.equals(m.getName())) {
-                        method = m;
-                        break;
-                    }
-                }
+    @SuppressWarnings("unused")
+    private void invokeLocal(boolean async) throws IOException, ClassNotFoundException {
+        Object receiver = input.readObject();
+        String methodName = readName();
+        int argCount = input.readByte();
+        Object[] args = argCount == 0 ? null : new Object[argCount];
+        for (int i = 0; i < argCount; i++) {
+            args[i] = input.readObject();
+        }
+
+        Method method = findLocalMethod(receiver.getClass(), methodName);
+        if (method == null) {
+            Exception e = new UnsupportedOperationException("unknown method " + methodName);
+            e.printStackTrace();
+            if (!async) {
+                sendException(e);
             }
-            if (method == null) {
-                Exception e = new UnsupportedOperationException("unknown method " + invoke.methodName);
-                e.printStackTrace();
-                output.writeObject(e);
-                output.flush();
+            return;
+        }
+        Object result = null;
+        Throwable exception = null;
+        try {
+            if (args == null) {
+                if (DEBUG) {
+                    Logger.startScope("invoking local " + methodName);
+                }
+                result = method.invoke(receiver);
             } else {
-                Object result = null;
-                try {
-                    if (invoke.args == null) {
-                        if (DEBUG) {
-                            Logger.startScope("invoking local " + invoke.methodName);
-                        }
-                        result = method.invoke(invoke.receiver);
-                    } else {
-                        if (Logger.ENABLED && DEBUG) {
-                            StringBuilder str = new StringBuilder();
-                            str.append("invoking local " + invoke.methodName + "(");
-                            for (int i = 0; i < invoke.args.length; i++) {
-                                str.append(i == 0 ? "" : ", ");
-                                str.append(Logger.pretty(invoke.args[i]));
-                            }
-                            str.append(")");
-                            Logger.startScope(str.toString());
-                        }
-                        result = method.invoke(invoke.receiver, invoke.args);
-                    }
-                    result = new Result(result);
-                } catch (IllegalArgumentException e) {
-                    TTY.println("error while invoking " + invoke.methodName);
-                    e.getCause().printStackTrace();
-                    result = e.getCause();
-                } catch (InvocationTargetException e) {
-                    TTY.println("error while invoking " + invoke.methodName);
-                    e.getCause().printStackTrace();
-                    result = e.getCause();
-                } catch (IllegalAccessException e) {
-                    TTY.println("error while invoking " + invoke.methodName);
-                    e.getCause().printStackTrace();
-                    result = e.getCause();
-                } finally {
-                    if (DEBUG) {
-                        if (result instanceof Result) {
-                            Logger.endScope(" = " + ((Result) result).result);
-                        } else {
-                            Logger.endScope(" = " + result);
-                        }
+                if (Logger.ENABLED && DEBUG) {
+                    StringBuilder str = new StringBuilder();
+                    str.append("invoking local " + methodName + "(");
+                    for (int i = 0; i < args.length; i++) {
+                        str.append(i == 0 ? "" : ", ");
+                        str.append(Logger.pretty(args[i]));
                     }
+                    str.append(")");
+                    Logger.startScope(str.toString());
                 }
-                output.writeObject(result);
-                output.flush();
+                result = method.invoke(receiver, args);
             }
+        } catch (IllegalArgumentException | IllegalAccessException e) {
+            TTY.println("error while invoking " + methodName);
+            e.printStackTrace();
+            exception = e;
+        } catch (InvocationTargetException e) {
+            TTY.println("error while invoking " + methodName);
+            e.getCause().printStackTrace();
+            exception = e.getCause();
+        } finally {
+            if (DEBUG) {
+                Logger.endScope(" = " + (exception != null ? exception : result));
+            }
+        }
+        if (async) {
+            // the caller does not wait for a reply, the error was logged above
+            return;
         }
+        if (exception != null) {
+            sendException(exception);
+        } else {
+            sendResult(result);
+        }
+    }
+
+    private void sendException(Throwable t) throws IOException {
+        output.writeByte(EXCEPTION);
+        output.writeObject(t);
+        output.flush();
     }
 
     /**
      * Sends a result without invoking a method, used by CompilationServer startup code.
      */
     public void sendResult(Object obj) throws IOException {
-        output.writeObject(new Result(obj));
+        output.writeByte(RESULT);
+        output.writeObject(obj);
         output.flush();
     }
     // CheckStyle: resume system..print check
@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.test;
+
+import java.util.*;
+
+import org.junit.*;
+
+import com.oracle.graal.api.code.*;
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.compiler.test.*;
+import com.oracle.graal.debug.*;
+import com.oracle.graal.debug.Debug.Scope;
+import com.oracle.graal.hotspot.nodes.*;
+import com.oracle.graal.hotspot.replacements.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.nodes.java.*;
+import com.oracle.graal.nodes.spi.*;
+import com.oracle.graal.phases.*;
+import com.oracle.graal.phases.common.*;
+import com.oracle.graal.phases.common.inlining.*;
+import com.oracle.graal.phases.common.inlining.policy.*;
+import com.oracle.graal.phases.tiers.*;
+import com.oracle.graal.virtual.phases.ea.*;
+
+/**
+ * Tests that allocations are only left unzeroed if all their elements are written before they can
+ * be read (see {@link ArrayCopyNode} and the lowering of {@link CommitAllocationNode}) and that the
+ * memory cleared by the allocation snippets, including with a {@link ZeroMemoryNode}, reads as
+ * zero.
+ */
+public class AllocationZeroingTest extends GraalCompilerTest {
+
+    public static int sink;
+
+    public static int[] copySnippet(int[] src) {
+        int[] dest = new int[src.length];
+        System.arraycopy(src, 0, dest, 0, src.length);
+        return dest;
+    }
+
+    public static int[] copyWithOffsetSnippet(int[] src) {
+        int[] dest = new int[src.length];
+        System.arraycopy(src, 1, dest, 0, src.length - 1);
+        return dest;
+    }
+
+    public static int[] copyToLongerSnippet(int[] src) {
+        int[] dest = new int[src.length + 1];
+        System.arraycopy(src, 0, dest, 0, src.length);
+        return dest;
+    }
+
+    public static int[] copyAfterStoreSnippet(int[] src) {
+        int[] dest = new int[src.length];
+        sink = dest.length;
+        System.arraycopy(src, 0, dest, 0, src.length);
+        return dest;
+    }
+
+    public static Object[] copyObjectsSnippet(Object[] src) {
+        Object[] dest = new Object[src.length];
+        System.arraycopy(src, 0, dest, 0, src.length);
+        return dest;
+    }
+
+    public static int[] completeVirtualSnippet(int a) {
+        int[] array = new int[4];
+        array[0] = a;
+        array[1] = a + 1;
+        array[2] = a + 2;
+        array[3] = a + 3;
+        return array;
+    }
+
+    public static int[] partialVirtualSnippet(int a) {
+        int[] array = new int[4];
+        array[0] = a;
+        array[2] = a + 2;
+        return array;
+    }
+
+    public static int[] zeroStoreVirtualSnippet(int a) {
+        int[] array = new int[4];
+        array[0] = a;
+        array[1] = 0;
+        array[2] = a + 2;
+        array[3] = a + 3;
+        return array;
+    }
+
+    /**
+     * Runs the phases up to the mid tier lowering, which lowers {@link ArrayCopyNode}s and
+     * {@link CommitAllocationNode}s but keeps the {@link NewArrayNode}s, and returns the single
+     * {@link NewArrayNode} of the graph.
+     */
+    private NewArrayNode lowerToNewArray(String snippet, boolean escapeAnalysis) {
+        try (Scope s = Debug.scope("AllocationZeroingTest", new DebugDumpScope(snippet))) {
+            StructuredGraph graph = parse(snippet);
+            HighTierContext highContext = new HighTierContext(getProviders(), new Assumptions(false), null, getDefaultGraphBuilderSuite(), OptimisticOptimizations.ALL);
+            MidTierContext midContext = new MidTierContext(getProviders(), new Assumptions(false), getCodeCache().getTarget(), OptimisticOptimizations.ALL, graph.method().getProfilingInfo(), null);
+            new InliningPhase(new InlineEverythingPolicy(), new CanonicalizerPhase(true)).apply(graph, highContext);
+            if (escapeAnalysis) {
+                new PartialEscapePhase(false, new CanonicalizerPhase(true)).apply(graph, highContext);
+            }
+            new LoweringPhase(new CanonicalizerPhase(true), LoweringTool.StandardLoweringStage.HIGH_TIER).apply(graph, highContext);
+            new GuardLoweringPhase().apply(graph, midContext);
+            new LoweringPhase(new CanonicalizerPhase(true), LoweringTool.StandardLoweringStage.MID_TIER).apply(graph, midContext);
+            Debug.dump(graph, "After mid tier lowering");
+            Assert.assertEquals(1, graph.getNodes().filter(NewArrayNode.class).count());
+            return graph.getNodes().filter(NewArrayNode.class).first();
+        } catch (Throwable e) {
+            throw Debug.handle(e);
+        }
+    }
+
+    @Test
+    public void testCopyEliminatesZeroing() {
+        Assert.assertFalse(lowerToNewArray("copySnippet", false).fillContents());
+        test("copySnippet", new int[]{1, 2, 3});
+        test("copySnippet", new int[0]);
+    }
+
+    @Test
+    public void testPartialCopyKeepsZeroing() {
+        Assert.assertTrue(lowerToNewArray("copyWithOffsetSnippet", false).fillContents());
+        Assert.assertTrue(lowerToNewArray("copyToLongerSnippet", false).fillContents());
+        test("copyWithOffsetSnippet", new int[]{1, 2, 3});
+        test("copyToLongerSnippet", new int[]{1, 2, 3});
+    }
+
+    @Test
+    public void testInterveningNodeKeepsZeroing() {
+        Assert.assertTrue(lowerToNewArray("copyAfterStoreSnippet", false).fillContents());
+    }
+
+    @Test
+    public void testObjectCopyKeepsZeroing() {
+        Assert.assertTrue(lowerToNewArray("copyObjectsSnippet", false).fillContents());
+    }
+
+    @Test
+    public void testCompleteVirtualArray() {
+        Assert.assertFalse(lowerToNewArray("completeVirtualSnippet", true).fillContents());
+        test("completeVirtualSnippet", 5);
+    }
+
+    @Test
+    public void testPartialVirtualArrayKeepsZeroing() {
+        Assert.assertTrue(lowerToNewArray("partialVirtualSnippet", true).fillContents());
+        Assert.assertTrue(lowerToNewArray("zeroStoreVirtualSnippet", true).fillContents());
+        test("partialVirtualSnippet", 5);
+        test("zeroStoreVirtualSnippet", 5);
+    }
+
+    public static byte[] newBytesSnippet(int length) {
+        return new byte[length];
+    }
+
+    public static long[] newLongsSnippet(int length) {
+        return new long[length];
+    }
+
+    /**
+     * Fills a part of the heap with non-zero values so that new allocations are likely to reuse
+     * dirty memory.
+     */
+    private static void dirtyHeap() {
+        List<byte[]> garbage = new ArrayList<>();
+        for (int i = 0; i < 1024; i++) {
+            byte[] bytes = new byte[4096];
+            Arrays.fill(bytes, (byte) -1);
+            garbage.add(bytes);
+        }
+        garbage.clear();
+        System.gc();
+    }
+
+    /**
+     * Allocates arrays of sizes below, around and well above the bulk zeroing threshold,
+     * including sizes that are not a multiple of the 64 bytes cleared per iteration, and checks
+     * that they read as zero.
+     */
+    @Test
+    public void testArraysAreZeroed() throws InvalidInstalledCodeException {
+        InstalledCode newBytes = getCode(getMetaAccess().lookupJavaMethod(getMethod("newBytesSnippet")), parse("newBytesSnippet"));
+        InstalledCode newLongs = getCode(getMetaAccess().lookupJavaMethod(getMethod("newLongsSnippet")), parse("newLongsSnippet"));
+        int[] lengths = {0, 1, 7, 8, 63, 200, 255, 256, 257, 300, 1000, 1001, 4095, 4096, 65537};
+        for (int iteration = 0; iteration < 4; iteration++) {
+            dirtyHeap();
+            for (int length : lengths) {
+                byte[] bytes = (byte[]) newBytes.executeVarargs(length);
+                Assert.assertEquals(length, bytes.length);
+                for (int i = 0; i < length; i++) {
+                    Assert.assertEquals("byte[" + length + "][" + i + "]", 0, bytes[i]);
+                }
+                long[] longs = (long[]) newLongs.executeVarargs(length);
+                Assert.assertEquals(length, longs.length);
+                for (int i = 0; i < length; i++) {
+                    Assert.assertEquals("long[" + length + "][" + i + "]", 0, longs[i]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.test;
+
+import static com.oracle.graal.api.code.CodeUtil.*;
+import static com.oracle.graal.compiler.GraalCompiler.*;
+import static com.oracle.graal.compiler.common.GraalOptions.*;
+import static com.oracle.graal.hotspot.BootstrapCodeCache.Options.*;
+import static com.oracle.graal.hotspot.HotSpotGraalRuntime.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+import org.junit.*;
+
+import com.oracle.graal.api.code.*;
+import com.oracle.graal.api.code.CallingConvention.Type;
+import com.oracle.graal.api.code.CompilationResult.DataPatch;
+import com.oracle.graal.api.code.CompilationResult.PrimitiveData;
+import com.oracle.graal.compiler.test.*;
+import com.oracle.graal.hotspot.*;
+import com.oracle.graal.hotspot.meta.*;
+import com.oracle.graal.lir.asm.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.options.*;
+import com.oracle.graal.options.OptionValue.OverrideScope;
+import com.oracle.graal.phases.*;
+
+/**
+ * Writes code with a {@link BootstrapCodeCache} and checks that it can be loaded and installed
+ * again, including the safepoint polling page it refers to.
+ */
+public class BootstrapCodeCacheTest extends GraalCompilerTest {
+
+    public static int loopSnippet(int n) {
+        int sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += i * i;
+        }
+        return sum;
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        File written = File.createTempFile("bootstrap", ".bin");
+        File read = File.createTempFile("bootstrap", ".bin");
+        try {
+            Assert.assertTrue(written.delete());
+            HotSpotResolvedJavaMethod method;
+            CompilationResult compiled;
+            try (OverrideScope s = OptionValue.override(BootstrapCodeCacheFile, written.getPath())) {
+                BootstrapCodeCache cache = BootstrapCodeCache.getInstance();
+                StructuredGraph graph = parse("loopSnippet");
+                method = (HotSpotResolvedJavaMethod) graph.method();
+                Assert.assertTrue(BootstrapCodeCache.appliesTo(method, graph.getEntryBCI()));
+                compiled = compile(cache.getBackend(), graph);
+                Assert.assertTrue("no safepoint poll in the data section", referencesPollingPage(compiled));
+                cache.record(method, graph, compiled);
+                BootstrapCodeCache.dump();
+            }
+            Assert.assertTrue(written.isFile());
+
+            // a different file name is read like in a new VM instance
+            Files.copy(written.toPath(), read.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            try (OverrideScope s = OptionValue.override(BootstrapCodeCacheFile, read.getPath())) {
+                CompilationResult loaded = BootstrapCodeCache.getInstance().lookup(method);
+                Assert.assertNotNull("code was not cached", loaded);
+                Assert.assertArrayEquals(Arrays.copyOf(compiled.getTargetCode(), compiled.getTargetCodeSize()), Arrays.copyOf(loaded.getTargetCode(), loaded.getTargetCodeSize()));
+                Assert.assertEquals(compiled.getDataReferences().size(), loaded.getDataReferences().size());
+                Assert.assertEquals(compiled.getInfopoints().size(), loaded.getInfopoints().size());
+                Assert.assertTrue("safepoint poll not relinked", referencesPollingPage(loaded));
+
+                InstalledCode code = getCodeCache().addMethod(method, loaded, null, null);
+                Assert.assertEquals(loopSnippet(100), code.executeVarargs(100));
+            }
+        } finally {
+            written.delete();
+            read.delete();
+        }
+    }
+
+    private CompilationResult compile(HotSpotBackend backend, StructuredGraph graph) {
+        try (OverrideScope s = OptionValue.override(ImmutableCode, true)) {
+            CallingConvention cc = getCallingConvention(backend.getCodeCache(), Type.JavaCallee, graph.method(), false);
+            return compileGraph(graph, null, cc, graph.method(), backend.getProviders(), backend, backend.getTarget(), null, getDefaultGraphBuilderSuite(), OptimisticOptimizations.ALL,
+                            getProfilingInfo(graph), null, backend.getSuites().getDefaultSuites(), new CompilationResult(), CompilationResultBuilderFactory.Default);
+        }
+    }
+
+    private static boolean referencesPollingPage(CompilationResult result) {
+        for (DataPatch patch : result.getDataReferences()) {
+            if (patch.data instanceof PrimitiveData && ((PrimitiveData) patch.data).getConstant().asLong() == runtime().getConfig().safepointPollingAddress) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
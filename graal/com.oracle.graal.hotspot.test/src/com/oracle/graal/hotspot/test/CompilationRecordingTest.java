@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.test;
+
+import static com.oracle.graal.hotspot.meta.CompilationRecording.Options.*;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.nio.file.*;
+import java.util.*;
+
+import org.junit.*;
+
+import com.oracle.graal.api.code.*;
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.compiler.test.*;
+import com.oracle.graal.hotspot.meta.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.options.*;
+import com.oracle.graal.options.OptionValue.OverrideScope;
+
+/**
+ * Records a compilation with {@link CompilationRecording}, changes the profile of the compiled
+ * method and checks that replaying the recording produces the same code.
+ */
+public class CompilationRecordingTest extends GraalCompilerTest {
+
+    public static int branchSnippet(int value) {
+        if (value > 0) {
+            return value * 3;
+        }
+        return -value;
+    }
+
+    @Test
+    public void testRecordAndReplay() throws Exception {
+        Method reflectionMethod = getMethod("branchSnippet");
+        HotSpotResolvedJavaMethod method = (HotSpotResolvedJavaMethod) getMetaAccess().lookupJavaMethod(reflectionMethod);
+        method.reprofile();
+        for (int i = 0; !method.getProfilingInfo().isMature(); i++) {
+            Assert.assertTrue("profile did not mature", i < 1000000);
+            reflectionMethod.invoke(null, 1 + i % 4);
+        }
+
+        File directory = Files.createTempDirectory("recordings").toFile();
+        try {
+            byte[] recorded;
+            try (OverrideScope s = OptionValue.override(RecordCompilations, "CompilationRecordingTest.branchSnippet", CompilationRecordingDirectory, directory.getPath())) {
+                try (CompilationRecording recording = CompilationRecording.record(method, StructuredGraph.INVOCATION_ENTRY_BCI, 0)) {
+                    Assert.assertNotNull(recording);
+                    recorded = compileToBytes(method);
+                }
+            }
+            File[] files = directory.listFiles();
+            Assert.assertEquals(1, files.length);
+
+            // the replayed compilation must not see the new profile
+            method.reprofile();
+            for (int i = 0; i < 1000; i++) {
+                reflectionMethod.invoke(null, -i);
+            }
+
+            CompilationRecording recording = CompilationRecording.load(files[0]);
+            Assert.assertEquals(method, recording.getMethod());
+            recording.prepare();
+            byte[] replayed;
+            try (CompilationRecording r = recording.replay()) {
+                replayed = compileToBytes(method);
+            }
+            Assert.assertEquals(0, recording.getDivergences());
+            Assert.assertArrayEquals(recorded, replayed);
+        } finally {
+            for (File file : directory.listFiles()) {
+                file.delete();
+            }
+            directory.delete();
+        }
+    }
+
+    private byte[] compileToBytes(ResolvedJavaMethod method) {
+        StructuredGraph graph = parseProfiled(method.getName());
+        CompilationResult result = compile(method, graph);
+        return Arrays.copyOf(result.getTargetCode(), result.getTargetCodeSize());
+    }
+}
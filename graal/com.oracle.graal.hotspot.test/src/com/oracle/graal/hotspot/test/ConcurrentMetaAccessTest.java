@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.test;
+
+import static com.oracle.graal.hotspot.HotSpotGraalRuntime.*;
+
+import java.lang.reflect.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.*;
+
+import com.oracle.graal.api.meta.*;
+
+/**
+ * Tests that the lock-free method and field caches of
+ * {@link com.oracle.graal.hotspot.meta.HotSpotResolvedObjectType} hand out a single object per
+ * method and field when queried from several threads at once.
+ */
+public class ConcurrentMetaAccessTest {
+
+    private static final int THREADS = 8;
+
+    private static final Class<?>[] classes = {ConcurrentHashMap.class, TreeMap.class, StringBuilder.class, Thread.class, ThreadPoolExecutor.class};
+
+    private static List<Object> lookupAll() {
+        MetaAccessProvider metaAccess = runtime().getHostProviders().getMetaAccess();
+        List<Object> result = new ArrayList<>();
+        for (Class<?> c : classes) {
+            for (Method m : c.getDeclaredMethods()) {
+                ResolvedJavaMethod method = metaAccess.lookupJavaMethod(m);
+                result.add(method);
+                result.add(method.getCode());
+            }
+            for (Field f : c.getDeclaredFields()) {
+                result.add(metaAccess.lookupJavaField(f));
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void testIdentity() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CyclicBarrier barrier = new CyclicBarrier(THREADS);
+            List<Future<List<Object>>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    barrier.await();
+                    return lookupAll();
+                }));
+            }
+            List<Object> expected = lookupAll();
+            for (Future<List<Object>> future : futures) {
+                List<Object> actual = future.get();
+                Assert.assertEquals(expected.size(), actual.size());
+                for (int i = 0; i < expected.size(); i++) {
+                    Object e = expected.get(i);
+                    Object a = actual.get(i);
+                    if (e instanceof byte[]) {
+                        Assert.assertArrayEquals((byte[]) e, (byte[]) a);
+                    } else {
+                        Assert.assertSame(e, a);
+                    }
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
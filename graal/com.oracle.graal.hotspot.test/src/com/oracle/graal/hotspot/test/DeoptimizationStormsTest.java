@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.test;
+
+import static com.oracle.graal.api.meta.DeoptimizationReason.*;
+import static com.oracle.graal.hotspot.meta.DeoptimizationStorms.*;
+
+import java.util.*;
+
+import org.junit.*;
+
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.api.meta.ProfilingInfo.TriState;
+import com.oracle.graal.compiler.common.*;
+import com.oracle.graal.hotspot.meta.*;
+import com.oracle.graal.hotspot.meta.DeoptimizationStorms.MethodState;
+
+/**
+ * Tests the decoding of the trap state recorded by HotSpot and the detection and dampening of
+ * deoptimization storms by {@link DeoptimizationStorms}.
+ */
+public class DeoptimizationStormsTest {
+
+    /**
+     * {@code DataLayout::trap_mask} for {@code DataLayout::trap_bits == 4}.
+     */
+    private static final int TRAP_MASK = 0xF;
+    private static final int RECOMPILE_BIT = 0x8;
+
+    private static final int BCI = 10;
+    private static final int OTHER_BCI = 20;
+
+    private final ProfilingInfo profile = DefaultProfilingInfo.get(TriState.FALSE);
+
+    private static int[] counts(DeoptimizationReason reason, int count) {
+        int[] counts = new int[DeoptimizationReason.values().length];
+        counts[reason.ordinal()] = count;
+        return counts;
+    }
+
+    private static Map<Integer, DeoptimizationReason> trappedAt(int bci, DeoptimizationReason reason) {
+        return Collections.singletonMap(bci, reason);
+    }
+
+    private static int threshold() {
+        return DeoptimizationStorms.Options.DeoptimizationStormThreshold.getValue();
+    }
+
+    private static int window() {
+        return DeoptimizationStorms.Options.DeoptimizationStormWindow.getValue();
+    }
+
+    @Test
+    public void testTrapStateReason() {
+        Assert.assertEquals(0, trapStateReason(0, TRAP_MASK));
+        Assert.assertEquals(3, trapStateReason(3, TRAP_MASK));
+        Assert.assertEquals(3, trapStateReason(3 | RECOMPILE_BIT, TRAP_MASK));
+        Assert.assertEquals(6, trapStateReason(6 | RECOMPILE_BIT, TRAP_MASK));
+        Assert.assertEquals(MANY_REASONS, trapStateReason(7, TRAP_MASK));
+        Assert.assertEquals(MANY_REASONS, trapStateReason(7 | RECOMPILE_BIT, TRAP_MASK));
+    }
+
+    @Test
+    public void testBelowThreshold() {
+        MethodState state = new MethodState("m");
+        state.update(counts(NullCheckException, threshold() - 1), () -> trappedAt(BCI, NullCheckException), 0);
+        Assert.assertSame(profile, state.dampen(profile));
+    }
+
+    @Test
+    public void testStorm() {
+        MethodState state = new MethodState("m");
+        state.update(counts(NullCheckException, 1), () -> trappedAt(BCI, NullCheckException), 0);
+        state.update(counts(NullCheckException, threshold()), () -> trappedAt(BCI, NullCheckException), 1);
+        ProfilingInfo dampened = state.dampen(profile);
+        Assert.assertNotSame(profile, dampened);
+        Assert.assertEquals(TriState.TRUE, dampened.getNullSeen(BCI));
+        Assert.assertEquals(TriState.TRUE, dampened.getExceptionSeen(BCI));
+        // other bytecodes keep their profile
+        Assert.assertEquals(profile.getNullSeen(OTHER_BCI), dampened.getNullSeen(OTHER_BCI));
+        Assert.assertEquals(profile.getExceptionSeen(OTHER_BCI), dampened.getExceptionSeen(OTHER_BCI));
+        // only the speculation that failed is given up
+        Assert.assertEquals(profile.getBranchTakenProbability(BCI), dampened.getBranchTakenProbability(BCI), 0);
+        Assert.assertEquals(profile.getDeoptimizationCount(NullCheckException), dampened.getDeoptimizationCount(NullCheckException));
+    }
+
+    @Test
+    public void testUnreachedCodeStorm() {
+        MethodState state = new MethodState("m");
+        state.update(counts(UnreachedCode, threshold()), () -> trappedAt(BCI, UnreachedCode), 0);
+        ProfilingInfo dampened = state.dampen(profile);
+        Assert.assertEquals(-1, dampened.getBranchTakenProbability(BCI), 0);
+        Assert.assertNull(dampened.getSwitchProbabilities(BCI));
+        Assert.assertEquals(profile.getNullSeen(BCI), dampened.getNullSeen(BCI));
+    }
+
+    @Test
+    public void testOutsideWindow() {
+        MethodState state = new MethodState("m");
+        int half = threshold() / 2;
+        state.update(counts(ClassCastException, half), () -> trappedAt(BCI, ClassCastException), 0);
+        state.update(counts(ClassCastException, threshold() - 1), () -> trappedAt(BCI, ClassCastException), window() + 1);
+        Assert.assertSame(profile, state.dampen(profile));
+    }
+
+    @Test
+    public void testUnattributedStorm() {
+        MethodState state = new MethodState("m");
+        state.update(counts(TypeCheckedInliningViolated, threshold()), () -> Collections.emptyMap(), 0);
+        ProfilingInfo dampened = state.dampen(profile);
+        Assert.assertTrue(dampened.getDeoptimizationCount(TypeCheckedInliningViolated) >= GraalOptions.DeoptsToDisableOptimisticOptimization.getValue());
+        Assert.assertEquals(profile.getDeoptimizationCount(NullCheckException), dampened.getDeoptimizationCount(NullCheckException));
+        Assert.assertEquals(profile.getNullSeen(BCI), dampened.getNullSeen(BCI));
+    }
+
+    @Test
+    public void testUnchangedCountsDoNotReadTrapState() {
+        MethodState state = new MethodState("m");
+        state.update(counts(NullCheckException, 1), () -> trappedAt(BCI, NullCheckException), 0);
+        state.update(counts(NullCheckException, 1), () -> {
+            throw new AssertionError("trap state read although no deoptimization happened");
+        }, 1);
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.test;
+
+import static com.oracle.graal.hotspot.meta.PersistedProfiles.Options.*;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.nio.file.*;
+
+import org.junit.*;
+
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.compiler.test.*;
+import com.oracle.graal.hotspot.meta.*;
+import com.oracle.graal.options.*;
+import com.oracle.graal.options.OptionValue.OverrideScope;
+
+/**
+ * Writes a profile with {@link PersistedProfiles} and checks that it is used after the live profile
+ * has been reset.
+ */
+public class PersistedProfilesTest extends GraalCompilerTest {
+
+    private static final double DELTA = 1d / Integer.MAX_VALUE;
+
+    /**
+     * The BCI of the {@code ifle} in {@link #branchSnippet(int)}.
+     */
+    private static final int BRANCH_BCI = 1;
+
+    public static int branchSnippet(int value) {
+        if (value > 0) {
+            return 1;
+        }
+        return 0;
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        Method reflectionMethod = getMethod("branchSnippet");
+        ResolvedJavaMethod method = getMetaAccess().lookupJavaMethod(reflectionMethod);
+        method.reprofile();
+        for (int i = 0; !method.getProfilingInfo().isMature(); i++) {
+            Assert.assertTrue("profile did not mature", i < 1000000);
+            reflectionMethod.invoke(null, i % 4);
+        }
+        double taken = method.getProfilingInfo().getBranchTakenProbability(BRANCH_BCI);
+        Assert.assertTrue(taken > 0 && taken < 1);
+
+        File written = File.createTempFile("profiles", ".bin");
+        File read = File.createTempFile("profiles", ".bin");
+        try {
+            Assert.assertTrue(written.delete());
+            try (OverrideScope s = OptionValue.override(PersistedProfileFile, written.getPath())) {
+                // registers the method for the dump
+                method.getProfilingInfo();
+                PersistedProfiles.dump();
+            }
+            Assert.assertTrue(written.isFile());
+
+            // a different file name is read like in a new VM instance
+            Files.copy(written.toPath(), read.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            method.reprofile();
+            Assert.assertFalse(method.getProfilingInfo().isMature());
+            try (OverrideScope s = OptionValue.override(PersistedProfileFile, read.getPath())) {
+                ProfilingInfo info = method.getProfilingInfo();
+                Assert.assertTrue(info.isMature());
+                Assert.assertEquals(taken, info.getBranchTakenProbability(BRANCH_BCI), DELTA);
+            }
+        } finally {
+            written.delete();
+            read.delete();
+        }
+    }
+}
@@ -0,0 +1,769 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot;
+
+import static com.oracle.graal.hotspot.HotSpotGraalRuntime.*;
+import static com.oracle.graal.nodes.StructuredGraph.*;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.net.*;
+import java.nio.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.*;
+
+import com.oracle.graal.api.code.*;
+import com.oracle.graal.api.code.CompilationResult.PrimitiveData;
+import com.oracle.graal.api.code.CompilationResult.RawData;
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.compiler.common.*;
+import com.oracle.graal.debug.*;
+import com.oracle.graal.hotspot.data.*;
+import com.oracle.graal.hotspot.meta.*;
+import com.oracle.graal.hotspotvmconfig.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.options.*;
+
+/**
+ * Keeps the code compiled for Graal's own methods across VM instances so that bootstrapping
+ * becomes a matter of loading and linking code instead of compiling it. The code of such methods
+ * is compiled by a {@linkplain #getBackend() separate backend} whose suites and snippets are
+ * created with {@link com.oracle.graal.compiler.common.GraalOptions#ImmutableCode} and written to
+ * {@link Options#BootstrapCodeCacheFile} at shutdown.
+ * <p>
+ * All references from the code to VM data structures (types, methods, foreign call targets and
+ * metaspace pointers) are stored symbolically and resolved again when the code is loaded. This
+ * includes the {@linkplain #collectVMAddresses addresses} of VM data structures such as the
+ * safepoint polling page, which are stored by name and patched with the addresses of the loading
+ * VM instance. The cache as a whole is discarded if the VM or the Graal classes differ from the
+ * ones the code was compiled for, or if the layout of the heap (e.g. the compressed pointer shifts)
+ * has changed. Code referring to anything that cannot be relinked, such as objects other than
+ * strings or a VM address that is not embedded as a full word, is not cached. Loaded code is still
+ * subject to the VM's validation of its dependencies when installed.
+ */
+public final class BootstrapCodeCache {
+
+    public static class Options {
+        // @formatter:off
+        @Option(help = "File in which the code compiled for Graal's own methods is kept across VM instances")
+        public static final OptionValue<String> BootstrapCodeCacheFile = new OptionValue<>(null);
+        // @formatter:on
+    }
+
+    private static final DebugMetric BootstrapCodeCacheHits = Debug.metric("BootstrapCodeCacheHits");
+    private static final DebugMetric BootstrapCodeCacheMisses = Debug.metric("BootstrapCodeCacheMisses");
+    private static final DebugMetric BootstrapCodeCacheUnencodable = Debug.metric("BootstrapCodeCacheUnencodable");
+
+    private static final int MAGIC = 0x47424343;
+    private static final int VERSION = 2;
+
+    private static BootstrapCodeCache instance;
+
+    /**
+     * Gets the cache or {@code null} if it is disabled. A new cache is read if
+     * {@link Options#BootstrapCodeCacheFile} has changed since the last call.
+     */
+    public static synchronized BootstrapCodeCache getInstance() {
+        String fileName = Options.BootstrapCodeCacheFile.getValue();
+        if (fileName == null || fileName.isEmpty()) {
+            return null;
+        }
+        if (instance == null || !instance.file.getPath().equals(new File(fileName).getPath())) {
+            instance = new BootstrapCodeCache(new File(fileName));
+        }
+        return instance;
+    }
+
+    private final File file;
+    private final String fingerprint;
+    private final HotSpotBackend backend;
+
+    /**
+     * The {@linkplain #collectVMAddresses addresses} that may be folded into compiled code, keyed
+     * by name. They are not part of the {@link #fingerprint} because they change with every VM
+     * instance.
+     */
+    private final Map<String, Long> vmAddresses;
+
+    /**
+     * The name of each of the {@link #vmAddresses}.
+     */
+    private final Map<Long, String> vmAddressNames = new HashMap<>();
+
+    /**
+     * The encoded code of each method, keyed by {@link #key(HotSpotResolvedJavaMethod)}.
+     */
+    private final ConcurrentHashMap<String, byte[]> entries = new ConcurrentHashMap<>();
+    private volatile boolean modified;
+
+    private BootstrapCodeCache(File file) {
+        this.file = file;
+        this.fingerprint = computeFingerprint();
+        this.backend = runtime().createImmutableCodeHostBackend();
+        this.vmAddresses = collectVMAddresses(runtime().getConfig());
+        for (Map.Entry<String, Long> entry : vmAddresses.entrySet()) {
+            if (!vmAddressNames.containsKey(entry.getValue())) {
+                vmAddressNames.put(entry.getValue(), entry.getKey());
+            }
+        }
+        if (file.exists()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                read(in);
+            } catch (IOException e) {
+                TTY.println("Warning: could not read bootstrap code cache from " + file + ": " + e);
+                entries.clear();
+            }
+        }
+    }
+
+    /**
+     * Determines if the code of {@code method} compiled for {@code entryBCI} is kept in the cache.
+     * Only normal entry points of Graal methods are cached as only the Graal classes are covered by
+     * the {@linkplain #graalStamp() fingerprint}.
+     */
+    public static boolean appliesTo(HotSpotResolvedJavaMethod method, int entryBCI) {
+        if (entryBCI != INVOCATION_ENTRY_BCI) {
+            return false;
+        }
+        String holder = method.getDeclaringClass().getName();
+        return holder.startsWith("Lcom/oracle/graal/");
+    }
+
+    /**
+     * Gets the backend with which the code for methods kept in this cache must be compiled.
+     */
+    public HotSpotBackend getBackend() {
+        return backend;
+    }
+
+    /**
+     * Gets the cached code for {@code method}.
+     *
+     * @return {@code null} if there is no code for the current version of the method or if the
+     *         code could not be linked against this VM instance
+     */
+    public CompilationResult lookup(HotSpotResolvedJavaMethod method) {
+        String key = key(method);
+        byte[] data = key == null ? null : entries.get(key);
+        if (data != null) {
+            try (CodeInputStream in = new CodeInputStream(new ByteArrayInputStream(data), this)) {
+                CompilationResult result = (CompilationResult) in.readObject();
+                ByteBuffer code = ByteBuffer.wrap(result.getTargetCode()).order(runtime().getTarget().arch.getByteOrder());
+                for (AddressPatch patch : (AddressPatch[]) in.readObject()) {
+                    code.putLong(patch.offset, vmAddress(patch.name));
+                }
+                BootstrapCodeCacheHits.increment();
+                return result;
+            } catch (IOException | ClassNotFoundException | RuntimeException e) {
+                Debug.log("could not link cached code for %s: %s", method, e);
+                entries.remove(key);
+                modified = true;
+            }
+        }
+        BootstrapCodeCacheMisses.increment();
+        return null;
+    }
+
+    /**
+     * Removes the code of {@code method}, e.g. because the VM rejected it.
+     */
+    public void remove(HotSpotResolvedJavaMethod method) {
+        String key = key(method);
+        if (key != null && entries.remove(key) != null) {
+            modified = true;
+        }
+    }
+
+    /**
+     * Adds the code compiled for {@code method} to the cache unless it refers to something that
+     * cannot be relinked in another VM instance.
+     *
+     * @param graph the graph from which {@code result} was compiled. Constants in the graph may be
+     *            embedded in the machine code and are therefore checked for
+     *            {@linkplain #collectVMAddresses VM addresses} that cannot be patched.
+     */
+    public void record(HotSpotResolvedJavaMethod method, StructuredGraph graph, CompilationResult result) {
+        String key = key(method);
+        if (key == null || graph == null) {
+            return;
+        }
+        AddressPatch[] patches = findAddressPatches(result);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (CodeOutputStream out = new CodeOutputStream(bytes, this)) {
+            out.writeObject(result);
+            out.writeObject(patches);
+            Set<String> relocated = new HashSet<>(out.addresses);
+            for (AddressPatch patch : patches) {
+                relocated.add(patch.name);
+            }
+            for (ConstantNode constant : ConstantNode.getConstantNodes(graph)) {
+                String name = addressName(constant.getValue());
+                if (name != null && !relocated.contains(name)) {
+                    throw new NotSerializableException("VM address " + name + " embedded in a form that cannot be patched");
+                }
+            }
+        } catch (IOException e) {
+            BootstrapCodeCacheUnencodable.increment();
+            Debug.log("code for %s is not cached: %s", method, e);
+            return;
+        }
+        entries.put(key, bytes.toByteArray());
+        modified = true;
+    }
+
+    /**
+     * Finds the {@linkplain #collectVMAddresses VM addresses} that are embedded as word-sized
+     * immediates in the machine code of {@code result}, e.g. by a {@code movq} of the heap top
+     * address or the compressed class pointer base.
+     */
+    private AddressPatch[] findAddressPatches(CompilationResult result) {
+        List<AddressPatch> patches = new ArrayList<>();
+        ByteBuffer code = ByteBuffer.wrap(result.getTargetCode(), 0, result.getTargetCodeSize()).order(runtime().getTarget().arch.getByteOrder());
+        for (int pos = 0; pos + Long.BYTES <= result.getTargetCodeSize(); pos++) {
+            String name = vmAddressNames.get(code.getLong(pos));
+            if (name != null) {
+                patches.add(new AddressPatch(pos, name));
+                pos += Long.BYTES - 1;
+            }
+        }
+        return patches.toArray(new AddressPatch[patches.size()]);
+    }
+
+    /**
+     * Writes the cache to its file if code was added or removed since it was read.
+     */
+    public static void dump() {
+        BootstrapCodeCache cache;
+        synchronized (BootstrapCodeCache.class) {
+            cache = instance;
+        }
+        if (cache == null || !cache.modified) {
+            return;
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(cache.file)))) {
+            cache.write(out);
+        } catch (IOException e) {
+            TTY.println("Warning: could not write bootstrap code cache to " + cache.file + ": " + e);
+        }
+    }
+
+    private void write(DataOutputStream out) throws IOException {
+        Map<String, byte[]> sorted = new TreeMap<>(entries);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeUTF(fingerprint);
+        out.writeInt(sorted.size());
+        for (Map.Entry<String, byte[]> entry : sorted.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeInt(entry.getValue().length);
+            out.write(entry.getValue());
+        }
+    }
+
+    private void read(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("not a bootstrap code cache or unsupported version");
+        }
+        if (!fingerprint.equals(in.readUTF())) {
+            // compiled for another VM or another version of Graal
+            modified = true;
+            return;
+        }
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            String key = in.readUTF();
+            byte[] data = new byte[in.readInt()];
+            in.readFully(data);
+            entries.put(key, data);
+        }
+    }
+
+    /**
+     * Computes the key of a method's code or returns {@code null} if the method has no bytecodes.
+     */
+    private static String key(HotSpotResolvedJavaMethod method) {
+        byte[] code = method.getCode();
+        if (code == null) {
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(code);
+        return method.getDeclaringClass().getName() + "." + method.getName() + method.getSignature().toMethodDescriptor() + "#" + Long.toHexString(crc.getValue());
+    }
+
+    /**
+     * Describes everything the validity of cached code depends on apart from the bytecodes of the
+     * compiled method itself.
+     */
+    private static String computeFingerprint() {
+        HotSpotVMConfig config = runtime().getConfig();
+        StringBuilder sb = new StringBuilder();
+        sb.append(System.getProperty("java.vm.version")).append('|');
+        sb.append(System.getProperty("java.home")).append('|');
+        sb.append(graalStamp()).append('|');
+        // only whether a base is used determines the shape of the code, its value is patched
+        sb.append(config.useCompressedOops).append(',').append(config.narrowOopBase != 0).append(',').append(config.narrowOopShift).append('|');
+        sb.append(config.useCompressedClassPointers).append(',').append(config.narrowKlassBase != 0).append(',').append(config.narrowKlassShift).append('|');
+        sb.append(config.cardtableShift());
+        return sb.toString();
+    }
+
+    /**
+     * Collects the addresses of VM data structures that are exposed in {@code config} such as the
+     * heap top, the CRC table or the safepoint polling page, keyed by the name of the
+     * {@link HotSpotVMConfig} member they are read from. Snippets and intrinsics read through these
+     * addresses and they can therefore end up in compiled code, even with {@code ImmutableCode}.
+     */
+    private static Map<String, Long> collectVMAddresses(HotSpotVMConfig config) {
+        Map<String, Long> addresses = new TreeMap<>();
+        for (Field f : HotSpotVMConfig.class.getDeclaredFields()) {
+            if (f.getType() != long.class || Modifier.isStatic(f.getModifiers())) {
+                continue;
+            }
+            HotSpotVMField field = f.getAnnotation(HotSpotVMField.class);
+            HotSpotVMValue value = f.getAnnotation(HotSpotVMValue.class);
+            boolean isAddress;
+            if (field != null) {
+                isAddress = field.get() == HotSpotVMField.Type.ADDRESS || (field.get() == HotSpotVMField.Type.VALUE && (field.type().equals("address") || field.type().endsWith("*")));
+            } else {
+                isAddress = value != null && value.get() == HotSpotVMValue.Type.ADDRESS;
+            }
+            if (isAddress) {
+                try {
+                    f.setAccessible(true);
+                    addresses.put(f.getName(), f.getLong(config));
+                } catch (IllegalAccessException e) {
+                    throw new GraalInternalError(e);
+                }
+            }
+        }
+        addresses.put("gcTotalCollectionsAddress()", config.gcTotalCollectionsAddress());
+        addresses.put("cardtableStartAddress()", config.cardtableStartAddress());
+        addresses.values().removeAll(Collections.singleton(0L));
+        return addresses;
+    }
+
+    /**
+     * Gets the name of the VM address {@code constant} or {@code null} if it is not one.
+     */
+    private String addressName(Constant constant) {
+        return constant.getKind() == Kind.Long ? vmAddressNames.get(constant.asLong()) : null;
+    }
+
+    private long vmAddress(String name) throws IOException {
+        Long address = vmAddresses.get(name);
+        if (address == null) {
+            throw new InvalidObjectException("unknown VM address " + name);
+        }
+        return address;
+    }
+
+    /**
+     * Identifies the version of the Graal classes by the location and modification time of the
+     * file they were loaded from.
+     */
+    private static String graalStamp() {
+        URL url = BootstrapCodeCache.class.getResource(BootstrapCodeCache.class.getSimpleName() + ".class");
+        if (url == null) {
+            return "unknown";
+        }
+        try {
+            URLConnection connection = url.openConnection();
+            if (connection instanceof JarURLConnection) {
+                URL jarFile = ((JarURLConnection) connection).getJarFileURL();
+                return jarFile + "@" + jarFile.openConnection().getLastModified();
+            }
+            return url + "@" + connection.getLastModified();
+        } catch (IOException e) {
+            return url.toString();
+        }
+    }
+
+    /**
+     * A symbolic reference to a VM data structure that is resolved when cached code is loaded.
+     */
+    private interface Symbol extends Serializable {
+
+        Object resolve() throws IOException;
+    }
+
+    private enum Singleton implements Symbol {
+        ILLEGAL(Value.ILLEGAL),
+        NULL_OBJECT(Constant.NULL_OBJECT),
+        COMPRESSED_NULL(HotSpotCompressedNullConstant.COMPRESSED_NULL),
+        TARGET(null);
+
+        private final Object value;
+
+        private Singleton(Object value) {
+            this.value = value;
+        }
+
+        public Object resolve() {
+            return this == TARGET ? runtime().getTarget() : value;
+        }
+    }
+
+    private static final class RegisterSymbol implements Symbol {
+
+        private static final long serialVersionUID = 6171458398614786452L;
+
+        private final int number;
+
+        RegisterSymbol(Register register) {
+            this.number = register.number;
+        }
+
+        public Object resolve() {
+            return runtime().getTarget().arch.getRegisters()[number];
+        }
+    }
+
+    private static final class LIRKindSymbol implements Symbol {
+
+        private static final long serialVersionUID = -2637311580627153226L;
+
+        private final Kind kind;
+        private final boolean reference;
+        private final boolean derivedReference;
+
+        LIRKindSymbol(LIRKind lirKind) throws IOException {
+            if (!(lirKind.getPlatformKind() instanceof Kind)) {
+                throw new NotSerializableException(lirKind.toString());
+            }
+            this.kind = (Kind) lirKind.getPlatformKind();
+            this.derivedReference = lirKind.isDerivedReference();
+            this.reference = !derivedReference && lirKind.isReference(0);
+        }
+
+        public Object resolve() {
+            if (derivedReference) {
+                return LIRKind.derivedReference(kind);
+            } else if (reference || kind == Kind.Object) {
+                return LIRKind.reference(kind);
+            } else {
+                return LIRKind.value(kind);
+            }
+        }
+    }
+
+    private static final class TypeSymbol implements Symbol {
+
+        private static final long serialVersionUID = 4390427318834157218L;
+
+        private final String className;
+        private final Kind primitiveKind;
+
+        TypeSymbol(HotSpotResolvedJavaType type) {
+            Class<?> mirror = type.mirror();
+            this.primitiveKind = mirror.isPrimitive() ? Kind.fromJavaClass(mirror) : null;
+            this.className = mirror.isPrimitive() ? null : mirror.getName();
+        }
+
+        public Object resolve() throws IOException {
+            if (primitiveKind != null) {
+                return HotSpotResolvedJavaType.fromClass(primitiveKind.toJavaClass());
+            }
+            try {
+                return HotSpotResolvedJavaType.fromClass(Class.forName(className, false, BootstrapCodeCache.class.getClassLoader()));
+            } catch (ClassNotFoundException e) {
+                throw new InvalidObjectException("unknown class " + className);
+            }
+        }
+    }
+
+    private static final class MethodSymbol implements Symbol {
+
+        private static final long serialVersionUID = -5029734217396404637L;
+
+        private final ResolvedJavaType holder;
+        private final String name;
+        private final String descriptor;
+
+        MethodSymbol(HotSpotResolvedJavaMethod method) {
+            this.holder = method.getDeclaringClass();
+            this.name = method.getName();
+            this.descriptor = method.getSignature().toMethodDescriptor();
+        }
+
+        public Object resolve() throws IOException {
+            if (name.equals("<clinit>")) {
+                ResolvedJavaMethod clinit = holder.getClassInitializer();
+                if (clinit != null) {
+                    return clinit;
+                }
+            } else {
+                ResolvedJavaMethod[] candidates = name.equals("<init>") ? holder.getDeclaredConstructors() : holder.getDeclaredMethods();
+                for (ResolvedJavaMethod candidate : candidates) {
+                    if (candidate.getName().equals(name) && candidate.getSignature().toMethodDescriptor().equals(descriptor)) {
+                        return candidate;
+                    }
+                }
+            }
+            throw new InvalidObjectException("unknown method " + holder.toJavaName() + "." + name + descriptor);
+        }
+    }
+
+    private static final class ForeignCallSymbol implements Symbol {
+
+        private static final long serialVersionUID = 8842166046375069418L;
+
+        private final String name;
+        private final Class<?> resultType;
+        private final Class<?>[] argumentTypes;
+
+        ForeignCallSymbol(ForeignCallDescriptor descriptor) {
+            this.name = descriptor.getName();
+            this.resultType = descriptor.getResultType();
+            this.argumentTypes = descriptor.getArgumentTypes();
+        }
+
+        public Object resolve() {
+            return runtime().getHostProviders().getForeignCalls().lookupForeignCall(new ForeignCallDescriptor(name, resultType, argumentTypes));
+        }
+    }
+
+    /**
+     * A {@linkplain #collectVMAddresses VM address} used as a {@link Constant}, e.g. the safepoint
+     * polling page in the data section.
+     */
+    private static final class AddressSymbol implements Serializable {
+
+        private static final long serialVersionUID = -7419380247360516285L;
+
+        private final String name;
+
+        AddressSymbol(String name) {
+            this.name = name;
+        }
+
+        Object resolve(BootstrapCodeCache cache) throws IOException {
+            return Constant.forLong(cache.vmAddress(name));
+        }
+    }
+
+    /**
+     * A {@linkplain #collectVMAddresses VM address} embedded as an immediate at {@link #offset} in
+     * the machine code.
+     */
+    private static final class AddressPatch implements Serializable {
+
+        private static final long serialVersionUID = 2360793475046398215L;
+
+        private final int offset;
+        private final String name;
+
+        AddressPatch(int offset, String name) {
+            this.offset = offset;
+            this.name = name;
+        }
+    }
+
+    /**
+     * Gets the metaspace pointer of a type or method in the current VM instance.
+     */
+    private static long metaspacePointer(Object metaspaceObject, boolean compressed) throws IOException {
+        if (metaspaceObject instanceof HotSpotResolvedObjectType) {
+            long klass = ((HotSpotResolvedObjectType) metaspaceObject).getMetaspaceKlass();
+            return compressed ? runtime().getConfig().getKlassEncoding().compress(klass) : klass;
+        } else if (metaspaceObject instanceof HotSpotResolvedJavaMethod && !compressed) {
+            return ((HotSpotResolvedJavaMethod) metaspaceObject).getMetaspaceMethod();
+        }
+        throw new NotSerializableException(String.valueOf(metaspaceObject));
+    }
+
+    private static final class MetaspaceConstantSymbol implements Symbol {
+
+        private static final long serialVersionUID = 1658294620315532041L;
+
+        private final Kind kind;
+        private final Object metaspaceObject;
+
+        MetaspaceConstantSymbol(Constant constant) throws IOException {
+            this.kind = constant.getKind();
+            this.metaspaceObject = HotSpotMetaspaceConstant.getMetaspaceObject(constant);
+            metaspacePointer(metaspaceObject, isCompressed());
+        }
+
+        private boolean isCompressed() {
+            return kind != runtime().getTarget().wordKind;
+        }
+
+        public Object resolve() throws IOException {
+            return HotSpotMetaspaceConstant.forMetaspaceObject(kind, metaspacePointer(metaspaceObject, isCompressed()), metaspaceObject);
+        }
+    }
+
+    private static final class StringConstantSymbol implements Symbol {
+
+        private static final long serialVersionUID = -8227474766658416917L;
+
+        private final String value;
+        private final boolean compressed;
+
+        StringConstantSymbol(Constant constant) throws IOException {
+            Object object = HotSpotObjectConstant.asObject(constant);
+            if (!(object instanceof String) || object != ((String) object).intern()) {
+                throw new NotSerializableException("object constant " + constant);
+            }
+            this.value = (String) object;
+            this.compressed = HotSpotObjectConstant.isCompressed(constant);
+        }
+
+        public Object resolve() {
+            HotSpotObjectConstant constant = (HotSpotObjectConstant) HotSpotObjectConstant.forObject(value.intern());
+            return compressed ? constant.compress() : constant;
+        }
+    }
+
+    private static final class DataSymbol implements Symbol {
+
+        private static final long serialVersionUID = -3390216217524103735L;
+
+        private final int alignment;
+        private final Object contents;
+        private final boolean compressed;
+
+        DataSymbol(int alignment, Object contents, boolean compressed) {
+            this.alignment = alignment;
+            this.contents = contents;
+            this.compressed = compressed;
+        }
+
+        public Object resolve() throws IOException {
+            if (contents instanceof byte[]) {
+                return new RawData((byte[]) contents, alignment);
+            } else if (contents instanceof Constant) {
+                return new PrimitiveData((Constant) contents, alignment);
+            } else if (contents instanceof String) {
+                return new OopData(alignment, ((String) contents).intern(), compressed);
+            } else {
+                return new MetaspaceData(alignment, metaspacePointer(contents, compressed), contents, compressed);
+            }
+        }
+    }
+
+    /**
+     * Replaces all references to VM data structures with {@link Symbol}s.
+     */
+    private static final class CodeOutputStream extends ObjectOutputStream {
+
+        private final BootstrapCodeCache cache;
+
+        /**
+         * The names of the VM addresses that were replaced by {@link AddressSymbol}s.
+         */
+        final Set<String> addresses = new HashSet<>();
+
+        CodeOutputStream(OutputStream out, BootstrapCodeCache cache) throws IOException {
+            super(out);
+            this.cache = cache;
+            enableReplaceObject(true);
+        }
+
+        @Override
+        protected Object replaceObject(Object obj) throws IOException {
+            String address = obj instanceof Constant ? cache.addressName((Constant) obj) : null;
+            if (address != null) {
+                addresses.add(address);
+                return new AddressSymbol(address);
+            } else if (obj == Value.ILLEGAL) {
+                return Singleton.ILLEGAL;
+            } else if (obj == Constant.NULL_OBJECT) {
+                return Singleton.NULL_OBJECT;
+            } else if (obj == HotSpotCompressedNullConstant.COMPRESSED_NULL) {
+                return Singleton.COMPRESSED_NULL;
+            } else if (obj instanceof TargetDescription) {
+                return Singleton.TARGET;
+            } else if (obj instanceof Register) {
+                return new RegisterSymbol((Register) obj);
+            } else if (obj instanceof LIRKind) {
+                return new LIRKindSymbol((LIRKind) obj);
+            } else if (obj instanceof HotSpotResolvedJavaType) {
+                return new TypeSymbol((HotSpotResolvedJavaType) obj);
+            } else if (obj instanceof HotSpotResolvedJavaMethod) {
+                return new MethodSymbol((HotSpotResolvedJavaMethod) obj);
+            } else if (obj instanceof HotSpotForeignCallLinkage) {
+                return new ForeignCallSymbol(((HotSpotForeignCallLinkage) obj).getDescriptor());
+            } else if (obj instanceof HotSpotMetaspaceConstant) {
+                return new MetaspaceConstantSymbol((Constant) obj);
+            } else if (obj instanceof HotSpotObjectConstant) {
+                return new StringConstantSymbol((Constant) obj);
+            } else if (obj instanceof RawData) {
+                RawData data = (RawData) obj;
+                return new DataSymbol(data.getAlignment(), data.data, false);
+            } else if (obj instanceof PrimitiveData) {
+                PrimitiveData data = (PrimitiveData) obj;
+                return new DataSymbol(data.getAlignment(), data.getConstant(), false);
+            } else if (obj instanceof MetaspaceData) {
+                MetaspaceData data = (MetaspaceData) obj;
+                metaspacePointer(data.annotation, data.compressed);
+                return new DataSymbol(data.getAlignment(), data.annotation, data.compressed);
+            } else if (obj instanceof OopData) {
+                OopData data = (OopData) obj;
+                if (!(data.object instanceof String) || data.object != ((String) data.object).intern()) {
+                    throw new NotSerializableException("embedded object " + data);
+                }
+                return new DataSymbol(data.getAlignment(), data.object, data.compressed);
+            } else if (obj instanceof CompilerObject) {
+                // any other VM data structure cannot be relinked
+                throw new NotSerializableException(obj.getClass().getName());
+            }
+            return obj;
+        }
+    }
+
+    /**
+     * Resolves the {@link Symbol}s written by a {@link CodeOutputStream}.
+     */
+    private static final class CodeInputStream extends ObjectInputStream {
+
+        private final BootstrapCodeCache cache;
+
+        CodeInputStream(InputStream in, BootstrapCodeCache cache) throws IOException {
+            super(in);
+            this.cache = cache;
+            enableResolveObject(true);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            try {
+                return Class.forName(desc.getName(), false, BootstrapCodeCache.class.getClassLoader());
+            } catch (ClassNotFoundException e) {
+                return super.resolveClass(desc);
+            }
+        }
+
+        @Override
+        protected Object resolveObject(Object obj) throws IOException {
+            if (obj instanceof Symbol) {
+                return ((Symbol) obj).resolve();
+            } else if (obj instanceof AddressSymbol) {
+                return ((AddressSymbol) obj).resolve(cache);
+            }
+            return obj;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot;
+
+import static com.oracle.graal.hotspot.HotSpotGraalRuntime.*;
+
+import java.io.*;
+
+import com.oracle.graal.api.code.*;
+import com.oracle.graal.debug.*;
+import com.oracle.graal.hotspot.meta.*;
+
+/**
+ * Repeats a compilation {@linkplain CompilationRecording recorded} with
+ * {@code -G:RecordCompilations}. The replaying VM must be able to load the classes used by the
+ * recorded compilation, typically by running with the same class path. The result is not
+ * installed, which makes the driver suitable for profiling and debugging the compiler on a fixed
+ * input:
+ *
+ * <pre>
+ * java -cp &lt;class path&gt; com.oracle.graal.hotspot.CompilationReplay &lt;recording&gt; [&lt;iterations&gt;]
+ * </pre>
+ */
+public final class CompilationReplay {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            TTY.println("Usage: CompilationReplay <recording> [<iterations>]");
+            System.exit(1);
+        }
+        CompilationRecording recording = CompilationRecording.load(new File(args[0]));
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+
+        HotSpotResolvedJavaMethod method = (HotSpotResolvedJavaMethod) recording.getMethod();
+        recording.prepare();
+        for (int i = 0; i < iterations; i++) {
+            CompilationTask task = new CompilationTask(runtime().getHostBackend(), method, recording.getEntryBCI(), 0L, -1);
+            long start = System.nanoTime();
+            CompilationResult result;
+            try (CompilationRecording r = recording.replay()) {
+                result = task.compile();
+            }
+            long time = System.nanoTime() - start;
+            TTY.println(String.format("%s | %6.1fms %5dB %d divergences", method.format("%H.%n(%p)"), time / 1000000.0, result.getTargetCodeSize(), recording.getDivergences()));
+        }
+    }
+}
@@ -31,6 +31,8 @@ import java.lang.reflect.*;
 import java.util.*;
 import java.util.concurrent.*;
 
+import com.oracle.graal.api.code.*;
+import com.oracle.graal.api.code.CompilationResult.Infopoint;
 import com.oracle.graal.hotspot.meta.*;
 import com.sun.management.ThreadMXBean;
 
@@ -76,6 +78,11 @@ public final class CompilationStatistics {
     private int codeSize;
     @TimeValue private long duration;
     private long memoryUsed;
+    private int debugInfoFrames;
+    private int debugInfoUniqueFrames;
+    private int debugInfoValues;
+    private int debugInfoUniqueValues;
+    private int constantPoolVMCalls;
     private final boolean osr;
     private final String holder;
     private final String name;
@@ -98,10 +105,11 @@ public final class CompilationStatistics {
         }
     }
 
-    public void finish(HotSpotResolvedJavaMethod method, HotSpotInstalledCode code) {
+    public void finish(HotSpotResolvedJavaMethod method, HotSpotInstalledCode code, CompilationResult result) {
         if (ENABLED) {
             duration = System.nanoTime() - startTime;
             codeSize = (int) code.getCodeSize();
+            countDebugInfo(result);
             memoryUsed = getThreadAllocatedBytes() - threadAllocatedBytesStart;
             if (current.get().getLast() != this) {
                 throw new RuntimeException("mismatch in finish()");
@@ -110,6 +118,33 @@ public final class CompilationStatistics {
         }
     }
 
+    /**
+     * Counts the debug info frames and values of all infopoints, both as if each infopoint had its
+     * own copy of its frames and with shared frames counted only once.
+     */
+    private void countDebugInfo(CompilationResult result) {
+        Set<BytecodeFrame> unique = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Infopoint infopoint : result.getInfopoints()) {
+            if (infopoint.debugInfo != null) {
+                for (BytecodeFrame frame = infopoint.debugInfo.frame(); frame != null; frame = frame.caller()) {
+                    debugInfoFrames++;
+                    debugInfoValues += frame.values.length;
+                    if (unique.add(frame)) {
+                        debugInfoUniqueFrames++;
+                        debugInfoUniqueValues += frame.values.length;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Records a VM call made to look up a constant pool entry.
+     */
+    public void recordConstantPoolVMCall() {
+        constantPoolVMCalls++;
+    }
+
     public static CompilationStatistics current() {
         return current.get().isEmpty() ? null : current.get().getLast();
     }
@@ -50,12 +50,15 @@ import com.oracle.graal.hotspot.events.*;
 import com.oracle.graal.hotspot.events.EventProvider.CompilationEvent;
 import com.oracle.graal.hotspot.events.EventProvider.CompilerFailureEvent;
 import com.oracle.graal.hotspot.meta.*;
+import com.oracle.graal.hotspot.meta.HotSpotProfileSnapshot.SnapshotScope;
 import com.oracle.graal.hotspot.phases.*;
 import com.oracle.graal.java.*;
 import com.oracle.graal.java.GraphBuilderConfiguration.*;
 import com.oracle.graal.lir.asm.*;
 import com.oracle.graal.nodes.*;
 import com.oracle.graal.nodes.spi.*;
+import com.oracle.graal.options.*;
+import com.oracle.graal.options.OptionValue.OverrideScope;
 import com.oracle.graal.phases.*;
 import com.oracle.graal.phases.tiers.*;
 import com.oracle.graal.printer.*;
@@ -158,6 +161,51 @@ public class CompilationTask {
         return method.getCompilationProfilingInfo(osrCompilation);
     }
 
+    /**
+     * Compiles the method without installing the result.
+     */
+    CompilationResult compile() {
+        CompilationResult result;
+        if (UseBaselineCompiler.getValue() == true) {
+            HotSpotProviders providers = backend.getProviders();
+            BaselineCompiler baselineCompiler = new BaselineCompiler(GraphBuilderConfiguration.getDefault(), providers.getMetaAccess());
+            OptimisticOptimizations optimisticOpts = OptimisticOptimizations.ALL;
+            result = baselineCompiler.generate(method, -1, backend, new CompilationResult(), method, CompilationResultBuilderFactory.Default, optimisticOpts);
+        } else {
+            Map<ResolvedJavaMethod, StructuredGraph> graphCache = null;
+            if (GraalOptions.CacheGraphs.getValue()) {
+                graphCache = new HashMap<>();
+            }
+
+            HotSpotProviders providers = backend.getProviders();
+            Replacements replacements = providers.getReplacements();
+            graph = replacements.getMethodSubstitution(method);
+            if (graph == null || entryBCI != INVOCATION_ENTRY_BCI) {
+                graph = new StructuredGraph(method, entryBCI);
+            } else {
+                // Compiling method substitution - must clone the graph
+                graph = graph.copy();
+            }
+            InlinedBytecodes.add(method.getCodeSize());
+            CallingConvention cc = getCallingConvention(providers.getCodeCache(), Type.JavaCallee, graph.method(), false);
+            if (graph.getEntryBCI() != StructuredGraph.INVOCATION_ENTRY_BCI) {
+                // for OSR, only a pointer is passed to the method.
+                JavaType[] parameterTypes = new JavaType[]{providers.getMetaAccess().lookupJavaType(long.class)};
+                CallingConvention tmp = providers.getCodeCache().getRegisterConfig().getCallingConvention(JavaCallee, providers.getMetaAccess().lookupJavaType(void.class), parameterTypes,
+                                backend.getTarget(), false);
+                cc = new CallingConvention(cc.getStackSize(), cc.getReturn(), tmp.getArgument(0));
+            }
+            Suites suites = getSuites(providers);
+            ProfilingInfo profilingInfo = getProfilingInfo();
+            OptimisticOptimizations optimisticOpts = getOptimisticOpts(profilingInfo);
+            result = compileGraph(graph, null, cc, method, providers, backend, backend.getTarget(), graphCache, getGraphBuilderSuite(providers), optimisticOpts, profilingInfo,
+                            method.getSpeculationLog(), suites, new CompilationResult(), CompilationResultBuilderFactory.Default);
+        }
+        result.setId(getId());
+        result.setEntryBCI(entryBCI);
+        return result;
+    }
+
     public void runCompilation() {
         HotSpotVMConfig config = backend.getRuntime().getConfig();
         final long threadId = Thread.currentThread().getId();
@@ -179,6 +227,18 @@ public class CompilationTask {
             }
 
             CompilationStatistics stats = CompilationStatistics.create(method, isOSR);
+            BootstrapCodeCache bootstrapCodeCache = BootstrapCodeCache.appliesTo(method, entryBCI) ? BootstrapCodeCache.getInstance() : null;
+            if (bootstrapCodeCache != null) {
+                CompilationResult cached = bootstrapCodeCache.lookup(method);
+                if (cached != null) {
+                    installedCode = installCachedCode(bootstrapCodeCache, cached);
+                    if (installedCode != null) {
+                        stats.finish(method, installedCode, cached);
+                        return;
+                    }
+                }
+            }
+
             final boolean printCompilation = PrintCompilation.getValue() && !TTY.isSuppressed();
             if (printCompilation) {
                 TTY.println(getMethodDescription() + "...");
@@ -189,47 +249,13 @@ public class CompilationTask {
             final long start = System.currentTimeMillis();
             final long allocatedBytesBefore = threadMXBean.getThreadAllocatedBytes(threadId);
 
-            try (Scope s = Debug.scope("Compiling", new DebugDumpScope(String.valueOf(id), true))) {
+            try (Scope s = Debug.scope("Compiling", new DebugDumpScope(String.valueOf(id), true)); SnapshotScope ps = HotSpotProfileSnapshot.openScope();
+                            OverrideScope o = bootstrapCodeCache != null ? OptionValue.override(ImmutableCode, true) : null;
+                            CompilationRecording rec = CompilationRecording.record(method, entryBCI, id)) {
                 // Begin the compilation event.
                 compilationEvent.begin();
 
-                if (UseBaselineCompiler.getValue() == true) {
-                    HotSpotProviders providers = backend.getProviders();
-                    BaselineCompiler baselineCompiler = new BaselineCompiler(GraphBuilderConfiguration.getDefault(), providers.getMetaAccess());
-                    OptimisticOptimizations optimisticOpts = OptimisticOptimizations.ALL;
-                    result = baselineCompiler.generate(method, -1, backend, new CompilationResult(), method, CompilationResultBuilderFactory.Default, optimisticOpts);
-                } else {
-                    Map<ResolvedJavaMethod, StructuredGraph> graphCache = null;
-                    if (GraalOptions.CacheGraphs.getValue()) {
-                        graphCache = new HashMap<>();
-                    }
-
-                    HotSpotProviders providers = backend.getProviders();
-                    Replacements replacements = providers.getReplacements();
-                    graph = replacements.getMethodSubstitution(method);
-                    if (graph == null || entryBCI != INVOCATION_ENTRY_BCI) {
-                        graph = new StructuredGraph(method, entryBCI);
-                    } else {
-                        // Compiling method substitution - must clone the graph
-                        graph = graph.copy();
-                    }
-                    InlinedBytecodes.add(method.getCodeSize());
-                    CallingConvention cc = getCallingConvention(providers.getCodeCache(), Type.JavaCallee, graph.method(), false);
-                    if (graph.getEntryBCI() != StructuredGraph.INVOCATION_ENTRY_BCI) {
-                        // for OSR, only a pointer is passed to the method.
-                        JavaType[] parameterTypes = new JavaType[]{providers.getMetaAccess().lookupJavaType(long.class)};
-                        CallingConvention tmp = providers.getCodeCache().getRegisterConfig().getCallingConvention(JavaCallee, providers.getMetaAccess().lookupJavaType(void.class), parameterTypes,
-                                        backend.getTarget(), false);
-                        cc = new CallingConvention(cc.getStackSize(), cc.getReturn(), tmp.getArgument(0));
-                    }
-                    Suites suites = getSuites(providers);
-                    ProfilingInfo profilingInfo = getProfilingInfo();
-                    OptimisticOptimizations optimisticOpts = getOptimisticOpts(profilingInfo);
-                    result = compileGraph(graph, null, cc, method, providers, backend, backend.getTarget(), graphCache, getGraphBuilderSuite(providers), optimisticOpts, profilingInfo,
-                                    method.getSpeculationLog(), suites, new CompilationResult(), CompilationResultBuilderFactory.Default);
-                }
-                result.setId(getId());
-                result.setEntryBCI(entryBCI);
+                result = compile();
             } catch (Throwable e) {
                 throw Debug.handle(e);
             } finally {
@@ -260,7 +286,10 @@ public class CompilationTask {
                     profile.setCompilerIRSize(StructuredGraph.class, graph.getNodeCount());
                 }
             }
-            stats.finish(method, installedCode);
+            if (bootstrapCodeCache != null) {
+                bootstrapCodeCache.record(method, graph, result);
+            }
+            stats.finish(method, installedCode, result);
         } catch (BailoutException bailout) {
             BAILOUTS.increment();
             if (ExitVMOnBailout.getValue()) {
@@ -331,6 +360,27 @@ public class CompilationTask {
         return installedCode;
     }
 
+    /**
+     * Installs code for {@link #method} that was loaded from {@code cache}.
+     *
+     * @return {@code null} if the VM rejected the code
+     */
+    private HotSpotInstalledCode installCachedCode(BootstrapCodeCache cache, CompilationResult compResult) {
+        compResult.setId(getId());
+        compResult.setEntryBCI(entryBCI);
+        final HotSpotCodeCacheProvider codeCache = backend.getProviders().getCodeCache();
+        InstalledCode installedCode = null;
+        try (Scope s = Debug.scope("CodeInstall", new DebugDumpScope(String.valueOf(id), true), codeCache, method); TimerCloseable b = CodeInstallationTime.start()) {
+            installedCode = codeCache.installValidatedMethod(method, compResult, ctask);
+        } catch (Throwable e) {
+            throw Debug.handle(e);
+        }
+        if (installedCode == null) {
+            cache.remove(method);
+        }
+        return (HotSpotInstalledCode) installedCode;
+    }
+
     @Override
     public String toString() {
         return "Compilation[id=" + id + ", " + method.format("%H.%n(%p)") + (entryBCI == StructuredGraph.INVOCATION_ENTRY_BCI ? "" : "@" + entryBCI) + "]";
@@ -366,6 +416,12 @@ public class CompilationTask {
      */
     static void compileMethod(HotSpotResolvedJavaMethod method, int entryBCI, long ctask, int id) {
         HotSpotBackend backend = runtime().getHostBackend();
+        if (BootstrapCodeCache.appliesTo(method, entryBCI)) {
+            BootstrapCodeCache bootstrapCodeCache = BootstrapCodeCache.getInstance();
+            if (bootstrapCodeCache != null) {
+                backend = bootstrapCodeCache.getBackend();
+            }
+        }
         CompilationTask task = new CompilationTask(backend, method, entryBCI, ctask, id);
         task.runCompilation();
         return;
@@ -144,6 +144,14 @@ public abstract class HotSpotBackend extends Backend {
     public void completeInitialization() {
     }
 
+    /**
+     * Determines if this backend implements {@link HotSpotLIRGenerator#emitZeroMemory} for bulk
+     * zeroing of newly allocated objects.
+     */
+    public boolean supportsBulkZeroing() {
+        return false;
+    }
+
     /**
      * Finds all the registers that are defined by some given LIR.
      *
@@ -23,6 +23,7 @@
 package com.oracle.graal.hotspot;
 
 import java.util.*;
+import java.util.concurrent.*;
 
 import com.oracle.graal.api.code.*;
 import com.oracle.graal.api.code.CompilationResult.CodeAnnotation;
@@ -33,6 +34,7 @@ import com.oracle.graal.api.code.CompilationResult.JumpTable;
 import com.oracle.graal.api.code.CompilationResult.Mark;
 import com.oracle.graal.api.code.CompilationResult.Site;
 import com.oracle.graal.hotspot.data.*;
+import com.oracle.graal.lir.*;
 
 /**
  * A {@link CompilationResult} with additional HotSpot-specific information required for installing
@@ -63,7 +65,11 @@ public abstract class HotSpotCompiledCode extends CompilerObject {
     public HotSpotCompiledCode(TargetDescription target, CompilationResult compResult) {
         this.comp = compResult;
         sites = getSortedSites(compResult);
-        dataSection = new DataSection(target, sites);
+        /*
+         * Building the data section only rewrites the data patches, which nothing below reads, so
+         * it can overlap with converting the remaining metadata of large compilations.
+         */
+        ForkJoinTask<DataSection> data = ParallelBlockProcessor.fork(() -> new DataSection(target, sites), sites.length, ParallelBlockProcessor.Options.ParallelBackendMinSites.getValue());
         if (compResult.getExceptionHandlers().isEmpty()) {
             exceptionHandlers = null;
         } else {
@@ -88,6 +94,7 @@ public abstract class HotSpotCompiledCode extends CompilerObject {
             }
         }
         assert validateFrames();
+        dataSection = data.join();
     }
 
     /**
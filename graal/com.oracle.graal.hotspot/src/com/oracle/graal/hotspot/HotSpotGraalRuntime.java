@@ -51,6 +51,7 @@ import com.oracle.graal.hotspot.events.*;
 import com.oracle.graal.hotspot.logging.*;
 import com.oracle.graal.hotspot.meta.*;
 import com.oracle.graal.options.*;
+import com.oracle.graal.options.OptionValue.OverrideScope;
 import com.oracle.graal.printer.*;
 import com.oracle.graal.replacements.*;
 import com.oracle.graal.runtime.*;
@@ -320,6 +321,20 @@ public final class HotSpotGraalRuntime implements GraalRuntime, RuntimeProvider,
         return backend;
     }
 
+    /**
+     * Creates a host backend that is not registered with this runtime and whose providers, suites
+     * and snippets are all created with {@link GraalOptions#ImmutableCode} enabled. Code compiled
+     * by this backend does not embed any VM values that are only valid in the current VM
+     * instance.
+     */
+    HotSpotBackend createImmutableCodeHostBackend() {
+        try (OverrideScope s = OptionValue.override(ImmutableCode, true)) {
+            HotSpotBackend backend = findFactory(config.getHostArchitectureName()).createBackend(this, null);
+            backend.completeInitialization();
+            return backend;
+        }
+    }
+
     /**
      * Gets the Graal mirror for a {@link Class} object.
      *
@@ -586,5 +601,7 @@ public final class HotSpotGraalRuntime implements GraalRuntime, RuntimeProvider,
 
         SnippetCounter.printGroups(TTY.out().out());
         BenchmarkCounters.shutdown(getCompilerToVM(), runtimeStartTime);
+        PersistedProfiles.dump();
+        BootstrapCodeCache.dump();
     }
 }
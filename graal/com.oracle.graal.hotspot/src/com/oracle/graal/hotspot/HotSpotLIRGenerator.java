@@ -127,6 +127,17 @@ public interface HotSpotLIRGenerator extends LIRGeneratorTool {
         throw GraalInternalError.unimplemented();
     }
 
+    /**
+     * Emits code for a {@link ZeroMemoryNode}. Only called if the backend
+     * {@linkplain HotSpotBackend#supportsBulkZeroing() supports} bulk zeroing.
+     *
+     * @param address the word aligned start of the memory to clear
+     * @param length the number of bytes to clear, a multiple of the word size
+     */
+    default void emitZeroMemory(Value address, Value length) {
+        throw GraalInternalError.unimplemented();
+    }
+
     /**
      * Gets a stack slot for a lock at a given lock nesting depth.
      */
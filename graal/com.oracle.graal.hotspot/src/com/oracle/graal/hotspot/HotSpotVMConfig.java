@@ -1172,6 +1172,11 @@ public class HotSpotVMConfig extends CompilerObject {
     @HotSpotVMValue(expression = "Universe::verify_oop_mask()") @Stable public long verifyOopMask;
     @HotSpotVMValue(expression = "Universe::verify_oop_bits()") @Stable public long verifyOopBits;
 
+    /**
+     * Address of the number of RedefineClasses operations performed so far.
+     */
+    @HotSpotVMField(name = "JvmtiExport::_redefinition_count", type = "int", get = HotSpotVMField.Type.ADDRESS) @Stable public long redefinitionCountAddress;
+
     @HotSpotVMField(name = "CollectedHeap::_barrier_set", type = "BarrierSet*", get = HotSpotVMField.Type.OFFSET) @Stable public int collectedHeapBarrierSetOffset;
 
     @HotSpotVMField(name = "HeapRegion::LogOfHRGrainBytes", type = "int", get = HotSpotVMField.Type.VALUE) @Stable public int logOfHRGrainBytes;
@@ -1329,6 +1334,8 @@ public class HotSpotVMConfig extends CompilerObject {
     @HotSpotVMField(name = "DataLayout::_header._struct._bci", type = "u2", get = HotSpotVMField.Type.OFFSET) @Stable public int dataLayoutBCIOffset;
     @HotSpotVMField(name = "DataLayout::_cells[0]", type = "intptr_t", get = HotSpotVMField.Type.OFFSET) @Stable public int dataLayoutCellsOffset;
     @HotSpotVMConstant(name = "DataLayout::cell_size") @Stable public int dataLayoutCellSize;
+    @HotSpotVMConstant(name = "DataLayout::trap_shift") @Stable public int dataLayoutTrapShift;
+    @HotSpotVMConstant(name = "DataLayout::trap_mask") @Stable public int dataLayoutTrapMask;
 
     @HotSpotVMConstant(name = "DataLayout::no_tag") @Stable public int dataLayoutNoTag;
     @HotSpotVMConstant(name = "DataLayout::bit_data_tag") @Stable public int dataLayoutBitDataTag;
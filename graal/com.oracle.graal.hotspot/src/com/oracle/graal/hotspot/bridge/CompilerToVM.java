@@ -294,6 +294,13 @@ public interface CompilerToVM {
 
     void invalidateInstalledCode(InstalledCode hotspotInstalledCode);
 
+    /**
+     * Invalidates several installed code objects with a single deoptimization operation.
+     *
+     * @param hotspotInstalledCodes the code to invalidate
+     */
+    void invalidateInstalledCodes(InstalledCode[] hotspotInstalledCodes);
+
     /**
      * Collects the current values of all Graal benchmark counters, summed up over all threads.
      */
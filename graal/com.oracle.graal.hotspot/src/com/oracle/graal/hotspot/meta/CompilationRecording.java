@@ -0,0 +1,412 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.meta;
+
+import static com.oracle.graal.hotspot.HotSpotGraalRuntime.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.function.*;
+import java.util.zip.*;
+
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.compiler.*;
+import com.oracle.graal.debug.*;
+import com.oracle.graal.options.*;
+
+/**
+ * Records the answers a compilation receives for the queries whose results depend on the state of
+ * the VM, so that the compilation can be repeated deterministically by the
+ * {@link com.oracle.graal.hotspot.CompilationReplay replay driver}. The recorded answers are:
+ * <ul>
+ * <li>the answers of the {@link ProfilingInfo profiles} of all methods, as they were read by the
+ * compiler,</li>
+ * <li>whether the constant pool entries looked up for types, methods and fields were resolved and</li>
+ * <li>the results of the class hierarchy queries
+ * {@link ResolvedJavaType#findUniqueConcreteSubtype()} and
+ * {@link ResolvedJavaType#findUniqueConcreteMethod(ResolvedJavaMethod)}.</li>
+ * </ul>
+ * All types and methods are stored by name. While a recording is replayed, these queries are
+ * answered from the recording instead of the VM. A query whose recorded answer cannot be
+ * reproduced, for example because an entry recorded as resolved is not resolved in the replaying
+ * VM, is answered by the VM and counted as a divergence.
+ */
+public final class CompilationRecording implements AutoCloseable {
+
+    public static class Options {
+        // @formatter:off
+        @Option(help = "Record the VM answers of the compilations of the methods matching this filter (see MethodFilter)")
+        public static final OptionValue<String> RecordCompilations = new OptionValue<>(null);
+        @Option(help = "Directory to which compilation recordings are written")
+        public static final OptionValue<String> CompilationRecordingDirectory = new OptionValue<>(".");
+        // @formatter:on
+    }
+
+    private static final DebugMetric RecordedCompilations = Debug.metric("RecordedCompilations");
+    private static final DebugMetric ReplayDivergences = Debug.metric("ReplayDivergences");
+
+    private static final int MAGIC = 0x47524543;
+    private static final int VERSION = 2;
+
+    private static final String NONE = "";
+
+    private static final ThreadLocal<CompilationRecording> current = new ThreadLocal<>();
+
+    /**
+     * Set once a recording has been opened so that the common case of no recording only costs a
+     * read of this field.
+     */
+    private static volatile boolean used;
+
+    private static String filterSpec;
+    private static MethodFilter[] filters;
+
+    private final String methodSymbol;
+    private final int entryBCI;
+    private final File file;
+    private final boolean replaying;
+    private HotSpotResolvedObjectType accessingType;
+    private CompilationRecording outer;
+    private int divergences;
+
+    private final Map<String, Boolean> constantPoolEntries = new HashMap<>();
+    private final Map<String, String> hierarchy = new HashMap<>();
+    private final Map<String, RecordedProfilingInfo> profiles = new HashMap<>();
+
+    private CompilationRecording(String methodSymbol, int entryBCI, File file, boolean replaying) {
+        this.methodSymbol = methodSymbol;
+        this.entryBCI = entryBCI;
+        this.file = file;
+        this.replaying = replaying;
+    }
+
+    private static synchronized boolean shouldRecord(HotSpotResolvedJavaMethod method) {
+        String filter = Options.RecordCompilations.getValue();
+        if (filter == null || filter.isEmpty()) {
+            return false;
+        }
+        if (!filter.equals(filterSpec)) {
+            filters = MethodFilter.parse(filter);
+            filterSpec = filter;
+        }
+        return MethodFilter.matches(filters, method);
+    }
+
+    /**
+     * Starts recording the compilation of {@code method} on the current thread.
+     *
+     * @return {@code null} if the compilation is not to be recorded
+     */
+    public static CompilationRecording record(HotSpotResolvedJavaMethod method, int entryBCI, int id) {
+        if (!shouldRecord(method)) {
+            return null;
+        }
+        String name = method.getDeclaringClass().toJavaName() + "." + method.getName();
+        File file = new File(Options.CompilationRecordingDirectory.getValue(), String.format("%s-%d.rec", name.replaceAll("[^\\w.$]", "_"), id));
+        CompilationRecording recording = new CompilationRecording(symbol(method), entryBCI, file, false);
+        recording.accessingType = method.getDeclaringClass();
+        recording.activate();
+        return recording;
+    }
+
+    /**
+     * Reads a recording written by a previous VM instance.
+     */
+    public static CompilationRecording load(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file))))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("not a compilation recording or unsupported version");
+            }
+            CompilationRecording recording = new CompilationRecording(in.readUTF(), in.readInt(), file, true);
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                recording.constantPoolEntries.put(key, in.readBoolean());
+            }
+            count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                recording.hierarchy.put(key, in.readUTF());
+            }
+            count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                recording.profiles.put(key, RecordedProfilingInfo.read(recording, in));
+            }
+            return recording;
+        }
+    }
+
+    private void write() throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(file))))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(methodSymbol);
+            out.writeInt(entryBCI);
+            out.writeInt(constantPoolEntries.size());
+            for (Map.Entry<String, Boolean> entry : new TreeMap<>(constantPoolEntries).entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeBoolean(entry.getValue());
+            }
+            out.writeInt(hierarchy.size());
+            for (Map.Entry<String, String> entry : new TreeMap<>(hierarchy).entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeUTF(entry.getValue());
+            }
+            out.writeInt(profiles.size());
+            for (Map.Entry<String, RecordedProfilingInfo> entry : new TreeMap<>(profiles).entrySet()) {
+                out.writeUTF(entry.getKey());
+                entry.getValue().write(out);
+            }
+        }
+    }
+
+    /**
+     * Makes this recording answer the queries of compilations on the current thread until it is
+     * {@linkplain #close() closed}.
+     *
+     * @return this recording
+     */
+    public CompilationRecording replay() {
+        assert replaying;
+        divergences = 0;
+        if (accessingType == null) {
+            accessingType = (HotSpotResolvedObjectType) getMethod().getDeclaringClass();
+        }
+        activate();
+        return this;
+    }
+
+    private void activate() {
+        used = true;
+        outer = current.get();
+        current.set(this);
+    }
+
+    @Override
+    public void close() {
+        current.set(outer);
+        outer = null;
+        if (!replaying) {
+            try {
+                write();
+                RecordedCompilations.increment();
+            } catch (IOException e) {
+                TTY.println("Warning: could not write compilation recording to " + file + ": " + e);
+            }
+        }
+    }
+
+    /**
+     * Gets the recording that is active on the current thread, if any.
+     */
+    static CompilationRecording current() {
+        return used ? current.get() : null;
+    }
+
+    /**
+     * Gets the method whose compilation was recorded.
+     */
+    public ResolvedJavaMethod getMethod() {
+        String[] parts = methodSymbol.split(" ");
+        ResolvedJavaMethod method = resolveMethod(parts[0], parts[1], parts[2], null);
+        if (method == null) {
+            throw new IllegalArgumentException("cannot find recorded method " + methodSymbol.replace(' ', '.'));
+        }
+        return method;
+    }
+
+    public int getEntryBCI() {
+        return entryBCI;
+    }
+
+    /**
+     * Gets the number of queries that could not be answered from the recording since the last
+     * call to {@link #replay()}.
+     */
+    public int getDivergences() {
+        return divergences;
+    }
+
+    /**
+     * Resolves the constant pool entries that were resolved when the compilation was recorded, as
+     * far as this is possible.
+     */
+    public void prepare() {
+        for (Map.Entry<String, Boolean> entry : constantPoolEntries.entrySet()) {
+            if (entry.getValue()) {
+                String[] parts = entry.getKey().split(" ");
+                JavaType holder = lookupType(parts[0], null);
+                if (holder instanceof HotSpotResolvedObjectType) {
+                    try {
+                        ((HotSpotResolvedObjectType) holder).constantPool().loadReferencedType(Integer.parseInt(parts[2]), Integer.parseInt(parts[3]));
+                    } catch (Throwable t) {
+                        // replay will report a divergence
+                    }
+                }
+            }
+        }
+    }
+
+    HotSpotResolvedObjectType getAccessingType() {
+        return accessingType;
+    }
+
+    void diverged(String query) {
+        divergences++;
+        ReplayDivergences.increment();
+        Debug.log("replay divergence: %s", query);
+    }
+
+    static String symbol(JavaMethod method) {
+        return method.getDeclaringClass().getName() + " " + method.getName() + " " + method.getSignature().toMethodDescriptor();
+    }
+
+    private static String symbol(JavaType type) {
+        return type == null ? NONE : type.getName();
+    }
+
+    private JavaType lookupType(String name, HotSpotResolvedObjectType accessing) {
+        HotSpotResolvedObjectType context = accessing != null ? accessing : accessingType;
+        if (context == null) {
+            context = (HotSpotResolvedObjectType) HotSpotResolvedObjectType.fromClass(Object.class);
+        }
+        return runtime().lookupType(name, context, true);
+    }
+
+    ResolvedJavaMethod resolveMethod(String symbol) {
+        String[] parts = symbol.split(" ");
+        return resolveMethod(parts[0], parts[1], parts[2], accessingType);
+    }
+
+    private ResolvedJavaMethod resolveMethod(String holderName, String name, String descriptor, HotSpotResolvedObjectType accessing) {
+        JavaType holder;
+        try {
+            holder = lookupType(holderName, accessing);
+        } catch (Throwable t) {
+            return null;
+        }
+        if (!(holder instanceof ResolvedJavaType)) {
+            return null;
+        }
+        ResolvedJavaType type = (ResolvedJavaType) holder;
+        if (name.equals("<clinit>")) {
+            return type.getClassInitializer();
+        }
+        for (ResolvedJavaMethod method : name.equals("<init>") ? type.getDeclaredConstructors() : type.getDeclaredMethods()) {
+            if (method.getName().equals(name) && method.getSignature().toMethodDescriptor().equals(descriptor)) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Records or replays the profile of {@code method}.
+     */
+    ProfilingInfo profile(HotSpotResolvedJavaMethod method, boolean includeNormal, boolean includeOSR, ProfilingInfo info) {
+        String key = symbol(method) + (includeNormal ? " normal" : "") + (includeOSR ? " osr" : "");
+        RecordedProfilingInfo recorded = profiles.get(key);
+        if (recorded == null) {
+            if (replaying) {
+                diverged("profile of " + key);
+                return info;
+            }
+            recorded = RecordedProfilingInfo.record(this, info, method.getCodeSize());
+            profiles.put(key, recorded);
+        }
+        return recorded;
+    }
+
+    /**
+     * Records or replays whether a constant pool entry is resolved.
+     *
+     * @param kind the kind of entry (e.g. "type")
+     * @param entry the entry as found in the constant pool
+     * @param unresolved produces an unresolved version of {@code entry}
+     */
+    <T> T constantPoolEntry(HotSpotResolvedObjectType holder, String kind, int cpi, int opcode, T entry, boolean resolved, Supplier<T> unresolved) {
+        String key = holder.getName() + " " + kind + " " + cpi + " " + opcode;
+        if (replaying) {
+            Boolean recorded = constantPoolEntries.get(key);
+            if (recorded == null || recorded != resolved) {
+                if (recorded != null && !recorded) {
+                    return unresolved.get();
+                }
+                diverged("constant pool entry " + key);
+            }
+        } else if (!constantPoolEntries.containsKey(key)) {
+            constantPoolEntries.put(key, resolved);
+        }
+        return entry;
+    }
+
+    /**
+     * Records or replays the result of {@link ResolvedJavaType#findUniqueConcreteSubtype()}.
+     */
+    ResolvedJavaType uniqueConcreteSubtype(ResolvedJavaType type, Supplier<ResolvedJavaType> query) {
+        String key = "subtype " + type.getName();
+        if (replaying) {
+            String recorded = hierarchy.get(key);
+            if (recorded != null) {
+                if (recorded.equals(NONE)) {
+                    return null;
+                }
+                JavaType result = lookupType(recorded, null);
+                if (result instanceof ResolvedJavaType) {
+                    return (ResolvedJavaType) result;
+                }
+            }
+            diverged(key);
+            return query.get();
+        }
+        ResolvedJavaType result = query.get();
+        hierarchy.putIfAbsent(key, symbol(result));
+        return result;
+    }
+
+    /**
+     * Records or replays the result of
+     * {@link ResolvedJavaType#findUniqueConcreteMethod(ResolvedJavaMethod)}.
+     */
+    ResolvedJavaMethod uniqueConcreteMethod(ResolvedJavaType type, ResolvedJavaMethod method, Supplier<ResolvedJavaMethod> query) {
+        String key = "method " + type.getName() + " " + symbol(method);
+        if (replaying) {
+            String recorded = hierarchy.get(key);
+            if (recorded != null) {
+                if (recorded.equals(NONE)) {
+                    return null;
+                }
+                ResolvedJavaMethod result = resolveMethod(recorded);
+                if (result != null) {
+                    return result;
+                }
+            }
+            diverged(key);
+            return query.get();
+        }
+        ResolvedJavaMethod result = query.get();
+        hierarchy.putIfAbsent(key, result == null ? NONE : symbol(result));
+        return result;
+    }
+}
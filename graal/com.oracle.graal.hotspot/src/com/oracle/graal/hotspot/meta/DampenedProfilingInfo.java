@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.meta;
+
+import static com.oracle.graal.api.meta.DeoptimizationReason.*;
+
+import java.util.*;
+
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.compiler.common.*;
+
+/**
+ * A {@link ProfilingInfo} that hides the profile information the speculations of
+ * {@linkplain DeoptimizationStorms deoptimization storm} sites are based on:
+ * <ul>
+ * <li>null checks of a site that failed with {@link DeoptimizationReason#NullCheckException} see
+ * that {@code null} was seen,</li>
+ * <li>a site that deoptimized for an exception sees that the exception was thrown,</li>
+ * <li>branches and switches of a site that reached {@link DeoptimizationReason#UnreachedCode} have
+ * no probabilities, which prevents them from being pruned, and</li>
+ * <li>a site whose type checks or type checked inlining failed has no type or method profile.</li>
+ * </ul>
+ * Storms that could not be attributed to a bytecode fall back to the per-method reaction, that is
+ * their deoptimization count is raised to {@link GraalOptions#DeoptsToDisableOptimisticOptimization}.
+ */
+final class DampenedProfilingInfo implements ProfilingInfo {
+
+    private final ProfilingInfo delegate;
+    private final Map<Integer, Set<DeoptimizationReason>> storms;
+
+    DampenedProfilingInfo(ProfilingInfo delegate, Map<Integer, Set<DeoptimizationReason>> storms) {
+        this.delegate = delegate;
+        this.storms = storms;
+    }
+
+    private boolean isStorm(int bci, DeoptimizationReason... reasons) {
+        Set<DeoptimizationReason> siteReasons = storms.get(bci);
+        if (siteReasons != null) {
+            for (DeoptimizationReason reason : reasons) {
+                if (siteReasons.contains(reason)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int getCodeSize() {
+        return delegate.getCodeSize();
+    }
+
+    @Override
+    public double getBranchTakenProbability(int bci) {
+        return isStorm(bci, UnreachedCode) ? -1 : delegate.getBranchTakenProbability(bci);
+    }
+
+    @Override
+    public double[] getSwitchProbabilities(int bci) {
+        return isStorm(bci, UnreachedCode) ? null : delegate.getSwitchProbabilities(bci);
+    }
+
+    @Override
+    public JavaTypeProfile getTypeProfile(int bci) {
+        return isStorm(bci, ClassCastException, ArrayStoreException, TypeCheckedInliningViolated, OptimizedTypeCheckViolated) ? null : delegate.getTypeProfile(bci);
+    }
+
+    @Override
+    public JavaMethodProfile getMethodProfile(int bci) {
+        return isStorm(bci, TypeCheckedInliningViolated) ? null : delegate.getMethodProfile(bci);
+    }
+
+    @Override
+    public TriState getExceptionSeen(int bci) {
+        if (isStorm(bci, NullCheckException, BoundsCheckException, ClassCastException, ArrayStoreException, ArithmeticException, NotCompiledExceptionHandler)) {
+            return TriState.TRUE;
+        }
+        return delegate.getExceptionSeen(bci);
+    }
+
+    @Override
+    public TriState getNullSeen(int bci) {
+        return isStorm(bci, NullCheckException) ? TriState.TRUE : delegate.getNullSeen(bci);
+    }
+
+    @Override
+    public int getExecutionCount(int bci) {
+        return delegate.getExecutionCount(bci);
+    }
+
+    @Override
+    public int getDeoptimizationCount(DeoptimizationReason reason) {
+        int count = delegate.getDeoptimizationCount(reason);
+        if (isStorm(DeoptimizationStorms.UNKNOWN_BCI, reason)) {
+            return Math.max(count, GraalOptions.DeoptsToDisableOptimisticOptimization.getValue());
+        }
+        return count;
+    }
+
+    @Override
+    public boolean setCompilerIRSize(Class<?> irType, int irSize) {
+        return delegate.setCompilerIRSize(irType, irSize);
+    }
+
+    @Override
+    public int getCompilerIRSize(Class<?> irType) {
+        return delegate.getCompilerIRSize(irType);
+    }
+
+    @Override
+    public boolean isMature() {
+        return delegate.isMature();
+    }
+
+    @Override
+    public void setMature() {
+        delegate.setMature();
+    }
+
+    @Override
+    public String toString() {
+        return "DampenedProfilingInfo<" + this.toString(null, "; ") + ">";
+    }
+}
@@ -0,0 +1,350 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.meta;
+
+import java.lang.management.*;
+import java.util.*;
+import java.util.function.*;
+
+import javax.management.*;
+
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.debug.*;
+import com.oracle.graal.options.*;
+
+/**
+ * Aggregates deoptimizations by method, bci and {@link DeoptimizationReason} and disables the
+ * speculation responsible for a site that deoptimizes too often.
+ * <p>
+ * HotSpot counts the deoptimizations of a method per reason and records the reason of the last
+ * trap in the profile entry of the trapping bytecode. Each time the profile of a method is
+ * requested for a compilation, the increase of the counts since the previous request is
+ * attributed to the bytecodes that recorded the same reason, or to the method as a whole if no
+ * bytecode did. A site that deoptimizes {@link Options#DeoptimizationStormThreshold} times within
+ * {@link Options#DeoptimizationStormWindow} milliseconds is a storm. Subsequent compilations see a
+ * {@link DampenedProfilingInfo} that hides the profile information the failing speculation was
+ * based on, so that only that speculation is given up.
+ * <p>
+ * Only methods that deoptimized at least once get a {@link MethodState}. The states are only
+ * weakly referenced from their methods so that they do not keep classes from being unloaded. The
+ * observations are exposed through the {@link DeoptimizationStormsMBean}, which is registered once
+ * the first deoptimization is observed.
+ */
+public final class DeoptimizationStorms implements DeoptimizationStormsMBean {
+
+    public static class Options {
+        // @formatter:off
+        @Option(help = "Disable the speculations of sites that deoptimize repeatedly")
+        public static final OptionValue<Boolean> DetectDeoptimizationStorms = new OptionValue<>(true);
+        @Option(help = "Number of deoptimizations within DeoptimizationStormWindow that make a site a deoptimization storm")
+        public static final OptionValue<Integer> DeoptimizationStormThreshold = new OptionValue<>(8);
+        @Option(help = "Length in milliseconds of the window in which deoptimizations of a site are counted")
+        public static final OptionValue<Integer> DeoptimizationStormWindow = new OptionValue<>(10000);
+        // @formatter:on
+    }
+
+    private static final DebugMetric DeoptimizationStormsDetected = Debug.metric("DeoptimizationStorms");
+    private static final DebugMetric DampenedProfiles = Debug.metric("DampenedProfiles");
+
+    /**
+     * The bci of a site whose deoptimizations could not be attributed to a bytecode.
+     */
+    public static final int UNKNOWN_BCI = -1;
+
+    /**
+     * The value returned by {@link #trapStateReason} for a bytecode that trapped for more than one
+     * reason.
+     */
+    public static final int MANY_REASONS = -1;
+
+    private static final DeoptimizationReason[] REASONS = DeoptimizationReason.values();
+
+    private static final String OBJECT_NAME = "com.oracle.graal:type=DeoptimizationStorms";
+
+    private static final DeoptimizationStorms instance = new DeoptimizationStorms();
+
+    /**
+     * Decodes the reason recorded in the trap state of a profile entry like
+     * {@code Deoptimization::trap_state_reason} does.
+     *
+     * @param trapState the trap state bits of the entry ({@code DataLayout::trap_state()})
+     * @param trapMask {@code DataLayout::trap_mask}
+     * @return the VM's code of the reason, which is {@code Reason_none} if the bytecode did not
+     *         trap, or {@link #MANY_REASONS}
+     */
+    public static int trapStateReason(int trapState, int trapMask) {
+        int reasonMask = trapMask >> 1;
+        // the remaining bit records whether the method was recompiled
+        int reason = trapState & reasonMask;
+        return reason == reasonMask ? MANY_REASONS : reason;
+    }
+
+    /**
+     * A bytecode (or a whole method) and the reason it deoptimized for.
+     */
+    private static final class Site {
+
+        final String method;
+        final int bci;
+        final DeoptimizationReason reason;
+        long count;
+        long windowStart;
+        long windowCount;
+        boolean storm;
+
+        Site(String method, int bci, DeoptimizationReason reason) {
+            this.method = method;
+            this.bci = bci;
+            this.reason = reason;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s @%s %s: %d%s", method, bci == UNKNOWN_BCI ? "?" : String.valueOf(bci), reason, count, storm ? " (speculation disabled)" : "");
+        }
+    }
+
+    /**
+     * The deoptimization counts of a method seen by the last request for its profile and the
+     * sites they were attributed to.
+     */
+    public static final class MethodState {
+
+        private final String method;
+        private final int[] counts = new int[REASONS.length];
+        private final Map<Long, Site> sites = new HashMap<>();
+
+        /**
+         * The storm sites of this method grouped by bci, or {@code null} if there are none.
+         */
+        private volatile Map<Integer, Set<DeoptimizationReason>> storms;
+
+        /**
+         * @param method the name of the method used in the {@linkplain #getSites() site
+         *            descriptions}
+         */
+        public MethodState(String method) {
+            this.method = method;
+        }
+
+        /**
+         * Attributes the increase of the deoptimization counts of the method since the previous
+         * call to the sites of the method.
+         *
+         * @param newCounts the current deoptimization counts of the method, indexed by
+         *            {@link DeoptimizationReason#ordinal()}
+         * @param trapReasons supplies the reasons recorded for individual bytecodes, keyed by bci.
+         *            It is only queried if a count increased.
+         * @param now the current time in milliseconds
+         */
+        public synchronized void update(int[] newCounts, Supplier<Map<Integer, DeoptimizationReason>> trapReasons, long now) {
+            Map<Integer, DeoptimizationReason> reasons = null;
+            for (DeoptimizationReason reason : REASONS) {
+                int delta = newCounts[reason.ordinal()] - counts[reason.ordinal()];
+                counts[reason.ordinal()] = newCounts[reason.ordinal()];
+                if (delta <= 0) {
+                    continue;
+                }
+                if (reasons == null) {
+                    reasons = trapReasons.get();
+                }
+                boolean attributed = false;
+                for (Map.Entry<Integer, DeoptimizationReason> entry : reasons.entrySet()) {
+                    if (entry.getValue() == reason) {
+                        record(entry.getKey(), reason, delta, now);
+                        attributed = true;
+                    }
+                }
+                if (!attributed) {
+                    record(UNKNOWN_BCI, reason, delta, now);
+                }
+            }
+        }
+
+        private void record(int bci, DeoptimizationReason reason, int delta, long now) {
+            long key = ((long) bci << 32) | reason.ordinal();
+            Site site = sites.get(key);
+            if (site == null) {
+                site = new Site(method, bci, reason);
+                sites.put(key, site);
+            }
+            if (now - site.windowStart > Options.DeoptimizationStormWindow.getValue()) {
+                site.windowStart = now;
+                site.windowCount = 0;
+            }
+            site.count += delta;
+            site.windowCount += delta;
+            if (!site.storm && site.windowCount >= Options.DeoptimizationStormThreshold.getValue()) {
+                site.storm = true;
+                DeoptimizationStormsDetected.increment();
+                Debug.log("deoptimization storm at %s", site);
+
+                Map<Integer, Set<DeoptimizationReason>> newStorms = new HashMap<>();
+                for (Site s : sites.values()) {
+                    if (s.storm) {
+                        newStorms.computeIfAbsent(s.bci, b -> EnumSet.noneOf(DeoptimizationReason.class)).add(s.reason);
+                    }
+                }
+                storms = newStorms;
+            }
+        }
+
+        /**
+         * Returns a version of {@code info} that does not support the speculations of the storm
+         * sites of the method.
+         */
+        public ProfilingInfo dampen(ProfilingInfo info) {
+            Map<Integer, Set<DeoptimizationReason>> s = storms;
+            if (s == null) {
+                return info;
+            }
+            DampenedProfiles.increment();
+            return new DampenedProfilingInfo(info, s);
+        }
+
+        synchronized void addSites(List<Site> list) {
+            list.addAll(sites.values());
+        }
+
+        synchronized void reset() {
+            sites.clear();
+            storms = null;
+        }
+    }
+
+    private final Map<HotSpotResolvedJavaMethod, MethodState> methods = Collections.synchronizedMap(new WeakHashMap<>());
+    private volatile boolean registered;
+
+    private DeoptimizationStorms() {
+    }
+
+    /**
+     * Updates the deoptimization sites of {@code method} and returns a version of {@code info}
+     * that does not support the speculations of the storm sites of the method.
+     */
+    static ProfilingInfo dampen(HotSpotResolvedJavaMethod method, ProfilingInfo info) {
+        if (!Options.DetectDeoptimizationStorms.getValue()) {
+            return info;
+        }
+        MethodState state = instance.update(method);
+        return state == null ? info : state.dampen(info);
+    }
+
+    private MethodState update(HotSpotResolvedJavaMethod method) {
+        HotSpotMethodData methodData = method.getMethodData();
+        if (methodData == null) {
+            return null;
+        }
+        int[] counts = new int[REASONS.length];
+        boolean deoptimized = false;
+        for (DeoptimizationReason reason : REASONS) {
+            int count = methodData.getDeoptimizationCount(reason) + methodData.getOSRDeoptimizationCount(reason);
+            counts[reason.ordinal()] = count;
+            deoptimized |= count != 0;
+        }
+        MethodState state = methods.get(method);
+        if (state == null) {
+            if (!deoptimized) {
+                return null;
+            }
+            synchronized (methods) {
+                state = methods.get(method);
+                if (state == null) {
+                    state = new MethodState(method.format("%H.%n(%p)"));
+                    methods.put(method, state);
+                }
+            }
+            if (!registered) {
+                register();
+            }
+        }
+        state.update(counts, methodData::getTrapReasons, System.currentTimeMillis());
+        return state;
+    }
+
+    private synchronized void register() {
+        if (!registered) {
+            registered = true;
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+            } catch (JMException e) {
+                TTY.println("Warning: could not register " + OBJECT_NAME + ": " + e);
+            }
+        }
+    }
+
+    private List<Site> sites() {
+        List<MethodState> states;
+        synchronized (methods) {
+            states = new ArrayList<>(methods.values());
+        }
+        List<Site> sites = new ArrayList<>();
+        for (MethodState state : states) {
+            state.addSites(sites);
+        }
+        return sites;
+    }
+
+    @Override
+    public long getDeoptimizationCount() {
+        long count = 0;
+        for (Site site : sites()) {
+            count += site.count;
+        }
+        return count;
+    }
+
+    @Override
+    public int getStormCount() {
+        int count = 0;
+        for (Site site : sites()) {
+            if (site.storm) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public String[] getSites() {
+        List<Site> sites = sites();
+        Collections.sort(sites, (a, b) -> Long.compare(b.count, a.count));
+        String[] result = new String[sites.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = sites.get(i).toString();
+        }
+        return result;
+    }
+
+    @Override
+    public void reset() {
+        // the counts seen last are kept so that old deoptimizations are not attributed again
+        List<MethodState> states;
+        synchronized (methods) {
+            states = new ArrayList<>(methods.values());
+        }
+        for (MethodState state : states) {
+            state.reset();
+        }
+    }
+}
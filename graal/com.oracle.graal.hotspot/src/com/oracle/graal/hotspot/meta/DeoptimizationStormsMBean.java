@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.meta;
+
+/**
+ * Management interface of {@link DeoptimizationStorms}, registered as
+ * {@code com.oracle.graal:type=DeoptimizationStorms}.
+ */
+public interface DeoptimizationStormsMBean {
+
+    /**
+     * Gets the number of deoptimizations observed so far.
+     */
+    long getDeoptimizationCount();
+
+    /**
+     * Gets the number of sites whose speculations have been disabled.
+     */
+    int getStormCount();
+
+    /**
+     * Gets a description of every site that deoptimized, the most frequently deoptimizing first.
+     */
+    String[] getSites();
+
+    /**
+     * Forgets all sites and enables the speculations disabled so far again.
+     */
+    void reset();
+}
@@ -215,6 +215,25 @@ public abstract class HotSpotCodeCacheProvider implements CodeCacheProvider {
         return logOrDump(installedCode, compResult);
     }
 
+    /**
+     * Installs code for {@code method} that was not compiled in this VM instance (e.g. code loaded
+     * from a {@link com.oracle.graal.hotspot.BootstrapCodeCache}). Unlike
+     * {@link #installMethod(HotSpotResolvedJavaMethod, CompilationResult, long)}, the code is not
+     * assumed to be valid: if the VM rejects it, for instance because one of its dependencies no
+     * longer holds, {@code null} is returned.
+     */
+    public InstalledCode installValidatedMethod(HotSpotResolvedJavaMethod method, CompilationResult compResult, long ctask) {
+        if (compResult.getId() == -1) {
+            compResult.setId(method.allocateCompileId(compResult.getEntryBCI()));
+        }
+        HotSpotInstalledCode installedCode = new HotSpotNmethod(method, compResult.getName(), true);
+        CodeInstallResult result = runtime.getCompilerToVM().installCode(new HotSpotCompiledNmethod(target, method, compResult, ctask), installedCode, method.getSpeculationLog());
+        if (result != CodeInstallResult.OK) {
+            return null;
+        }
+        return logOrDump(installedCode, compResult);
+    }
+
     @Override
     public InstalledCode addMethod(ResolvedJavaMethod method, CompilationResult compResult, SpeculationLog log, InstalledCode predefinedInstalledCode) {
         HotSpotResolvedJavaMethod hotspotMethod = (HotSpotResolvedJavaMethod) method;
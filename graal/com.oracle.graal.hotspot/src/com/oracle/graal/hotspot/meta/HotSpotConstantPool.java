@@ -26,11 +26,15 @@ import static com.oracle.graal.compiler.common.UnsafeAccess.*;
 import static com.oracle.graal.hotspot.HotSpotGraalRuntime.*;
 
 import java.lang.invoke.*;
+import java.util.concurrent.*;
 
 import com.oracle.graal.api.meta.*;
 import com.oracle.graal.bytecode.*;
 import com.oracle.graal.compiler.common.*;
+import com.oracle.graal.debug.*;
 import com.oracle.graal.hotspot.*;
+import com.oracle.graal.hotspot.bridge.*;
+import com.oracle.graal.options.*;
 
 /**
  * Implementation of {@link ConstantPool} for HotSpot.
@@ -39,6 +43,27 @@ public class HotSpotConstantPool extends CompilerObject implements ConstantPool
 
     private static final long serialVersionUID = -5443206401485234850L;
 
+    static class Options {
+        // @formatter:off
+        @Option(help = "Cache resolved constant pool entries on the Java side to avoid repeated VM calls")
+        public static final OptionValue<Boolean> CacheConstantPoolLookups = new OptionValue<>(true);
+        // @formatter:on
+    }
+
+    private static final DebugMetric ConstantPoolVMCalls = Debug.metric("ConstantPoolVMCalls");
+    private static final DebugMetric ConstantPoolCacheHits = Debug.metric("ConstantPoolCacheHits");
+
+    /*
+     * Kinds of cached entries. The kind is part of the cache key so that the different lookups
+     * for the same index do not collide.
+     */
+    private static final int METHOD_ENTRY = 1;
+    private static final int TYPE_ENTRY = 2;
+    private static final int FIELD_ENTRY = 3;
+    private static final int NAME_ENTRY = 4;
+    private static final int SIGNATURE_ENTRY = 5;
+    private static final int PARSED_SIGNATURE_ENTRY = 6;
+
     /**
      * Enum of all {@code JVM_CONSTANT} constants used in the VM. This includes the public and
      * internal ones.
@@ -90,8 +115,91 @@ public class HotSpotConstantPool extends CompilerObject implements ConstantPool
      */
     private final long metaspaceConstantPool;
 
+    /**
+     * Entries that cannot change anymore once looked up, keyed by {@link #cacheKey}, together with
+     * the {@linkplain #redefinitionCount() redefinition count} at the time they were looked up.
+     */
+    @SuppressWarnings("serial")
+    private static final class ResolvedEntries extends ConcurrentHashMap<Long, Object> {
+
+        final int redefinitionCount;
+
+        ResolvedEntries(int redefinitionCount) {
+            this.redefinitionCount = redefinitionCount;
+        }
+    }
+
+    /**
+     * Only resolved methods, types and fields as well as the names and signatures of member
+     * references are cached. A redefined class gets a new constant pool, so the cache is dropped
+     * together with this object when its holder is redefined. Entries may also refer to other
+     * classes, so the cache is replaced whenever any class has been redefined since it was
+     * created.
+     */
+    private volatile ResolvedEntries resolvedEntries;
+
     public HotSpotConstantPool(long metaspaceConstantPool) {
         this.metaspaceConstantPool = metaspaceConstantPool;
+        this.resolvedEntries = new ResolvedEntries(redefinitionCount());
+    }
+
+    public long getMetaspaceConstantPool() {
+        return metaspaceConstantPool;
+    }
+
+    /**
+     * Gets the VM interface for a call that cannot be answered from the cache and counts the call.
+     */
+    private static CompilerToVM compilerToVM() {
+        ConstantPoolVMCalls.increment();
+        CompilationStatistics stats = CompilationStatistics.current();
+        if (stats != null) {
+            stats.recordConstantPoolVMCall();
+        }
+        return runtime().getCompilerToVM();
+    }
+
+    private static long cacheKey(int kind, int index, int opcode) {
+        return ((long) kind << 40) | ((long) (opcode & 0xFF) << 32) | (index & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Gets the number of times classes have been redefined in the VM.
+     */
+    private static int redefinitionCount() {
+        return unsafe.getInt(runtime().getConfig().redefinitionCountAddress);
+    }
+
+    /**
+     * Gets the cache for a lookup. An entry looked up with a cache obtained before a redefinition
+     * only ends up in that stale cache, which is never read again.
+     */
+    private ResolvedEntries resolvedEntries() {
+        int redefinitionCount = redefinitionCount();
+        ResolvedEntries entries = resolvedEntries;
+        if (entries.redefinitionCount != redefinitionCount) {
+            entries = new ResolvedEntries(redefinitionCount);
+            resolvedEntries = entries;
+        }
+        return entries;
+    }
+
+    private static Object getCached(ResolvedEntries entries, long key) {
+        if (!Options.CacheConstantPoolLookups.getValue()) {
+            return null;
+        }
+        Object result = entries.get(key);
+        if (result != null) {
+            ConstantPoolCacheHits.increment();
+        }
+        return result;
+    }
+
+    private static <T> T cache(ResolvedEntries entries, long key, T entry) {
+        if (Options.CacheConstantPoolLookups.getValue()) {
+            entries.put(key, entry);
+        }
+        return entry;
     }
 
     /**
@@ -245,7 +353,7 @@ public class HotSpotConstantPool extends CompilerObject implements ConstantPool
      * @return {@code JVM_CONSTANT_NameAndType} reference constant pool entry
      */
     private int getNameAndTypeRefIndexAt(int index) {
-        return runtime().getCompilerToVM().lookupNameAndTypeRefIndexInPool(metaspaceConstantPool, index);
+        return compilerToVM().lookupNameAndTypeRefIndexInPool(metaspaceConstantPool, index);
     }
 
     /**
@@ -256,7 +364,13 @@ public class HotSpotConstantPool extends CompilerObject implements ConstantPool
      * @return name as {@link String}
      */
     private String getNameRefAt(int index) {
-        return runtime().getCompilerToVM().lookupNameRefInPool(metaspaceConstantPool, index);
+        long key = cacheKey(NAME_ENTRY, index, 0);
+        ResolvedEntries entries = resolvedEntries();
+        Object cached = getCached(entries, key);
+        if (cached != null) {
+            return (String) cached;
+        }
+        return cache(entries, key, compilerToVM().lookupNameRefInPool(metaspaceConstantPool, index));
     }
 
     /**
@@ -280,7 +394,13 @@ public class HotSpotConstantPool extends CompilerObject implements ConstantPool
      * @return signature as {@link String}
      */
     private String getSignatureRefAt(int index) {
-        return runtime().getCompilerToVM().lookupSignatureRefInPool(metaspaceConstantPool, index);
+        long key = cacheKey(SIGNATURE_ENTRY, index, 0);
+        ResolvedEntries entries = resolvedEntries();
+        Object cached = getCached(entries, key);
+        if (cached != null) {
+            return (String) cached;
+        }
+        return cache(entries, key, compilerToVM().lookupSignatureRefInPool(metaspaceConstantPool, index));
     }
 
     /**
@@ -303,7 +423,7 @@ public class HotSpotConstantPool extends CompilerObject implements ConstantPool
      * @return klass reference index
      */
     private int getKlassRefIndexAt(int index) {
-        return runtime().getCompilerToVM().lookupKlassRefIndexInPool(metaspaceConstantPool, index);
+        return compilerToVM().lookupKlassRefIndexInPool(metaspaceConstantPool, index);
     }
 
     /**
@@ -363,13 +483,13 @@ public class HotSpotConstantPool extends CompilerObject implements ConstantPool
                 final int opcode = -1;  // opcode is not used
                 return lookupType(cpi, opcode);
             case String:
-                Object string = runtime().getCompilerToVM().resolvePossiblyCachedConstantInPool(metaspaceConstantPool, cpi);
+                Object string = compilerToVM().resolvePossiblyCachedConstantInPool(metaspaceConstantPool, cpi);
                 return HotSpotObjectConstant.forObject(string);
             case MethodHandle:
             case MethodHandleInError:
             case MethodType:
             case MethodTypeInError:
-                Object obj = runtime().getCompilerToVM().resolveConstantInPool(metaspaceConstantPool, cpi);
+                Object obj = compilerToVM().resolveConstantInPool(metaspaceConstantPool, cpi);
                 return HotSpotObjectConstant.forObject(obj);
             default:
                 throw GraalInternalError.shouldNotReachHere("unknown constant pool tag " + tag);
@@ -379,19 +499,25 @@ public class HotSpotConstantPool extends CompilerObject implements ConstantPool
     @Override
     public String lookupUtf8(int cpi) {
         assertTag(cpi, JVM_CONSTANT.Utf8);
-        return runtime().getCompilerToVM().getSymbol(getEntryAt(cpi));
+        return compilerToVM().getSymbol(getEntryAt(cpi));
     }
 
     @Override
     public Signature lookupSignature(int cpi) {
-        return new HotSpotSignature(lookupUtf8(cpi));
+        long key = cacheKey(PARSED_SIGNATURE_ENTRY, cpi, 0);
+        ResolvedEntries entries = resolvedEntries();
+        Object cached = getCached(entries, key);
+        if (cached != null) {
+            return (Signature) cached;
+        }
+        return cache(entries, key, new HotSpotSignature(lookupUtf8(cpi)));
     }
 
     @Override
     public Constant lookupAppendix(int cpi, int opcode) {
         assert Bytecodes.isInvoke(opcode);
         final int index = toConstantPoolIndex(cpi, opcode);
-        Object result = runtime().getCompilerToVM().lookupAppendixInPool(metaspaceConstantPool, index);
+        Object result = compilerToVM().lookupAppendixInPool(metaspaceConstantPool, index);
         if (result == null) {
             return null;
         } else {
@@ -410,7 +536,7 @@ public class HotSpotConstantPool extends CompilerObject implements ConstantPool
         HotSpotVMConfig config = runtime.getConfig();
         if ((metaspacePointer & config.compilerToVMSymbolTag) != 0) {
             final long metaspaceSymbol = metaspacePointer & ~config.compilerToVMSymbolTag;
-            String name = runtime.getCompilerToVM().getSymbol(metaspaceSymbol);
+            String name = compilerToVM().getSymbol(metaspaceSymbol);
             return HotSpotUnresolvedJavaType.create("L" + name + ";");
         } else {
             assert (metaspacePointer & config.compilerToVMKlassTag) == 0;
@@ -420,10 +546,26 @@ public class HotSpotConstantPool extends CompilerObject implements ConstantPool
 
     @Override
     public JavaMethod lookupMethod(int cpi, int opcode) {
+        JavaMethod method = lookupMethodInPool(cpi, opcode);
+        CompilationRecording recording = CompilationRecording.current();
+        if (recording != null) {
+            return recording.constantPoolEntry(getHolder(), "method", cpi, opcode, method, method instanceof ResolvedJavaMethod,
+                            () -> new HotSpotMethodUnresolved(method.getName(), method.getSignature().toMethodDescriptor(), method.getDeclaringClass()));
+        }
+        return method;
+    }
+
+    private JavaMethod lookupMethodInPool(int cpi, int opcode) {
         final int index = toConstantPoolIndex(cpi, opcode);
-        final long metaspaceMethod = runtime().getCompilerToVM().lookupMethodInPool(metaspaceConstantPool, index, (byte) opcode);
+        long key = cacheKey(METHOD_ENTRY, index, opcode);
+        ResolvedEntries entries = resolvedEntries();
+        Object cached = getCached(entries, key);
+        if (cached != null) {
+            return (JavaMethod) cached;
+        }
+        final long metaspaceMethod = compilerToVM().lookupMethodInPool(metaspaceConstantPool, index, (byte) opcode);
         if (metaspaceMethod != 0L) {
-            return HotSpotResolvedJavaMethod.fromMetaspace(metaspaceMethod);
+            return cache(entries, key, HotSpotResolvedJavaMethod.fromMetaspace(metaspaceMethod));
         } else {
             // Get the method's name and signature.
             String name = getNameRefAt(index);
@@ -433,7 +575,7 @@ public class HotSpotConstantPool extends CompilerObject implements ConstantPool
                 return new HotSpotMethodUnresolved(name, signature, holder);
             } else {
                 final int klassIndex = getKlassRefIndexAt(index);
-                final long metaspacePointer = runtime().getCompilerToVM().lookupKlassInPool(metaspaceConstantPool, klassIndex);
+                final long metaspacePointer = compilerToVM().lookupKlassInPool(metaspaceConstantPool, klassIndex);
                 JavaType holder = getJavaType(metaspacePointer);
                 return new HotSpotMethodUnresolved(name, signature, holder);
             }
@@ -442,13 +584,49 @@ public class HotSpotConstantPool extends CompilerObject implements ConstantPool
 
     @Override
     public JavaType lookupType(int cpi, int opcode) {
-        final long metaspacePointer = runtime().getCompilerToVM().lookupKlassInPool(metaspaceConstantPool, cpi);
-        return getJavaType(metaspacePointer);
+        JavaType type = lookupTypeInPool(cpi);
+        CompilationRecording recording = CompilationRecording.current();
+        if (recording != null) {
+            return recording.constantPoolEntry(getHolder(), "type", cpi, opcode, type, type instanceof ResolvedJavaType, () -> HotSpotUnresolvedJavaType.create(type.getName()));
+        }
+        return type;
+    }
+
+    private JavaType lookupTypeInPool(int cpi) {
+        long key = cacheKey(TYPE_ENTRY, cpi, 0);
+        ResolvedEntries entries = resolvedEntries();
+        Object cached = getCached(entries, key);
+        if (cached != null) {
+            return (JavaType) cached;
+        }
+        final long metaspacePointer = compilerToVM().lookupKlassInPool(metaspaceConstantPool, cpi);
+        JavaType type = getJavaType(metaspacePointer);
+        if (type instanceof ResolvedJavaType) {
+            // an unresolved type may still be resolved later
+            cache(entries, key, type);
+        }
+        return type;
     }
 
     @Override
     public JavaField lookupField(int cpi, int opcode) {
+        JavaField field = lookupFieldInPool(cpi, opcode);
+        CompilationRecording recording = CompilationRecording.current();
+        if (recording != null) {
+            return recording.constantPoolEntry(getHolder(), "field", cpi, opcode, field, field instanceof ResolvedJavaField,
+                            () -> new HotSpotUnresolvedField(field.getDeclaringClass(), field.getName(), field.getType()));
+        }
+        return field;
+    }
+
+    private JavaField lookupFieldInPool(int cpi, int opcode) {
         final int index = toConstantPoolIndex(cpi, opcode);
+        long key = cacheKey(FIELD_ENTRY, index, opcode);
+        ResolvedEntries entries = resolvedEntries();
+        Object cached = getCached(entries, key);
+        if (cached != null) {
+            return (JavaField) cached;
+        }
         final int nameAndTypeIndex = getNameAndTypeRefIndexAt(index);
         final int nameIndex = getNameRefIndexAt(nameAndTypeIndex);
         String name = lookupUtf8(nameIndex);
@@ -463,7 +641,7 @@ public class HotSpotConstantPool extends CompilerObject implements ConstantPool
             long[] info = new long[2];
             long metaspaceKlass;
             try {
-                metaspaceKlass = runtime().getCompilerToVM().resolveField(metaspaceConstantPool, index, (byte) opcode, info);
+                metaspaceKlass = compilerToVM().resolveField(metaspaceConstantPool, index, (byte) opcode, info);
             } catch (Throwable t) {
                 /*
                  * If there was an exception resolving the field we give up and return an unresolved
@@ -474,7 +652,7 @@ public class HotSpotConstantPool extends CompilerObject implements ConstantPool
             HotSpotResolvedObjectType resolvedHolder = (HotSpotResolvedObjectType) HotSpotResolvedObjectType.fromMetaspaceKlass(metaspaceKlass);
             final int flags = (int) info[0];
             final long offset = info[1];
-            return resolvedHolder.createField(name, type, offset, flags);
+            return cache(entries, key, resolvedHolder.createField(name, type, offset, flags));
         } else {
             return new HotSpotUnresolvedField(holder, name, type);
         }
@@ -497,11 +675,11 @@ public class HotSpotConstantPool extends CompilerObject implements ConstantPool
             case Bytecodes.INVOKEDYNAMIC:
                 // invokedynamic instructions point to a constant pool cache entry.
                 index = decodeConstantPoolCacheIndex(cpi) + runtime().getConfig().constantPoolCpCacheIndexTag;
-                index = runtime().getCompilerToVM().constantPoolRemapInstructionOperandFromCache(metaspaceConstantPool, index);
+                index = compilerToVM().constantPoolRemapInstructionOperandFromCache(metaspaceConstantPool, index);
                 break;
             default:
                 index = toConstantPoolIndex(cpi, opcode);
-                index = runtime().getCompilerToVM().constantPoolRemapInstructionOperandFromCache(metaspaceConstantPool, index);
+                index = compilerToVM().constantPoolRemapInstructionOperandFromCache(metaspaceConstantPool, index);
         }
 
         JVM_CONSTANT tag = getTagAt(index);
@@ -516,7 +694,7 @@ public class HotSpotConstantPool extends CompilerObject implements ConstantPool
             case Class:
             case UnresolvedClass:
             case UnresolvedClassInError:
-                final long metaspaceKlass = runtime().getCompilerToVM().constantPoolKlassAt(metaspaceConstantPool, index);
+                final long metaspaceKlass = compilerToVM().constantPoolKlassAt(metaspaceConstantPool, index);
                 HotSpotResolvedObjectType type = (HotSpotResolvedObjectType) HotSpotResolvedObjectType.fromMetaspaceKlass(metaspaceKlass);
                 Class<?> klass = type.mirror();
                 if (!klass.isPrimitive() && !klass.isArray()) {
@@ -527,7 +705,7 @@ public class HotSpotConstantPool extends CompilerObject implements ConstantPool
                 if (!isInvokedynamicIndex(cpi)) {
                     throw new IllegalArgumentException("InvokeDynamic entries must be accessed");
                 }
-                runtime().getCompilerToVM().resolveInvokeDynamic(metaspaceConstantPool, cpi);
+                compilerToVM().resolveInvokeDynamic(metaspaceConstantPool, cpi);
                 break;
             default:
                 // nothing
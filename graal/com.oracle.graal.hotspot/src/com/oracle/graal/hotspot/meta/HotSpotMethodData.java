@@ -119,6 +119,38 @@ public final class HotSpotMethodData extends CompilerObject {
         return unsafe.getByte(metaspaceMethodData + config.methodDataOopTrapHistoryOffset + config.deoptReasonOSROffset + reasonIndex) & 0xFF;
     }
 
+    /**
+     * Gets the reasons of the traps recorded for individual bytecodes, keyed by bci. HotSpot only
+     * records the reasons up to {@code Deoptimization::Reason_RECORDED_LIMIT} per bytecode. The
+     * reason of a bytecode that trapped for more than one reason is {@code null}.
+     */
+    public Map<Integer, DeoptimizationReason> getTrapReasons() {
+        Map<Integer, DeoptimizationReason> reasons = new HashMap<>();
+        int pos = 0;
+        HotSpotMethodDataAccessor data;
+        while ((data = getNormalData(pos)) != null) {
+            addTrapReason(reasons, data, pos);
+            pos = pos + data.getSize(this, pos);
+        }
+        if (hasExtraData()) {
+            pos = getExtraDataBeginOffset();
+            while ((data = getExtraData(pos)) != null) {
+                addTrapReason(reasons, data, pos);
+                pos = pos + data.getSize(this, pos);
+            }
+        }
+        return reasons;
+    }
+
+    private void addTrapReason(Map<Integer, DeoptimizationReason> reasons, HotSpotMethodDataAccessor data, int position) {
+        int trapState = (readUnsignedByte(position, config.dataLayoutFlagsOffset) >> config.dataLayoutTrapShift) & config.dataLayoutTrapMask;
+        int reason = DeoptimizationStorms.trapStateReason(trapState, config.dataLayoutTrapMask);
+        if (reason != config.deoptReasonNone) {
+            int bci = data.getBCI(this, position);
+            reasons.put(bci, reason == DeoptimizationStorms.MANY_REASONS ? null : runtime().getHostProviders().getMetaAccess().convertDeoptReason(reason));
+        }
+    }
+
     public HotSpotMethodDataAccessor getNormalData(int position) {
         if (position >= normalDataSize()) {
             return null;
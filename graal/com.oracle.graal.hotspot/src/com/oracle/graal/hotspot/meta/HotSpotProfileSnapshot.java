@@ -0,0 +1,327 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.meta;
+
+import java.util.*;
+
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.debug.*;
+import com.oracle.graal.hotspot.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.options.*;
+
+/**
+ * An immutable copy of the profile of a method taken from its {@link HotSpotMethodData}. The whole
+ * MDO is decoded once when the snapshot is created so that all queries made during a compilation
+ * see the same values, even if the interpreter keeps updating the counters in the meantime. The
+ * compiled IR size is not part of the profile and is read from and written to the MDO directly.
+ * <p>
+ * Snapshots are only handed out within a {@link SnapshotScope}, which is opened for the duration
+ * of a compilation by the {@link CompilationTask}.
+ */
+public final class HotSpotProfileSnapshot extends CompilerObject implements ProfilingInfo {
+
+    private static final long serialVersionUID = 2736149519371950273L;
+
+    public static class Options {
+        // @formatter:off
+        @Option(help = "Decode the profile of a method once per compilation and use that copy for all queries")
+        public static final OptionValue<Boolean> UseProfileSnapshots = new OptionValue<>(true);
+        // @formatter:on
+    }
+
+    private static final DebugMetric ProfileSnapshots = Debug.metric("ProfileSnapshots");
+    private static final DebugMetric metricInsufficentSpace = Debug.metric("InsufficientSpaceForProfilingData");
+
+    private static final ThreadLocal<Map<HotSpotResolvedJavaMethod, HotSpotProfileSnapshot[]>> snapshots = new ThreadLocal<>();
+
+    /**
+     * Scope in which {@link HotSpotResolvedJavaMethod#getProfilingInfo()} answers with snapshots.
+     * Each method's profile is decoded at most once per scope.
+     */
+    public static final class SnapshotScope implements AutoCloseable {
+
+        private final Map<HotSpotResolvedJavaMethod, HotSpotProfileSnapshot[]> outer;
+
+        private SnapshotScope() {
+            outer = snapshots.get();
+            snapshots.set(new HashMap<>());
+        }
+
+        @Override
+        public void close() {
+            snapshots.set(outer);
+        }
+    }
+
+    /**
+     * Opens a new {@link SnapshotScope} or returns {@code null} if snapshots are disabled.
+     */
+    public static SnapshotScope openScope() {
+        return Options.UseProfileSnapshots.getValue() ? new SnapshotScope() : null;
+    }
+
+    /**
+     * Gets the snapshot of a method's profile for the current {@link SnapshotScope}, creating it
+     * if necessary.
+     *
+     * @return {@code null} if there is no open {@link SnapshotScope}
+     */
+    static HotSpotProfileSnapshot lookup(HotSpotResolvedJavaMethod method, HotSpotMethodData methodData, boolean includeNormal, boolean includeOSR) {
+        Map<HotSpotResolvedJavaMethod, HotSpotProfileSnapshot[]> map = snapshots.get();
+        if (map == null) {
+            return null;
+        }
+        HotSpotProfileSnapshot[] methodSnapshots = map.get(method);
+        if (methodSnapshots == null) {
+            methodSnapshots = new HotSpotProfileSnapshot[4];
+            map.put(method, methodSnapshots);
+        }
+        int index = (includeNormal ? 2 : 0) + (includeOSR ? 1 : 0);
+        if (methodSnapshots[index] == null) {
+            methodSnapshots[index] = new HotSpotProfileSnapshot(methodData, method, includeNormal, includeOSR);
+        }
+        return methodSnapshots[index];
+    }
+
+    private static final byte[] NO_TRISTATES = new byte[0];
+    private static final TriState[] TRISTATES = TriState.values();
+
+    private final HotSpotMethodData methodData;
+    private final int codeSize;
+    private final boolean isMature;
+
+    /**
+     * The BCIs (in ascending order) for which the normal data section has an entry. The other
+     * arrays are indexed by the position of a BCI in this array.
+     */
+    private final int[] bcis;
+    private final JavaTypeProfile[] typeProfiles;
+    private final JavaMethodProfile[] methodProfiles;
+    private final double[] branchTakenProbabilities;
+    private final double[][] switchProbabilities;
+    private final byte[] exceptionSeen;
+    private final byte[] nullSeen;
+    private final int[] executionCounts;
+
+    /**
+     * The BCIs (in ascending order) that only have an entry in the extra data section and the
+     * corresponding exception seen flags.
+     */
+    private final int[] extraBcis;
+    private final byte[] extraExceptionSeen;
+
+    private final TriState defaultExceptionSeen;
+    private final TriState defaultNullSeen;
+
+    private final int[] deoptimizationCounts;
+
+    private HotSpotProfileSnapshot(HotSpotMethodData methodData, HotSpotResolvedJavaMethod method, boolean includeNormal, boolean includeOSR) {
+        ProfileSnapshots.increment();
+        this.methodData = methodData;
+        this.codeSize = method.getCodeSize();
+        this.isMature = methodData.isProfileMature();
+
+        List<Integer> positions = new ArrayList<>();
+        List<Integer> bciList = new ArrayList<>();
+        if (methodData.hasNormalData()) {
+            int position = 0;
+            HotSpotMethodDataAccessor accessor;
+            int lastBCI = -1;
+            while ((accessor = methodData.getNormalData(position)) != null) {
+                int bci = accessor.getBCI(methodData, position);
+                if (bci > lastBCI) {
+                    // like HotSpotProfilingInfo, only the first entry for a BCI is used
+                    positions.add(position);
+                    bciList.add(bci);
+                    lastBCI = bci;
+                }
+                position = position + accessor.getSize(methodData, position);
+            }
+        }
+        int count = bciList.size();
+        bcis = new int[count];
+        typeProfiles = new JavaTypeProfile[count];
+        methodProfiles = new JavaMethodProfile[count];
+        branchTakenProbabilities = new double[count];
+        switchProbabilities = new double[count][];
+        exceptionSeen = count == 0 ? NO_TRISTATES : new byte[count];
+        nullSeen = count == 0 ? NO_TRISTATES : new byte[count];
+        executionCounts = new int[count];
+        for (int i = 0; i < count; i++) {
+            int position = positions.get(i);
+            HotSpotMethodDataAccessor accessor = methodData.getNormalData(position);
+            bcis[i] = bciList.get(i);
+            typeProfiles[i] = accessor.getTypeProfile(methodData, position);
+            methodProfiles[i] = accessor.getMethodProfile(methodData, position);
+            branchTakenProbabilities[i] = accessor.getBranchTakenProbability(methodData, position);
+            switchProbabilities[i] = accessor.getSwitchProbabilities(methodData, position);
+            exceptionSeen[i] = (byte) accessor.getExceptionSeen(methodData, position).ordinal();
+            nullSeen[i] = (byte) accessor.getNullSeen(methodData, position).ordinal();
+            executionCounts[i] = accessor.getExecutionCount(methodData, position);
+        }
+
+        boolean exceptionPossiblyNotRecorded = false;
+        Map<Integer, TriState> extra = new TreeMap<>();
+        if (methodData.hasExtraData()) {
+            int position = methodData.getExtraDataBeginOffset();
+            HotSpotMethodDataAccessor accessor;
+            while ((accessor = methodData.getExtraData(position)) != null) {
+                int bci = accessor.getBCI(methodData, position);
+                if (!extra.containsKey(bci) && Arrays.binarySearch(bcis, bci) < 0) {
+                    extra.put(bci, accessor.getExceptionSeen(methodData, position));
+                }
+                position = position + accessor.getSize(methodData, position);
+            }
+            if (!methodData.isWithin(position)) {
+                exceptionPossiblyNotRecorded = true;
+                metricInsufficentSpace.increment();
+            }
+        }
+        extraBcis = new int[extra.size()];
+        extraExceptionSeen = new byte[extra.size()];
+        int i = 0;
+        for (Map.Entry<Integer, TriState> entry : extra.entrySet()) {
+            extraBcis[i] = entry.getKey();
+            extraExceptionSeen[i] = (byte) entry.getValue().ordinal();
+            i++;
+        }
+        defaultExceptionSeen = HotSpotMethodData.getNoDataAccessor(exceptionPossiblyNotRecorded).getExceptionSeen(methodData, -1);
+        defaultNullSeen = HotSpotMethodData.getNoDataAccessor(false).getNullSeen(methodData, -1);
+
+        DeoptimizationReason[] reasons = DeoptimizationReason.values();
+        deoptimizationCounts = new int[reasons.length];
+        for (DeoptimizationReason reason : reasons) {
+            int deopts = 0;
+            if (includeNormal) {
+                deopts += methodData.getDeoptimizationCount(reason);
+            }
+            if (includeOSR) {
+                deopts += methodData.getOSRDeoptimizationCount(reason);
+            }
+            deoptimizationCounts[reason.ordinal()] = deopts;
+        }
+    }
+
+    private int indexOf(int bci) {
+        assert bci >= 0 : "invalid BCI";
+        return Arrays.binarySearch(bcis, bci);
+    }
+
+    @Override
+    public int getCodeSize() {
+        return codeSize;
+    }
+
+    @Override
+    public JavaTypeProfile getTypeProfile(int bci) {
+        int index = indexOf(bci);
+        return isMature && index >= 0 ? typeProfiles[index] : null;
+    }
+
+    @Override
+    public JavaMethodProfile getMethodProfile(int bci) {
+        int index = indexOf(bci);
+        return isMature && index >= 0 ? methodProfiles[index] : null;
+    }
+
+    @Override
+    public double getBranchTakenProbability(int bci) {
+        int index = indexOf(bci);
+        return isMature && index >= 0 ? branchTakenProbabilities[index] : -1;
+    }
+
+    @Override
+    public double[] getSwitchProbabilities(int bci) {
+        int index = indexOf(bci);
+        if (isMature && index >= 0 && switchProbabilities[index] != null) {
+            return switchProbabilities[index].clone();
+        }
+        return null;
+    }
+
+    @Override
+    public TriState getExceptionSeen(int bci) {
+        int index = indexOf(bci);
+        if (index >= 0) {
+            return TRISTATES[exceptionSeen[index]];
+        }
+        int extraIndex = Arrays.binarySearch(extraBcis, bci);
+        if (extraIndex >= 0) {
+            return TRISTATES[extraExceptionSeen[extraIndex]];
+        }
+        return defaultExceptionSeen;
+    }
+
+    @Override
+    public TriState getNullSeen(int bci) {
+        int index = indexOf(bci);
+        return index >= 0 ? TRISTATES[nullSeen[index]] : defaultNullSeen;
+    }
+
+    @Override
+    public int getExecutionCount(int bci) {
+        int index = indexOf(bci);
+        return isMature && index >= 0 ? executionCounts[index] : -1;
+    }
+
+    @Override
+    public int getDeoptimizationCount(DeoptimizationReason reason) {
+        return deoptimizationCounts[reason.ordinal()];
+    }
+
+    @Override
+    public boolean isMature() {
+        return isMature;
+    }
+
+    /**
+     * Does nothing. All users of a snapshot within a compilation must see the same profile, so its
+     * maturity is fixed when it is created.
+     */
+    @Override
+    public void setMature() {
+    }
+
+    @Override
+    public boolean setCompilerIRSize(Class<?> irType, int size) {
+        if (irType == StructuredGraph.class) {
+            methodData.setCompiledGraphSize(size);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public int getCompilerIRSize(Class<?> irType) {
+        if (irType == StructuredGraph.class) {
+            return methodData.getCompiledGraphSize();
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        return "HotSpotProfileSnapshot<" + this.toString(null, "; ") + ">";
+    }
+}
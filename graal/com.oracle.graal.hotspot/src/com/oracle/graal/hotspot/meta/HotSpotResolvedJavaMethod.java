@@ -30,6 +30,7 @@ import static com.oracle.graal.hotspot.HotSpotGraalRuntime.*;
 import java.lang.annotation.*;
 import java.lang.reflect.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 import com.oracle.graal.api.code.*;
 import com.oracle.graal.api.meta.*;
@@ -96,10 +97,16 @@ public final class HotSpotResolvedJavaMethod extends HotSpotMethod implements Re
         /*
          * Get the constant pool from the metaspace method. Some methods (e.g. intrinsics for
          * signature-polymorphic method handle methods) have their own constant pool instead of the
-         * one from their holder.
+         * one from their holder. Methods using the holder's constant pool share its
+         * HotSpotConstantPool object and thereby its cache of resolved entries.
          */
         final long metaspaceConstantPool = unsafe.getAddress(constMethod + config.constMethodConstantsOffset);
-        this.constantPool = new HotSpotConstantPool(metaspaceConstantPool);
+        HotSpotConstantPool holderConstantPool = (HotSpotConstantPool) holder.constantPool();
+        if (holderConstantPool.getMetaspaceConstantPool() == metaspaceConstantPool) {
+            this.constantPool = holderConstantPool;
+        } else {
+            this.constantPool = new HotSpotConstantPool(metaspaceConstantPool);
+        }
 
         final int nameIndex = unsafe.getChar(constMethod + config.constMethodNameIndexOffset);
         this.name = constantPool.lookupUtf8(nameIndex);
@@ -195,11 +202,14 @@ public final class HotSpotResolvedJavaMethod extends HotSpotMethod implements Re
         if (getCodeSize() == 0) {
             return null;
         }
-        if (code == null && holder.isLinked()) {
-            code = runtime().getCompilerToVM().getBytecode(metaspaceMethod);
-            assert code.length == getCodeSize() : "expected: " + getCodeSize() + ", actual: " + code.length;
+        byte[] result = code;
+        if (result == null && holder.isLinked()) {
+            // racing threads fetch identical copies of the bytecode
+            result = runtime().getCompilerToVM().getBytecode(metaspaceMethod);
+            assert result.length == getCodeSize() : "expected: " + getCodeSize() + ", actual: " + result.length;
+            code = result;
         }
-        return code;
+        return result;
     }
 
     @Override
@@ -417,17 +427,27 @@ public final class HotSpotResolvedJavaMethod extends HotSpotMethod implements Re
     }
 
     private ProfilingInfo getProfilingInfo(boolean includeNormal, boolean includeOSR) {
+        ProfilingInfo info = getLiveProfilingInfo(includeNormal, includeOSR);
+        if (UseProfilingInformation.getValue()) {
+            info = PersistedProfiles.overlay(this, info);
+            info = DeoptimizationStorms.dampen(this, info);
+        }
+        CompilationRecording recording = CompilationRecording.current();
+        if (recording != null) {
+            info = recording.profile(this, includeNormal, includeOSR, info);
+        }
+        return info;
+    }
+
+    /**
+     * Gets the profiling information collected by this VM instance, ignoring any
+     * {@linkplain PersistedProfiles persisted profiles}.
+     */
+    ProfilingInfo getLiveProfilingInfo(boolean includeNormal, boolean includeOSR) {
         ProfilingInfo info;
 
-        if (UseProfilingInformation.getValue() && methodData == null) {
-            long metaspaceMethodData = unsafeReadWord(metaspaceMethod + runtime().getConfig().methodDataOffset);
-            if (metaspaceMethodData != 0) {
-                methodData = new HotSpotMethodData(metaspaceMethodData);
-                if (TraceMethodDataFilter != null && this.format("%H.%n").contains(TraceMethodDataFilter)) {
-                    TTY.println("Raw method data for " + this.format("%H.%n(%p)") + ":");
-                    TTY.println(methodData.toString());
-                }
-            }
+        if (UseProfilingInformation.getValue()) {
+            getMethodData();
         }
 
         if (methodData == null || (!methodData.hasNormalData() && !methodData.hasExtraData())) {
@@ -435,11 +455,31 @@ public final class HotSpotResolvedJavaMethod extends HotSpotMethod implements Re
             // case of a deoptimization.
             info = DefaultProfilingInfo.get(TriState.FALSE);
         } else {
-            info = new HotSpotProfilingInfo(methodData, this, includeNormal, includeOSR);
+            info = HotSpotProfileSnapshot.lookup(this, methodData, includeNormal, includeOSR);
+            if (info == null) {
+                info = new HotSpotProfilingInfo(methodData, this, includeNormal, includeOSR);
+            }
         }
         return info;
     }
 
+    /**
+     * Gets the method data of this method, or {@code null} if the method has none yet.
+     */
+    HotSpotMethodData getMethodData() {
+        if (methodData == null) {
+            long metaspaceMethodData = unsafeReadWord(metaspaceMethod + runtime().getConfig().methodDataOffset);
+            if (metaspaceMethodData != 0) {
+                methodData = new HotSpotMethodData(metaspaceMethodData);
+                if (TraceMethodDataFilter != null && this.format("%H.%n").contains(TraceMethodDataFilter)) {
+                    TTY.println("Raw method data for " + this.format("%H.%n(%p)") + ":");
+                    TTY.println(methodData.toString());
+                }
+            }
+        }
+        return methodData;
+    }
+
     @Override
     public void reprofile() {
         runtime().getCompilerToVM().reprofile(metaspaceMethod);
@@ -670,20 +710,17 @@ public final class HotSpotResolvedJavaMethod extends HotSpotMethod implements Re
     private static final ClassValue<Map<Long, SpeculationLog>> SpeculationLogs = new ClassValue<Map<Long, SpeculationLog>>() {
         @Override
         protected Map<Long, SpeculationLog> computeValue(java.lang.Class<?> type) {
-            return new HashMap<>(4);
+            return new ConcurrentHashMap<>(4);
         }
     };
 
     public SpeculationLog getSpeculationLog() {
         Map<Long, SpeculationLog> map = SpeculationLogs.get(holder.mirror());
-        synchronized (map) {
-            SpeculationLog log = map.get(this.metaspaceMethod);
-            if (log == null) {
-                log = new HotSpotSpeculationLog();
-                map.put(metaspaceMethod, log);
-            }
-            return log;
+        SpeculationLog log = map.get(metaspaceMethod);
+        if (log == null) {
+            log = map.computeIfAbsent(metaspaceMethod, m -> new HotSpotSpeculationLog());
         }
+        return log;
     }
 
     public int intrinsicId() {
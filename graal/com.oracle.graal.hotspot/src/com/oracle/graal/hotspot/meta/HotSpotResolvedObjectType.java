@@ -30,6 +30,7 @@ import java.lang.annotation.*;
 import java.lang.reflect.*;
 import java.net.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 import com.oracle.graal.api.meta.*;
 import com.oracle.graal.compiler.common.*;
@@ -47,11 +48,11 @@ public final class HotSpotResolvedObjectType extends HotSpotResolvedJavaType {
      */
     private final Class<?> javaClass;
 
-    private HashMap<Long, HotSpotResolvedJavaField> fieldCache;
-    private HashMap<Long, HotSpotResolvedJavaMethod> methodCache;
+    private volatile ConcurrentHashMap<Long, HotSpotResolvedJavaField> fieldCache;
+    private volatile ConcurrentHashMap<Long, HotSpotResolvedJavaMethod> methodCache;
     private HotSpotResolvedJavaField[] instanceFields;
     private ResolvedJavaType[] interfaces;
-    private ConstantPool constantPool;
+    private volatile HotSpotConstantPool constantPool;
     private ResolvedJavaType arrayOfType;
 
     /**
@@ -138,6 +139,14 @@ public final class HotSpotResolvedObjectType extends HotSpotResolvedJavaType {
 
     @Override
     public ResolvedJavaType findUniqueConcreteSubtype() {
+        CompilationRecording recording = CompilationRecording.current();
+        if (recording != null) {
+            return recording.uniqueConcreteSubtype(this, this::computeUniqueConcreteSubtype);
+        }
+        return computeUniqueConcreteSubtype();
+    }
+
+    private ResolvedJavaType computeUniqueConcreteSubtype() {
         HotSpotVMConfig config = runtime().getConfig();
         if (isArray()) {
             return getElementalType().isFinal() ? this : null;
@@ -392,12 +401,19 @@ public final class HotSpotResolvedObjectType extends HotSpotResolvedJavaType {
         return HotSpotResolvedJavaMethod.fromMetaspace(resolvedMetaspaceMethod);
     }
 
+    /**
+     * Gets the constant pool of this type. A redefinition of this type installs a new constant pool
+     * in the VM, in which case a new {@link HotSpotConstantPool} (with an empty cache of resolved
+     * entries) is created.
+     */
     public ConstantPool constantPool() {
-        if (constantPool == null) {
-            final long metaspaceConstantPool = unsafe.getAddress(getMetaspaceKlass() + runtime().getConfig().instanceKlassConstantsOffset);
-            constantPool = new HotSpotConstantPool(metaspaceConstantPool);
+        final long metaspaceConstantPool = unsafe.getAddress(getMetaspaceKlass() + runtime().getConfig().instanceKlassConstantsOffset);
+        HotSpotConstantPool cp = constantPool;
+        if (cp == null || cp.getMetaspaceConstantPool() != metaspaceConstantPool) {
+            cp = new HotSpotConstantPool(metaspaceConstantPool);
+            constantPool = cp;
         }
-        return constantPool;
+        return cp;
     }
 
     /**
@@ -422,20 +438,37 @@ public final class HotSpotResolvedObjectType extends HotSpotResolvedJavaType {
         return needsSlowPath ? -size : size;
     }
 
-    public synchronized HotSpotResolvedJavaMethod createMethod(long metaspaceMethod) {
-        HotSpotResolvedJavaMethod method = null;
-        if (methodCache == null) {
-            methodCache = new HashMap<>(8);
-        } else {
-            method = methodCache.get(metaspaceMethod);
+    public HotSpotResolvedJavaMethod createMethod(long metaspaceMethod) {
+        ConcurrentHashMap<Long, HotSpotResolvedJavaMethod> cache = methodCache;
+        if (cache == null) {
+            cache = initMethodCache();
         }
+        HotSpotResolvedJavaMethod method = cache.get(metaspaceMethod);
         if (method == null) {
-            method = new HotSpotResolvedJavaMethod(this, metaspaceMethod);
-            methodCache.put(metaspaceMethod, method);
+            // another thread may have created the method in the meantime
+            HotSpotResolvedJavaMethod newMethod = new HotSpotResolvedJavaMethod(this, metaspaceMethod);
+            method = cache.putIfAbsent(metaspaceMethod, newMethod);
+            if (method == null) {
+                method = newMethod;
+            }
         }
         return method;
     }
 
+    private synchronized ConcurrentHashMap<Long, HotSpotResolvedJavaMethod> initMethodCache() {
+        if (methodCache == null) {
+            methodCache = new ConcurrentHashMap<>(8);
+        }
+        return methodCache;
+    }
+
+    private synchronized ConcurrentHashMap<Long, HotSpotResolvedJavaField> initFieldCache() {
+        if (fieldCache == null) {
+            fieldCache = new ConcurrentHashMap<>(8);
+        }
+        return fieldCache;
+    }
+
     public int getVtableLength() {
         HotSpotVMConfig config = runtime().getConfig();
         if (isInterface() || isArray()) {
@@ -456,24 +489,25 @@ public final class HotSpotResolvedObjectType extends HotSpotResolvedJavaType {
         return runtime().getConfig().recognizedFieldModifiers;
     }
 
-    public synchronized HotSpotResolvedJavaField createField(String fieldName, JavaType type, long offset, int rawFlags) {
-        HotSpotResolvedJavaField result = null;
-
+    public HotSpotResolvedJavaField createField(String fieldName, JavaType type, long offset, int rawFlags) {
         final int flags = rawFlags & getReflectionFieldModifiers();
 
         final long id = offset + ((long) flags << 32);
 
         // (thomaswue) Must cache the fields, because the local load elimination only works if the
         // objects from two field lookups are identical.
-        if (fieldCache == null) {
-            fieldCache = new HashMap<>(8);
-        } else {
-            result = fieldCache.get(id);
+        ConcurrentHashMap<Long, HotSpotResolvedJavaField> cache = fieldCache;
+        if (cache == null) {
+            cache = initFieldCache();
         }
 
+        HotSpotResolvedJavaField result = cache.get(id);
         if (result == null) {
-            result = new HotSpotResolvedJavaField(this, fieldName, type, offset, rawFlags);
-            fieldCache.put(id, result);
+            HotSpotResolvedJavaField newField = new HotSpotResolvedJavaField(this, fieldName, type, offset, rawFlags);
+            result = cache.putIfAbsent(id, newField);
+            if (result == null) {
+                result = newField;
+            }
         } else {
             assert result.getName().equals(fieldName);
             // assert result.getType().equals(type);
@@ -486,6 +520,14 @@ public final class HotSpotResolvedObjectType extends HotSpotResolvedJavaType {
 
     @Override
     public ResolvedJavaMethod findUniqueConcreteMethod(ResolvedJavaMethod method) {
+        CompilationRecording recording = CompilationRecording.current();
+        if (recording != null) {
+            return recording.uniqueConcreteMethod(this, method, () -> computeUniqueConcreteMethod(method));
+        }
+        return computeUniqueConcreteMethod(method);
+    }
+
+    private ResolvedJavaMethod computeUniqueConcreteMethod(ResolvedJavaMethod method) {
         HotSpotResolvedJavaMethod hmethod = (HotSpotResolvedJavaMethod) method;
         HotSpotResolvedObjectType declaredHolder = hmethod.getDeclaringClass();
         /*
@@ -154,14 +154,17 @@ public class HotSpotSignature extends CompilerObject implements Signature {
             // or primitive type (primitive type resolution is context free)
             return getUnresolvedOrPrimitiveType(parameters.get(index));
         }
-        if (parameterTypes == null) {
-            parameterTypes = new ResolvedJavaType[parameters.size()];
+        // signatures are shared between compiler threads, so read the cache only once
+        ResolvedJavaType[] types = parameterTypes;
+        if (types == null) {
+            types = new ResolvedJavaType[parameters.size()];
+            parameterTypes = types;
         }
 
-        ResolvedJavaType type = parameterTypes[index];
+        ResolvedJavaType type = types[index];
         if (!checkValidCache(type, accessingClass)) {
             type = (ResolvedJavaType) runtime().lookupType(parameters.get(index), (HotSpotResolvedObjectType) accessingClass, true);
-            parameterTypes[index] = type;
+            types[index] = type;
         }
         return type;
     }
@@ -184,10 +187,12 @@ public class HotSpotSignature extends CompilerObject implements Signature {
             // or primitive type (primitive type resolution is context free)
             return getUnresolvedOrPrimitiveType(returnType);
         }
-        if (!checkValidCache(returnTypeCache, accessingClass)) {
-            returnTypeCache = (ResolvedJavaType) runtime().lookupType(returnType, (HotSpotResolvedObjectType) accessingClass, true);
+        ResolvedJavaType type = returnTypeCache;
+        if (!checkValidCache(type, accessingClass)) {
+            type = (ResolvedJavaType) runtime().lookupType(returnType, (HotSpotResolvedObjectType) accessingClass, true);
+            returnTypeCache = type;
         }
-        return returnTypeCache;
+        return type;
     }
 
     @Override
@@ -22,11 +22,69 @@
  */
 package com.oracle.graal.hotspot.meta;
 
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
 import com.oracle.graal.api.code.*;
 import com.oracle.graal.api.meta.*;
 
+/**
+ * A {@link SpeculationLog} that does not lock. Each speculation reason seen by the log is interned
+ * to a small integer id and the failed speculations are kept in a bitmap indexed by id. The bitmap
+ * is never modified once published; a failure is recorded by atomically replacing it with an
+ * updated copy. Failures are rare compared to the queries of {@link #maySpeculate(Object)}, which
+ * only read the current bitmap.
+ */
 public class HotSpotSpeculationLog extends SpeculationLog {
 
+    private static final long[] NO_FAILURES = new long[0];
+
+    private final ConcurrentHashMap<Object, Integer> ids = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger();
+    private final AtomicReference<long[]> failed = new AtomicReference<>(NO_FAILURES);
+
+    private int intern(Object reason) {
+        Integer id = ids.get(reason);
+        if (id == null) {
+            id = ids.computeIfAbsent(reason, r -> nextId.getAndIncrement());
+        }
+        return id;
+    }
+
+    @Override
+    public void collectFailedSpeculations() {
+        Object reason = takeLastFailed();
+        if (reason != null) {
+            int id = intern(reason);
+            long[] bits;
+            long[] newBits;
+            do {
+                bits = failed.get();
+                newBits = Arrays.copyOf(bits, Math.max(bits.length, (id >>> 6) + 1));
+                newBits[id >>> 6] |= 1L << id;
+            } while (!failed.compareAndSet(bits, newBits));
+        }
+    }
+
+    @Override
+    public boolean maySpeculate(Object reason) {
+        Integer id = ids.get(reason);
+        if (id == null) {
+            // never speculated on, so it cannot have failed
+            return true;
+        }
+        long[] bits = failed.get();
+        int word = id >>> 6;
+        return word >= bits.length || (bits[word] & (1L << id)) == 0;
+    }
+
+    @Override
+    protected void addSpeculation(Object reason) {
+        assert maySpeculate(reason);
+        intern(reason);
+    }
+
     @Override
     public Constant speculate(Object reason) {
         addSpeculation(reason);
@@ -0,0 +1,391 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.meta;
+
+import static com.oracle.graal.hotspot.HotSpotGraalRuntime.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.*;
+
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.api.meta.JavaTypeProfile.ProfiledType;
+import com.oracle.graal.api.meta.ProfilingInfo.TriState;
+import com.oracle.graal.debug.*;
+import com.oracle.graal.options.*;
+
+/**
+ * Keeps profiles across VM restarts. At shutdown, the profiles of all methods whose profiling
+ * information was requested by the compiler and whose classes are still loaded are written to
+ * {@link Options#PersistedProfileFile}.
+ * When the next VM instance starts with the same option, a method whose live profile is not
+ * mature yet is compiled with the persisted profile laid over its live profile (see
+ * {@link PersistedProfilingInfo}).
+ * <p>
+ * Profiles are keyed by the method's holder, name, signature and a hash of its bytecodes so that
+ * profiles of a method whose code has changed are ignored.
+ */
+public final class PersistedProfiles {
+
+    public static class Options {
+        // @formatter:off
+        @Option(help = "File from which profiles are read at startup and to which they are written at shutdown")
+        public static final OptionValue<String> PersistedProfileFile = new OptionValue<>(null);
+        // @formatter:on
+    }
+
+    private static final DebugMetric PersistedProfilesUsed = Debug.metric("PersistedProfilesUsed");
+
+    private static final int MAGIC = 0x47505246;
+    private static final int VERSION = 1;
+
+    private static final TriState[] TRISTATES = TriState.values();
+
+    /**
+     * The profile of a single method as stored in the profile file.
+     */
+    static final class MethodProfile {
+
+        final int codeSize;
+        final int[] bcis;
+        final double[] branchTakenProbabilities;
+        final double[][] switchProbabilities;
+        final byte[] exceptionSeen;
+        final byte[] nullSeen;
+        final int[] executionCounts;
+        final TypeProfile[] typeProfiles;
+        final Map<String, Integer> deoptimizationCounts;
+
+        MethodProfile(int codeSize, int entries, Map<String, Integer> deoptimizationCounts) {
+            this.codeSize = codeSize;
+            this.bcis = new int[entries];
+            this.branchTakenProbabilities = new double[entries];
+            this.switchProbabilities = new double[entries][];
+            this.exceptionSeen = new byte[entries];
+            this.nullSeen = new byte[entries];
+            this.executionCounts = new int[entries];
+            this.typeProfiles = new TypeProfile[entries];
+            this.deoptimizationCounts = deoptimizationCounts;
+        }
+
+        int indexOf(int bci) {
+            return Arrays.binarySearch(bcis, bci);
+        }
+    }
+
+    /**
+     * A type profile whose types are stored by name. The types are resolved against the holder of
+     * the profiled method when the profile is used.
+     */
+    static final class TypeProfile {
+
+        final byte nullSeen;
+        final double notRecordedProbability;
+        final String[] typeNames;
+        final double[] probabilities;
+
+        TypeProfile(byte nullSeen, double notRecordedProbability, String[] typeNames, double[] probabilities) {
+            this.nullSeen = nullSeen;
+            this.notRecordedProbability = notRecordedProbability;
+            this.typeNames = typeNames;
+            this.probabilities = probabilities;
+        }
+
+        JavaTypeProfile resolve(HotSpotResolvedObjectType accessingType) {
+            List<ProfiledType> types = new ArrayList<>(typeNames.length);
+            double notRecorded = notRecordedProbability;
+            for (int i = 0; i < typeNames.length; i++) {
+                JavaType type = runtime().lookupType(typeNames[i], accessingType, false);
+                if (type instanceof ResolvedJavaType) {
+                    types.add(new ProfiledType((ResolvedJavaType) type, probabilities[i]));
+                } else {
+                    // not loaded (yet) in this VM instance
+                    notRecorded += probabilities[i];
+                }
+            }
+            return new JavaTypeProfile(TRISTATES[nullSeen], Math.min(1.0, notRecorded), types.toArray(new ProfiledType[types.size()]));
+        }
+    }
+
+    private static final Object NO_PROFILE = new Object();
+
+    /**
+     * The profiles read from and the methods to be written to one profile file.
+     */
+    private static final class ProfileFile {
+
+        final File file;
+
+        private Map<String, MethodProfile> loadedProfiles;
+
+        /**
+         * Maps each method whose profile has been requested to its {@link MethodProfile} or to
+         * {@link PersistedProfiles#NO_PROFILE}. The methods are only weakly referenced so that
+         * their classes can be unloaded.
+         */
+        final Map<HotSpotResolvedJavaMethod, Object> usedMethods = Collections.synchronizedMap(new WeakHashMap<>());
+
+        ProfileFile(File file) {
+            this.file = file;
+        }
+
+        synchronized Map<String, MethodProfile> getLoadedProfiles() {
+            if (loadedProfiles == null) {
+                loadedProfiles = new HashMap<>();
+                if (file.exists()) {
+                    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                        read(in, loadedProfiles);
+                    } catch (IOException e) {
+                        TTY.println("Warning: could not read profiles from " + file + ": " + e);
+                        loadedProfiles.clear();
+                    }
+                }
+            }
+            return loadedProfiles;
+        }
+    }
+
+    private static ProfileFile profileFile;
+
+    private PersistedProfiles() {
+    }
+
+    /**
+     * Gets the state for the current value of {@link Options#PersistedProfileFile} or
+     * {@code null} if profiles are not persisted.
+     */
+    private static synchronized ProfileFile getProfileFile() {
+        String path = Options.PersistedProfileFile.getValue();
+        if (path == null || path.isEmpty()) {
+            return null;
+        }
+        File file = new File(path);
+        if (profileFile == null || !profileFile.file.equals(file)) {
+            profileFile = new ProfileFile(file);
+        }
+        return profileFile;
+    }
+
+    /**
+     * Lays the persisted profile of {@code method} over its live profile if there is one.
+     */
+    static ProfilingInfo overlay(HotSpotResolvedJavaMethod method, ProfilingInfo live) {
+        ProfileFile pf = getProfileFile();
+        if (pf == null) {
+            return live;
+        }
+        Object profile = pf.usedMethods.get(method);
+        if (profile == null) {
+            String key = key(method);
+            profile = key == null ? null : pf.getLoadedProfiles().get(key);
+            if (profile == null || ((MethodProfile) profile).codeSize != method.getCodeSize()) {
+                profile = NO_PROFILE;
+            }
+            pf.usedMethods.put(method, profile);
+        }
+        if (profile == NO_PROFILE || live.isMature()) {
+            return live;
+        }
+        PersistedProfilesUsed.increment();
+        return new PersistedProfilingInfo(method, live, (MethodProfile) profile);
+    }
+
+    /**
+     * Computes the key of a method's profile or returns {@code null} if the method has no code.
+     */
+    private static String key(HotSpotResolvedJavaMethod method) {
+        byte[] code = method.getCode();
+        if (code == null) {
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(code);
+        return method.getDeclaringClass().getName() + "." + method.getName() + method.getSignature().toMethodDescriptor() + "#" + Long.toHexString(crc.getValue());
+    }
+
+    /**
+     * Writes the profiles of all methods used by the compiler, together with the profiles read at
+     * startup that were not superseded, to the profile file.
+     */
+    public static void dump() {
+        ProfileFile pf = getProfileFile();
+        if (pf == null) {
+            return;
+        }
+        Map<String, MethodProfile> profiles = new TreeMap<>(pf.getLoadedProfiles());
+        List<HotSpotResolvedJavaMethod> methods;
+        synchronized (pf.usedMethods) {
+            methods = new ArrayList<>(pf.usedMethods.keySet());
+        }
+        for (HotSpotResolvedJavaMethod method : methods) {
+            String key = key(method);
+            if (key != null) {
+                MethodProfile profile = capture(method.getLiveProfilingInfo(true, true), method.getCodeSize());
+                if (profile != null) {
+                    profiles.put(key, profile);
+                }
+            }
+        }
+        File file = pf.file;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            write(out, profiles);
+        } catch (IOException e) {
+            TTY.println("Warning: could not write profiles to " + file + ": " + e);
+        }
+    }
+
+    /**
+     * Copies the profile of a method or returns {@code null} if it contains no information.
+     */
+    private static MethodProfile capture(ProfilingInfo info, int codeSize) {
+        if (!info.isMature()) {
+            // immature profiles are not worth keeping
+            return null;
+        }
+        List<Integer> bcis = new ArrayList<>();
+        for (int bci = 0; bci < codeSize; bci++) {
+            if (info.getBranchTakenProbability(bci) >= 0 || info.getSwitchProbabilities(bci) != null || info.getTypeProfile(bci) != null || info.getExecutionCount(bci) >= 0 ||
+                            info.getExceptionSeen(bci) == TriState.TRUE || info.getNullSeen(bci) == TriState.TRUE) {
+                bcis.add(bci);
+            }
+        }
+        Map<String, Integer> deopts = new HashMap<>();
+        for (DeoptimizationReason reason : DeoptimizationReason.values()) {
+            int count = info.getDeoptimizationCount(reason);
+            if (count > 0) {
+                deopts.put(reason.name(), count);
+            }
+        }
+        if (bcis.isEmpty() && deopts.isEmpty()) {
+            return null;
+        }
+        MethodProfile profile = new MethodProfile(codeSize, bcis.size(), deopts);
+        for (int i = 0; i < bcis.size(); i++) {
+            int bci = bcis.get(i);
+            profile.bcis[i] = bci;
+            profile.branchTakenProbabilities[i] = info.getBranchTakenProbability(bci);
+            profile.switchProbabilities[i] = info.getSwitchProbabilities(bci);
+            profile.exceptionSeen[i] = (byte) info.getExceptionSeen(bci).ordinal();
+            profile.nullSeen[i] = (byte) info.getNullSeen(bci).ordinal();
+            profile.executionCounts[i] = info.getExecutionCount(bci);
+            JavaTypeProfile typeProfile = info.getTypeProfile(bci);
+            if (typeProfile != null) {
+                ProfiledType[] types = typeProfile.getTypes();
+                String[] names = new String[types.length];
+                double[] probabilities = new double[types.length];
+                for (int j = 0; j < types.length; j++) {
+                    names[j] = types[j].getType().getName();
+                    probabilities[j] = types[j].getProbability();
+                }
+                profile.typeProfiles[i] = new TypeProfile((byte) typeProfile.getNullSeen().ordinal(), typeProfile.getNotRecordedProbability(), names, probabilities);
+            }
+        }
+        return profile;
+    }
+
+    private static void write(DataOutputStream out, Map<String, MethodProfile> profiles) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(profiles.size());
+        for (Map.Entry<String, MethodProfile> entry : profiles.entrySet()) {
+            MethodProfile profile = entry.getValue();
+            out.writeUTF(entry.getKey());
+            out.writeInt(profile.codeSize);
+            out.writeInt(profile.deoptimizationCounts.size());
+            for (Map.Entry<String, Integer> deopt : profile.deoptimizationCounts.entrySet()) {
+                out.writeUTF(deopt.getKey());
+                out.writeInt(deopt.getValue());
+            }
+            out.writeInt(profile.bcis.length);
+            for (int i = 0; i < profile.bcis.length; i++) {
+                out.writeInt(profile.bcis[i]);
+                out.writeDouble(profile.branchTakenProbabilities[i]);
+                double[] switchProbabilities = profile.switchProbabilities[i];
+                out.writeInt(switchProbabilities == null ? -1 : switchProbabilities.length);
+                if (switchProbabilities != null) {
+                    for (double p : switchProbabilities) {
+                        out.writeDouble(p);
+                    }
+                }
+                out.writeByte(profile.exceptionSeen[i]);
+                out.writeByte(profile.nullSeen[i]);
+                out.writeInt(profile.executionCounts[i]);
+                TypeProfile typeProfile = profile.typeProfiles[i];
+                out.writeInt(typeProfile == null ? -1 : typeProfile.typeNames.length);
+                if (typeProfile != null) {
+                    out.writeByte(typeProfile.nullSeen);
+                    out.writeDouble(typeProfile.notRecordedProbability);
+                    for (int j = 0; j < typeProfile.typeNames.length; j++) {
+                        out.writeUTF(typeProfile.typeNames[j]);
+                        out.writeDouble(typeProfile.probabilities[j]);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void read(DataInputStream in, Map<String, MethodProfile> profiles) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("not a profile file or unsupported version");
+        }
+        int methods = in.readInt();
+        for (int m = 0; m < methods; m++) {
+            String key = in.readUTF();
+            int codeSize = in.readInt();
+            int deoptCount = in.readInt();
+            Map<String, Integer> deopts = new HashMap<>();
+            for (int i = 0; i < deoptCount; i++) {
+                deopts.put(in.readUTF(), in.readInt());
+            }
+            MethodProfile profile = new MethodProfile(codeSize, in.readInt(), deopts);
+            for (int i = 0; i < profile.bcis.length; i++) {
+                profile.bcis[i] = in.readInt();
+                profile.branchTakenProbabilities[i] = in.readDouble();
+                int switchLength = in.readInt();
+                if (switchLength >= 0) {
+                    double[] switchProbabilities = new double[switchLength];
+                    for (int j = 0; j < switchLength; j++) {
+                        switchProbabilities[j] = in.readDouble();
+                    }
+                    profile.switchProbabilities[i] = switchProbabilities;
+                }
+                profile.exceptionSeen[i] = in.readByte();
+                profile.nullSeen[i] = in.readByte();
+                profile.executionCounts[i] = in.readInt();
+                int types = in.readInt();
+                if (types >= 0) {
+                    byte nullSeen = in.readByte();
+                    double notRecorded = in.readDouble();
+                    String[] names = new String[types];
+                    double[] probabilities = new double[types];
+                    for (int j = 0; j < types; j++) {
+                        names[j] = in.readUTF();
+                        probabilities[j] = in.readDouble();
+                    }
+                    profile.typeProfiles[i] = new TypeProfile(nullSeen, notRecorded, names, probabilities);
+                }
+            }
+            profiles.put(key, profile);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.meta;
+
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.hotspot.meta.PersistedProfiles.MethodProfile;
+import com.oracle.graal.hotspot.meta.PersistedProfiles.TypeProfile;
+
+/**
+ * A {@link ProfilingInfo} that answers from a profile persisted by a previous VM instance while the
+ * live profile of the method is not mature. Deoptimizations and exceptions recorded in either
+ * profile are taken into account so that speculations that failed in the previous run are not
+ * repeated.
+ */
+public final class PersistedProfilingInfo implements ProfilingInfo {
+
+    private static final TriState[] TRISTATES = TriState.values();
+
+    private final HotSpotResolvedJavaMethod method;
+    private final ProfilingInfo live;
+    private final MethodProfile persisted;
+
+    PersistedProfilingInfo(HotSpotResolvedJavaMethod method, ProfilingInfo live, MethodProfile persisted) {
+        this.method = method;
+        this.live = live;
+        this.persisted = persisted;
+    }
+
+    @Override
+    public int getCodeSize() {
+        return live.getCodeSize();
+    }
+
+    @Override
+    public double getBranchTakenProbability(int bci) {
+        int index = persisted.indexOf(bci);
+        return index >= 0 ? persisted.branchTakenProbabilities[index] : -1;
+    }
+
+    @Override
+    public double[] getSwitchProbabilities(int bci) {
+        int index = persisted.indexOf(bci);
+        if (index >= 0 && persisted.switchProbabilities[index] != null) {
+            return persisted.switchProbabilities[index].clone();
+        }
+        return null;
+    }
+
+    @Override
+    public JavaTypeProfile getTypeProfile(int bci) {
+        int index = persisted.indexOf(bci);
+        TypeProfile typeProfile = index >= 0 ? persisted.typeProfiles[index] : null;
+        return typeProfile == null ? null : typeProfile.resolve(method.getDeclaringClass());
+    }
+
+    @Override
+    public JavaMethodProfile getMethodProfile(int bci) {
+        // method profiles are not persisted
+        return null;
+    }
+
+    @Override
+    public TriState getExceptionSeen(int bci) {
+        TriState liveSeen = live.getExceptionSeen(bci);
+        if (liveSeen == TriState.TRUE) {
+            return liveSeen;
+        }
+        int index = persisted.indexOf(bci);
+        return index >= 0 ? TRISTATES[persisted.exceptionSeen[index]] : liveSeen;
+    }
+
+    @Override
+    public TriState getNullSeen(int bci) {
+        TriState liveSeen = live.getNullSeen(bci);
+        if (liveSeen == TriState.TRUE) {
+            return liveSeen;
+        }
+        int index = persisted.indexOf(bci);
+        return index >= 0 ? TRISTATES[persisted.nullSeen[index]] : liveSeen;
+    }
+
+    @Override
+    public int getExecutionCount(int bci) {
+        int index = persisted.indexOf(bci);
+        return index >= 0 ? persisted.executionCounts[index] : -1;
+    }
+
+    @Override
+    public int getDeoptimizationCount(DeoptimizationReason reason) {
+        Integer count = persisted.deoptimizationCounts.get(reason.name());
+        return Math.max(live.getDeoptimizationCount(reason), count == null ? 0 : count);
+    }
+
+    @Override
+    public boolean setCompilerIRSize(Class<?> irType, int irSize) {
+        return live.setCompilerIRSize(irType, irSize);
+    }
+
+    @Override
+    public int getCompilerIRSize(Class<?> irType) {
+        return live.getCompilerIRSize(irType);
+    }
+
+    @Override
+    public boolean isMature() {
+        return true;
+    }
+
+    @Override
+    public void setMature() {
+        live.setMature();
+    }
+
+    @Override
+    public String toString() {
+        return "PersistedProfilingInfo<" + this.toString(null, "; ") + ">";
+    }
+}
@@ -0,0 +1,411 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.meta;
+
+import java.io.*;
+import java.util.*;
+import java.util.function.*;
+
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.api.meta.JavaMethodProfile.ProfiledMethod;
+import com.oracle.graal.api.meta.JavaTypeProfile.ProfiledType;
+import com.oracle.graal.hotspot.meta.PersistedProfiles.TypeProfile;
+
+/**
+ * A {@link ProfilingInfo} that answers exactly as the profile of a method answered during a
+ * recorded compilation (see {@link CompilationRecording}). While recording, each query is answered
+ * by the live profile the first time it is made and every later identical query gets the same
+ * answer, so the recording holds the values the compiler actually consumed even if the live profile
+ * keeps changing during the compilation. Types and methods in the profile are stored by name and
+ * resolved when the profile is queried.
+ * <p>
+ * While replaying, a query that was not made during the recorded compilation is counted as a
+ * divergence and answered as if there was no profile.
+ */
+public final class RecordedProfilingInfo implements ProfilingInfo {
+
+    private static final TriState[] TRISTATES = TriState.values();
+
+    /**
+     * A method profile whose methods are stored as {@linkplain CompilationRecording#symbol
+     * symbols}.
+     */
+    private static final class MethodProfile {
+
+        final double notRecordedProbability;
+        final String[] methods;
+        final double[] probabilities;
+
+        MethodProfile(double notRecordedProbability, String[] methods, double[] probabilities) {
+            this.notRecordedProbability = notRecordedProbability;
+            this.methods = methods;
+            this.probabilities = probabilities;
+        }
+
+        JavaMethodProfile resolve(CompilationRecording recording) {
+            List<ProfiledMethod> resolved = new ArrayList<>(methods.length);
+            double notRecorded = notRecordedProbability;
+            for (int i = 0; i < methods.length; i++) {
+                ResolvedJavaMethod method = recording.resolveMethod(methods[i]);
+                if (method != null) {
+                    resolved.add(new ProfiledMethod(method, probabilities[i]));
+                } else {
+                    notRecorded += probabilities[i];
+                }
+            }
+            return new JavaMethodProfile(Math.min(1.0, notRecorded), resolved.toArray(new ProfiledMethod[resolved.size()]));
+        }
+    }
+
+    private final CompilationRecording recording;
+
+    /**
+     * The profile whose answers are recorded or {@code null} if this profile is replayed.
+     */
+    private final ProfilingInfo live;
+
+    private final int codeSize;
+    private Boolean isMature;
+
+    private final Map<String, Integer> compilerIRSizes = new TreeMap<>();
+    private final Map<DeoptimizationReason, Integer> deoptimizationCounts = new EnumMap<>(DeoptimizationReason.class);
+    private final Map<Integer, Double> branchTakenProbabilities = new TreeMap<>();
+    private final Map<Integer, double[]> switchProbabilities = new TreeMap<>();
+    private final Map<Integer, TriState> exceptionSeen = new TreeMap<>();
+    private final Map<Integer, TriState> nullSeen = new TreeMap<>();
+    private final Map<Integer, Integer> executionCounts = new TreeMap<>();
+    private final Map<Integer, TypeProfile> typeProfiles = new TreeMap<>();
+    private final Map<Integer, MethodProfile> methodProfiles = new TreeMap<>();
+
+    private RecordedProfilingInfo(CompilationRecording recording, ProfilingInfo live, int codeSize) {
+        this.recording = recording;
+        this.live = live;
+        this.codeSize = codeSize;
+    }
+
+    /**
+     * Creates a profile that records the answers of {@code info} for a method with
+     * {@code codeSize} bytes of bytecodes as they are queried.
+     */
+    static RecordedProfilingInfo record(CompilationRecording recording, ProfilingInfo info, int codeSize) {
+        return new RecordedProfilingInfo(recording, info, codeSize);
+    }
+
+    /**
+     * Gets the recorded answer to a query or, while recording, asks the live profile and records
+     * its answer.
+     *
+     * @param query asks the {@link #live} profile
+     * @param unknown the answer if the query cannot be answered from the recording
+     */
+    private synchronized <K, V> V answer(Map<K, V> answers, K key, Supplier<V> query, V unknown, String description) {
+        if (answers.containsKey(key)) {
+            return answers.get(key);
+        }
+        if (live == null) {
+            recording.diverged(description);
+            return unknown;
+        }
+        V answer = query.get();
+        answers.put(key, answer);
+        return answer;
+    }
+
+    private static TypeProfile symbolic(JavaTypeProfile typeProfile) {
+        if (typeProfile == null) {
+            return null;
+        }
+        ProfiledType[] types = typeProfile.getTypes();
+        String[] names = new String[types.length];
+        double[] probabilities = new double[types.length];
+        for (int i = 0; i < types.length; i++) {
+            names[i] = types[i].getType().getName();
+            probabilities[i] = types[i].getProbability();
+        }
+        return new TypeProfile((byte) typeProfile.getNullSeen().ordinal(), typeProfile.getNotRecordedProbability(), names, probabilities);
+    }
+
+    private static MethodProfile symbolic(JavaMethodProfile methodProfile) {
+        if (methodProfile == null) {
+            return null;
+        }
+        ProfiledMethod[] methods = methodProfile.getMethods();
+        String[] symbols = new String[methods.length];
+        double[] probabilities = new double[methods.length];
+        for (int i = 0; i < methods.length; i++) {
+            symbols[i] = CompilationRecording.symbol(methods[i].getMethod());
+            probabilities[i] = methods[i].getProbability();
+        }
+        return new MethodProfile(methodProfile.getNotRecordedProbability(), symbols, probabilities);
+    }
+
+    synchronized void write(DataOutputStream out) throws IOException {
+        out.writeInt(codeSize);
+        out.writeByte(isMature == null ? -1 : isMature ? 1 : 0);
+        out.writeInt(compilerIRSizes.size());
+        for (Map.Entry<String, Integer> entry : compilerIRSizes.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeInt(entry.getValue());
+        }
+        out.writeInt(deoptimizationCounts.size());
+        for (Map.Entry<DeoptimizationReason, Integer> entry : deoptimizationCounts.entrySet()) {
+            out.writeUTF(entry.getKey().name());
+            out.writeInt(entry.getValue());
+        }
+        out.writeInt(branchTakenProbabilities.size());
+        for (Map.Entry<Integer, Double> entry : branchTakenProbabilities.entrySet()) {
+            out.writeInt(entry.getKey());
+            out.writeDouble(entry.getValue());
+        }
+        out.writeInt(switchProbabilities.size());
+        for (Map.Entry<Integer, double[]> entry : switchProbabilities.entrySet()) {
+            out.writeInt(entry.getKey());
+            double[] switches = entry.getValue();
+            out.writeInt(switches == null ? -1 : switches.length);
+            if (switches != null) {
+                for (double p : switches) {
+                    out.writeDouble(p);
+                }
+            }
+        }
+        writeTriStates(out, exceptionSeen);
+        writeTriStates(out, nullSeen);
+        out.writeInt(executionCounts.size());
+        for (Map.Entry<Integer, Integer> entry : executionCounts.entrySet()) {
+            out.writeInt(entry.getKey());
+            out.writeInt(entry.getValue());
+        }
+        out.writeInt(typeProfiles.size());
+        for (Map.Entry<Integer, TypeProfile> entry : typeProfiles.entrySet()) {
+            out.writeInt(entry.getKey());
+            TypeProfile typeProfile = entry.getValue();
+            out.writeInt(typeProfile == null ? -1 : typeProfile.typeNames.length);
+            if (typeProfile != null) {
+                out.writeByte(typeProfile.nullSeen);
+                out.writeDouble(typeProfile.notRecordedProbability);
+                for (int j = 0; j < typeProfile.typeNames.length; j++) {
+                    out.writeUTF(typeProfile.typeNames[j]);
+                    out.writeDouble(typeProfile.probabilities[j]);
+                }
+            }
+        }
+        out.writeInt(methodProfiles.size());
+        for (Map.Entry<Integer, MethodProfile> entry : methodProfiles.entrySet()) {
+            out.writeInt(entry.getKey());
+            MethodProfile methodProfile = entry.getValue();
+            out.writeInt(methodProfile == null ? -1 : methodProfile.methods.length);
+            if (methodProfile != null) {
+                out.writeDouble(methodProfile.notRecordedProbability);
+                for (int j = 0; j < methodProfile.methods.length; j++) {
+                    out.writeUTF(methodProfile.methods[j]);
+                    out.writeDouble(methodProfile.probabilities[j]);
+                }
+            }
+        }
+    }
+
+    private static void writeTriStates(DataOutputStream out, Map<Integer, TriState> states) throws IOException {
+        out.writeInt(states.size());
+        for (Map.Entry<Integer, TriState> entry : states.entrySet()) {
+            out.writeInt(entry.getKey());
+            out.writeByte(entry.getValue().ordinal());
+        }
+    }
+
+    private static void readTriStates(DataInputStream in, Map<Integer, TriState> states) throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            int bci = in.readInt();
+            states.put(bci, TRISTATES[in.readByte()]);
+        }
+    }
+
+    static RecordedProfilingInfo read(CompilationRecording recording, DataInputStream in) throws IOException {
+        RecordedProfilingInfo result = new RecordedProfilingInfo(recording, null, in.readInt());
+        byte isMature = in.readByte();
+        result.isMature = isMature < 0 ? null : isMature != 0;
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            String irType = in.readUTF();
+            result.compilerIRSizes.put(irType, in.readInt());
+        }
+        count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            DeoptimizationReason reason;
+            try {
+                reason = DeoptimizationReason.valueOf(in.readUTF());
+            } catch (IllegalArgumentException e) {
+                throw new IOException(e);
+            }
+            result.deoptimizationCounts.put(reason, in.readInt());
+        }
+        count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            int bci = in.readInt();
+            result.branchTakenProbabilities.put(bci, in.readDouble());
+        }
+        count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            int bci = in.readInt();
+            int length = in.readInt();
+            double[] switches = null;
+            if (length >= 0) {
+                switches = new double[length];
+                for (int j = 0; j < length; j++) {
+                    switches[j] = in.readDouble();
+                }
+            }
+            result.switchProbabilities.put(bci, switches);
+        }
+        readTriStates(in, result.exceptionSeen);
+        readTriStates(in, result.nullSeen);
+        count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            int bci = in.readInt();
+            result.executionCounts.put(bci, in.readInt());
+        }
+        count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            int bci = in.readInt();
+            int types = in.readInt();
+            TypeProfile typeProfile = null;
+            if (types >= 0) {
+                byte nullSeen = in.readByte();
+                double notRecorded = in.readDouble();
+                String[] names = new String[types];
+                double[] probabilities = new double[types];
+                for (int j = 0; j < types; j++) {
+                    names[j] = in.readUTF();
+                    probabilities[j] = in.readDouble();
+                }
+                typeProfile = new TypeProfile(nullSeen, notRecorded, names, probabilities);
+            }
+            result.typeProfiles.put(bci, typeProfile);
+        }
+        count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            int bci = in.readInt();
+            int methods = in.readInt();
+            MethodProfile methodProfile = null;
+            if (methods >= 0) {
+                double notRecorded = in.readDouble();
+                String[] symbols = new String[methods];
+                double[] probabilities = new double[methods];
+                for (int j = 0; j < methods; j++) {
+                    symbols[j] = in.readUTF();
+                    probabilities[j] = in.readDouble();
+                }
+                methodProfile = new MethodProfile(notRecorded, symbols, probabilities);
+            }
+            result.methodProfiles.put(bci, methodProfile);
+        }
+        return result;
+    }
+
+    @Override
+    public int getCodeSize() {
+        return codeSize;
+    }
+
+    @Override
+    public double getBranchTakenProbability(int bci) {
+        return answer(branchTakenProbabilities, bci, () -> live.getBranchTakenProbability(bci), -1d, "branch probability at " + bci);
+    }
+
+    @Override
+    public double[] getSwitchProbabilities(int bci) {
+        double[] switches = answer(switchProbabilities, bci, () -> live.getSwitchProbabilities(bci), null, "switch probabilities at " + bci);
+        return switches == null ? null : switches.clone();
+    }
+
+    @Override
+    public JavaTypeProfile getTypeProfile(int bci) {
+        TypeProfile typeProfile = answer(typeProfiles, bci, () -> symbolic(live.getTypeProfile(bci)), null, "type profile at " + bci);
+        return typeProfile == null ? null : typeProfile.resolve(recording.getAccessingType());
+    }
+
+    @Override
+    public JavaMethodProfile getMethodProfile(int bci) {
+        MethodProfile methodProfile = answer(methodProfiles, bci, () -> symbolic(live.getMethodProfile(bci)), null, "method profile at " + bci);
+        return methodProfile == null ? null : methodProfile.resolve(recording);
+    }
+
+    @Override
+    public TriState getExceptionSeen(int bci) {
+        return answer(exceptionSeen, bci, () -> live.getExceptionSeen(bci), TriState.UNKNOWN, "exception seen at " + bci);
+    }
+
+    @Override
+    public TriState getNullSeen(int bci) {
+        return answer(nullSeen, bci, () -> live.getNullSeen(bci), TriState.UNKNOWN, "null seen at " + bci);
+    }
+
+    @Override
+    public int getExecutionCount(int bci) {
+        return answer(executionCounts, bci, () -> live.getExecutionCount(bci), -1, "execution count at " + bci);
+    }
+
+    @Override
+    public int getDeoptimizationCount(DeoptimizationReason reason) {
+        return answer(deoptimizationCounts, reason, () -> live.getDeoptimizationCount(reason), 0, "deoptimization count for " + reason);
+    }
+
+    @Override
+    public boolean setCompilerIRSize(Class<?> irType, int irSize) {
+        // the recorded profile is not updated
+        return live != null && live.setCompilerIRSize(irType, irSize);
+    }
+
+    @Override
+    public int getCompilerIRSize(Class<?> irType) {
+        return answer(compilerIRSizes, irType.getName(), () -> live.getCompilerIRSize(irType), -1, "IR size of " + irType.getName());
+    }
+
+    @Override
+    public synchronized boolean isMature() {
+        if (isMature == null) {
+            if (live == null) {
+                recording.diverged("maturity");
+                return false;
+            }
+            isMature = live.isMature();
+        }
+        return isMature;
+    }
+
+    @Override
+    public synchronized void setMature() {
+        if (live != null) {
+            live.setMature();
+        }
+        isMature = true;
+    }
+
+    /**
+     * Only shows the recorded answers as querying all BCIs would record or diverge.
+     */
+    @Override
+    public synchronized String toString() {
+        return "RecordedProfilingInfo<mature=" + isMature + ", branchTaken=" + branchTakenProbabilities + ", executionCounts=" + executionCounts + ">";
+    }
+}
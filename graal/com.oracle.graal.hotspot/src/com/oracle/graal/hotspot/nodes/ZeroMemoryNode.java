@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.nodes;
+
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.compiler.common.type.*;
+import com.oracle.graal.graph.*;
+import com.oracle.graal.hotspot.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.nodes.extended.*;
+import com.oracle.graal.nodes.spi.*;
+import com.oracle.graal.word.*;
+
+/**
+ * Zeroes a block of newly allocated memory with a single bulk operation. Used by the allocation
+ * snippets instead of a loop of word stores for large allocations.
+ */
+@NodeInfo(allowedUsageTypes = {InputType.Memory})
+public final class ZeroMemoryNode extends FixedWithNextNode implements LIRLowerable, MemoryCheckpoint.Single {
+
+    @Input private ValueNode address;
+    @Input private ValueNode length;
+
+    private final LocationIdentity locationIdentity;
+
+    public ZeroMemoryNode(ValueNode address, ValueNode length, LocationIdentity locationIdentity) {
+        super(StampFactory.forVoid());
+        this.address = address;
+        this.length = length;
+        this.locationIdentity = locationIdentity;
+    }
+
+    @Override
+    public LocationIdentity getLocationIdentity() {
+        return locationIdentity;
+    }
+
+    @Override
+    public void generate(NodeLIRBuilderTool gen) {
+        ((HotSpotLIRGenerator) gen.getLIRGeneratorTool()).emitZeroMemory(gen.operand(address), gen.operand(length));
+    }
+
+    /**
+     * Clears {@code length} bytes starting at {@code address}.
+     *
+     * @param address the word aligned start of the memory to clear
+     * @param length the number of bytes to clear, a multiple of the word size
+     */
+    @NodeIntrinsic
+    public static native void zero(Word address, Word length, @ConstantNodeParameter LocationIdentity locationIdentity);
+}
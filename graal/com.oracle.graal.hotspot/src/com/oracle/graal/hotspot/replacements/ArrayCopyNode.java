@@ -29,8 +29,10 @@ import com.oracle.graal.api.meta.*;
 import com.oracle.graal.compiler.common.*;
 import com.oracle.graal.debug.*;
 import com.oracle.graal.debug.Debug.Scope;
+import com.oracle.graal.graph.*;
 import com.oracle.graal.loop.phases.*;
 import com.oracle.graal.nodes.*;
+import com.oracle.graal.nodes.java.*;
 import com.oracle.graal.nodes.spi.*;
 import com.oracle.graal.nodes.type.*;
 import com.oracle.graal.nodes.virtual.*;
@@ -103,6 +105,56 @@ public class ArrayCopyNode extends MacroStateSplitNode implements Virtualizable,
         new CanonicalizerPhase(true).apply(snippetGraph, context);
     }
 
+    @Override
+    public void lower(LoweringTool tool) {
+        eliminateDestinationZeroing();
+        super.lower(tool);
+    }
+
+    /**
+     * If the destination is a primitive array allocated right before this copy and the copy
+     * provably overwrites all of its elements, the allocation does not need to zero the array. The
+     * copy must be of the form {@code arraycopy(src, 0, dest, 0, src.length)} with
+     * {@code dest = new T[src.length]} and nothing but reads of {@code src.length} between the
+     * allocation and the copy. The array contents are never visible to the garbage collector, so
+     * leaving them uninitialized until the copy is safe.
+     */
+    private void eliminateDestinationZeroing() {
+        if (!(getDestination() instanceof NewArrayNode)) {
+            return;
+        }
+        NewArrayNode newArray = (NewArrayNode) getDestination();
+        ResolvedJavaType elementType = newArray.elementType();
+        if (!newArray.fillContents() || !elementType.getKind().isPrimitive()) {
+            return;
+        }
+        ResolvedJavaType srcType = StampTool.typeOrNull(getSource().stamp());
+        if (srcType == null || !srcType.isArray() || !srcType.getComponentType().equals(elementType)) {
+            return;
+        }
+        if (!isZero(getSourcePosition()) || !isZero(getDestinationPosition()) || !isLengthOf(newArray.length(), getSource()) || !isLengthOf(getLength(), getSource())) {
+            return;
+        }
+        FixedNode node = newArray.next();
+        while (node != this) {
+            if (!isLengthOf(node, getSource())) {
+                return;
+            }
+            node = ((FixedWithNextNode) node).next();
+        }
+        NewArrayNode uninitialized = graph().add(new NewArrayNode(elementType, newArray.length(), false));
+        uninitialized.setStateBefore(newArray.stateBefore());
+        graph().replaceFixedWithFixed(newArray, uninitialized);
+    }
+
+    private static boolean isZero(ValueNode value) {
+        return value.isConstant() && value.asConstant().asInt() == 0;
+    }
+
+    private static boolean isLengthOf(Node length, ValueNode array) {
+        return length instanceof ArrayLengthNode && ((ArrayLengthNode) length).array() == array;
+    }
+
     @Override
     protected StructuredGraph getLoweredSnippetGraph(final LoweringTool tool) {
         if (!shouldIntrinsify(getTargetMethod())) {
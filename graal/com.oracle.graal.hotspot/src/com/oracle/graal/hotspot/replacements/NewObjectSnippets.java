@@ -24,6 +24,7 @@ package com.oracle.graal.hotspot.replacements;
 
 import static com.oracle.graal.api.code.UnsignedMath.*;
 import static com.oracle.graal.compiler.common.GraalOptions.*;
+import static com.oracle.graal.hotspot.HotSpotGraalRuntime.*;
 import static com.oracle.graal.hotspot.replacements.HotSpotReplacementsUtil.*;
 import static com.oracle.graal.hotspot.replacements.NewObjectSnippets.Options.*;
 import static com.oracle.graal.nodes.PiArrayNode.*;
@@ -69,6 +70,8 @@ public class NewObjectSnippets implements Snippets {
         //@formatter:off
         @Option(help = "")
         static final OptionValue<Boolean> ProfileAllocations = new OptionValue<>(false);
+        @Option(help = "Minimum number of bytes for which a new object is zeroed with vectorized bulk stores instead of a loop (0 disables bulk zeroing)")
+        static final OptionValue<Integer> MinBulkZeroingSize = new OptionValue<>(256);
         //@formatter:on
     }
 
@@ -104,6 +107,21 @@ public class NewObjectSnippets implements Snippets {
         return ProfileAllocations.getValue();
     }
 
+    /**
+     * Determines if large objects should be zeroed with a {@link ZeroMemoryNode}.
+     *
+     * @see HotSpotBackend#supportsBulkZeroing()
+     */
+    @Fold
+    private static boolean useBulkZeroing() {
+        return MinBulkZeroingSize.getValue() > 0 && runtime().getHostBackend().supportsBulkZeroing();
+    }
+
+    @Fold
+    private static int minBulkZeroingSize() {
+        return MinBulkZeroingSize.getValue();
+    }
+
     protected static void profileAllocation(String path, long size, String typeContext) {
         if (doProfile()) {
             String name = createName(path, typeContext);
@@ -193,7 +211,6 @@ public class NewObjectSnippets implements Snippets {
         if ((skipNegativeCheck || belowThan(length, MAX_ARRAY_FAST_PATH_ALLOCATION_LENGTH)) && useTLAB() && probability(FAST_PATH_PROBABILITY, newTop.belowOrEqual(end))) {
             writeTlabTop(thread, newTop);
             emitPrefetchAllocate(newTop, true);
-            newarray_loopInit.inc();
             result = formatArray(hub, allocationSize, length, headerSize, top, prototypeMarkWord, fillContents, maybeUnroll, true);
         } else {
             newarray_stub.inc();
@@ -288,8 +305,9 @@ public class NewObjectSnippets implements Snippets {
      * @param constantSize is @ size} known to be constant in the snippet
      * @param startOffset offset to begin zeroing. May not be word aligned.
      * @param manualUnroll maximally unroll zeroing
+     * @param isArray selects the array or the instance snippet counters
      */
-    private static void zeroMemory(int size, Word memory, boolean constantSize, int startOffset, boolean manualUnroll, boolean useSnippetCounters) {
+    private static void zeroMemory(int size, Word memory, boolean constantSize, int startOffset, boolean manualUnroll, boolean useSnippetCounters, boolean isArray) {
         ReplacementsUtil.runtimeAssert((size & 0x7) == 0, "unaligned object size");
         int offset = startOffset;
         if ((offset & 0x7) != 0) {
@@ -303,7 +321,7 @@ public class NewObjectSnippets implements Snippets {
             // each length, generate a chain of stores of maximum length. Once it's inlined the
             // break statement will trim excess stores.
             if (useSnippetCounters) {
-                new_seqInit.inc();
+                (isArray ? newarray_seqInit : new_seqInit).inc();
             }
             explodeLoop();
             for (int i = 0; i < MAX_UNROLLED_OBJECT_ZEROING_STORES; i++, offset += 8) {
@@ -317,12 +335,18 @@ public class NewObjectSnippets implements Snippets {
             Word off = Word.signed(offset);
             if (constantSize && ((size - offset) / 8) <= MAX_UNROLLED_OBJECT_ZEROING_STORES) {
                 if (useSnippetCounters) {
-                    new_seqInit.inc();
+                    (isArray ? newarray_seqInit : new_seqInit).inc();
                 }
                 explodeLoop();
+            } else if (useBulkZeroing() && size - offset >= minBulkZeroingSize()) {
+                if (useSnippetCounters) {
+                    (isArray ? newarray_bulkInit : new_bulkInit).inc();
+                }
+                ZeroMemoryNode.zero(memory.add(off), Word.signed(size).subtract(off), INIT_LOCATION);
+                return;
             } else {
                 if (useSnippetCounters) {
-                    new_loopInit.inc();
+                    (isArray ? newarray_loopInit : new_loopInit).inc();
                 }
             }
             for (; off.rawValue() < size; off = off.add(8)) {
@@ -346,7 +370,9 @@ public class NewObjectSnippets implements Snippets {
         Word prototypeMarkWord = useBiasedLocking() ? hub.readWord(prototypeMarkWordOffset(), PROTOTYPE_MARK_WORD_LOCATION) : compileTimePrototypeMarkWord;
         initializeObjectHeader(memory, prototypeMarkWord, hub);
         if (fillContents) {
-            zeroMemory(size, memory, constantSize, instanceHeaderSize(), false, useSnippetCounters);
+            zeroMemory(size, memory, constantSize, instanceHeaderSize(), false, useSnippetCounters, false);
+        } else if (useSnippetCounters) {
+            new_noInit.inc();
         }
         return memory.toObject();
     }
@@ -363,7 +389,9 @@ public class NewObjectSnippets implements Snippets {
          */
         initializeObjectHeader(memory, prototypeMarkWord, hub);
         if (fillContents) {
-            zeroMemory(allocationSize, memory, false, headerSize, maybeUnroll, useSnippetCounters);
+            zeroMemory(allocationSize, memory, false, headerSize, maybeUnroll, useSnippetCounters, true);
+        } else if (useSnippetCounters) {
+            newarray_noInit.inc();
         }
         return memory.toObject();
     }
@@ -485,9 +513,14 @@ public class NewObjectSnippets implements Snippets {
     private static final SnippetCounter.Group countersNew = SnippetCounters.getValue() ? new SnippetCounter.Group("NewInstance") : null;
     private static final SnippetCounter new_seqInit = new SnippetCounter(countersNew, "tlabSeqInit", "TLAB alloc with unrolled zeroing");
     private static final SnippetCounter new_loopInit = new SnippetCounter(countersNew, "tlabLoopInit", "TLAB alloc with zeroing in a loop");
+    private static final SnippetCounter new_bulkInit = new SnippetCounter(countersNew, "tlabBulkInit", "TLAB alloc with bulk zeroing");
+    private static final SnippetCounter new_noInit = new SnippetCounter(countersNew, "tlabNoInit", "TLAB alloc without zeroing");
     private static final SnippetCounter new_stub = new SnippetCounter(countersNew, "stub", "alloc and zeroing via stub");
 
     private static final SnippetCounter.Group countersNewArray = SnippetCounters.getValue() ? new SnippetCounter.Group("NewArray") : null;
+    private static final SnippetCounter newarray_seqInit = new SnippetCounter(countersNewArray, "tlabSeqInit", "TLAB alloc with unrolled zeroing");
     private static final SnippetCounter newarray_loopInit = new SnippetCounter(countersNewArray, "tlabLoopInit", "TLAB alloc with zeroing in a loop");
+    private static final SnippetCounter newarray_bulkInit = new SnippetCounter(countersNewArray, "tlabBulkInit", "TLAB alloc with bulk zeroing");
+    private static final SnippetCounter newarray_noInit = new SnippetCounter(countersNewArray, "tlabNoInit", "TLAB alloc without zeroing");
     private static final SnippetCounter newarray_stub = new SnippetCounter(countersNewArray, "stub", "alloc and zeroing via stub");
 }
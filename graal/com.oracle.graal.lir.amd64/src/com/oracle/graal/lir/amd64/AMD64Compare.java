@@ -58,6 +58,10 @@ public enum AMD64Compare {
             emit(crb, masm, opcode, x, y);
         }
 
+        public AMD64Compare getOpcode() {
+            return opcode;
+        }
+
         @Override
         protected void verify() {
             super.verify();
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.lir.amd64;
+
+import static com.oracle.graal.api.code.ValueUtil.*;
+import static com.oracle.graal.lir.LIRValueUtil.*;
+
+import com.oracle.graal.api.code.*;
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.lir.*;
+import com.oracle.graal.lir.StandardOp.MoveOp;
+import com.oracle.graal.lir.amd64.AMD64Compare.CompareOp;
+
+/**
+ * Peephole rules for AMD64 applied by {@link PeepholeOptimizer} after register allocation.
+ */
+public class AMD64PeepholeRules extends PeepholeRuleSet {
+
+    private static final LIRInstruction[] NONE = new LIRInstruction[0];
+
+    /**
+     * Removes the second move of a pair that moves a value back to where it came from, e.g. a
+     * reload directly following the spill of the same register to the same stack slot.
+     */
+    @PeepholeRule({MoveOp.class, MoveOp.class})
+    public LIRInstruction[] moveBack(MoveOp first, MoveOp second) {
+        if (second.getInput().equals(first.getResult()) && second.getResult().equals(first.getInput())) {
+            return new LIRInstruction[]{(LIRInstruction) first};
+        }
+        return null;
+    }
+
+    /**
+     * Removes a move whose result is overwritten by the immediately following move without being
+     * read in between.
+     */
+    @PeepholeRule({MoveOp.class, MoveOp.class})
+    public LIRInstruction[] overwrittenMove(MoveOp first, MoveOp second) {
+        if (second.getResult().equals(first.getResult()) && !mayOverlap(second.getInput(), first.getResult())) {
+            return new LIRInstruction[]{(LIRInstruction) second};
+        }
+        return null;
+    }
+
+    /**
+     * Determines if two operands may denote overlapping locations, independent of the kind under
+     * which they are accessed.
+     */
+    private static boolean mayOverlap(Value a, Value b) {
+        if (isRegister(a) && isRegister(b)) {
+            return asRegister(a).equals(asRegister(b));
+        }
+        if (isStackSlot(a) && isStackSlot(b)) {
+            StackSlot slotA = asStackSlot(a);
+            StackSlot slotB = asStackSlot(b);
+            /* A stack slot holds at most a word, so slots less than a word apart overlap. */
+            return slotA.getRawAddFrameSize() == slotB.getRawAddFrameSize() && Math.abs(slotA.getRawOffset() - slotB.getRawOffset()) < 8;
+        }
+        if (isVariable(a) && isVariable(b)) {
+            return asVariable(a).index == asVariable(b).index;
+        }
+        return a.equals(b);
+    }
+
+    /**
+     * Removes a move whose input and result are the same location.
+     */
+    @PeepholeRule({MoveOp.class})
+    public LIRInstruction[] selfMove(MoveOp move) {
+        if (move.getInput().equals(move.getResult())) {
+            return NONE;
+        }
+        return null;
+    }
+
+    /**
+     * Replaces a comparison of a register against zero with the shorter {@code test reg, reg}
+     * which sets the flags identically.
+     */
+    @PeepholeRule({CompareOp.class})
+    public LIRInstruction[] compareZeroToTest(CompareOp compare) {
+        AMD64Compare opcode = compare.getOpcode();
+        if ((opcode == AMD64Compare.ICMP || opcode == AMD64Compare.LCMP) && isRegister(compare.x) && isConstant(compare.y) && ((Constant) compare.y).isDefaultForKind()) {
+            return new LIRInstruction[]{new AMD64TestOp(compare.x, compare.x)};
+        }
+        return null;
+    }
+}
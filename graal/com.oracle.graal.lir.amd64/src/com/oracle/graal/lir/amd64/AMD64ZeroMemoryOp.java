@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.lir.amd64;
+
+import static com.oracle.graal.api.code.ValueUtil.*;
+import static com.oracle.graal.lir.LIRInstruction.OperandFlag.*;
+
+import com.oracle.graal.api.code.*;
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.asm.*;
+import com.oracle.graal.asm.amd64.*;
+import com.oracle.graal.asm.amd64.AMD64Address.Scale;
+import com.oracle.graal.asm.amd64.AMD64Assembler.ConditionFlag;
+import com.oracle.graal.lir.*;
+import com.oracle.graal.lir.asm.*;
+import com.oracle.graal.lir.gen.*;
+
+/**
+ * Zeroes a block of memory with 16 byte SSE stores. The start address must be word aligned and the
+ * length (in bytes) must be a multiple of the word size. The memory is cleared from the end towards
+ * the start, first in chunks of {@link #CHUNK_SIZE} bytes and then word by word.
+ */
+@Opcode("ZERO_MEMORY")
+public class AMD64ZeroMemoryOp extends AMD64LIRInstruction {
+
+    /**
+     * Number of bytes cleared per iteration of the main loop.
+     */
+    private static final int CHUNK_SIZE = 64;
+
+    @Alive({REG}) protected Value addressValue;
+    @Alive({REG}) protected Value lengthValue;
+    @Temp({REG}) protected Value indexTemp;
+    @Temp({REG}) protected Value vectorTemp;
+
+    public AMD64ZeroMemoryOp(LIRGeneratorTool tool, Value address, Value length) {
+        this.addressValue = address;
+        this.lengthValue = length;
+        this.indexTemp = tool.newVariable(LIRKind.value(tool.target().wordKind));
+        this.vectorTemp = tool.newVariable(LIRKind.value(Kind.Double));
+    }
+
+    @Override
+    public void emitCode(CompilationResultBuilder crb, AMD64MacroAssembler masm) {
+        Register address = asRegister(addressValue);
+        Register index = asRegister(indexTemp);
+        Register vector = asRegister(vectorTemp);
+
+        Label chunkLoop = new Label();
+        Label tail = new Label();
+        Label wordLoop = new Label();
+        Label done = new Label();
+
+        masm.movq(index, asRegister(lengthValue));
+        masm.pxor(vector, vector);
+        masm.cmpq(index, CHUNK_SIZE);
+        masm.jcc(ConditionFlag.Less, tail);
+
+        masm.bind(chunkLoop);
+        masm.subq(index, CHUNK_SIZE);
+        for (int offset = 0; offset < CHUNK_SIZE; offset += 16) {
+            masm.movdqu(new AMD64Address(address, index, Scale.Times1, offset), vector);
+        }
+        masm.cmpq(index, CHUNK_SIZE);
+        masm.jcc(ConditionFlag.GreaterEqual, chunkLoop);
+
+        masm.bind(tail);
+        masm.testq(index, index);
+        masm.jcc(ConditionFlag.Zero, done);
+
+        masm.bind(wordLoop);
+        masm.subq(index, 8);
+        masm.movq(new AMD64Address(address, index, Scale.Times1, 0), vector);
+        masm.jcc(ConditionFlag.NotZero, wordLoop);
+
+        masm.bind(done);
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.lir.test;
+
+import static com.oracle.graal.lir.ParallelBlockProcessor.Options.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.*;
+
+import com.oracle.graal.debug.*;
+import com.oracle.graal.lir.*;
+import com.oracle.graal.options.*;
+import com.oracle.graal.options.OptionValue.OverrideScope;
+
+public class ParallelBlockProcessorTest {
+
+    private static final int ITERATIONS = 2000;
+
+    /**
+     * Forks work {@link #ITERATIONS} times with {@code threads} worker threads and checks that
+     * every piece of work sees the overrides of the calling thread. The work only runs on a worker
+     * if the debug facility is disabled.
+     */
+    private static void forkRepeatedly(int threads) throws Exception {
+        try (OverrideScope s = OptionValue.override(ParallelBackendThreads, threads)) {
+            for (int i = 0; i < ITERATIONS; i++) {
+                final int value = i;
+                ForkJoinTask<Integer> task = ParallelBlockProcessor.fork(new Callable<Integer>() {
+
+                    public Integer call() {
+                        Assert.assertEquals(!Debug.isEnabled(), Thread.currentThread() instanceof ForkJoinWorkerThread);
+                        Assert.assertEquals(threads, (int) ParallelBackendThreads.getValue());
+                        return value;
+                    }
+                }, 1, 0);
+                Assert.assertEquals(value, (int) task.join());
+            }
+        }
+    }
+
+    @Test
+    public void testFork() throws Exception {
+        forkRepeatedly(2);
+    }
+
+    @Test
+    public void testRunInline() {
+        try (OverrideScope s = OptionValue.override(ParallelBackendThreads, 0)) {
+            final Thread caller = Thread.currentThread();
+            ForkJoinTask<Thread> task = ParallelBlockProcessor.fork(new Callable<Thread>() {
+
+                public Thread call() {
+                    return Thread.currentThread();
+                }
+            }, 1, 0);
+            Assert.assertTrue(task.isDone());
+            Assert.assertSame(caller, task.join());
+        }
+    }
+
+    /**
+     * Submits work {@link #ITERATIONS} times to the pool with {@code threads} worker threads.
+     */
+    private static void submitRepeatedly(int threads) {
+        for (int i = 0; i < ITERATIONS; i++) {
+            ForkJoinPool pool = ParallelBlockProcessor.getPool(threads);
+            Assert.assertEquals(threads, pool.getParallelism());
+            final int value = i;
+            ForkJoinTask<Integer> task = pool.submit(new Callable<Integer>() {
+
+                public Integer call() {
+                    return value;
+                }
+            });
+            Assert.assertEquals(value, (int) task.join());
+        }
+    }
+
+    @Test
+    public void testGetPool() {
+        ForkJoinPool pool = ParallelBlockProcessor.getPool(3);
+        Assert.assertEquals(3, pool.getParallelism());
+        Assert.assertSame(pool, ParallelBlockProcessor.getPool(3));
+        Assert.assertNotSame(pool, ParallelBlockProcessor.getPool(4));
+        Assert.assertFalse(pool.isShutdown());
+    }
+
+    /**
+     * Two compiler threads that use a different number of worker threads must not disturb each
+     * other.
+     */
+    @Test
+    public void testConcurrentCallers() throws Exception {
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Void>> results = new ArrayList<>();
+            for (final int threads : new int[]{1, 2}) {
+                results.add(callers.submit(new Callable<Void>() {
+
+                    public Void call() throws Exception {
+                        forkRepeatedly(threads);
+                        return null;
+                    }
+                }));
+                results.add(callers.submit(new Callable<Void>() {
+
+                    public Void call() {
+                        submitRepeatedly(threads);
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> result : results) {
+                result.get();
+            }
+        } finally {
+            callers.shutdown();
+        }
+    }
+}
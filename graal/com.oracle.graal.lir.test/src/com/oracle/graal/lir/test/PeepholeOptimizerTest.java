@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.lir.test;
+
+import static com.oracle.graal.lir.LIRInstruction.OperandFlag.*;
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.*;
+
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.lir.*;
+import com.oracle.graal.lir.StandardOp.MoveOp;
+import com.oracle.graal.lir.asm.*;
+
+public class PeepholeOptimizerTest {
+
+    private static class TestMoveOp extends LIRInstruction implements MoveOp {
+
+        @Def({REG}) protected AllocatableValue result;
+        @Use({REG}) protected Value input;
+
+        public TestMoveOp(AllocatableValue result, Value input) {
+            this.result = result;
+            this.input = input;
+        }
+
+        @Override
+        public Value getInput() {
+            return input;
+        }
+
+        @Override
+        public AllocatableValue getResult() {
+            return result;
+        }
+
+        @Override
+        public void emitCode(CompilationResultBuilder crb) {
+            fail("should not reach!");
+        }
+    }
+
+    private static class TestOp extends LIRInstruction {
+
+        @Override
+        public void emitCode(CompilationResultBuilder crb) {
+            fail("should not reach!");
+        }
+    }
+
+    public static class TestRules extends PeepholeRuleSet {
+
+        @PeepholeRule({MoveOp.class, MoveOp.class})
+        public LIRInstruction[] moveBack(MoveOp first, MoveOp second) {
+            if (second.getInput().equals(first.getResult()) && second.getResult().equals(first.getInput())) {
+                return new LIRInstruction[]{(LIRInstruction) first};
+            }
+            return null;
+        }
+    }
+
+    private static Variable location(int index) {
+        return new Variable(LIRKind.value(Kind.Int), index);
+    }
+
+    @Test
+    public void removeMoveBack() {
+        Variable a = location(0);
+        Variable b = location(1);
+        List<LIRInstruction> instructions = new ArrayList<>();
+        TestMoveOp spill = new TestMoveOp(a, b);
+        instructions.add(new TestOp());
+        instructions.add(spill);
+        instructions.add(new TestMoveOp(b, a));
+        instructions.add(new TestOp());
+
+        assertEquals(1, new PeepholeOptimizer(new TestRules()).optimize(instructions));
+        assertEquals(3, instructions.size());
+        assertSame(spill, instructions.get(1));
+    }
+
+    @Test
+    public void repeatedMoveBack() {
+        Variable a = location(0);
+        Variable b = location(1);
+        List<LIRInstruction> instructions = new ArrayList<>();
+        instructions.add(new TestMoveOp(a, b));
+        instructions.add(new TestMoveOp(b, a));
+        instructions.add(new TestMoveOp(a, b));
+        instructions.add(new TestMoveOp(b, a));
+
+        assertEquals(2, new PeepholeOptimizer(new TestRules()).optimize(instructions));
+        assertEquals(2, instructions.size());
+    }
+
+    @Test
+    public void noMatch() {
+        Variable a = location(0);
+        Variable b = location(1);
+        Variable c = location(2);
+        List<LIRInstruction> instructions = new ArrayList<>();
+        instructions.add(new TestMoveOp(a, b));
+        instructions.add(new TestOp());
+        instructions.add(new TestMoveOp(b, a));
+        instructions.add(new TestMoveOp(c, b));
+
+        assertEquals(0, new PeepholeOptimizer(new TestRules()).optimize(instructions));
+        assertEquals(4, instructions.size());
+    }
+}
@@ -24,42 +24,36 @@ package com.oracle.graal.lir;
 
 import java.util.*;
 
-import com.oracle.graal.compiler.common.cfg.*;
 import com.oracle.graal.lir.StandardOp.ImplicitNullCheck;
 import com.oracle.graal.lir.StandardOp.NullCheck;
 
 public final class NullCheckOptimizer {
 
     public static void optimize(LIR ir, int implicitNullCheckLimit) {
-        List<? extends AbstractBlock<?>> blocks = ir.codeEmittingOrder();
-        NullCheckOptimizer.foldNullChecks(ir, blocks, implicitNullCheckLimit);
+        ParallelBlockProcessor.forEachBlock(ir, (block, instructions) -> foldNullChecks(instructions, implicitNullCheckLimit));
     }
 
     private NullCheckOptimizer() {
     }
 
-    private static void foldNullChecks(LIR ir, List<? extends AbstractBlock<?>> blocks, int implicitNullCheckLimit) {
-        for (AbstractBlock<?> block : blocks) {
-            List<LIRInstruction> list = ir.getLIRforBlock(block);
+    private static void foldNullChecks(List<LIRInstruction> list, int implicitNullCheckLimit) {
+        if (!list.isEmpty()) {
 
-            if (!list.isEmpty()) {
+            LIRInstruction lastInstruction = list.get(0);
+            for (int i = 0; i < list.size(); i++) {
+                LIRInstruction instruction = list.get(i);
 
-                LIRInstruction lastInstruction = list.get(0);
-                for (int i = 0; i < list.size(); i++) {
-                    LIRInstruction instruction = list.get(i);
-
-                    if (instruction instanceof ImplicitNullCheck && lastInstruction instanceof NullCheck) {
-                        NullCheck nullCheck = (NullCheck) lastInstruction;
-                        ImplicitNullCheck implicitNullCheck = (ImplicitNullCheck) instruction;
-                        if (implicitNullCheck.makeNullCheckFor(nullCheck.getCheckedValue(), nullCheck.getState(), implicitNullCheckLimit)) {
-                            list.remove(i - 1);
-                            if (i < list.size()) {
-                                instruction = list.get(i);
-                            }
+                if (instruction instanceof ImplicitNullCheck && lastInstruction instanceof NullCheck) {
+                    NullCheck nullCheck = (NullCheck) lastInstruction;
+                    ImplicitNullCheck implicitNullCheck = (ImplicitNullCheck) instruction;
+                    if (implicitNullCheck.makeNullCheckFor(nullCheck.getCheckedValue(), nullCheck.getState(), implicitNullCheckLimit)) {
+                        list.remove(i - 1);
+                        if (i < list.size()) {
+                            instruction = list.get(i);
                         }
                     }
-                    lastInstruction = instruction;
                 }
+                lastInstruction = instruction;
             }
         }
     }
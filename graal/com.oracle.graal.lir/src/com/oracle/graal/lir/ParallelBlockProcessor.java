@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.lir;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import com.oracle.graal.compiler.common.cfg.*;
+import com.oracle.graal.debug.*;
+import com.oracle.graal.options.*;
+import com.oracle.graal.options.OptionValue.OverrideScope;
+
+/**
+ * Runs independent backend work of a single compilation on a small shared {@link ForkJoinPool}
+ * while the compiler thread waits for the result. This is used for block-local work on the
+ * {@link LIR} and for independent steps of code installation such as building the data section.
+ * <p>
+ * Option values {@linkplain OptionValue#override overridden} by the compiler thread are applied in
+ * the workers as well. Debug scopes, metrics and logging are bound to the compiler thread, so all
+ * work stays on that thread while the {@linkplain Debug#isEnabled() debug facility} is enabled.
+ */
+public final class ParallelBlockProcessor {
+
+    public static class Options {
+        // @formatter:off
+        @Option(help = "Number of worker threads used for independent backend work (0 to disable)")
+        public static final OptionValue<Integer> ParallelBackendThreads = new OptionValue<>(Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+        @Option(help = "Minimum number of blocks a compilation must have for block-local backend work to run in parallel")
+        public static final OptionValue<Integer> ParallelBackendMinBlocks = new OptionValue<>(64);
+        @Option(help = "Minimum number of sites (infopoints, data references and marks) installed code must have for its data section to be built in parallel")
+        public static final OptionValue<Integer> ParallelBackendMinSites = new OptionValue<>(1024);
+        // @formatter:on
+    }
+
+    /**
+     * Work done for a single block.
+     */
+    public interface BlockProcedure {
+
+        /**
+         * Processes {@code instructions}, the instruction list of {@code block}. Implementations
+         * must not access the instructions of any other block.
+         */
+        void doBlock(AbstractBlock<?> block, List<LIRInstruction> instructions);
+    }
+
+    /**
+     * Number of blocks handed to a single fork-join task.
+     */
+    private static final int BLOCKS_PER_TASK = 16;
+
+    private static final DebugMetric ParallelBlockPasses = Debug.metric("ParallelBlockPasses");
+
+    /**
+     * The pools by parallelism. A pool is never shut down, since another compiler thread may still
+     * be about to hand work to it.
+     */
+    private static final Map<Integer, ForkJoinPool> pools = new HashMap<>();
+
+    /**
+     * Gets the shared pool with {@code threads} worker threads. It stays usable as long as the VM
+     * runs.
+     */
+    public static synchronized ForkJoinPool getPool(int threads) {
+        ForkJoinPool pool = pools.get(threads);
+        if (pool == null) {
+            pool = new ForkJoinPool(threads);
+            pools.put(threads, pool);
+        }
+        return pool;
+    }
+
+    /**
+     * Gets the number of worker threads to use for work of a given size, or 0 if the work should
+     * be done on the compiler thread.
+     */
+    private static int threadsFor(int size, int minSize) {
+        int threads = Options.ParallelBackendThreads.getValue();
+        if (threads <= 0 || size < minSize || Debug.isEnabled()) {
+            return 0;
+        }
+        return threads;
+    }
+
+    private ParallelBlockProcessor() {
+    }
+
+    /**
+     * Calls {@code proc} for every block in the {@linkplain LIR#codeEmittingOrder() code emitting
+     * order} of {@code lir} and returns once all blocks have been processed.
+     */
+    public static void forEachBlock(LIR lir, BlockProcedure proc) {
+        List<? extends AbstractBlock<?>> blocks = lir.codeEmittingOrder();
+        int threads = threadsFor(blocks.size(), Options.ParallelBackendMinBlocks.getValue());
+        if (threads == 0) {
+            for (AbstractBlock<?> block : blocks) {
+                proc.doBlock(block, lir.getLIRforBlock(block));
+            }
+        } else {
+            ParallelBlockPasses.increment();
+            getPool(threads).invoke(new BlockTask(lir, blocks, 0, blocks.size(), proc, OptionValue.getOverrides()));
+        }
+    }
+
+    /**
+     * Starts {@code work} on a worker thread if {@code size} is at least {@code minSize}. Otherwise
+     * the work is done right away on the calling thread. The result is retrieved with
+     * {@link ForkJoinTask#join()}, which also rethrows any exception thrown by {@code work}.
+     *
+     * @param work work that does not depend on anything the calling thread does until the result
+     *            is joined
+     * @param size a measure for the amount of work
+     */
+    public static <T> ForkJoinTask<T> fork(Callable<T> work, int size, int minSize) {
+        int threads = threadsFor(size, minSize);
+        if (threads == 0) {
+            ForkJoinTask<T> task = ForkJoinTask.adapt(work);
+            task.invoke();
+            return task;
+        }
+        Map<OptionValue<?>, Object> overrides = OptionValue.getOverrides();
+        return getPool(threads).submit(() -> {
+            try (OverrideScope s = OptionValue.override(overrides)) {
+                return work.call();
+            }
+        });
+    }
+
+    @SuppressWarnings("serial")
+    private static final class BlockTask extends RecursiveAction {
+
+        private final LIR lir;
+        private final List<? extends AbstractBlock<?>> blocks;
+        private final int from;
+        private final int to;
+        private final BlockProcedure proc;
+        private final Map<OptionValue<?>, Object> overrides;
+
+        BlockTask(LIR lir, List<? extends AbstractBlock<?>> blocks, int from, int to, BlockProcedure proc, Map<OptionValue<?>, Object> overrides) {
+            this.lir = lir;
+            this.blocks = blocks;
+            this.from = from;
+            this.to = to;
+            this.proc = proc;
+            this.overrides = overrides;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= BLOCKS_PER_TASK) {
+                try (OverrideScope s = OptionValue.override(overrides)) {
+                    for (int i = from; i < to; i++) {
+                        AbstractBlock<?> block = blocks.get(i);
+                        proc.doBlock(block, lir.getLIRforBlock(block));
+                    }
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new BlockTask(lir, blocks, from, middle, proc, overrides), new BlockTask(lir, blocks, middle, to, proc, overrides));
+            }
+        }
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.lir;
+
+import java.lang.reflect.*;
+import java.util.*;
+
+import com.oracle.graal.compiler.common.*;
+import com.oracle.graal.debug.*;
+import com.oracle.graal.options.*;
+
+/**
+ * Applies the {@link PeepholeRule}s of a {@link PeepholeRuleSet} to the instructions of each block
+ * after register allocation. A rule matches a window of adjacent instructions and may replace it
+ * with an arbitrary (usually shorter) sequence. After a successful rewrite, matching resumes early
+ * enough that the new instructions can participate in further matches.
+ */
+public final class PeepholeOptimizer {
+
+    public static class Options {
+        // @formatter:off
+        @Option(help = "Enable the LIR peephole optimizer that runs after register allocation")
+        public static final OptionValue<Boolean> LIRPeephole = new OptionValue<>(true);
+        // @formatter:on
+    }
+
+    private static final DebugMetric PeepholeRewrites = Debug.metric("PeepholeRewrites");
+
+    /**
+     * A single rule declared by a {@link PeepholeRule} annotation.
+     */
+    static final class Rule {
+
+        final Class<?>[] pattern;
+        final Method method;
+        final DebugMetric metric;
+
+        Rule(Class<?>[] pattern, Method method) {
+            this.pattern = pattern;
+            this.method = method;
+            this.metric = Debug.metric("PeepholeRule[%s.%s]", method.getDeclaringClass().getSimpleName(), method.getName());
+        }
+
+        boolean matches(List<LIRInstruction> instructions, int index) {
+            if (index + pattern.length > instructions.size()) {
+                return false;
+            }
+            for (int i = 0; i < pattern.length; i++) {
+                if (!pattern[i].isInstance(instructions.get(index + i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        LIRInstruction[] apply(PeepholeRuleSet ruleSet, List<LIRInstruction> instructions, int index) {
+            Object[] args = instructions.subList(index, index + pattern.length).toArray();
+            try {
+                return (LIRInstruction[]) method.invoke(ruleSet, args);
+            } catch (InvocationTargetException e) {
+                throw new GraalInternalError(e.getCause());
+            } catch (IllegalAccessException e) {
+                throw new GraalInternalError(e);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return method.getName() + Arrays.toString(pattern);
+        }
+    }
+
+    private static final Map<Class<? extends PeepholeRuleSet>, Rule[]> registry = new HashMap<>();
+
+    /**
+     * Collects the rules declared by the class hierarchy of {@code theClass}. Rules of subclasses
+     * come first which gives them preference over rules of superclasses.
+     */
+    static synchronized Rule[] lookup(Class<? extends PeepholeRuleSet> theClass) {
+        Rule[] result = registry.get(theClass);
+        if (result == null) {
+            List<Rule> rules = new ArrayList<>();
+            Class<?> currentClass = theClass;
+            while (currentClass != PeepholeRuleSet.class) {
+                for (Method method : currentClass.getDeclaredMethods()) {
+                    for (PeepholeRule rule : method.getAnnotationsByType(PeepholeRule.class)) {
+                        rules.add(createRule(method, rule.value()));
+                    }
+                }
+                currentClass = currentClass.getSuperclass();
+            }
+            result = rules.toArray(new Rule[rules.size()]);
+            registry.put(theClass, result);
+        }
+        return result;
+    }
+
+    private static Rule createRule(Method method, Class<?>[] pattern) {
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        if (pattern.length == 0 || parameterTypes.length != pattern.length) {
+            throw new GraalInternalError("peephole rule %s must take one parameter per pattern element", method);
+        }
+        for (int i = 0; i < pattern.length; i++) {
+            if (!parameterTypes[i].isAssignableFrom(pattern[i])) {
+                throw new GraalInternalError("parameter %d of peephole rule %s does not accept %s", i, method, pattern[i].getName());
+            }
+        }
+        if (method.getReturnType() != LIRInstruction[].class) {
+            throw new GraalInternalError("peephole rule %s must return LIRInstruction[]", method);
+        }
+        method.setAccessible(true);
+        return new Rule(pattern, method);
+    }
+
+    public static void optimize(LIR lir, PeepholeRuleSet ruleSet) {
+        if (ruleSet == null || !Options.LIRPeephole.getValue()) {
+            return;
+        }
+        PeepholeOptimizer optimizer = new PeepholeOptimizer(ruleSet);
+        ParallelBlockProcessor.forEachBlock(lir, (block, instructions) -> optimizer.optimize(instructions));
+    }
+
+    private final PeepholeRuleSet ruleSet;
+    private final Rule[] rules;
+    private final int maxPatternLength;
+
+    public PeepholeOptimizer(PeepholeRuleSet ruleSet) {
+        this.ruleSet = ruleSet;
+        this.rules = lookup(ruleSet.getClass());
+        int max = 0;
+        for (Rule rule : rules) {
+            max = Math.max(max, rule.pattern.length);
+        }
+        this.maxPatternLength = max;
+    }
+
+    /**
+     * Applies the rules to the instruction list of a single block.
+     *
+     * @return the number of rewrites performed
+     */
+    public int optimize(List<LIRInstruction> instructions) {
+        int rewrites = 0;
+        int index = 0;
+        while (index < instructions.size()) {
+            Rule applied = null;
+            for (Rule rule : rules) {
+                if (rule.matches(instructions, index)) {
+                    LIRInstruction[] replacement = rule.apply(ruleSet, instructions, index);
+                    if (replacement != null) {
+                        List<LIRInstruction> window = instructions.subList(index, index + rule.pattern.length);
+                        Debug.log("peephole %s: %s -> %s", rule, window, Arrays.toString(replacement));
+                        window.clear();
+                        window.addAll(Arrays.asList(replacement));
+                        rule.metric.increment();
+                        applied = rule;
+                        break;
+                    }
+                }
+            }
+            if (applied != null) {
+                rewrites++;
+                // Back up so that the replacement can combine with preceding instructions.
+                index = Math.max(0, index - (maxPatternLength - 1));
+            } else {
+                index++;
+            }
+        }
+        PeepholeRewrites.add(rewrites);
+        return rewrites;
+    }
+}
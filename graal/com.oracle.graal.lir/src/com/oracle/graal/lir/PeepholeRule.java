@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.lir;
+
+import java.lang.annotation.*;
+
+/**
+ * This annotation declares a peephole pattern over a sequence of adjacent {@link LIRInstruction}s
+ * in a single block. The pattern is given as the list of instruction types (classes or interfaces)
+ * that must match the instructions in order. The annotated method must take exactly one parameter
+ * per pattern element, each typed with the corresponding pattern type, and return a
+ * {@code LIRInstruction[]} that replaces the matched instructions or {@code null} if the rule does
+ * not apply to the matched instructions.
+ *
+ * <pre>
+ * &#064;PeepholeRule({MoveOp.class, MoveOp.class})
+ * public LIRInstruction[] reloadAfterSpill(MoveOp spill, MoveOp reload) {
+ *     ...
+ * }
+ * </pre>
+ *
+ * Rules are declared on subclasses of {@link PeepholeRuleSet} and are collected by
+ * {@link PeepholeOptimizer}.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+@Repeatable(value = PeepholeRules.class)
+public @interface PeepholeRule {
+    Class<?>[] value();
+}
@@ -89,8 +89,8 @@ public class StandardOp {
 
         @Override
         public void emitCode(CompilationResultBuilder crb) {
-            if (align) {
-                crb.asm.align(crb.target.wordSize * 2);
+            if (align && crb.getBlockAlignment() > 1) {
+                crb.asm.align(crb.getBlockAlignment());
             }
             crb.asm.bind(label);
         }
@@ -34,6 +34,7 @@ import com.oracle.graal.compiler.common.*;
 import com.oracle.graal.compiler.common.cfg.*;
 import com.oracle.graal.debug.*;
 import com.oracle.graal.lir.*;
+import com.oracle.graal.options.*;
 
 /**
  * Fills in a {@link CompilationResult} as its code is being assembled.
@@ -42,6 +43,13 @@ import com.oracle.graal.lir.*;
  */
 public class CompilationResultBuilder {
 
+    public static class Options {
+        // @formatter:off
+        @Option(help = "Share structurally identical debug info frames between the infopoints of a compilation")
+        public static final OptionValue<Boolean> ShareDebugInfoFrames = new OptionValue<>(true);
+        // @formatter:on
+    }
+
     private static class ExceptionInfo {
 
         public final int codeOffset;
@@ -77,6 +85,16 @@ public class CompilationResultBuilder {
 
     private List<ExceptionInfo> exceptionInfoList;
 
+    /**
+     * Shares debug info frames between infopoints, or {@code null} if sharing is disabled.
+     */
+    private final DebugInfoInterner debugInfoInterner;
+
+    /**
+     * The alignment in bytes of {@linkplain AbstractBlock#isAligned() aligned} blocks.
+     */
+    private int blockAlignment;
+
     public CompilationResultBuilder(CodeCacheProvider codeCache, ForeignCallsProvider foreignCalls, FrameMap frameMap, Assembler asm, FrameContext frameContext, CompilationResult compilationResult) {
         this.target = codeCache.getTarget();
         this.codeCache = codeCache;
@@ -85,6 +103,8 @@ public class CompilationResultBuilder {
         this.asm = asm;
         this.compilationResult = compilationResult;
         this.frameContext = frameContext;
+        this.debugInfoInterner = Options.ShareDebugInfoFrames.getValue() ? new DebugInfoInterner() : null;
+        this.blockAlignment = target.wordSize * 2;
         assert frameContext != null;
     }
 
@@ -92,6 +112,19 @@ public class CompilationResultBuilder {
         compilationResult.setTotalFrameSize(frameSize);
     }
 
+    public int getBlockAlignment() {
+        return blockAlignment;
+    }
+
+    /**
+     * Sets the alignment in bytes of {@linkplain AbstractBlock#isAligned() aligned} blocks such as
+     * loop headers. A value of 0 or 1 disables the alignment.
+     */
+    public void setBlockAlignment(int alignment) {
+        assert alignment >= 0 && (alignment & (alignment - 1)) == 0 : "alignment must be a power of 2: " + alignment;
+        this.blockAlignment = alignment;
+    }
+
     public CompilationResult.Mark recordMark(Object id) {
         return compilationResult.recordMark(asm.position(), id);
     }
@@ -129,17 +162,17 @@ public class CompilationResultBuilder {
     }
 
     public void recordImplicitException(int pcOffset, LIRFrameState info) {
-        compilationResult.recordInfopoint(pcOffset, info.debugInfo(), InfopointReason.IMPLICIT_EXCEPTION);
+        compilationResult.recordInfopoint(pcOffset, debugInfo(info), InfopointReason.IMPLICIT_EXCEPTION);
         assert info.exceptionEdge == null;
     }
 
     public void recordDirectCall(int posBefore, int posAfter, InvokeTarget callTarget, LIRFrameState info) {
-        DebugInfo debugInfo = info != null ? info.debugInfo() : null;
+        DebugInfo debugInfo = info != null ? debugInfo(info) : null;
         compilationResult.recordCall(posBefore, posAfter - posBefore, callTarget, debugInfo, true);
     }
 
     public void recordIndirectCall(int posBefore, int posAfter, InvokeTarget callTarget, LIRFrameState info) {
-        DebugInfo debugInfo = info != null ? info.debugInfo() : null;
+        DebugInfo debugInfo = info != null ? debugInfo(info) : null;
         compilationResult.recordCall(posBefore, posAfter - posBefore, callTarget, debugInfo, false);
     }
 
@@ -150,7 +183,15 @@ public class CompilationResultBuilder {
     }
 
     public void recordInfopoint(int pos, DebugInfo debugInfo, InfopointReason reason) {
-        compilationResult.recordInfopoint(pos, debugInfo, reason);
+        compilationResult.recordInfopoint(pos, intern(debugInfo), reason);
+    }
+
+    private DebugInfo debugInfo(LIRFrameState info) {
+        return intern(info.debugInfo());
+    }
+
+    private DebugInfo intern(DebugInfo debugInfo) {
+        return debugInfoInterner == null ? debugInfo : debugInfoInterner.intern(debugInfo);
     }
 
     public void recordInlineDataInCode(Constant data) {
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.lir.asm;
+
+import java.util.*;
+
+import com.oracle.graal.api.code.*;
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.debug.*;
+
+/**
+ * Canonicalizes the {@link BytecodeFrame} chains of the {@link DebugInfo}s recorded for a single
+ * compilation so that structurally identical frames are represented by one shared object.
+ * Infopoints emitted for the same inlined call site typically differ only in their innermost
+ * frame, so sharing the caller chain removes most of the duplicated frame objects held by the
+ * {@link CompilationResult}. This only reduces the memory used by the compiler: the VM still
+ * records the scopes of each infopoint separately when the code is installed.
+ * <p>
+ * Interning is done bottom-up: a frame is only shared with another frame if their callers are
+ * already the same object. Frames that refer to a {@link VirtualObject} are never shared since
+ * virtual object identity is scoped to a single infopoint.
+ */
+public class DebugInfoInterner {
+
+    private static final DebugMetric DebugInfoFrames = Debug.metric("DebugInfoFrames");
+    private static final DebugMetric DebugInfoFramesShared = Debug.metric("DebugInfoFramesShared");
+
+    private final Map<FrameKey, BytecodeFrame> frames = new HashMap<>();
+
+    /**
+     * Returns debug info equivalent to {@code debugInfo} whose frame chain shares all frames
+     * previously seen by this interner.
+     */
+    public DebugInfo intern(DebugInfo debugInfo) {
+        if (debugInfo == null || !debugInfo.hasFrame()) {
+            return debugInfo;
+        }
+        BytecodeFrame frame = debugInfo.frame();
+        BytecodeFrame canonical = intern(frame);
+        if (canonical == frame) {
+            return debugInfo;
+        }
+        DebugInfo result = new DebugInfo(canonical, debugInfo.getReferenceMap());
+        result.setCalleeSaveInfo(debugInfo.getCalleeSaveInfo());
+        return result;
+    }
+
+    private BytecodeFrame intern(BytecodeFrame frame) {
+        DebugInfoFrames.increment();
+        BytecodeFrame caller = frame.caller();
+        BytecodeFrame canonicalCaller = caller == null ? null : intern(caller);
+        if (hasVirtualObject(frame)) {
+            if (canonicalCaller == caller) {
+                return frame;
+            }
+            return copy(frame, canonicalCaller);
+        }
+        FrameKey key = new FrameKey(frame, canonicalCaller);
+        BytecodeFrame existing = frames.get(key);
+        if (existing != null) {
+            DebugInfoFramesShared.increment();
+            return existing;
+        }
+        BytecodeFrame result = canonicalCaller == caller ? frame : copy(frame, canonicalCaller);
+        frames.put(new FrameKey(result, canonicalCaller), result);
+        return result;
+    }
+
+    private static BytecodeFrame copy(BytecodeFrame frame, BytecodeFrame caller) {
+        return new BytecodeFrame(caller, frame.getMethod(), frame.getBCI(), frame.rethrowException, frame.duringCall, frame.values, frame.numLocals, frame.numStack, frame.numLocks);
+    }
+
+    private static boolean hasVirtualObject(BytecodeFrame frame) {
+        for (Value value : frame.values) {
+            if (value instanceof VirtualObject) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Structural key of a frame. The caller is compared by identity as it has already been
+     * interned.
+     */
+    private static final class FrameKey {
+
+        private final BytecodeFrame frame;
+        private final BytecodeFrame caller;
+        private final int hash;
+
+        FrameKey(BytecodeFrame frame, BytecodeFrame caller) {
+            this.frame = frame;
+            this.caller = caller;
+            this.hash = ((frame.getMethod().hashCode() * 31 + frame.getBCI()) * 31 + Arrays.hashCode(frame.values)) * 31 + System.identityHashCode(caller);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof FrameKey) {
+                FrameKey other = (FrameKey) obj;
+                BytecodeFrame f = other.frame;
+                return caller == other.caller && hash == other.hash && frame.getBCI() == f.getBCI() && frame.getMethod().equals(f.getMethod()) && frame.rethrowException == f.rethrowException &&
+                                frame.duringCall == f.duringCall && frame.numLocals == f.numLocals && frame.numStack == f.numStack && frame.numLocks == f.numLocks &&
+                                Arrays.equals(frame.values, f.values);
+            }
+            return false;
+        }
+    }
+}
@@ -76,6 +76,14 @@ public abstract class LIRGenerator implements LIRGeneratorTool, LIRKindTool {
         return true;
     }
 
+    /**
+     * Gets the {@link PeepholeRuleSet} applied after register allocation or {@code null} if this
+     * backend does not define peephole rules.
+     */
+    public PeepholeRuleSet getPeepholeRules() {
+        return null;
+    }
+
     @Override
     public TargetDescription target() {
         return getCodeCache().getTarget();
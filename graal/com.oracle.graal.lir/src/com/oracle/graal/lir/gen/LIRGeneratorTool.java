@@ -162,6 +162,12 @@ public interface LIRGeneratorTool extends ArithmeticLIRGenerator {
      */
     boolean canEliminateRedundantMoves();
 
+    /**
+     * Gets the {@link PeepholeRuleSet} applied after register allocation or {@code null} if no
+     * peephole optimization should be done.
+     */
+    PeepholeRuleSet getPeepholeRules();
+
     /**
      * Determines if only oop maps are required for the code generated from the LIR.
      */
@@ -124,4 +124,27 @@ public class TestOptionValue {
             }
         }
     }
+
+    @Test
+    public void getOverridesTest() throws InterruptedException {
+        assertTrue(OptionValue.getOverrides().isEmpty());
+        try (OverrideScope s1 = OptionValue.override(Mutable, "override1")) {
+            try (OverrideScope s2 = OptionValue.override(SecondMutable, "override2")) {
+                Map<OptionValue<?>, Object> overrides = OptionValue.getOverrides();
+                assertEquals(2, overrides.size());
+                String[] seen = new String[2];
+                Thread thread = new Thread(() -> {
+                    try (OverrideScope s3 = OptionValue.override(overrides)) {
+                        seen[0] = Mutable.getValue();
+                        seen[1] = SecondMutable.getValue();
+                    }
+                });
+                thread.start();
+                thread.join();
+                assertEquals("override1", seen[0]);
+                assertEquals("override2", seen[1]);
+            }
+        }
+        assertTrue(OptionValue.getOverrides().isEmpty());
+    }
 }
@@ -130,6 +130,20 @@ public class OptionValue<T> {
 
     private static final ThreadLocal<OverrideScope> overrideScopes = new ThreadLocal<>();
 
+    /**
+     * Gets the values of all options overridden in the current thread. Work handed to another
+     * thread can apply them with {@link #override(Map)} to see the same option values.
+     */
+    public static Map<OptionValue<?>, Object> getOverrides() {
+        OverrideScope current = overrideScopes.get();
+        if (current == null) {
+            return Collections.emptyMap();
+        }
+        Map<OptionValue<?>, Object> overrides = new HashMap<>();
+        current.addToInherited(overrides);
+        return overrides;
+    }
+
     /**
      * The raw option value.
      */
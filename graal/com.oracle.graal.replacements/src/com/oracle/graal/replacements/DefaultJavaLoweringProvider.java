@@ -333,7 +333,8 @@ public abstract class DefaultJavaLoweringProvider implements LoweringProvider {
                 if (virtual instanceof VirtualInstanceNode) {
                     newObject = graph.add(new NewInstanceNode(virtual.type(), true));
                 } else {
-                    newObject = graph.add(new NewArrayNode(((VirtualArrayNode) virtual).componentType(), ConstantNode.forInt(entryCount, graph), true));
+                    boolean fillContents = !isCompletelyInitialized(commit, (VirtualArrayNode) virtual, valuePos);
+                    newObject = graph.add(new NewArrayNode(((VirtualArrayNode) virtual).componentType(), ConstantNode.forInt(entryCount, graph), fillContents));
                 }
                 recursiveLowerings.add(newObject);
                 graph.addBeforeFixed(commit, newObject);
@@ -418,6 +419,26 @@ public abstract class DefaultJavaLoweringProvider implements LoweringProvider {
         }
     }
 
+    /**
+     * Determines if every element of a primitive virtual array is written with an explicit,
+     * non-default value directly after its allocation is committed. Such an array does not need to
+     * be zeroed when it is allocated.
+     *
+     * @param valueStart the index of the array's first entry in {@link CommitAllocationNode#getValues()}
+     */
+    private static boolean isCompletelyInitialized(CommitAllocationNode commit, VirtualArrayNode virtual, int valueStart) {
+        if (!virtual.componentType().getKind().isPrimitive()) {
+            return false;
+        }
+        for (int i = 0; i < virtual.entryCount(); i++) {
+            ValueNode value = commit.getValues().get(valueStart + i);
+            if (value == null || (value.isConstant() && value.asConstant().isDefaultForKind()) || value.getKind().getStackKind() != virtual.entryKind(i).getStackKind()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public static void finishAllocatedObjects(LoweringTool tool, CommitAllocationNode commit, ValueNode[] allocations) {
         StructuredGraph graph = commit.graph();
         for (int objIndex = 0; objIndex < commit.getVirtualObjects().size(); objIndex++) {
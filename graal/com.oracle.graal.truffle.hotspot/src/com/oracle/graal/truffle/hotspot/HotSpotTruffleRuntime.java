@@ -58,6 +58,7 @@ import com.oracle.graal.word.*;
 import com.oracle.truffle.api.*;
 import com.oracle.truffle.api.CompilerDirectives.SlowPath;
 import com.oracle.truffle.api.frame.*;
+import com.oracle.truffle.api.impl.*;
 import com.oracle.truffle.api.nodes.*;
 
 /**
@@ -76,6 +77,7 @@ public final class HotSpotTruffleRuntime implements GraalTruffleRuntime {
     private ArrayList<String> excludes;
     private Map<OptimizedCallTarget, Future<?>> compilations = newIdentityMap();
     private final ThreadPoolExecutor compileQueue;
+    private final GraalTruffleCompilationListeners compilationListeners = new GraalTruffleCompilationListeners();
 
     private final ResolvedJavaMethod[] callNodeMethod;
     private final ResolvedJavaMethod[] callTargetMethod;
@@ -129,6 +131,14 @@ public final class HotSpotTruffleRuntime implements GraalTruffleRuntime {
         return new OptimizedIndirectCallNode();
     }
 
+    public LoopNode createLoopNode(RepeatingNode repeatingNode) {
+        if (TruffleOSR.getValue()) {
+            return new OptimizedOSRLoopNode(repeatingNode);
+        } else {
+            return new DefaultLoopNode(repeatingNode);
+        }
+    }
+
     @Override
     public VirtualFrame createVirtualFrame(Object[] arguments, FrameDescriptor frameDescriptor) {
         return OptimizedCallTarget.createFrame(frameDescriptor, arguments);
@@ -154,6 +164,10 @@ public final class HotSpotTruffleRuntime implements GraalTruffleRuntime {
         return new OptimizedAssumption(name);
     }
 
+    public void invalidateAssumptions(Assumption... assumptions) {
+        OptimizedAssumption.invalidate(assumptions);
+    }
+
     public Replacements getReplacements() {
         if (truffleReplacements == null) {
             truffleReplacements = HotSpotTruffleReplacements.makeInstance();
@@ -302,6 +316,7 @@ public final class HotSpotTruffleRuntime implements GraalTruffleRuntime {
             @Override
             public void run() {
                 try (Scope s = Debug.scope("Truffle", new TruffleDebugJavaMethod(optimizedCallTarget))) {
+                    compilationListeners.notifyCompilationStarted(optimizedCallTarget);
                     truffleCompiler.compileMethodImpl(optimizedCallTarget);
                     optimizedCallTarget.compilationFinished(null);
                 } catch (Throwable e) {
@@ -342,10 +357,26 @@ public final class HotSpotTruffleRuntime implements GraalTruffleRuntime {
         HotSpotGraalRuntime.runtime().getCompilerToVM().invalidateInstalledCode(optimizedCallTarget);
     }
 
+    public void invalidateInstalledCodes(InstalledCode[] installedCodes) {
+        HotSpotGraalRuntime.runtime().getCompilerToVM().invalidateInstalledCodes(installedCodes);
+    }
+
     public void reinstallStubs() {
         installOptimizedCallTargetCallMethod();
     }
 
+    public void addCompilationListener(GraalTruffleCompilationListener listener) {
+        compilationListeners.add(listener);
+    }
+
+    public void removeCompilationListener(GraalTruffleCompilationListener listener) {
+        compilationListeners.remove(listener);
+    }
+
+    public GraalTruffleCompilationListeners getCompilationListeners() {
+        return compilationListeners;
+    }
+
     public void notifyTransferToInterpreter() {
         CompilerAsserts.neverPartOfCompilation();
         if (TraceTruffleTransferToInterpreter.getValue()) {
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.truffle.test;
+
+import org.junit.*;
+
+import com.oracle.graal.api.code.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.nodes.extended.*;
+import com.oracle.graal.nodes.java.*;
+import com.oracle.graal.truffle.test.nodes.*;
+import com.oracle.truffle.api.frame.*;
+import com.oracle.truffle.api.object.*;
+
+public class DynamicObjectPartialEvaluationTest extends PartialEvaluationTest {
+
+    /**
+     * A cached property read must be reduced to a load of the object, a load of its shape, the
+     * shape check and a load of the value.
+     */
+    @Test
+    public void readCachedProperty() {
+        DynamicObject object = new DynamicObject(Shape.createRootShape());
+        object.set("x", 42L);
+        object.set("y", 1L);
+        RootTestNode rootNode = new RootTestNode(new FrameDescriptor(), "readCachedProperty", new ReadPropertyTestNode(object, "y"));
+
+        StructuredGraph graph = partialEval(rootNode, new Object[0], new Assumptions(true), true);
+        removeFrameStates(graph);
+        Assert.assertEquals(0, graph.getNodes(MethodCallTargetNode.class).count());
+        int loads = graph.getNodes().filter(LoadFieldNode.class).count() + graph.getNodes().filter(UnsafeLoadNode.class).count();
+        Assert.assertTrue("too many loads: " + loads, loads <= 3);
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.truffle.test;
+
+import static com.oracle.graal.truffle.TruffleCompilerOptions.*;
+import static org.junit.Assert.*;
+
+import org.junit.*;
+
+import com.oracle.graal.options.*;
+import com.oracle.graal.options.OptionValue.OverrideScope;
+import com.oracle.graal.truffle.*;
+import com.oracle.truffle.api.*;
+import com.oracle.truffle.api.frame.*;
+import com.oracle.truffle.api.nodes.*;
+
+/**
+ * Runs a loop that is long enough to be compiled by on-stack replacement and checks that the
+ * compiled loop continues where the interpreter stopped.
+ */
+public class OptimizedOSRLoopNodeTest {
+
+    private static final int OSR_THRESHOLD = 100;
+
+    /**
+     * Upper bound for the number of iterations, in case the loop is never compiled.
+     */
+    private static final int MAX_ITERATIONS = 10000000;
+
+    /**
+     * Counts in a frame slot until the loop has run a few iterations in compiled code.
+     */
+    private static final class CountingRepeatingNode extends Node implements RepeatingNode {
+
+        private final FrameSlot counter;
+        private int iterations;
+        private int compiledIterations;
+
+        CountingRepeatingNode(FrameSlot counter) {
+            this.counter = counter;
+        }
+
+        public boolean executeRepeating(VirtualFrame frame) {
+            if (compiledIterations >= OSR_THRESHOLD || iterations >= MAX_ITERATIONS) {
+                return false;
+            }
+            frame.setInt(counter, FrameUtil.getIntSafe(frame, counter) + 1);
+            iterations++;
+            if (!CompilerDirectives.inInterpreter()) {
+                compiledIterations++;
+            }
+            return true;
+        }
+    }
+
+    private static final class LoopRootNode extends RootNode {
+
+        private final FrameSlot counter;
+        @Child private LoopNode loop;
+
+        LoopRootNode(FrameDescriptor descriptor, FrameSlot counter, LoopNode loop) {
+            super(null, descriptor);
+            this.counter = counter;
+            this.loop = loop;
+        }
+
+        @Override
+        public Object execute(VirtualFrame frame) {
+            frame.setInt(counter, 0);
+            loop.executeLoop(frame);
+            return FrameUtil.getIntSafe(frame, counter);
+        }
+    }
+
+    @Test
+    public void testOSR() {
+        try (OverrideScope s = OptionValue.override(TruffleOSR, true, TruffleOSRCompilationThreshold, OSR_THRESHOLD, TruffleBackgroundCompilation, false)) {
+            FrameDescriptor descriptor = new FrameDescriptor();
+            FrameSlot counter = descriptor.addFrameSlot("counter", FrameSlotKind.Int);
+            CountingRepeatingNode body = new CountingRepeatingNode(counter);
+            LoopNode loop = Truffle.getRuntime().createLoopNode(body);
+            assertTrue(loop instanceof OptimizedOSRLoopNode);
+
+            CallTarget target = Truffle.getRuntime().createCallTarget(new LoopRootNode(descriptor, counter, loop));
+            Object result = target.call();
+
+            assertTrue("loop was not compiled", body.compiledIterations > 0);
+            assertTrue("loop was compiled too early", body.iterations - body.compiledIterations >= OSR_THRESHOLD);
+            // the compiled loop must see and update the frame of the interpreted method
+            assertEquals(body.iterations, result);
+        }
+    }
+}
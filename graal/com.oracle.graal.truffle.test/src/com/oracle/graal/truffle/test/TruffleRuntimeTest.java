@@ -48,4 +48,15 @@ public class TruffleRuntimeTest {
         TruffleRuntime runtime = Truffle.getRuntime();
         assertTrue(runtime.getClass() != DefaultTruffleRuntime.class);
     }
+
+    @Test
+    public void testInvalidateAssumptions() {
+        TruffleRuntime runtime = Truffle.getRuntime();
+        Assumption[] assumptions = {runtime.createAssumption("a"), runtime.createAssumption("b"), runtime.createAssumption("c")};
+        assumptions[1].invalidate();
+        runtime.invalidateAssumptions(assumptions);
+        for (Assumption assumption : assumptions) {
+            assertFalse(assumption.isValid());
+        }
+    }
 }
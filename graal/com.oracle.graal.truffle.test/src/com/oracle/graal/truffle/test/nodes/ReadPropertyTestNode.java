@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.truffle.test.nodes;
+
+import com.oracle.truffle.api.*;
+import com.oracle.truffle.api.frame.*;
+import com.oracle.truffle.api.nodes.*;
+import com.oracle.truffle.api.object.*;
+
+/**
+ * Reads a {@code long} property of an object, with a monomorphic cache of the shape of the object.
+ */
+public class ReadPropertyTestNode extends AbstractTestNode {
+
+    private final Object key;
+    private final Shape cachedShape;
+    private final LongLocation cachedLocation;
+    private final Assumption shapeValid;
+
+    /** Not final, so that the object is not a constant during partial evaluation. */
+    private DynamicObject object;
+
+    public ReadPropertyTestNode(DynamicObject object, Object key) {
+        this.object = object;
+        this.key = key;
+        this.cachedShape = object.getShape();
+        this.cachedLocation = (LongLocation) cachedShape.getProperty(key).getLocation();
+        this.shapeValid = cachedShape.getValidAssumption();
+    }
+
+    @Override
+    public int execute(VirtualFrame frame) {
+        DynamicObject receiver = object;
+        boolean condition = receiver.getShape() == cachedShape;
+        if (condition) {
+            try {
+                shapeValid.check();
+                return (int) cachedLocation.getLong(receiver, condition);
+            } catch (InvalidAssumptionException e) {
+            }
+        }
+        CompilerDirectives.transferToInterpreter();
+        return (int) (long) receiver.get(key, 0L);
+    }
+}
@@ -0,0 +1,372 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.truffle.test.sl;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import com.oracle.graal.truffle.*;
+import com.oracle.truffle.api.*;
+import com.oracle.truffle.api.instrument.*;
+import com.oracle.truffle.api.nodes.*;
+import com.oracle.truffle.api.source.*;
+import com.oracle.truffle.sl.*;
+import com.oracle.truffle.sl.nodes.*;
+import com.oracle.truffle.sl.nodes.instrument.*;
+import com.oracle.truffle.sl.runtime.*;
+
+/**
+ * Runs SL benchmark programs and reports the time of every iteration together with the compilation
+ * events of {@link OptimizedCallTarget}s that were observed during the iteration. A benchmark
+ * program defines a function {@code bench()} without arguments that is called once per iteration.
+ * The first iterations are reported as warm-up, the remaining ones as measurement:
+ *
+ * <pre>
+ * mx slbench [-warmup &lt;n&gt;] [-iterations &lt;n&gt;] [-format csv|json] [-output &lt;file&gt;] [-probed] [&lt;file.sl&gt;...]
+ * </pre>
+ *
+ * With {@code -probed}, every statement, call and local variable assignment is wrapped in a probe
+ * without instruments, which measures the overhead of instrumentation that is not in use.
+ *
+ * Compilations run in the background, so an event is attributed to the iteration during which the
+ * runtime reported it, which is not necessarily the iteration that triggered it. The events are
+ * the ones traced by {@code -G:+TraceTruffleCompilation}.
+ */
+public final class SLBenchmarkRunner {
+
+    enum EventKind {
+        QUEUED("queued"),
+        STARTED("started"),
+        COMPILED("compiled"),
+        FAILED("failed"),
+        INVALIDATED("invalidated"),
+        DEOPTIMIZED("deoptimized");
+
+        final String name;
+
+        EventKind(String name) {
+            this.name = name;
+        }
+    }
+
+    static final class Event {
+
+        final EventKind kind;
+        final String target;
+        final long time;
+
+        Event(EventKind kind, String target, long time) {
+            this.kind = kind;
+            this.target = target;
+            this.time = time;
+        }
+    }
+
+    static final class Iteration {
+
+        final boolean warmup;
+        final int index;
+        final long start;
+        final long time;
+        final List<Event> events;
+
+        Iteration(boolean warmup, int index, long start, long time, List<Event> events) {
+            this.warmup = warmup;
+            this.index = index;
+            this.start = start;
+            this.time = time;
+            this.events = events;
+        }
+
+        int count(EventKind kind) {
+            int result = 0;
+            for (Event event : events) {
+                if (event.kind == kind) {
+                    result++;
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Collects the compilation events, which are reported on the compiler threads.
+     */
+    static final class EventRecorder implements GraalTruffleCompilationListener {
+
+        private final Queue<Event> events = new ConcurrentLinkedQueue<>();
+
+        private void record(EventKind kind, OptimizedCallTarget target) {
+            events.add(new Event(kind, target.getRootNode().toString(), System.nanoTime()));
+        }
+
+        List<Event> drain() {
+            List<Event> result = new ArrayList<>();
+            Event event;
+            while ((event = events.poll()) != null) {
+                result.add(event);
+            }
+            return result;
+        }
+
+        public void notifyCompilationQueued(OptimizedCallTarget target) {
+            record(EventKind.QUEUED, target);
+        }
+
+        public void notifyCompilationStarted(OptimizedCallTarget target) {
+            record(EventKind.STARTED, target);
+        }
+
+        public void notifyCompilationSuccess(OptimizedCallTarget target) {
+            record(EventKind.COMPILED, target);
+        }
+
+        public void notifyCompilationFailed(OptimizedCallTarget target, Throwable t) {
+            record(EventKind.FAILED, target);
+        }
+
+        public void notifyCompilationInvalidated(OptimizedCallTarget target, CharSequence reason) {
+            record(EventKind.INVALIDATED, target);
+        }
+
+        public void notifyCompilationDeoptimized(OptimizedCallTarget target) {
+            record(EventKind.DEOPTIMIZED, target);
+        }
+    }
+
+    /**
+     * Wraps statements, calls and local variable assignments in probes, like a tool that wants to be
+     * able to attach instruments to them. Calls and assignments are also tagged.
+     */
+    static final class WrappingProber implements SLNodeProber {
+
+        private final SLContext context;
+
+        WrappingProber(SLContext context) {
+            this.context = context;
+        }
+
+        public Node probeAs(Node astNode, SyntaxTag tag, Object... args) {
+            return astNode;
+        }
+
+        public SLStatementNode probeAsStatement(SLStatementNode node) {
+            return node instanceof SLStatementWrapper ? node : new SLStatementWrapper(context, node);
+        }
+
+        public SLExpressionNode probeAsCall(SLExpressionNode node, String callName) {
+            return wrap(node, StandardSyntaxTag.CALL);
+        }
+
+        public SLExpressionNode probeAsLocalAssignment(SLExpressionNode node, String localName) {
+            return wrap(node, StandardSyntaxTag.ASSIGNMENT);
+        }
+
+        private SLExpressionNode wrap(SLExpressionNode node, SyntaxTag tag) {
+            SLExpressionWrapper wrapper = node instanceof SLExpressionWrapper ? (SLExpressionWrapper) node : new SLExpressionWrapper(context, node);
+            wrapper.tagAs(tag);
+            return wrapper;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int warmup = 10;
+        int iterations = 10;
+        String format = "csv";
+        String outputName = null;
+        boolean probed = false;
+        List<String> fileNames = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("-warmup") && i + 1 < args.length) {
+                warmup = Integer.parseInt(args[++i]);
+            } else if (arg.equals("-iterations") && i + 1 < args.length) {
+                iterations = Integer.parseInt(args[++i]);
+            } else if (arg.equals("-format") && i + 1 < args.length) {
+                format = args[++i];
+            } else if (arg.equals("-output") && i + 1 < args.length) {
+                outputName = args[++i];
+            } else if (arg.equals("-probed")) {
+                probed = true;
+            } else if (arg.startsWith("-")) {
+                usage();
+            } else {
+                fileNames.add(arg);
+            }
+        }
+        if (fileNames.isEmpty() || warmup < 0 || iterations < 1 || !(format.equals("csv") || format.equals("json"))) {
+            usage();
+        }
+
+        EventRecorder recorder = new EventRecorder();
+        GraalTruffleRuntime runtime = null;
+        if (Truffle.getRuntime() instanceof GraalTruffleRuntime) {
+            runtime = (GraalTruffleRuntime) Truffle.getRuntime();
+            runtime.addCompilationListener(recorder);
+        } else {
+            System.err.println("warning: " + Truffle.getRuntime().getName() + " does not report compilation events");
+        }
+
+        Map<String, List<Iteration>> results = new LinkedHashMap<>();
+        try {
+            for (String fileName : fileNames) {
+                List<Iteration> benchmark = run(fileName, warmup, iterations, probed, recorder);
+                results.put(benchmarkName(fileName), benchmark);
+                printSummary(benchmarkName(fileName), benchmark);
+            }
+        } finally {
+            if (runtime != null) {
+                runtime.removeCompilationListener(recorder);
+            }
+        }
+
+        PrintStream out = outputName == null ? System.out : new PrintStream(new FileOutputStream(outputName));
+        if (format.equals("csv")) {
+            printCSV(out, results);
+        } else {
+            printJSON(out, results);
+        }
+        if (out != System.out) {
+            out.close();
+        }
+    }
+
+    private static void usage() {
+        System.err.println("Usage: SLBenchmarkRunner [-warmup <n>] [-iterations <n>] [-format csv|json] [-output <file>] [-probed] <file.sl>...");
+        System.exit(1);
+    }
+
+    private static String benchmarkName(String fileName) {
+        String name = new File(fileName).getName();
+        return name.endsWith(".sl") ? name.substring(0, name.length() - 3) : name;
+    }
+
+    private static List<Iteration> run(String fileName, int warmup, int iterations, boolean probed, EventRecorder recorder) throws IOException {
+        /* The benchmarks run without input, and their output is discarded. */
+        SLContext context = new SLContext(new BufferedReader(new StringReader("")), new PrintStream(new ByteArrayOutputStream()));
+        if (probed) {
+            SLASTProber prober = new SLASTProber();
+            prober.addNodeProber(new WrappingProber(context));
+            context.setASTNodeProber(prober);
+        }
+        context.parse(Source.fromFileName(fileName));
+        SLFunction bench = context.getFunctionRegistry().lookup("bench");
+        if (bench.getCallTarget() == null) {
+            throw new SLException("No function bench() defined in " + fileName + ".");
+        }
+        RootCallTarget callTarget = bench.getCallTarget();
+
+        /* Events of earlier benchmarks that were still in flight are not attributed to this one. */
+        recorder.drain();
+        List<Iteration> result = new ArrayList<>();
+        for (int i = 0; i < warmup + iterations; i++) {
+            long start = System.nanoTime();
+            callTarget.call();
+            long time = System.nanoTime() - start;
+            boolean isWarmup = i < warmup;
+            result.add(new Iteration(isWarmup, isWarmup ? i : i - warmup, start, time, recorder.drain()));
+        }
+        return result;
+    }
+
+    private static void printSummary(String name, List<Iteration> iterations) {
+        long total = 0;
+        long min = Long.MAX_VALUE;
+        int count = 0;
+        int deoptimizations = 0;
+        for (Iteration iteration : iterations) {
+            if (!iteration.warmup) {
+                total += iteration.time;
+                min = Math.min(min, iteration.time);
+                count++;
+                deoptimizations += iteration.count(EventKind.INVALIDATED) + iteration.count(EventKind.DEOPTIMIZED);
+            }
+        }
+        System.err.println(String.format("%-20s | mean %8.2fms | min %8.2fms | %d iterations | %d invalidations/deoptimizations while measuring", name, total / count / 1000000.0, min / 1000000.0,
+                        count, deoptimizations));
+    }
+
+    private static void printCSV(PrintStream out, Map<String, List<Iteration>> results) {
+        StringBuilder header = new StringBuilder("benchmark,phase,iteration,time_ms");
+        for (EventKind kind : EventKind.values()) {
+            header.append(',').append(kind.name);
+        }
+        out.println(header);
+        for (Map.Entry<String, List<Iteration>> entry : results.entrySet()) {
+            for (Iteration iteration : entry.getValue()) {
+                StringBuilder line = new StringBuilder();
+                line.append(entry.getKey()).append(',').append(iteration.warmup ? "warmup" : "measure").append(',').append(iteration.index);
+                line.append(',').append(String.format(Locale.ROOT, "%.3f", iteration.time / 1000000.0));
+                for (EventKind kind : EventKind.values()) {
+                    line.append(',').append(iteration.count(kind));
+                }
+                out.println(line);
+            }
+        }
+    }
+
+    private static void printJSON(PrintStream out, Map<String, List<Iteration>> results) {
+        out.println("{\"benchmarks\": [");
+        Iterator<Map.Entry<String, List<Iteration>>> benchmarks = results.entrySet().iterator();
+        while (benchmarks.hasNext()) {
+            Map.Entry<String, List<Iteration>> entry = benchmarks.next();
+            out.println("  {\"name\": " + quote(entry.getKey()) + ", \"iterations\": [");
+            Iterator<Iteration> iterations = entry.getValue().iterator();
+            while (iterations.hasNext()) {
+                Iteration iteration = iterations.next();
+                StringBuilder line = new StringBuilder("    {");
+                line.append("\"phase\": ").append(quote(iteration.warmup ? "warmup" : "measure"));
+                line.append(", \"iteration\": ").append(iteration.index);
+                line.append(", \"time_ms\": ").append(String.format(Locale.ROOT, "%.3f", iteration.time / 1000000.0));
+                line.append(", \"events\": [");
+                for (int i = 0; i < iteration.events.size(); i++) {
+                    Event event = iteration.events.get(i);
+                    line.append(i == 0 ? "" : ", ");
+                    line.append("{\"event\": ").append(quote(event.kind.name));
+                    line.append(", \"target\": ").append(quote(event.target));
+                    line.append(", \"at_ms\": ").append(String.format(Locale.ROOT, "%.3f", (event.time - iteration.start) / 1000000.0)).append('}');
+                }
+                line.append("]}").append(iterations.hasNext() ? "," : "");
+                out.println(line);
+            }
+            out.println("  ]}" + (benchmarks.hasNext() ? "," : ""));
+        }
+        out.println("]}");
+    }
+
+    private static String quote(String s) {
+        StringBuilder result = new StringBuilder("\"");
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                result.append('\\').append(c);
+            } else if (c < ' ') {
+                result.append(String.format("\\u%04x", (int) c));
+            } else {
+                result.append(c);
+            }
+        }
+        return result.append('"').toString();
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.truffle.test.sl;
+
+import static com.oracle.graal.truffle.TruffleCompilerOptions.*;
+import static org.junit.Assert.*;
+
+import java.io.*;
+
+import org.junit.*;
+
+import com.oracle.graal.options.*;
+import com.oracle.graal.options.OptionValue.OverrideScope;
+import com.oracle.graal.truffle.*;
+import com.oracle.truffle.api.frame.*;
+import com.oracle.truffle.api.instrument.*;
+import com.oracle.truffle.api.nodes.*;
+import com.oracle.truffle.api.source.*;
+import com.oracle.truffle.sl.nodes.instrument.*;
+import com.oracle.truffle.sl.runtime.*;
+
+/**
+ * Compiles an SL function whose local assignment is wrapped in a probe without instruments, and
+ * checks that attaching an instrument to the probe invalidates the compiled code and that the
+ * instrument sees the executions that follow.
+ */
+public class SLProbeInvalidationTest {
+
+    private static final class CountingInstrument extends Instrument {
+
+        int enterCount;
+        int leaveCount;
+
+        @Override
+        public void enter(Node astNode, VirtualFrame frame) {
+            enterCount++;
+        }
+
+        @Override
+        public void leave(Node astNode, VirtualFrame frame) {
+            leaveCount++;
+        }
+
+        @Override
+        public void leave(Node astNode, VirtualFrame frame, Object result) {
+            leaveCount++;
+        }
+    }
+
+    @Test
+    public void testAttachInstrument() {
+        try (OverrideScope s = OptionValue.override(TruffleBackgroundCompilation, false)) {
+            SLContext context = new SLContext(new BufferedReader(new StringReader("")), new PrintStream(new ByteArrayOutputStream()));
+            SLASTProber prober = new SLASTProber();
+            prober.addNodeProber(new SLBenchmarkRunner.WrappingProber(context));
+            context.setASTNodeProber(prober);
+            context.parse(Source.fromText("function inc(a) { b = a + 1; return b; }", "inc"));
+
+            OptimizedCallTarget target = (OptimizedCallTarget) context.getFunctionRegistry().lookup("inc").getCallTarget();
+            for (int i = 0; i < 10; i++) {
+                assertEquals(2L, target.call(1L));
+            }
+            target.compile();
+            assertTrue("call target was not compiled", target.isValid());
+            assertEquals(2L, target.call(1L));
+            assertTrue("unused probe invalidated the compiled code", target.isValid());
+
+            // the assignment of the parameter a is probed as well, and b = a + 1 is located at its value
+            Probe probe = null;
+            for (Probe assignment : context.findProbesTaggedAs(StandardSyntaxTag.ASSIGNMENT)) {
+                if (assignment.getSourceLocation().getCode().equals("a + 1")) {
+                    probe = assignment;
+                }
+            }
+            assertNotNull("assignment was not probed", probe);
+            CountingInstrument instrument = new CountingInstrument();
+            probe.addInstrument(instrument);
+            assertFalse("attaching an instrument did not invalidate the compiled code", target.isValid());
+
+            assertEquals(3L, target.call(2L));
+            assertEquals("instrument did not fire", 1, instrument.enterCount);
+            assertEquals(1, instrument.leaveCount);
+
+            // the instrument stays in the code that is compiled from now on
+            target.compile();
+            assertTrue("call target was not recompiled", target.isValid());
+            assertEquals(4L, target.call(3L));
+            assertEquals(2, instrument.enterCount);
+            assertEquals(2, instrument.leaveCount);
+        }
+    }
+}
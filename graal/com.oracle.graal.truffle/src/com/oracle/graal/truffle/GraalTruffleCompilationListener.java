@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.truffle;
+
+/**
+ * Receives the events in the life of the compiled code of {@link OptimizedCallTarget}s. Listeners
+ * are registered with {@link GraalTruffleRuntime#addCompilationListener}. They are notified on the
+ * thread that causes the event, which is a compiler thread for the start and the end of a
+ * background compilation, so implementations must be thread safe.
+ */
+public interface GraalTruffleCompilationListener {
+
+    /**
+     * The call target reached its compilation threshold and is queued for compilation.
+     */
+    void notifyCompilationQueued(OptimizedCallTarget target);
+
+    /**
+     * A compiler thread started the compilation of the call target.
+     */
+    void notifyCompilationStarted(OptimizedCallTarget target);
+
+    /**
+     * The compiled code of the call target was installed.
+     */
+    void notifyCompilationSuccess(OptimizedCallTarget target);
+
+    /**
+     * The compilation of the call target failed or bailed out.
+     */
+    void notifyCompilationFailed(OptimizedCallTarget target, Throwable t);
+
+    /**
+     * The compiled code of the call target was invalidated because a node of its AST was replaced.
+     */
+    void notifyCompilationInvalidated(OptimizedCallTarget target, CharSequence reason);
+
+    /**
+     * The call target was called in the interpreter although its compiled code had been installed,
+     * i.e., the VM discarded the code after a deoptimization or because an assumption that the code
+     * depended on was invalidated.
+     */
+    void notifyCompilationDeoptimized(OptimizedCallTarget target);
+}
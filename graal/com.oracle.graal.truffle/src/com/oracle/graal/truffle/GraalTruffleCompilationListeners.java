@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.truffle;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Forwards the events of the compiled code of call targets to all registered
+ * {@link GraalTruffleCompilationListener}s.
+ */
+public final class GraalTruffleCompilationListeners implements GraalTruffleCompilationListener {
+
+    private final List<GraalTruffleCompilationListener> listeners = new CopyOnWriteArrayList<>();
+
+    public void add(GraalTruffleCompilationListener listener) {
+        listeners.add(listener);
+    }
+
+    public void remove(GraalTruffleCompilationListener listener) {
+        listeners.remove(listener);
+    }
+
+    public void notifyCompilationQueued(OptimizedCallTarget target) {
+        for (GraalTruffleCompilationListener listener : listeners) {
+            listener.notifyCompilationQueued(target);
+        }
+    }
+
+    public void notifyCompilationStarted(OptimizedCallTarget target) {
+        for (GraalTruffleCompilationListener listener : listeners) {
+            listener.notifyCompilationStarted(target);
+        }
+    }
+
+    public void notifyCompilationSuccess(OptimizedCallTarget target) {
+        for (GraalTruffleCompilationListener listener : listeners) {
+            listener.notifyCompilationSuccess(target);
+        }
+    }
+
+    public void notifyCompilationFailed(OptimizedCallTarget target, Throwable t) {
+        for (GraalTruffleCompilationListener listener : listeners) {
+            listener.notifyCompilationFailed(target, t);
+        }
+    }
+
+    public void notifyCompilationInvalidated(OptimizedCallTarget target, CharSequence reason) {
+        for (GraalTruffleCompilationListener listener : listeners) {
+            listener.notifyCompilationInvalidated(target, reason);
+        }
+    }
+
+    public void notifyCompilationDeoptimized(OptimizedCallTarget target) {
+        for (GraalTruffleCompilationListener listener : listeners) {
+            listener.notifyCompilationDeoptimized(target);
+        }
+    }
+}
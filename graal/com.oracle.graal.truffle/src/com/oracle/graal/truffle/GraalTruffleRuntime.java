@@ -22,6 +22,7 @@
  */
 package com.oracle.graal.truffle;
 
+import com.oracle.graal.api.code.*;
 import com.oracle.graal.nodes.spi.*;
 import com.oracle.truffle.api.*;
 
@@ -37,5 +38,19 @@ public interface GraalTruffleRuntime extends TruffleRuntime {
 
     void invalidateInstalledCode(OptimizedCallTarget optimizedCallTarget);
 
+    /**
+     * Invalidates several installed code objects with a single request to the VM.
+     */
+    void invalidateInstalledCodes(InstalledCode[] installedCodes);
+
     void reinstallStubs();
+
+    void addCompilationListener(GraalTruffleCompilationListener listener);
+
+    void removeCompilationListener(GraalTruffleCompilationListener listener);
+
+    /**
+     * Returns the listener that forwards events to all registered listeners.
+     */
+    GraalTruffleCompilationListeners getCompilationListeners();
 }
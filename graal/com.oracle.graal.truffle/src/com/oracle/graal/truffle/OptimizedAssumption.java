@@ -23,13 +23,21 @@
 package com.oracle.graal.truffle;
 
 import java.lang.ref.*;
+import java.util.*;
 
 import com.oracle.graal.api.code.*;
+import com.oracle.graal.debug.*;
+import com.oracle.graal.debug.internal.*;
+import com.oracle.truffle.api.*;
+import com.oracle.truffle.api.CompilerDirectives.SlowPath;
 import com.oracle.truffle.api.impl.*;
 import com.oracle.truffle.api.nodes.*;
 
 public final class OptimizedAssumption extends AbstractAssumption {
 
+    private static final DebugTimer InvalidationTime = Debug.timer("AssumptionInvalidationTime");
+    private static final DebugMetric InvalidatedInstalledCode = Debug.metric("AssumptionInvalidatedInstalledCode");
+
     private static class Entry {
         WeakReference<InstalledCode> installedCode;
         long version;
@@ -50,13 +58,46 @@ public final class OptimizedAssumption extends AbstractAssumption {
     }
 
     @Override
-    public synchronized void invalidate() {
+    public void invalidate() {
+        invalidate(this);
+    }
+
+    /**
+     * Invalidates a set of assumptions. The code depending on any of them is collected first and
+     * then invalidated with a single request to the VM, so that each dependent is invalidated once
+     * and the VM deoptimizes all of them in one operation.
+     */
+    @SlowPath
+    public static void invalidate(Assumption... assumptions) {
+        try (TimerCloseable t = InvalidationTime.start()) {
+            Set<InstalledCode> dependents = Collections.newSetFromMap(new IdentityHashMap<InstalledCode, Boolean>());
+            for (Assumption assumption : assumptions) {
+                if (assumption instanceof OptimizedAssumption) {
+                    ((OptimizedAssumption) assumption).invalidate(dependents);
+                } else {
+                    assumption.invalidate();
+                }
+            }
+            if (!dependents.isEmpty()) {
+                InvalidatedInstalledCode.add(dependents.size());
+                GraalTruffleRuntime runtime = (GraalTruffleRuntime) Truffle.getRuntime();
+                runtime.invalidateInstalledCodes(dependents.toArray(new InstalledCode[dependents.size()]));
+                for (InstalledCode installedCode : dependents) {
+                    if (installedCode instanceof OptimizedCallTarget) {
+                        ((OptimizedCallTarget) installedCode).invalidateInlining();
+                    }
+                }
+            }
+        }
+    }
+
+    private synchronized void invalidate(Set<InstalledCode> dependents) {
         if (isValid) {
             Entry e = first;
             while (e != null) {
                 InstalledCode installedCode = e.installedCode.get();
                 if (installedCode != null && installedCode.getVersion() == e.version) {
-                    installedCode.invalidate();
+                    dependents.add(installedCode);
                 }
                 e = e.next;
             }
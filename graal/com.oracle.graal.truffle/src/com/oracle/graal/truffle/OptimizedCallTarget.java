@@ -47,6 +47,8 @@ public class OptimizedCallTarget extends InstalledCode implements RootCallTarget
     private SpeculationLog speculationLog;
     protected int callCount;
     protected boolean inliningPerformed;
+    /** Set by a compiler thread when compiled code is installed, used to detect deoptimizations. */
+    private volatile boolean compiledCodeInstalled;
     protected final CompilationProfile compilationProfile;
     protected final CompilationPolicy compilationPolicy;
     private OptimizedCallTarget splitSource;
@@ -97,9 +99,11 @@ public class OptimizedCallTarget extends InstalledCode implements RootCallTarget
         if (!getRootNode().isSplittable()) {
             return null;
         }
+        long start = System.nanoTime();
         OptimizedCallTarget splitTarget = (OptimizedCallTarget) Truffle.getRuntime().createCallTarget(getRootNode().split());
         splitTarget.splitSource = this;
         splitTarget.splitIndex = splitIndex++;
+        logSplitCost(splitTarget, System.nanoTime() - start);
         return splitTarget;
     }
 
@@ -213,8 +217,10 @@ public class OptimizedCallTarget extends InstalledCode implements RootCallTarget
         if (isValid()) {
             CompilerAsserts.neverPartOfCompilation();
             invalidate();
+            compiledCodeInstalled = false;
             compilationProfile.reportInvalidated();
             logOptimizedInvalidated(this, oldNode, newNode, reason);
+            runtime.getCompilationListeners().notifyCompilationInvalidated(this, reason);
         }
         cancelInstalledTask(oldNode, newNode, reason);
         invalidateInlining();
@@ -250,6 +256,12 @@ public class OptimizedCallTarget extends InstalledCode implements RootCallTarget
             // Stubs were deoptimized => reinstall.
             this.runtime.reinstallStubs();
         } else {
+            if (compiledCodeInstalled) {
+                // The compiled code was discarded without a rewrite of the AST.
+                compiledCodeInstalled = false;
+                logOptimizedDeoptimized(this);
+                runtime.getCompilationListeners().notifyCompilationDeoptimized(this);
+            }
             compilationProfile.reportInterpreterCall();
             if (TruffleCallTargetProfiling.getValue()) {
                 callCount++;
@@ -264,16 +276,22 @@ public class OptimizedCallTarget extends InstalledCode implements RootCallTarget
         if (!runtime.isCompiling(this)) {
             performInlining();
             logOptimizingQueued(this);
+            runtime.getCompilationListeners().notifyCompilationQueued(this);
             runtime.compile(this, TruffleBackgroundCompilation.getValue());
         }
     }
 
     public void compilationFinished(Throwable t) {
         if (t == null) {
-            // Compilation was successful.
+            // Compilation was successful, unless it was cancelled.
+            if (isValid()) {
+                compiledCodeInstalled = true;
+                runtime.getCompilationListeners().notifyCompilationSuccess(this);
+            }
         } else {
             compilationPolicy.recordCompilationFailure(t);
             logOptimizingFailed(this, t.getMessage());
+            runtime.getCompilationListeners().notifyCompilationFailed(this, t);
             if (t instanceof BailoutException) {
                 // Bailout => move on.
             } else {
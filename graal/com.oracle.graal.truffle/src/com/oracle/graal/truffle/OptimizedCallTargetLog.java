@@ -176,6 +176,12 @@ public final class OptimizedCallTargetLog {
         }
     }
 
+    public static void logOptimizedDeoptimized(OptimizedCallTarget target) {
+        if (TraceTruffleCompilation.getValue()) {
+            log(0, "opt deoptimized", target.toString(), null);
+        }
+    }
+
     public static void logOptimizingFailed(OptimizedCallTarget callSite, CharSequence reason) {
         Map<String, Object> properties = new LinkedHashMap<>();
         properties.put("Reason", reason);
@@ -222,6 +228,24 @@ public final class OptimizedCallTargetLog {
         }
     }
 
+    /**
+     * Logs the number of nodes of a new split target, the number of those nodes that it
+     * {@linkplain NodeUtil#isSplitShared shares} with other splits and the time it took to split.
+     */
+    static void logSplitCost(OptimizedCallTarget newTarget, long nanos) {
+        if (TraceTruffleSplitting.getValue()) {
+            Map<String, Object> properties = new LinkedHashMap<>();
+            properties.put("Nodes", NodeUtil.countNodes(newTarget.getRootNode()));
+            properties.put("Shared", NodeUtil.countNodes(newTarget.getRootNode(), new NodeCountFilter() {
+                public boolean isCounted(Node node) {
+                    return NodeUtil.isSplitShared(node);
+                }
+            }));
+            properties.put("Time(us)", nanos / 1000.0);
+            log(0, "split cost", newTarget.toString(), properties);
+        }
+    }
+
     static void addASTSizeProperty(OptimizedCallTarget target, Map<String, Object> properties) {
         int polymorphicCount = NodeUtil.countNodes(target.getRootNode(), new NodeCountFilter() {
             public boolean isCounted(Node node) {
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.truffle;
+
+import static com.oracle.graal.truffle.TruffleCompilerOptions.*;
+
+import com.oracle.truffle.api.*;
+import com.oracle.truffle.api.frame.*;
+import com.oracle.truffle.api.nodes.*;
+
+/**
+ * A loop node that supports on-stack replacement. The interpreter counts the backedges of the
+ * loop. Once {@link TruffleCompilerOptions#TruffleOSRCompilationThreshold} is exceeded, the
+ * {@link RepeatingNode} is compiled as a call target of its own that takes the frame of the
+ * enclosing method as its only argument. As soon as that code is installed, the interpreter calls it
+ * to run the remaining iterations of the loop. Compiled code of the enclosing method executes the
+ * loop directly.
+ */
+public final class OptimizedOSRLoopNode extends LoopNode implements ReplaceObserver {
+
+    private int backedgeCount;
+    private OptimizedCallTarget osrTarget;
+
+    public OptimizedOSRLoopNode(RepeatingNode repeatingNode) {
+        super(repeatingNode);
+    }
+
+    @Override
+    public void executeLoop(VirtualFrame frame) {
+        if (CompilerDirectives.inInterpreter()) {
+            executeInterpreted(frame);
+        } else {
+            RepeatingNode body = getRepeatingNode();
+            while (body.executeRepeating(frame)) {
+                // loop in compiled code
+            }
+        }
+    }
+
+    private void executeInterpreted(VirtualFrame frame) {
+        RepeatingNode body = getRepeatingNode();
+        int count = 0;
+        try {
+            while (body.executeRepeating(frame)) {
+                count++;
+                if (++backedgeCount >= TruffleOSRCompilationThreshold.getValue()) {
+                    backedgeCount = 0;
+                    compileOSR();
+                }
+                OptimizedCallTarget target = osrTarget;
+                if (target != null && target.isValid()) {
+                    target.call(frame.materialize());
+                    return;
+                }
+            }
+        } finally {
+            getRootNode().reportLoopCount(count);
+        }
+    }
+
+    private void compileOSR() {
+        CompilerAsserts.neverPartOfCompilation();
+        if (osrTarget == null) {
+            osrTarget = (OptimizedCallTarget) Truffle.getRuntime().createCallTarget(new OSRRootNode(this));
+        }
+        if (!osrTarget.isValid()) {
+            osrTarget.compile();
+        }
+    }
+
+    /**
+     * Invalidates the compiled loop if a node of the loop body is replaced, in addition to the
+     * invalidation of the enclosing call target done by {@link Node#replace}.
+     */
+    @Override
+    public void nodeReplaced(Node oldNode, Node newNode, CharSequence reason) {
+        OptimizedCallTarget target = osrTarget;
+        if (target != null) {
+            target.nodeReplaced(oldNode, newNode, reason);
+        }
+    }
+
+    /**
+     * The root of an OSR compilation. The loop node is not adopted since it belongs to the AST of
+     * the enclosing method.
+     */
+    private static final class OSRRootNode extends RootNode {
+
+        private final OptimizedOSRLoopNode loopNode;
+
+        OSRRootNode(OptimizedOSRLoopNode loopNode) {
+            super(loopNode.getSourceSection());
+            this.loopNode = loopNode;
+        }
+
+        @Override
+        public Object execute(VirtualFrame frame) {
+            VirtualFrame parentFrame = CompilerDirectives.unsafeCast(frame.getArguments()[0], FrameWithoutBoxing.class, true, true);
+            RepeatingNode body = loopNode.getRepeatingNode();
+            while (body.executeRepeating(parentFrame)) {
+                // loop in compiled code
+            }
+            return null;
+        }
+
+        @Override
+        public String toString() {
+            return "osr " + loopNode.getRootNode();
+        }
+    }
+}
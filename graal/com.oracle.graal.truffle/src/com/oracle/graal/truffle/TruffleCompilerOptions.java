@@ -85,6 +85,10 @@ public class TruffleCompilerOptions {
     public static final OptionValue<Integer> TruffleMaxCompilationCacheSize = new OptionValue<>(512);
     @Option(help = "Enable asynchronous truffle compilation in background thread")
     public static final OptionValue<Boolean> TruffleBackgroundCompilation = new OptionValue<>(true);
+    @Option(help = "Enable on-stack replacement of long running guest language loops")
+    public static final OptionValue<Boolean> TruffleOSR = new OptionValue<>(true);
+    @Option(help = "Compile a loop with on-stack replacement when its backedge count exceeds this threshold")
+    public static final OptionValue<Integer> TruffleOSRCompilationThreshold = new OptionValue<>(100000);
     @Option(help = "")
     public static final OptionValue<Integer> TruffleCompilationDecisionTime = new OptionValue<>(100);
     @Option(help = "")
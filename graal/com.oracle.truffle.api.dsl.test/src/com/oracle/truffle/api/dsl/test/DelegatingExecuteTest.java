@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.api.dsl.test;
+
+import static org.junit.Assert.*;
+
+import org.junit.*;
+
+import com.oracle.truffle.api.dsl.*;
+import com.oracle.truffle.api.dsl.test.DelegatingExecuteTestFactory.IntDelegatingNodeFactory;
+import com.oracle.truffle.api.dsl.test.DelegatingExecuteTestFactory.IntUserWrittenNodeFactory;
+import com.oracle.truffle.api.frame.*;
+import com.oracle.truffle.api.nodes.*;
+
+/**
+ * Checks which non-abstract execute methods of a node base class are overridden by the generated
+ * specializations. The execute methods of the base classes record whether they are still called.
+ */
+public class DelegatingExecuteTest {
+
+    @TypeSystem({int.class, long.class})
+    static class DelegatingTypes {
+
+        @ImplicitCast
+        long castLong(int value) {
+            return value;
+        }
+
+    }
+
+    @TypeSystemReference(DelegatingTypes.class)
+    abstract static class DelegatingNode extends Node {
+
+        boolean delegated;
+
+        DelegatingNode() {
+            super(null);
+        }
+
+        public abstract Object executeGeneric(VirtualFrame frame);
+
+        public abstract int executeInt(VirtualFrame frame) throws UnexpectedResultException;
+
+        @DelegatingExecute
+        public void executeVoid(VirtualFrame frame) {
+            delegated = true;
+            executeGeneric(frame);
+        }
+
+        @DelegatingExecute
+        public long executeLong(VirtualFrame frame) throws UnexpectedResultException {
+            delegated = true;
+            return DelegatingTypesGen.DELEGATINGTYPES.expectLong(executeGeneric(frame));
+        }
+
+    }
+
+    abstract static class IntDelegatingNode extends DelegatingNode {
+
+        int executions;
+
+        @Specialization
+        int doInt() {
+            executions++;
+            return 42;
+        }
+
+    }
+
+    @Test
+    public void testDelegatingVoid() {
+        IntDelegatingNode node = IntDelegatingNodeFactory.create();
+        node.executeVoid(null);
+        assertFalse(node.delegated);
+        assertEquals(1, node.executions);
+    }
+
+    @Test
+    public void testDelegatingImplicitCast() throws UnexpectedResultException {
+        IntDelegatingNode node = IntDelegatingNodeFactory.create();
+        assertEquals(42L, node.executeLong(null));
+        assertFalse(node.delegated);
+        assertEquals(1, node.executions);
+    }
+
+    @TypeSystemReference(DelegatingTypes.class)
+    abstract static class UserWrittenNode extends Node {
+
+        boolean userExecuted;
+
+        UserWrittenNode() {
+            super(null);
+        }
+
+        public abstract Object executeGeneric(VirtualFrame frame);
+
+        public abstract int executeInt(VirtualFrame frame) throws UnexpectedResultException;
+
+        public void executeVoid(VirtualFrame frame) {
+            userExecuted = true;
+            executeGeneric(frame);
+        }
+
+        public long executeLong(VirtualFrame frame) throws UnexpectedResultException {
+            userExecuted = true;
+            return executeInt(frame);
+        }
+
+    }
+
+    abstract static class IntUserWrittenNode extends UserWrittenNode {
+
+        int executions;
+
+        @Specialization
+        int doInt() {
+            executions++;
+            return 42;
+        }
+
+    }
+
+    @Test
+    public void testUserWrittenVoid() {
+        IntUserWrittenNode node = IntUserWrittenNodeFactory.create();
+        node.executeVoid(null);
+        assertTrue(node.userExecuted);
+        assertEquals(1, node.executions);
+    }
+
+    @Test
+    public void testUserWrittenLong() throws UnexpectedResultException {
+        IntUserWrittenNode node = IntUserWrittenNodeFactory.create();
+        assertEquals(42L, node.executeLong(null));
+        assertTrue(node.userExecuted);
+        assertEquals(1, node.executions);
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.api.test;
+
+import static org.junit.Assert.*;
+
+import org.junit.*;
+
+import com.oracle.truffle.api.*;
+import com.oracle.truffle.api.frame.*;
+import com.oracle.truffle.api.nodes.*;
+import com.oracle.truffle.api.utilities.*;
+
+/**
+ * Tests {@linkplain NodeUtil#splitNode lazy splitting}: a split shares the subtrees of its template
+ * until they are rewritten.
+ */
+public class SplitNodeTest {
+
+    private boolean lazySplitting;
+
+    @Before
+    public void setUp() {
+        lazySplitting = TruffleOptions.LazySplitting;
+        TruffleOptions.LazySplitting = true;
+    }
+
+    @After
+    public void tearDown() {
+        TruffleOptions.LazySplitting = lazySplitting;
+    }
+
+    @Test
+    public void testRewriteShared() {
+        AddNode template = new AddNode(new AddNode(new UnresolvedNode("1"), new UnresolvedNode("2")), new UnresolvedNode("3"));
+        TestRootNode split1 = new TestRootNode(NodeUtil.splitNode(template));
+        TestRootNode split2 = new TestRootNode(NodeUtil.splitNode(template));
+        assertNotSame(template, split1.body);
+        assertSame(template.left, ((AddNode) split1.body).left);
+        assertSame(template.left, ((AddNode) split2.body).left);
+        assertTrue(NodeUtil.isSplitShared(template.left));
+
+        CallTarget target1 = Truffle.getRuntime().createCallTarget(split1);
+        assertEquals(6, target1.call());
+        assertEquals(6, target1.call());
+
+        // the split owns the rewritten nodes and their ancestors
+        AddNode body = (AddNode) split1.body;
+        AddNode left = (AddNode) body.left;
+        assertSame(split1, body.getParent());
+        assertSame(body, left.getParent());
+        assertSame(left, left.left.getParent());
+        assertSame(left, left.right.getParent());
+        assertSame(body, body.right.getParent());
+        assertTrue(left.left instanceof ResolvedNode);
+        assertTrue(left.right instanceof ResolvedNode);
+        assertTrue(body.right instanceof ResolvedNode);
+        assertFalse(NodeUtil.isSplitShared(left.left));
+        assertSame(split1, left.left.getRootNode());
+
+        // the template and the other split are unchanged
+        assertTrue(((AddNode) template.left).left instanceof UnresolvedNode);
+        assertTrue(((AddNode) template.left).right instanceof UnresolvedNode);
+        assertTrue(template.right instanceof UnresolvedNode);
+        assertSame(template.left, ((AddNode) split2.body).left);
+        assertSame(template.right, ((AddNode) split2.body).right);
+
+        CallTarget target2 = Truffle.getRuntime().createCallTarget(split2);
+        assertEquals(6, target2.call());
+        assertNotSame(left, ((AddNode) split2.body).left);
+        assertTrue(((AddNode) template.left).left instanceof UnresolvedNode);
+        assertTrue(template.right instanceof UnresolvedNode);
+    }
+
+    @Test
+    public void testCopyUnsharable() {
+        ProfiledNode profiled = new ProfiledNode(new UnresolvedNode("1"));
+        CountingNode counting = new CountingNode();
+        AddNode template = new AddNode(profiled, counting);
+        TestRootNode split = new TestRootNode(NodeUtil.splitNode(template));
+
+        AddNode body = (AddNode) split.body;
+        assertNotSame(template, body);
+        assertNotSame(profiled, body.left);
+        assertNotSame(profiled.profile, ((ProfiledNode) body.left).profile);
+        assertNotSame(counting, body.right);
+        // sharable children of copied nodes are still shared
+        assertSame(profiled.child, ((ProfiledNode) body.left).child);
+
+        CallTarget target = Truffle.getRuntime().createCallTarget(split);
+        assertEquals(1, target.call());
+        assertEquals(2, target.call());
+        assertEquals(0, counting.count);
+        assertTrue(profiled.child instanceof UnresolvedNode);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testReplaceNotExecuting() {
+        AddNode template = new AddNode(new UnresolvedNode("1"), new UnresolvedNode("2"));
+        TestRootNode split = new TestRootNode(NodeUtil.splitNode(template));
+        Truffle.getRuntime().createCallTarget(split);
+        ((AddNode) split.body).left.replace(new ResolvedNode(1));
+    }
+
+    class TestRootNode extends RootNode {
+
+        @Child ValueNode body;
+
+        public TestRootNode(ValueNode body) {
+            super(null);
+            this.body = body;
+        }
+
+        @Override
+        public Object execute(VirtualFrame frame) {
+            return body.execute();
+        }
+    }
+
+    abstract class ValueNode extends Node {
+
+        public ValueNode() {
+            super(null);
+        }
+
+        abstract int execute();
+    }
+
+    class AddNode extends ValueNode {
+
+        @Child ValueNode left;
+        @Child ValueNode right;
+
+        AddNode(ValueNode left, ValueNode right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        int execute() {
+            return left.execute() + right.execute();
+        }
+    }
+
+    class UnresolvedNode extends ValueNode {
+
+        private final String value;
+
+        public UnresolvedNode(String value) {
+            this.value = value;
+        }
+
+        @Override
+        int execute() {
+            int intValue = Integer.parseInt(value);
+            ResolvedNode newNode = this.replace(new ResolvedNode(intValue));
+            return newNode.execute();
+        }
+    }
+
+    class ResolvedNode extends ValueNode {
+
+        private final int value;
+
+        ResolvedNode(int value) {
+            this.value = value;
+        }
+
+        @Override
+        int execute() {
+            return value;
+        }
+    }
+
+    class ProfiledNode extends ValueNode {
+
+        @Child ValueNode child;
+        final BranchProfile profile = new BranchProfile();
+
+        ProfiledNode(ValueNode child) {
+            this.child = child;
+        }
+
+        @Override
+        int execute() {
+            profile.enter();
+            return child.execute();
+        }
+    }
+
+    class CountingNode extends ValueNode {
+
+        int count;
+
+        @Override
+        int execute() {
+            return count++;
+        }
+    }
+}
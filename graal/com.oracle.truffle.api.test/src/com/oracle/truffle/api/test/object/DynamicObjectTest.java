@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.api.test.object;
+
+import static org.junit.Assert.*;
+
+import org.junit.*;
+
+import com.oracle.truffle.api.object.*;
+
+public class DynamicObjectTest {
+
+    @Test
+    public void testSameShape() {
+        Shape root = Shape.createRootShape();
+        DynamicObject a = new DynamicObject(root);
+        DynamicObject b = new DynamicObject(root);
+        a.set("x", 1L);
+        a.set("y", "foo");
+        b.set("x", 2L);
+        b.set("y", "bar");
+        assertSame(a.getShape(), b.getShape());
+        assertEquals(1L, a.get("x", null));
+        assertEquals("bar", b.get("y", null));
+        assertNull(a.get("z", null));
+    }
+
+    @Test
+    public void testPrimitiveLocations() {
+        DynamicObject object = new DynamicObject(Shape.createRootShape());
+        object.set("l", 42L);
+        object.set("d", 4.2);
+        object.set("b", true);
+        Shape shape = object.getShape();
+        assertTrue(shape.getProperty("l").getLocation() instanceof LongLocation);
+        assertTrue(shape.getProperty("d").getLocation() instanceof DoubleLocation);
+        assertTrue(shape.getProperty("b").getLocation() instanceof BooleanLocation);
+        assertEquals(42L, ((LongLocation) shape.getProperty("l").getLocation()).getLong(object, true));
+        assertEquals(4.2, ((DoubleLocation) shape.getProperty("d").getLocation()).getDouble(object, true), 0);
+        assertEquals(true, ((BooleanLocation) shape.getProperty("b").getLocation()).getBoolean(object, true));
+    }
+
+    @Test
+    public void testExtensionStorage() {
+        DynamicObject object = new DynamicObject(Shape.createRootShape());
+        for (int i = 0; i < 20; i++) {
+            object.set("l" + i, (long) i);
+            object.set("o" + i, "o" + i);
+        }
+        assertEquals(40, object.getShape().getPropertyCount());
+        for (int i = 0; i < 20; i++) {
+            assertEquals((long) i, object.get("l" + i, null));
+            assertEquals("o" + i, object.get("o" + i, null));
+        }
+    }
+
+    @Test
+    public void testGeneralize() {
+        Shape root = Shape.createRootShape();
+        DynamicObject a = new DynamicObject(root);
+        DynamicObject b = new DynamicObject(root);
+        a.set("x", 1L);
+        a.set("y", 2L);
+        b.set("x", 3L);
+        b.set("y", 4L);
+        Shape oldShape = a.getShape();
+
+        a.set("x", "foo");
+        assertFalse(oldShape.isValid());
+        assertTrue(a.getShape().isValid());
+        assertTrue(a.getShape().getProperty("x").getLocation() instanceof ObjectLocation);
+        assertEquals("foo", a.get("x", null));
+        assertEquals(2L, a.get("y", null));
+
+        /* The other object keeps its values and is migrated when it is updated. */
+        assertSame(oldShape, b.getShape());
+        assertEquals(3L, b.get("x", null));
+        assertTrue(b.updateShape());
+        assertSame(a.getShape(), b.getShape());
+        assertEquals(3L, b.get("x", null));
+        assertEquals(4L, b.get("y", null));
+
+        /* New objects use the generalized location right away. */
+        DynamicObject c = new DynamicObject(root);
+        c.set("x", 5L);
+        c.set("y", 6L);
+        assertSame(a.getShape(), c.getShape());
+    }
+}
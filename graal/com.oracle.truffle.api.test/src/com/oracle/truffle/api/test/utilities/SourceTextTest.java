@@ -24,6 +24,10 @@ package com.oracle.truffle.api.test.utilities;
 
 import static org.junit.Assert.*;
 
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
 import org.junit.*;
 
 import com.oracle.truffle.api.source.*;
@@ -199,4 +203,80 @@ public class SourceTextTest {
         longSource.getLineStartOffset(4);
     }
 
+    @Test
+    public void lineIndexTest() {
+        final StringBuilder text = new StringBuilder();
+        final Random random = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            for (int j = random.nextInt(10); j > 0; j--) {
+                text.append('x');
+            }
+            text.append('\n');
+        }
+        text.append("last");
+        final String code = text.toString();
+        final Source source = Source.fromText(code, null);
+
+        // Queries out of order, starting far from the beginning of the text.
+        final int lastOffset = code.length() - 1;
+        assertEquals(2001, source.getLineNumber(lastOffset));
+        assertEquals(4, source.getColumnNumber(lastOffset));
+        assertEquals("last", source.getCode(2001));
+        for (int offset = code.length() - 1; offset >= 0; offset -= 7) {
+            final int line = source.getLineNumber(offset);
+            final int lineStart = code.lastIndexOf('\n', offset - 1) + 1;
+            assertEquals(lineStart, source.getLineStartOffset(line));
+            assertEquals(offset - lineStart + 1, source.getColumnNumber(offset));
+        }
+        assertEquals(2001, source.getLineCount());
+    }
+
+    @Test
+    public void mappedFileTest() throws Exception {
+        final String code = "01234\n67\n9\n";
+        final File file = File.createTempFile("source", ".txt");
+        try {
+            try (Writer writer = new FileWriter(file)) {
+                writer.write(code);
+            }
+            final Source source = Source.fromMappedFile(file.getPath());
+            assertSame(source, Source.fromFileName(file.getPath()));
+            assertEquals(code, source.getCode());
+            assertEquals(longSource.getLineCount(), source.getLineCount());
+            for (int offset = 0; offset < code.length(); offset++) {
+                assertEquals(longSource.getLineNumber(offset), source.getLineNumber(offset));
+                assertEquals(longSource.getColumnNumber(offset), source.getColumnNumber(offset));
+            }
+            assertEquals("67", source.createSection(null, 2).getCode());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void concurrentFileLookupTest() throws Exception {
+        final File file = File.createTempFile("source", ".txt");
+        final int threads = 8;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final CyclicBarrier barrier = new CyclicBarrier(threads);
+            final List<Future<Source>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(new Callable<Source>() {
+                    public Source call() throws Exception {
+                        barrier.await();
+                        return Source.fromFileName(file.getPath());
+                    }
+                }));
+            }
+            final Source expected = futures.get(0).get();
+            for (Future<Source> future : futures) {
+                assertSame(expected, future.get());
+            }
+        } finally {
+            executor.shutdown();
+            file.delete();
+        }
+    }
+
 }
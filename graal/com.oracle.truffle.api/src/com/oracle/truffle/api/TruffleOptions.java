@@ -72,6 +72,15 @@ public class TruffleOptions {
      */
     public static NodeCost TraceRewritesFilterToCost = parseNodeInfoKind(System.getProperty("truffle.TraceRewritesFilterToCost"));
 
+    /**
+     * Enables lazy splitting: a split call target shares the subtrees of its template AST and
+     * copies them only when they are about to be rewritten, see
+     * {@link NodeUtil#splitNode(Node)}.
+     * <p>
+     * Can be set with {@code -Dtruffle.LazySplitting=true}.
+     */
+    public static boolean LazySplitting = Boolean.getBoolean("truffle.LazySplitting");
+
     /**
      * Enables the dumping of Node creations and AST rewrites in JSON format.
      * <p>
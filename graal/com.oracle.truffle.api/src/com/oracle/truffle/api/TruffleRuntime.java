@@ -65,6 +65,14 @@ public interface TruffleRuntime {
      */
     IndirectCallNode createIndirectCallNode();
 
+    /**
+     * Creates a new runtime specific version of {@link LoopNode}.
+     *
+     * @param repeatingNode the body of the loop, which must be a subclass of {@link Node}
+     * @return the new loop node
+     */
+    LoopNode createLoopNode(RepeatingNode repeatingNode);
+
     /**
      * Creates a new assumption object that can be checked and invalidated.
      *
@@ -80,6 +88,15 @@ public interface TruffleRuntime {
      */
     Assumption createAssumption(String name);
 
+    /**
+     * Invalidates a set of assumptions at once. The runtime may invalidate the code depending on
+     * these assumptions in a single step, which is cheaper than invalidating each assumption on its
+     * own.
+     *
+     * @param assumptions the assumptions to invalidate
+     */
+    void invalidateAssumptions(Assumption... assumptions);
+
     /**
      * Creates a new virtual frame object that can be used to store values and is potentially
      * optimizable by the runtime.
@@ -66,6 +66,16 @@ public final class DefaultTruffleRuntime implements TruffleRuntime {
         return new DefaultIndirectCallNode();
     }
 
+    public void invalidateAssumptions(Assumption... assumptions) {
+        for (Assumption assumption : assumptions) {
+            assumption.invalidate();
+        }
+    }
+
+    public LoopNode createLoopNode(RepeatingNode repeatingNode) {
+        return new DefaultLoopNode(repeatingNode);
+    }
+
     @Override
     public VirtualFrame createVirtualFrame(Object[] arguments, FrameDescriptor frameDescriptor) {
         return new DefaultVirtualFrame(frameDescriptor, arguments);
@@ -200,6 +200,12 @@ public abstract class InstrumentationNode extends Node implements ExecutionEvent
      * An instance is intended to be shared by every clone of the AST node with which it is
      * originally attached, so it holds no parent pointer.
      * <p>
+     * Every event checks the assumption, so compiled code that contains the probe depends on it
+     * even while no instrument is attached. Partial evaluation then folds the (empty) chain of
+     * instruments away and the wrapper around the probed node costs nothing. Attaching or removing
+     * an instrument or a {@linkplain SyntaxTagTrap trap} invalidates the assumption, which
+     * deoptimizes just the compiled code that contains this probe.
+     * <p>
      * May be categorized by one or more {@linkplain SyntaxTag tags}, signifying information useful
      * for instrumentation about its AST location(s).
      */
@@ -212,7 +218,6 @@ public abstract class InstrumentationNode extends Node implements ExecutionEvent
          */
         private final SourceSection probedSourceSection;
 
-        // TODO (mlvdv) assumption model broken
         @CompilerDirectives.CompilationFinal private Assumption probeUnchanged;
 
         @CompilerDirectives.CompilationFinal private SyntaxTagTrap trap = null;
@@ -282,115 +287,99 @@ public abstract class InstrumentationNode extends Node implements ExecutionEvent
             probeUnchanged = Truffle.getRuntime().createAssumption();
         }
 
+        /**
+         * Makes compiled code depend on the current instruments and trap of this probe; folds to
+         * nothing in compiled code.
+         */
+        private void checkProbeUnchanged() {
+            if (!probeUnchanged.isValid()) {
+                CompilerDirectives.transferToInterpreter();
+            }
+        }
+
         public void enter(Node astNode, VirtualFrame frame) {
-            if (trap != null || next != null) {
-                if (!probeUnchanged.isValid()) {
-                    CompilerDirectives.transferToInterpreter();
-                }
-                if (trap != null) {
-                    trap.tagTrappedAt(astNode, frame.materialize());
-                }
-                if (next != null) {
-                    next.internalEnter(astNode, frame);
-                }
+            checkProbeUnchanged();
+            if (trap != null) {
+                trap.tagTrappedAt(astNode, frame.materialize());
+            }
+            if (next != null) {
+                next.internalEnter(astNode, frame);
             }
         }
 
         public void leave(Node astNode, VirtualFrame frame) {
+            checkProbeUnchanged();
             if (next != null) {
-                if (!probeUnchanged.isValid()) {
-                    CompilerDirectives.transferToInterpreter();
-                }
                 next.internalLeave(astNode, frame);
             }
         }
 
         public void leave(Node astNode, VirtualFrame frame, boolean result) {
+            checkProbeUnchanged();
             if (next != null) {
-                if (!probeUnchanged.isValid()) {
-                    CompilerDirectives.transferToInterpreter();
-                }
                 next.internalLeave(astNode, frame, result);
             }
         }
 
         public void leave(Node astNode, VirtualFrame frame, byte result) {
+            checkProbeUnchanged();
             if (next != null) {
-                if (!probeUnchanged.isValid()) {
-                    CompilerDirectives.transferToInterpreter();
-                }
                 next.internalLeave(astNode, frame, result);
             }
         }
 
         public void leave(Node astNode, VirtualFrame frame, short result) {
+            checkProbeUnchanged();
             if (next != null) {
-                if (!probeUnchanged.isValid()) {
-                    CompilerDirectives.transferToInterpreter();
-                }
                 next.internalLeave(astNode, frame, result);
             }
         }
 
         public void leave(Node astNode, VirtualFrame frame, int result) {
+            checkProbeUnchanged();
             if (next != null) {
-                if (!probeUnchanged.isValid()) {
-                    CompilerDirectives.transferToInterpreter();
-                }
                 next.internalLeave(astNode, frame, result);
             }
         }
 
         public void leave(Node astNode, VirtualFrame frame, long result) {
+            checkProbeUnchanged();
             if (next != null) {
-                if (!probeUnchanged.isValid()) {
-                    CompilerDirectives.transferToInterpreter();
-                }
                 next.internalLeave(astNode, frame, result);
             }
         }
 
         public void leave(Node astNode, VirtualFrame frame, char result) {
+            checkProbeUnchanged();
             if (next != null) {
-                if (!probeUnchanged.isValid()) {
-                    CompilerDirectives.transferToInterpreter();
-                }
                 next.internalLeave(astNode, frame, result);
             }
         }
 
         public void leave(Node astNode, VirtualFrame frame, float result) {
+            checkProbeUnchanged();
             if (next != null) {
-                if (!probeUnchanged.isValid()) {
-                    CompilerDirectives.transferToInterpreter();
-                }
                 next.internalLeave(astNode, frame, result);
             }
         }
 
         public void leave(Node astNode, VirtualFrame frame, double result) {
+            checkProbeUnchanged();
             if (next != null) {
-                if (!probeUnchanged.isValid()) {
-                    CompilerDirectives.transferToInterpreter();
-                }
                 next.internalLeave(astNode, frame, result);
             }
         }
 
         public void leave(Node astNode, VirtualFrame frame, Object result) {
+            checkProbeUnchanged();
             if (next != null) {
-                if (!probeUnchanged.isValid()) {
-                    CompilerDirectives.transferToInterpreter();
-                }
                 next.internalLeave(astNode, frame, result);
             }
         }
 
         public void leaveExceptional(Node astNode, VirtualFrame frame, Exception e) {
+            checkProbeUnchanged();
             if (next != null) {
-                if (!probeUnchanged.isValid()) {
-                    CompilerDirectives.transferToInterpreter();
-                }
                 next.internalLeaveExceptional(astNode, frame, e);
             }
         }
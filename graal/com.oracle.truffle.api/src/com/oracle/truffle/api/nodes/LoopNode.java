@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.api.nodes;
+
+import com.oracle.truffle.api.frame.*;
+
+/**
+ * Runs a {@link RepeatingNode} until it reports that the loop is done. Guest languages create loop
+ * nodes with {@link com.oracle.truffle.api.TruffleRuntime#createLoopNode(RepeatingNode)}, which
+ * allows the runtime to count loop iterations for its compilation decisions and to replace a long
+ * running loop with compiled code while it is being executed (on-stack replacement).
+ *
+ * Please note: This class is not intended to be sub classed by guest language implementations.
+ */
+public abstract class LoopNode extends Node {
+
+    @Child protected Node repeatingNode;
+
+    public LoopNode(RepeatingNode repeatingNode) {
+        this.repeatingNode = (Node) repeatingNode;
+    }
+
+    /**
+     * Executes the loop until {@link RepeatingNode#executeRepeating(VirtualFrame)} returns
+     * {@code false}.
+     *
+     * @param frame the frame of the method containing the loop
+     */
+    public abstract void executeLoop(VirtualFrame frame);
+
+    public final RepeatingNode getRepeatingNode() {
+        return (RepeatingNode) repeatingNode;
+    }
+}
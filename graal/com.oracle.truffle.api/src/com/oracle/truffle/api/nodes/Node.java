@@ -29,6 +29,7 @@ import java.util.*;
 import java.util.concurrent.*;
 
 import com.oracle.truffle.api.*;
+import com.oracle.truffle.api.frame.*;
 import com.oracle.truffle.api.source.*;
 import com.oracle.truffle.api.utilities.*;
 
@@ -184,7 +185,7 @@ public abstract class Node implements Cloneable {
     private void adoptHelper() {
         Iterable<Node> children = this.getChildren();
         for (Node child : children) {
-            if (child != null && child.getParent() != this) {
+            if (child != null && child.getParent() != this && !(TruffleOptions.LazySplitting && NodeUtil.isSplitShared(child))) {
                 this.adoptHelper(child);
             }
         }
@@ -270,6 +271,10 @@ public abstract class Node implements Cloneable {
             // Pass on the source section to the new node.
             newNode.assignSourceSection(sourceSection);
         }
+        if (TruffleOptions.LazySplitting && NodeUtil.isSplitShared(this)) {
+            replaceShared(newNode, reason);
+            return;
+        }
         // (aw) need to set parent *before* replace, so that (unsynchronized) getRootNode()
         // will always find the root node
         newNode.parent = this.parent;
@@ -282,6 +287,56 @@ public abstract class Node implements Cloneable {
         onReplace(newNode, reason);
     }
 
+    /**
+     * Replaces this node, which is shared with a {@linkplain NodeUtil#splitNode split template}, in
+     * the AST that is currently executing it. The shared nodes on the path from that AST to this node
+     * are copied first, so the template and the other ASTs sharing it are not changed.
+     *
+     * @throws IllegalStateException if this node is not reachable from an executing AST
+     */
+    private void replaceShared(Node newNode, CharSequence reason) {
+        List<Node> path = findExecutingPath();
+        if (path == null) {
+            throw new IllegalStateException("This node cannot be replaced, because it is shared with a split template and not part of an executing AST.");
+        }
+        Node owner = path.get(0);
+        for (int i = 1; i < path.size() - 1; i++) {
+            Node node = path.get(i);
+            if (node.parent != owner) {
+                Node copy = NodeUtil.copyShallow(node);
+                copy.parent = owner;
+                NodeUtil.replaceChild(owner, node, copy);
+                node = copy;
+            }
+            owner = node;
+        }
+        newNode.parent = owner;
+        NodeUtil.replaceChild(owner, this, newNode);
+        owner.adoptHelper(newNode);
+        owner.reportReplace(this, newNode, reason);
+        onReplace(newNode, reason);
+    }
+
+    private List<Node> findExecutingPath() {
+        List<Node> path = findPathFrom(Truffle.getRuntime().getCurrentFrame());
+        if (path == null) {
+            // the node may belong to a caller, e.g. a loop body executed by on-stack replacement
+            path = Truffle.getRuntime().iterateFrames(new FrameInstanceVisitor<List<Node>>() {
+                public List<Node> visitFrame(FrameInstance frameInstance) {
+                    return findPathFrom(frameInstance);
+                }
+            });
+        }
+        return path;
+    }
+
+    private List<Node> findPathFrom(FrameInstance frameInstance) {
+        if (frameInstance != null && frameInstance.getCallTarget() instanceof RootCallTarget) {
+            return NodeUtil.findPath(((RootCallTarget) frameInstance.getCallTarget()).getRootNode(), this);
+        }
+        return null;
+    }
+
     /**
      * Checks if this node is properly adopted by a parent and can be replaced.
      *
@@ -299,18 +354,24 @@ public abstract class Node implements Cloneable {
     }
 
     private void reportReplace(Node oldNode, Node newNode, CharSequence reason) {
-        RootNode rootNode = getRootNode();
-        if (rootNode != null) {
-            CallTarget target = rootNode.getCallTarget();
-            if (target instanceof ReplaceObserver) {
-                ((ReplaceObserver) target).nodeReplaced(oldNode, newNode, reason);
+        Node node = this;
+        while (node != null) {
+            if (node instanceof ReplaceObserver) {
+                ((ReplaceObserver) node).nodeReplaced(oldNode, newNode, reason);
+            }
+            if (node instanceof RootNode) {
+                CallTarget target = ((RootNode) node).getCallTarget();
+                if (target instanceof ReplaceObserver) {
+                    ((ReplaceObserver) target).nodeReplaced(oldNode, newNode, reason);
+                }
             }
+            node = node.getParent();
         }
         if (TruffleOptions.TraceRewrites) {
-            NodeUtil.traceRewrite(this, newNode, reason);
+            NodeUtil.traceRewrite(oldNode, newNode, reason);
         }
         if (TruffleOptions.TraceASTJSON) {
-            JSONHelper.dumpReplaceChild(this, newNode, reason);
+            JSONHelper.dumpReplaceChild(oldNode, newNode, reason);
         }
     }
 
@@ -32,9 +32,11 @@ import java.util.*;
 import sun.misc.*;
 
 import com.oracle.truffle.api.*;
+import com.oracle.truffle.api.frame.*;
 import com.oracle.truffle.api.nodes.Node.Child;
 import com.oracle.truffle.api.nodes.Node.Children;
 import com.oracle.truffle.api.source.*;
+import com.oracle.truffle.api.utilities.*;
 
 /**
  * Utility class that manages the special access methods for node instances.
@@ -172,6 +174,9 @@ public final class NodeUtil {
         private final long parentOffset;
         private final long[] childOffsets;
         private final long[] childrenOffsets;
+        private final long[] branchProfileOffsets;
+        // Whether a subclass of Node declares a non-final data field.
+        private final boolean mutableData;
         private final Class<? extends Node> clazz;
 
         public static NodeClass get(Class<? extends Node> clazz) {
@@ -183,6 +188,8 @@ public final class NodeUtil {
             List<Long> parentOffsetsList = new ArrayList<>();
             List<Long> childOffsetsList = new ArrayList<>();
             List<Long> childrenOffsetsList = new ArrayList<>();
+            List<Long> branchProfileOffsetsList = new ArrayList<>();
+            boolean hasMutableData = false;
 
             for (Field field : getAllFields(clazz)) {
                 if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic()) {
@@ -203,6 +210,12 @@ public final class NodeUtil {
                     assert Modifier.isFinal(field.getModifiers()) : "children array field must be final (\"" + field.getName() + "\", " + clazz + ")";
                 } else {
                     kind = NodeFieldKind.DATA;
+                    if (field.getDeclaringClass() != Node.class) {
+                        hasMutableData |= !Modifier.isFinal(field.getModifiers());
+                        if (field.getType() == BranchProfile.class) {
+                            branchProfileOffsetsList.add(fieldOffsetProvider.objectFieldOffset(field));
+                        }
+                    }
                 }
                 fieldsList.add(new NodeField(kind, field.getType(), field.getName(), fieldOffsetProvider.objectFieldOffset(field)));
             }
@@ -211,6 +224,8 @@ public final class NodeUtil {
             this.parentOffset = parentOffsetsList.get(0);
             this.childOffsets = toLongArray(childOffsetsList);
             this.childrenOffsets = toLongArray(childrenOffsetsList);
+            this.branchProfileOffsets = toLongArray(branchProfileOffsetsList);
+            this.mutableData = hasMutableData;
             this.clazz = clazz;
         }
 
@@ -372,6 +387,162 @@ public final class NodeUtil {
         return (T) clone;
     }
 
+    /**
+     * Parent of the root of a split template. The nodes below it are shared between the ASTs split
+     * from the template, see {@link #splitNode}.
+     */
+    private static final RootNode SPLIT_TEMPLATE = new RootNode() {
+
+        @Override
+        public Object execute(VirtualFrame frame) {
+            throw new IllegalStateException("A split template cannot be executed.");
+        }
+    };
+
+    /**
+     * Creates a copy of a template AST for a split call target. The template is the body of a root
+     * node, not a {@link RootNode} itself, and must never be executed. If {@link TruffleOptions#LazySplitting} is enabled, only nodes with runtime state of
+     * their own (call and loop nodes, and nodes with non-final fields or {@link BranchProfile}s) and
+     * their ancestors are copied, and all other subtrees are shared with the template. A shared node
+     * is copied, together with its shared ancestors, when it is about to be rewritten. Otherwise the
+     * template is {@linkplain #cloneNode cloned}.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends Node> T splitNode(T template) {
+        if (!TruffleOptions.LazySplitting) {
+            return cloneNode(template);
+        }
+        assert !(template instanceof RootNode) : "split template must not be a root node";
+        NodeClass nodeClass = NodeClass.get(template.getClass());
+        if (template.getParent() == null) {
+            unsafe.putObject(template, nodeClass.parentOffset, SPLIT_TEMPLATE);
+            template.adoptChildren();
+        }
+        Node split = copyUnsharable(template);
+        if (split == template) {
+            split = copyShallow(template);
+        }
+        unsafe.putObject(split, nodeClass.parentOffset, null);
+        return (T) split;
+    }
+
+    /**
+     * Determines if a node is part of a split template and therefore potentially shared between
+     * several ASTs.
+     */
+    public static boolean isSplitShared(Node node) {
+        return node.getRootNode() == SPLIT_TEMPLATE;
+    }
+
+    private static boolean isSharable(Node node) {
+        if (node instanceof DirectCallNode || node instanceof IndirectCallNode || node instanceof LoopNode || node instanceof ReplaceObserver) {
+            return false;
+        }
+        NodeClass nodeClass = NodeClass.get(node.getClass());
+        return !nodeClass.mutableData && nodeClass.branchProfileOffsets.length == 0;
+    }
+
+    /**
+     * Returns a copy of {@code orig} if it or one of its descendants is not
+     * {@linkplain #isSharable sharable}, and {@code orig} itself otherwise. Only the nodes that are
+     * not sharable and their ancestors are copied.
+     */
+    private static Node copyUnsharable(Node orig) {
+        NodeClass nodeClass = NodeClass.get(orig.getClass());
+        Node copy = isSharable(orig) ? null : copyShallow(orig);
+
+        for (long fieldOffset : nodeClass.childOffsets) {
+            Node child = (Node) unsafe.getObject(orig, fieldOffset);
+            if (child != null) {
+                Node splitChild = copyUnsharable(child);
+                if (splitChild != child) {
+                    if (copy == null) {
+                        copy = copyShallow(orig);
+                    }
+                    unsafe.putObject(splitChild, nodeClass.parentOffset, copy);
+                    unsafe.putObject(copy, fieldOffset, splitChild);
+                }
+            }
+        }
+        for (long fieldOffset : nodeClass.childrenOffsets) {
+            Node[] children = (Node[]) unsafe.getObject(orig, fieldOffset);
+            if (children != null) {
+                for (int i = 0; i < children.length; i++) {
+                    if (children[i] != null) {
+                        Node splitChild = copyUnsharable(children[i]);
+                        if (splitChild != children[i]) {
+                            if (copy == null) {
+                                copy = copyShallow(orig);
+                            }
+                            unsafe.putObject(splitChild, nodeClass.parentOffset, copy);
+                            ((Node[]) unsafe.getObject(copy, fieldOffset))[i] = splitChild;
+                        }
+                    }
+                }
+            }
+        }
+        return copy == null ? orig : copy;
+    }
+
+    /**
+     * Copies a node without its children. The copy refers to the same children as the original, but
+     * owns its own children arrays and {@link BranchProfile}s.
+     */
+    static Node copyShallow(Node orig) {
+        Node copy = orig.copy();
+        NodeClass nodeClass = NodeClass.get(copy.getClass());
+        unsafe.putObject(copy, nodeClass.parentOffset, null);
+        for (long fieldOffset : nodeClass.branchProfileOffsets) {
+            if (unsafe.getObject(orig, fieldOffset) != null) {
+                unsafe.putObject(copy, fieldOffset, new BranchProfile());
+            }
+        }
+        for (long fieldOffset : nodeClass.childrenOffsets) {
+            Node[] children = (Node[]) unsafe.getObject(orig, fieldOffset);
+            if (children != null) {
+                unsafe.putObject(copy, fieldOffset, children.clone());
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Finds the nodes on the path from {@code root} to {@code node}, including both, by following
+     * child references. Returns {@code null} if {@code node} is not reachable from {@code root}.
+     * Only the nodes owned by the AST of {@code root} and the split template ancestors of
+     * {@code node} are visited, the other shared subtrees are skipped.
+     */
+    static List<Node> findPath(Node root, Node node) {
+        Set<Node> ancestors = Collections.newSetFromMap(new IdentityHashMap<Node, Boolean>());
+        for (Node current = node; current != null && current != SPLIT_TEMPLATE; current = current.getParent()) {
+            ancestors.add(current);
+        }
+        List<Node> path = new ArrayList<>();
+        if (findPathHelper(root, node, ancestors, path)) {
+            Collections.reverse(path);
+            return path;
+        }
+        return null;
+    }
+
+    private static boolean findPathHelper(Node current, Node node, Set<Node> ancestors, List<Node> path) {
+        if (ancestors.contains(current)) {
+            // the rest of the path is the parent chain of node
+            for (Node ancestor = node; ancestor != current; ancestor = ancestor.getParent()) {
+                path.add(ancestor);
+            }
+            path.add(current);
+            return true;
+        }
+        for (Node child : current.getChildren()) {
+            if (child != null && (child.getParent() == current || ancestors.contains(child)) && findPathHelper(child, node, ancestors, path)) {
+                path.add(current);
+                return true;
+            }
+        }
+        return false;
+    }
+
     public static List<Node> findNodeChildren(Node node) {
         List<Node> nodes = new ArrayList<>();
         NodeClass nodeClass = NodeClass.get(node.getClass());
@@ -852,7 +1023,7 @@ public final class NodeUtil {
         Iterable<Node> children = root.getChildren();
         for (Node child : children) {
             if (child != null) {
-                if (child.getParent() != root) {
+                if (child.getParent() != root && !isSplitShared(child)) {
                     throw new AssertionError(toStringWithClass(child) + ": actual parent=" + toStringWithClass(child.getParent()) + " expected parent=" + toStringWithClass(root));
                 }
                 verify(child);
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.api.nodes;
+
+import com.oracle.truffle.api.frame.*;
+
+/**
+ * The body of a guest language loop. A {@link RepeatingNode} is executed by a {@link LoopNode} until
+ * {@link #executeRepeating(VirtualFrame)} returns {@code false}. Implementations must be subclasses
+ * of {@link Node}.
+ *
+ * @see LoopNode
+ * @see com.oracle.truffle.api.TruffleRuntime#createLoopNode(RepeatingNode)
+ */
+public interface RepeatingNode {
+
+    /**
+     * Executes one iteration of the loop, including the evaluation of the loop condition.
+     *
+     * @param frame the frame of the method containing the loop
+     * @return {@code true} if the loop should continue with another iteration, {@code false} if
+     *         the loop is done
+     */
+    boolean executeRepeating(VirtualFrame frame);
+}
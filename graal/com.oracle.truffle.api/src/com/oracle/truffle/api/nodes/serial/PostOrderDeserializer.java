@@ -25,6 +25,7 @@
 package com.oracle.truffle.api.nodes.serial;
 
 import java.lang.reflect.*;
+import java.nio.*;
 import java.util.*;
 
 import sun.misc.*;
@@ -43,6 +44,7 @@ public final class PostOrderDeserializer {
     private static final Unsafe unsafe = loadUnsafe();
 
     private final SerializerConstantPool cp;
+    private final boolean deserializeSourceSections;
 
     private final HierarchicalStack stack = new HierarchicalStack();
 
@@ -56,7 +58,16 @@ public final class PostOrderDeserializer {
      * </ul>
      */
     public PostOrderDeserializer(SerializerConstantPool cp) {
+        this(cp, false);
+    }
+
+    /**
+     * Constructs a new deserializer for data written by a {@link PostOrderSerializer} that was
+     * created with the same {@code deserializeSourceSections} value.
+     */
+    public PostOrderDeserializer(SerializerConstantPool cp, boolean deserializeSourceSections) {
         this.cp = cp;
+        this.deserializeSourceSections = deserializeSourceSections;
     }
 
     /**
@@ -70,10 +81,22 @@ public final class PostOrderDeserializer {
      * @throws UnsupportedConstantPoolTypeException thrown if a type is encountered that is not
      *             supported by the constant pool implementation.
      */
-    @SuppressWarnings("unchecked")
     public <T extends Node> T deserialize(byte[] bytes, Class<T> expectedType) throws UnsupportedConstantPoolTypeException {
-        VariableLengthIntBuffer buffer = new VariableLengthIntBuffer(bytes);
+        return deserialize(new VariableLengthIntBuffer(bytes), expectedType);
+    }
 
+    /**
+     * Deserializes the remaining bytes of a buffer, for example a slice of a memory-mapped file, and
+     * returns the deserialized Truffle AST node.
+     *
+     * @see #deserialize(byte[], Class)
+     */
+    public <T extends Node> T deserialize(ByteBuffer bytes, Class<T> expectedType) throws UnsupportedConstantPoolTypeException {
+        return deserialize(new VariableLengthIntBuffer(bytes), expectedType);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Node> T deserialize(VariableLengthIntBuffer buffer, Class<T> expectedType) throws UnsupportedConstantPoolTypeException {
         while (buffer.hasRemaining()) {
             int classCPI = buffer.get();
             if (classCPI == VariableLengthIntBuffer.NULL) {
@@ -163,9 +186,7 @@ public final class PostOrderDeserializer {
                 Class<?> fieldClass = field.getType();
                 long offset = field.getOffset();
 
-                // source sections are not serialized
-                // TODO add support for source sections
-                if (field.getType().isAssignableFrom(SourceSection.class)) {
+                if (SourceSection.class.isAssignableFrom(fieldClass) && !deserializeSourceSections) {
                     continue;
                 }
 
@@ -212,6 +233,8 @@ public final class PostOrderDeserializer {
             unsafe.putObject(nodeInstance, offset, (char) cp.getInt(cpi));
         } else if (fieldClass == Boolean.class) {
             unsafe.putObject(nodeInstance, offset, cp.getInt(cpi) == 1 ? Boolean.TRUE : Boolean.FALSE);
+        } else if (SourceSection.class.isAssignableFrom(fieldClass)) {
+            unsafe.putObject(nodeInstance, offset, cp.getObject(SourceSection.class, cpi));
         } else {
             unsafe.putObject(nodeInstance, offset, cp.getObject(fieldClass, cpi));
         }
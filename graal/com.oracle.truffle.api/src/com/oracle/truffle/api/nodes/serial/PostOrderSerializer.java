@@ -43,6 +43,7 @@ public final class PostOrderSerializer {
     private static final Unsafe unsafe = loadUnsafe();
 
     private final SerializerConstantPool cp;
+    private final boolean serializeSourceSections;
 
     /**
      * Constructs a new deserializer using a custom {@link SerializerConstantPool} implementation.
@@ -54,7 +55,18 @@ public final class PostOrderSerializer {
      * </ul>
      */
     public PostOrderSerializer(SerializerConstantPool cp) {
+        this(cp, false);
+    }
+
+    /**
+     * Constructs a new serializer that optionally also serializes the {@link SourceSection}s of the
+     * nodes. Source sections are stored with
+     * {@link SerializerConstantPool#putObject(Class, Object)} using {@link SourceSection} as the
+     * class, so the constant pool implementation must support them.
+     */
+    public PostOrderSerializer(SerializerConstantPool cp, boolean serializeSourceSections) {
         this.cp = cp;
+        this.serializeSourceSections = serializeSourceSections;
     }
 
     /**
@@ -94,11 +106,13 @@ public final class PostOrderSerializer {
                 long offset = field.getOffset();
                 int cpi;
 
-                if (field.getType().isAssignableFrom(SourceSection.class)) {
-                    continue;
-                }
-
-                if (fieldClass == int.class) {
+                if (SourceSection.class.isAssignableFrom(fieldClass)) {
+                    if (!serializeSourceSections) {
+                        continue;
+                    }
+                    Object section = unsafe.getObject(node, offset);
+                    cpi = section == null ? VariableLengthIntBuffer.NULL : cp.putObject(SourceSection.class, section);
+                } else if (fieldClass == int.class) {
                     cpi = cp.putInt(unsafe.getInt(node, offset));
                 } else if (fieldClass == long.class) {
                     cpi = cp.putLong(unsafe.getLong(node, offset));
@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.api.object;
+
+import java.lang.reflect.*;
+import java.util.*;
+
+import sun.misc.*;
+
+import com.oracle.truffle.api.*;
+import com.oracle.truffle.api.CompilerDirectives.SlowPath;
+
+/**
+ * An object whose properties are described by a {@link Shape}. The values of the first properties
+ * are stored in fields of the object, primitive values unboxed; further values are stored in
+ * extension arrays that grow as properties are added.
+ * <p>
+ * The methods {@link #get(Object, Object)} and {@link #set(Object, Object)} look up the property in
+ * the shape and are meant for the slow path. Nodes that access properties in compiled code cache
+ * the {@link #getShape() shape} and the {@link Location} of the property instead.
+ */
+public class DynamicObject {
+
+    private static final Unsafe unsafe = getUnsafe();
+
+    private static final int PRIMITIVE_FIELD_COUNT = 3;
+    private static final int OBJECT_FIELD_COUNT = 3;
+
+    static final long[] PRIMITIVE_FIELD_OFFSETS = fieldOffsets("primitive", PRIMITIVE_FIELD_COUNT);
+    static final long[] OBJECT_FIELD_OFFSETS = fieldOffsets("object", OBJECT_FIELD_COUNT);
+
+    private Shape shape;
+
+    @SuppressWarnings("unused") private long primitive0;
+    @SuppressWarnings("unused") private long primitive1;
+    @SuppressWarnings("unused") private long primitive2;
+    @SuppressWarnings("unused") private Object object0;
+    @SuppressWarnings("unused") private Object object1;
+    @SuppressWarnings("unused") private Object object2;
+
+    private long[] primitiveStore;
+    private Object[] objectStore;
+
+    public DynamicObject(Shape shape) {
+        this.shape = shape;
+        growStores(shape);
+    }
+
+    public final Shape getShape() {
+        return shape;
+    }
+
+    final long getPrimitive(Location location, boolean condition) {
+        if (location.offset >= 0) {
+            return CompilerDirectives.unsafeGetLong(this, location.offset, condition, location);
+        } else {
+            return primitiveStore[location.index];
+        }
+    }
+
+    final void setPrimitive(Location location, long value) {
+        if (location.offset >= 0) {
+            CompilerDirectives.unsafePutLong(this, location.offset, value, location);
+        } else {
+            primitiveStore[location.index] = value;
+        }
+    }
+
+    final Object getObject(Location location, boolean condition) {
+        if (location.offset >= 0) {
+            return CompilerDirectives.unsafeGetObject(this, location.offset, condition, location);
+        } else {
+            return objectStore[location.index];
+        }
+    }
+
+    final void setObject(Location location, Object value) {
+        if (location.offset >= 0) {
+            CompilerDirectives.unsafePutObject(this, location.offset, value, location);
+        } else {
+            objectStore[location.index] = value;
+        }
+    }
+
+    /**
+     * Changes the shape of this object to a shape that was created by adding properties to the
+     * current shape. The caller stores the values of the new properties afterwards.
+     */
+    public final void setShapeAndGrow(Shape oldShape, Shape newShape) {
+        assert shape == oldShape;
+        growStores(newShape);
+        shape = newShape;
+    }
+
+    private void growStores(Shape newShape) {
+        int primitiveCount = newShape.getPrimitiveFieldCount() - PRIMITIVE_FIELD_COUNT;
+        if (primitiveCount > 0 && (primitiveStore == null || primitiveStore.length < primitiveCount)) {
+            primitiveStore = primitiveStore == null ? new long[primitiveCount] : Arrays.copyOf(primitiveStore, primitiveCount);
+        }
+        int objectCount = newShape.getObjectFieldCount() - OBJECT_FIELD_COUNT;
+        if (objectCount > 0 && (objectStore == null || objectStore.length < objectCount)) {
+            objectStore = objectStore == null ? new Object[objectCount] : Arrays.copyOf(objectStore, objectCount);
+        }
+    }
+
+    /**
+     * Returns the value of the property with the given key, or the default value if the object does
+     * not have that property.
+     */
+    @SlowPath
+    public final Object get(Object key, Object defaultValue) {
+        Property property = shape.getProperty(key);
+        if (property == null) {
+            return defaultValue;
+        }
+        return property.getLocation().get(this, true);
+    }
+
+    /**
+     * Sets the value of a property, adding the property if the object does not have it yet. If the
+     * current location of the property cannot hold the value, the property is generalized.
+     */
+    @SlowPath
+    public final void set(Object key, Object value) {
+        updateShape();
+        Property property = shape.getProperty(key);
+        if (property == null) {
+            Shape newShape = shape.addProperty(key, value);
+            setShapeAndGrow(shape, newShape);
+            newShape.getLastProperty().getLocation().set(this, value);
+        } else if (property.getLocation().canStore(value)) {
+            property.getLocation().set(this, value);
+        } else {
+            shape.generalizeProperty(property);
+            updateShape();
+            shape.getProperty(key).getLocation().set(this, value);
+        }
+    }
+
+    /**
+     * Migrates this object to the {@link Shape#getValidShape() valid shape} if its shape has become
+     * invalid.
+     *
+     * @return true if the shape of the object was changed
+     */
+    @SlowPath
+    public final boolean updateShape() {
+        if (shape.isValid()) {
+            return false;
+        }
+        Shape oldShape = shape;
+        Shape newShape = oldShape.getValidShape();
+        Collection<Property> properties = oldShape.getProperties();
+        Object[] values = new Object[properties.size()];
+        int i = 0;
+        for (Property property : properties) {
+            values[i++] = property.getLocation().get(this, true);
+        }
+        for (int j = 0; j < OBJECT_FIELD_COUNT; j++) {
+            unsafe.putObject(this, OBJECT_FIELD_OFFSETS[j], null);
+        }
+        if (objectStore != null) {
+            Arrays.fill(objectStore, null);
+        }
+        growStores(newShape);
+        shape = newShape;
+        i = 0;
+        for (Property property : newShape.getProperties()) {
+            property.getLocation().set(this, values[i++]);
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        String sep = "";
+        for (Property property : shape.getProperties()) {
+            Object value = property.getLocation().get(this, true);
+            sb.append(sep).append(property.getKey()).append(": ").append(value instanceof DynamicObject ? "{...}" : value);
+            sep = ", ";
+        }
+        return sb.append("}").toString();
+    }
+
+    private static long[] fieldOffsets(String prefix, int count) {
+        long[] offsets = new long[count];
+        for (int i = 0; i < count; i++) {
+            try {
+                offsets[i] = unsafe.objectFieldOffset(DynamicObject.class.getDeclaredField(prefix + i));
+            } catch (NoSuchFieldException e) {
+                throw new AssertionError(e);
+            }
+        }
+        return offsets;
+    }
+
+
+    private static Unsafe getUnsafe() {
+        try {
+            return Unsafe.getUnsafe();
+        } catch (SecurityException e) {
+        }
+        try {
+            Field theUnsafeInstance = Unsafe.class.getDeclaredField("theUnsafe");
+            theUnsafeInstance.setAccessible(true);
+            return (Unsafe) theUnsafeInstance.get(Unsafe.class);
+        } catch (Exception e) {
+            throw new RuntimeException("exception while trying to get Unsafe.theUnsafe via reflection:", e);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.api.object;
+
+/**
+ * The place where the value of a {@link Property} is stored in a {@link DynamicObject}. A location
+ * belongs to a {@link Shape} and is the same for all objects of that shape, so a node that caches
+ * the shape of an object can also cache the location and access the value without a lookup.
+ * <p>
+ * The first few values of an object are stored in fields of the {@link DynamicObject}, the others
+ * in extension arrays. Primitive values are stored unboxed by the {@link LongLocation},
+ * {@link DoubleLocation} and {@link BooleanLocation}; all other values use an
+ * {@link ObjectLocation}.
+ */
+public abstract class Location {
+
+    /** The offset of the field that holds the value, or -1 if it is in an extension array. */
+    final long offset;
+    /** The index in the extension array, if the value is not stored in a field. */
+    final int index;
+
+    Location(int storageIndex, long[] fieldOffsets) {
+        if (storageIndex < fieldOffsets.length) {
+            this.offset = fieldOffsets[storageIndex];
+            this.index = -1;
+        } else {
+            this.offset = -1;
+            this.index = storageIndex - fieldOffsets.length;
+        }
+    }
+
+    /**
+     * Returns the value stored at this location.
+     *
+     * @param object an object whose shape contains this location
+     * @param condition the condition that guarantees that the shape of the object contains this
+     *            location, usually the result of the shape check. The compiler may move the access
+     *            up to that check.
+     */
+    public abstract Object get(DynamicObject object, boolean condition);
+
+    /**
+     * Stores a value at this location. The shape of the object must contain this location, and the
+     * location must {@link #canStore(Object) accept} the value.
+     */
+    public abstract void set(DynamicObject object, Object value);
+
+    /**
+     * Returns true if the value can be stored at this location without changing the shape of the
+     * object.
+     */
+    public abstract boolean canStore(Object value);
+
+    abstract boolean isPrimitive();
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + (offset >= 0 ? "(field)" : "(" + index + ")");
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.api.object;
+
+import java.util.*;
+
+import com.oracle.truffle.api.*;
+
+/**
+ * The layout of a {@link DynamicObject}: its properties, in the order in which they were added, and
+ * the {@link Location locations} of their values. Shapes are immutable and shared by all objects
+ * that got the same properties in the same order. Adding a property to an object changes its shape
+ * to a child shape, which is cached as a transition, so a node can cache the shape of the objects
+ * it sees and access their properties with a shape check and a load.
+ * <p>
+ * A property whose location cannot hold a new value, for example a {@link LongLocation} that is
+ * assigned a string, is generalized to an {@link ObjectLocation}. This invalidates the
+ * {@link #getValidAssumption() assumption} of the shape that added the property and of all shapes
+ * derived from it. Objects with an invalid shape are migrated to the equivalent valid shape the
+ * next time they are accessed on a slow path, see {@link DynamicObject#updateShape()}.
+ */
+public final class Shape {
+
+    private final Shape root;
+    private final Shape parent;
+    private final Property lastProperty;
+    private final Map<Object, Property> properties;
+    private final int primitiveFieldCount;
+    private final int objectFieldCount;
+    private final Assumption validAssumption;
+
+    /** The child shapes, guarded by the lock of the {@link #root} shape. */
+    private final Map<Transition, Shape> transitions = new HashMap<>();
+
+    /**
+     * Creates a new shape without properties. All shapes derived from it form one shape tree.
+     */
+    public static Shape createRootShape() {
+        return new Shape(null, null);
+    }
+
+    private Shape(Shape parent, Property lastProperty) {
+        this.parent = parent;
+        this.lastProperty = lastProperty;
+        this.validAssumption = Truffle.getRuntime().createAssumption("valid shape");
+        if (parent == null) {
+            this.root = this;
+            this.properties = Collections.emptyMap();
+            this.primitiveFieldCount = 0;
+            this.objectFieldCount = 0;
+        } else {
+            this.root = parent.root;
+            Map<Object, Property> map = new LinkedHashMap<>(parent.properties);
+            map.put(lastProperty.getKey(), lastProperty);
+            this.properties = Collections.unmodifiableMap(map);
+            boolean primitive = lastProperty.getLocation().isPrimitive();
+            this.primitiveFieldCount = parent.primitiveFieldCount + (primitive ? 1 : 0);
+            this.objectFieldCount = parent.objectFieldCount + (primitive ? 0 : 1);
+        }
+    }
+
+    public Shape getRoot() {
+        return root;
+    }
+
+    /**
+     * Returns the shape this shape was derived from, or null for a root shape.
+     */
+    public Shape getParent() {
+        return parent;
+    }
+
+    /**
+     * Returns the property that was added to the {@link #getParent() parent} to create this shape.
+     */
+    public Property getLastProperty() {
+        return lastProperty;
+    }
+
+    /**
+     * Returns the property with the given key, or null if the shape does not have it.
+     */
+    public Property getProperty(Object key) {
+        return properties.get(key);
+    }
+
+    /**
+     * Returns the properties of this shape in the order in which they were added.
+     */
+    public Collection<Property> getProperties() {
+        return properties.values();
+    }
+
+    public int getPropertyCount() {
+        return properties.size();
+    }
+
+    int getPrimitiveFieldCount() {
+        return primitiveFieldCount;
+    }
+
+    int getObjectFieldCount() {
+        return objectFieldCount;
+    }
+
+    /**
+     * Returns the assumption that this shape is still valid. Nodes that cache a shape check it, so
+     * that their compiled code is invalidated when the shape becomes obsolete.
+     */
+    public Assumption getValidAssumption() {
+        return validAssumption;
+    }
+
+    public boolean isValid() {
+        return validAssumption.isValid();
+    }
+
+    /**
+     * Returns the shape that results from adding a property with the given key to this shape. The
+     * location of the new property is chosen based on the type of the initial value.
+     */
+    public Shape addProperty(Object key, Object initialValue) {
+        return addProperty(key, locationType(initialValue));
+    }
+
+    private Shape addProperty(Object key, Class<? extends Location> locationType) {
+        synchronized (root) {
+            assert !properties.containsKey(key);
+            Transition transition = new Transition(key, locationType);
+            Shape child = transitions.get(transition);
+            if (child == null) {
+                child = new Shape(this, new Property(key, createLocation(locationType)));
+                transitions.put(transition, child);
+            }
+            return child;
+        }
+    }
+
+    /**
+     * Returns the valid shape that has the same properties as this shape. This is the shape itself
+     * unless a property was generalized since the shape was created.
+     */
+    public Shape getValidShape() {
+        if (isValid()) {
+            return this;
+        }
+        synchronized (root) {
+            Shape shape = root;
+            for (Property property : properties.values()) {
+                shape = shape.addProperty(property.getKey(), property.getLocation().getClass());
+            }
+            return shape;
+        }
+    }
+
+    /**
+     * Changes the location of a property of this shape to an {@link ObjectLocation} and
+     * invalidates all shapes that contain the old location. Afterwards, {@link #getValidShape()}
+     * returns the generalized shape.
+     */
+    void generalizeProperty(Property property) {
+        synchronized (root) {
+            Shape owner = this;
+            while (owner.lastProperty != property) {
+                owner = owner.parent;
+            }
+            Shape generalized = owner.parent.addProperty(property.getKey(), ObjectLocation.class);
+            /* Objects that add the property later on get the generalized location right away. */
+            owner.parent.transitions.put(new Transition(property.getKey(), property.getLocation().getClass()), generalized);
+
+            List<Assumption> assumptions = new ArrayList<>();
+            owner.collectValidAssumptions(assumptions);
+            Truffle.getRuntime().invalidateAssumptions(assumptions.toArray(new Assumption[assumptions.size()]));
+        }
+    }
+
+    private void collectValidAssumptions(List<Assumption> assumptions) {
+        if (isValid()) {
+            assumptions.add(validAssumption);
+            for (Shape child : transitions.values()) {
+                child.collectValidAssumptions(assumptions);
+            }
+        }
+    }
+
+    private Location createLocation(Class<? extends Location> locationType) {
+        if (locationType == LongLocation.class) {
+            return new LongLocation(primitiveFieldCount);
+        } else if (locationType == DoubleLocation.class) {
+            return new DoubleLocation(primitiveFieldCount);
+        } else if (locationType == BooleanLocation.class) {
+            return new BooleanLocation(primitiveFieldCount);
+        } else {
+            return new ObjectLocation(objectFieldCount);
+        }
+    }
+
+    private static Class<? extends Location> locationType(Object value) {
+        if (value instanceof Long) {
+            return LongLocation.class;
+        } else if (value instanceof Double) {
+            return DoubleLocation.class;
+        } else if (value instanceof Boolean) {
+            return BooleanLocation.class;
+        } else {
+            return ObjectLocation.class;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Shape" + properties.values() + (isValid() ? "" : "(invalid)");
+    }
+
+    private static final class Transition {
+
+        private final Object key;
+        private final Class<? extends Location> locationType;
+
+        Transition(Object key, Class<? extends Location> locationType) {
+            this.key = key;
+            this.locationType = locationType;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof Transition) {
+                Transition other = (Transition) obj;
+                return key.equals(other.key) && locationType == other.locationType;
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode() * 31 + locationType.hashCode();
+        }
+    }
+}
@@ -27,7 +27,12 @@ package com.oracle.truffle.api.source;
 import java.io.*;
 import java.lang.ref.*;
 import java.net.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * Representation of a guest language source code unit and its contents. Sources originate in
@@ -43,6 +48,10 @@ import java.util.*;
  * See {@link Source#fromFileName(String)}<br>
  * See {@link Source#fromFileName(String, boolean)}</li>
  * <p>
+ * <li><strong>Mapped File:</strong> A file whose contents are <em>read lazily</em> through a
+ * memory-mapped buffer and <em>cached</em>; suited to very large sources. Indexed like files. <br>
+ * See {@link Source#fromMappedFile(String)}</li>
+ * <p>
  * <li><strong>URL:</strong> Each URL source is represented as a canonical object, indexed by the
  * URL. Contents are <em>read eagerly</em> and <em>cached</em>. <br>
  * See {@link Source#fromURL(URL, String)}</li>
@@ -66,6 +75,11 @@ import java.util.*;
  * <li>Any access to file contents via the cache will result in a timestamp check and possible cache
  * reload.</li>
  * </ol>
+ * <p>
+ * The map of lines that translates between character offsets and (line, column) positions is built
+ * incrementally, only as far into the text as the queries so far have required.
+ * <p>
+ * The factory methods may be called concurrently, e.g., by parsers running in several threads.
  */
 public abstract class Source {
 
@@ -73,9 +87,9 @@ public abstract class Source {
     // TOOD (mlvdv) connect SourceSections into a spatial tree for fast geometric lookup
 
     // Files and pseudo files are indexed.
-    private static final Map<String, WeakReference<Source>> filePathToSource = new HashMap<>();
+    private static final ConcurrentMap<String, WeakReference<Source>> filePathToSource = new ConcurrentHashMap<>();
 
-    private static boolean fileCacheEnabled = true;
+    private static volatile boolean fileCacheEnabled = true;
 
     /**
      * Gets the canonical representation of a source file, whose contents will be read lazily and
@@ -87,22 +101,7 @@ public abstract class Source {
      * @throws IOException if the file can not be read
      */
     public static Source fromFileName(String fileName, boolean reset) throws IOException {
-
-        final WeakReference<Source> nameRef = filePathToSource.get(fileName);
-        Source source = nameRef == null ? null : nameRef.get();
-        if (source == null) {
-            final File file = new File(fileName);
-            if (!file.canRead()) {
-                throw new IOException("Can't read file " + fileName);
-            }
-            final String path = file.getCanonicalPath();
-            final WeakReference<Source> pathRef = filePathToSource.get(path);
-            source = pathRef == null ? null : pathRef.get();
-            if (source == null) {
-                source = new FileSource(file, fileName, path);
-                filePathToSource.put(path, new WeakReference<>(source));
-            }
-        }
+        final Source source = lookupFile(fileName, false);
         if (reset) {
             source.reset();
         }
@@ -121,6 +120,62 @@ public abstract class Source {
         return fromFileName(fileName, false);
     }
 
+    /**
+     * Gets the canonical representation of a source file, whose contents will be read lazily
+     * through a memory-mapped buffer and then cached. The contents are decoded with the platform's
+     * default character set, like those of {@linkplain #fromFileName(String) file sources}. If the
+     * file is already represented by a source, that source is returned.
+     *
+     * @param fileName name
+     * @return canonical representation of the file's contents.
+     * @throws IOException if the file can not be read
+     */
+    public static Source fromMappedFile(String fileName) throws IOException {
+        return lookupFile(fileName, true);
+    }
+
+    private static Source lookupFile(String fileName, boolean mapped) throws IOException {
+        Source source = get(filePathToSource, fileName);
+        if (source == null) {
+            final File file = new File(fileName);
+            if (!file.canRead()) {
+                throw new IOException("Can't read file " + fileName);
+            }
+            final String path = file.getCanonicalPath();
+            source = get(filePathToSource, path);
+            if (source == null) {
+                source = intern(filePathToSource, path, mapped ? new MappedFileSource(file, fileName, path) : new FileSource(file, fileName, path));
+            }
+        }
+        return source;
+    }
+
+    private static <K, S> S get(ConcurrentMap<K, WeakReference<S>> map, K key) {
+        final WeakReference<S> ref = map.get(key);
+        return ref == null ? null : ref.get();
+    }
+
+    /**
+     * Registers a new source unless another thread registered a source for the same key first, in
+     * which case that one is returned.
+     */
+    private static <K, S> S intern(ConcurrentMap<K, WeakReference<S>> map, K key, S source) {
+        final WeakReference<S> newRef = new WeakReference<>(source);
+        while (true) {
+            final WeakReference<S> oldRef = map.putIfAbsent(key, newRef);
+            if (oldRef == null) {
+                return source;
+            }
+            final S oldSource = oldRef.get();
+            if (oldSource != null) {
+                return oldSource;
+            }
+            if (map.replace(key, oldRef, newRef)) {
+                return source;
+            }
+        }
+    }
+
     /**
      * Creates a non-canonical source from literal text.
      *
@@ -197,10 +252,17 @@ public abstract class Source {
     Source() {
     }
 
-    private TextMap textMap = null;
+    private volatile TextMap textMap = null;
 
     protected abstract void reset();
 
+    /**
+     * Discards the map of lines after the contents have changed.
+     */
+    final void clearTextMap() {
+        textMap = null;
+    }
+
     /**
      * Returns the name of this resource holding a guest language program. An example would be the
      * name of a guest language source code file.
@@ -249,9 +311,9 @@ public abstract class Source {
      * Gets the text (not including a possible terminating newline) in a (1-based) numbered line.
      */
     public final String getCode(int lineNumber) {
-        checkTextMap();
-        final int offset = textMap.lineStartOffset(lineNumber);
-        final int length = textMap.lineLength(lineNumber);
+        final TextMap map = checkTextMap();
+        final int offset = map.lineStartOffset(lineNumber);
+        final int length = map.lineLength(lineNumber);
         return getCode().substring(offset, offset + length);
     }
 
@@ -338,9 +400,9 @@ public abstract class Source {
      * @throws IllegalStateException if the source is one of the "null" instances
      */
     public final SourceSection createSection(String identifier, int startLine, int startColumn, int length) {
-        checkTextMap();
-        final int lineStartOffset = textMap.lineStartOffset(startLine);
-        if (startColumn > textMap.lineLength(startLine)) {
+        final TextMap map = checkTextMap();
+        final int lineStartOffset = map.lineStartOffset(startLine);
+        if (startColumn > map.lineLength(startLine)) {
             throw new IllegalArgumentException("column out of range");
         }
         final int startOffset = lineStartOffset + startColumn - 1;
@@ -371,9 +433,9 @@ public abstract class Source {
         if (!(charIndex >= 0 && length >= 0 && charIndex + length <= codeLength)) {
             throw new IllegalArgumentException("text positions out of range");
         }
-        checkTextMap();
-        final int startLine = getLineNumber(charIndex);
-        final int startColumn = charIndex - getLineStartOffset(startLine) + 1;
+        final TextMap map = checkTextMap();
+        final int startLine = map.offsetToLine(charIndex);
+        final int startColumn = charIndex - map.lineStartOffset(startLine) + 1;
 
         return new DefaultSourceSection(this, identifier, startLine, startColumn, charIndex, length);
     }
@@ -389,9 +451,9 @@ public abstract class Source {
      * @throws IllegalStateException if the source is one of the "null" instances
      */
     public final SourceSection createSection(String identifier, int lineNumber) {
-        checkTextMap();
-        final int charIndex = textMap.lineStartOffset(lineNumber);
-        final int length = textMap.lineLength(lineNumber);
+        final TextMap map = checkTextMap();
+        final int charIndex = map.lineStartOffset(lineNumber);
+        final int length = map.lineLength(lineNumber);
         return createSection(identifier, charIndex, length);
     }
 
@@ -407,14 +469,16 @@ public abstract class Source {
     }
 
     private TextMap checkTextMap() {
-        if (textMap == null) {
+        TextMap map = textMap;
+        if (map == null) {
             final String code = getCode();
             if (code == null) {
                 throw new RuntimeException("can't read file " + getName());
             }
-            textMap = new TextMap(code);
+            map = new TextMap(code);
+            textMap = map;
         }
-        return textMap;
+        return map;
     }
 
     private static final class LiteralSource extends Source {
@@ -560,16 +624,91 @@ public abstract class Source {
 
     }
 
+    private static final class MappedFileSource extends Source {
+
+        private final File file;
+        private final String name; // Name used originally to describe the source
+        private final String path;  // Normalized path description of an actual file
+
+        private String code = null;  // A cache of the file's contents
+        private long timeStamp;      // timestamp of the cache in the file system
+
+        public MappedFileSource(File file, String name, String path) {
+            this.file = file;
+            this.name = name;
+            this.path = path;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String getShortName() {
+            return file.getName();
+        }
+
+        @Override
+        public synchronized String getCode() {
+            if (code == null || timeStamp != file.lastModified()) {
+                try {
+                    final long newTimeStamp = file.lastModified();
+                    code = map(file);
+                    timeStamp = newTimeStamp;
+                    clearTextMap();
+                } catch (IOException e) {
+                }
+            }
+            return code;
+        }
+
+        /**
+         * Decodes the file from a mapped buffer in a single step, instead of accumulating the
+         * characters from a {@link Reader} in a growing buffer.
+         */
+        private static String map(File file) throws IOException {
+            try (FileInputStream stream = new FileInputStream(file); FileChannel channel = stream.getChannel()) {
+                final MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+                final CharsetDecoder decoder = Charset.defaultCharset().newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+                return decoder.decode(buffer).toString();
+            }
+        }
+
+        @Override
+        public String getPath() {
+            return path;
+        }
+
+        @Override
+        public URL getURL() {
+            return null;
+        }
+
+        @Override
+        public Reader getReader() {
+            final String text = getCode();
+            if (text == null) {
+                throw new RuntimeException("Can't read file " + path);
+            }
+            return new StringReader(text);
+        }
+
+        @Override
+        protected synchronized void reset() {
+            this.code = null;
+        }
+
+    }
+
     private static final class URLSource extends Source {
 
-        private static final Map<URL, WeakReference<URLSource>> urlToSource = new HashMap<>();
+        private static final ConcurrentMap<URL, WeakReference<URLSource>> urlToSource = new ConcurrentHashMap<>();
 
         public static URLSource get(URL url, String name) throws IOException {
-            WeakReference<URLSource> sourceRef = urlToSource.get(url);
-            URLSource source = sourceRef == null ? null : sourceRef.get();
+            URLSource source = Source.get(urlToSource, url);
             if (source == null) {
-                source = new URLSource(url, name);
-                urlToSource.put(url, new WeakReference<>(source));
+                source = intern(urlToSource, url, new URLSource(url, name));
             }
             return source;
         }
@@ -847,6 +986,11 @@ public abstract class Source {
      * If the text ends with a character other than a newline, then the characters following the
      * final newline character count as a line, even though not newline-terminated.
      * <p>
+     * The text is scanned for newlines incrementally, only as far as needed to answer a query, so
+     * that positions near the beginning of a large text are available without a scan of the whole
+     * text. Only {@link #lineCount()} requires a complete scan. Lines are looked up by binary
+     * search in the part of the text that has been scanned.
+     * <p>
      * <strong>Limitations:</strong>
      * <ul>
      * <li>Does not handle multiple character encodings correctly.</li>
@@ -856,42 +1000,54 @@ public abstract class Source {
      */
     private static final class TextMap {
 
-        // 0-based offsets of newline characters in the text, with sentinel
-        private final int[] nlOffsets;
+        private final String text;
 
         // The number of characters in the text, including newlines (which count as 1).
         private final int textLength;
 
-        // Is the final text character a newline?
-        final boolean finalNL;
+        // 0-based offsets of the first characters of the lines found so far
+        private int[] lineStarts = new int[16];
+
+        // The number of valid entries in lineStarts
+        private int lineStartCount = 1;
+
+        // The offset up to which the text has been scanned for newlines
+        private int scanned;
 
         /**
          * Constructs map permitting translation between 0-based character offsets and 1-based
          * lines/columns.
          */
         public TextMap(String text) {
+            this.text = text;
             this.textLength = text.length();
-            final ArrayList<Integer> lines = new ArrayList<>();
-            lines.add(0);
-            int offset = 0;
+        }
 
-            while (offset < text.length()) {
-                final int nlIndex = text.indexOf('\n', offset);
+        /**
+         * Scans the text until at least {@code minLineStarts} line starts are known and the text up
+         * to and including {@code minOffset} has been scanned, or until the end of the text.
+         */
+        private void scan(int minLineStarts, int minOffset) {
+            while (scanned < textLength && (lineStartCount < minLineStarts || scanned <= minOffset)) {
+                final int nlIndex = text.indexOf('\n', scanned);
                 if (nlIndex >= 0) {
-                    offset = nlIndex + 1;
-                    lines.add(offset);
+                    scanned = nlIndex + 1;
+                    if (lineStartCount == lineStarts.length) {
+                        lineStarts = Arrays.copyOf(lineStarts, lineStarts.length * 2);
+                    }
+                    lineStarts[lineStartCount++] = scanned;
                 } else {
-                    break;
+                    scanned = textLength;
                 }
             }
-            lines.add(Integer.MAX_VALUE);
-
-            nlOffsets = new int[lines.size()];
-            for (int line = 0; line < lines.size(); line++) {
-                nlOffsets[line] = lines.get(line);
-            }
+        }
 
-            finalNL = textLength > 0 && (textLength == nlOffsets[nlOffsets.length - 2]);
+        /**
+         * Is the final text character a newline? Only valid once the text has been scanned
+         * completely.
+         */
+        private boolean finalNL() {
+            return textLength > 0 && lineStarts[lineStartCount - 1] == textLength;
         }
 
         /**
@@ -899,15 +1055,22 @@ public abstract class Source {
          *
          * @throws IllegalArgumentException if the offset is outside the string.
          */
-        public int offsetToLine(int offset) throws IllegalArgumentException {
+        public synchronized int offsetToLine(int offset) throws IllegalArgumentException {
             if (offset < 0 || offset >= textLength) {
                 throw new IllegalArgumentException("offset out of bounds");
             }
-            int line = 1;
-            while (offset >= nlOffsets[line]) {
-                line++;
+            scan(0, offset);
+            int low = 0;
+            int high = lineStartCount - 1;
+            while (low < high) {
+                final int mid = (low + high + 1) >>> 1;
+                if (lineStarts[mid] <= offset) {
+                    low = mid;
+                } else {
+                    high = mid - 1;
+                }
             }
-            return line;
+            return low + 1;
         }
 
         /**
@@ -918,19 +1081,20 @@ public abstract class Source {
          *
          * @throws IllegalArgumentException if the offset is outside the string.
          */
-        public int offsetToCol(int offset) throws IllegalArgumentException {
-            return 1 + offset - nlOffsets[offsetToLine(offset) - 1];
+        public synchronized int offsetToCol(int offset) throws IllegalArgumentException {
+            return 1 + offset - lineStarts[offsetToLine(offset) - 1];
         }
 
         /**
          * The number of lines in the text; if characters appear after the final newline, then they
          * also count as a line, even though not newline-terminated.
          */
-        public int lineCount() {
+        public synchronized int lineCount() {
             if (textLength == 0) {
                 return 0;
             }
-            return finalNL ? nlOffsets.length - 2 : nlOffsets.length - 1;
+            scan(Integer.MAX_VALUE, textLength);
+            return finalNL() ? lineStartCount - 1 : lineStartCount;
         }
 
         /**
@@ -939,11 +1103,9 @@ public abstract class Source {
          *
          * @throws IllegalArgumentException if there is no such line in the text.
          */
-        public int lineStartOffset(int line) throws IllegalArgumentException {
-            if (textLength == 0 || lineOutOfRange(line)) {
-                throw new IllegalArgumentException("line out of bounds");
-            }
-            return nlOffsets[line - 1];
+        public synchronized int lineStartOffset(int line) throws IllegalArgumentException {
+            checkLine(line);
+            return lineStarts[line - 1];
         }
 
         /**
@@ -952,22 +1114,29 @@ public abstract class Source {
          *
          * @throws IllegalArgumentException if there is no such line in the text.
          */
-        public int lineLength(int line) throws IllegalArgumentException {
-            if (textLength == 0 || lineOutOfRange(line)) {
-                throw new IllegalArgumentException("line out of bounds");
+        public synchronized int lineLength(int line) throws IllegalArgumentException {
+            checkLine(line);
+            if (line == lineStartCount) {
+                // The last line, which is not newline-terminated.
+                return textLength - lineStarts[line - 1];
             }
-            if (line == nlOffsets.length - 1 && !finalNL) {
-                return textLength - nlOffsets[line - 1];
-            }
-            return (nlOffsets[line] - nlOffsets[line - 1]) - 1;
-
+            return (lineStarts[line] - lineStarts[line - 1]) - 1;
         }
 
         /**
-         * Is the line number out of range.
+         * Scans the text far enough to know the start of the line and of the line after it.
+         *
+         * @throws IllegalArgumentException if there is no such line in the text.
          */
-        private boolean lineOutOfRange(int line) {
-            return line <= 0 || line >= nlOffsets.length || (line == nlOffsets.length - 1 && finalNL);
+        private void checkLine(int line) throws IllegalArgumentException {
+            if (textLength == 0 || line <= 0) {
+                throw new IllegalArgumentException("line out of bounds");
+            }
+            scan(line + 1, -1);
+            // Fewer line starts than requested means that the text has been scanned completely.
+            if (line > lineStartCount || (line == lineStartCount && finalNL())) {
+                throw new IllegalArgumentException("line out of bounds");
+            }
         }
 
     }
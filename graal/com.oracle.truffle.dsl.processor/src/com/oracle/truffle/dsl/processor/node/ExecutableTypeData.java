@@ -24,6 +24,7 @@ package com.oracle.truffle.dsl.processor.node;
 
 import javax.lang.model.element.*;
 
+import com.oracle.truffle.api.dsl.*;
 import com.oracle.truffle.dsl.processor.*;
 import com.oracle.truffle.dsl.processor.template.*;
 import com.oracle.truffle.dsl.processor.typesystem.*;
@@ -32,11 +33,13 @@ public class ExecutableTypeData extends TemplateMethod {
 
     private final TypeSystemData typeSystem;
     private final TypeData type;
+    private final boolean delegating;
 
-    public ExecutableTypeData(TemplateMethod method, ExecutableElement executable, TypeSystemData typeSystem, TypeData type) {
+    public ExecutableTypeData(TemplateMethod method, ExecutableElement executable, TypeSystemData typeSystem, TypeData type, boolean delegating) {
         super(method, executable);
         this.typeSystem = typeSystem;
         this.type = type;
+        this.delegating = delegating;
         if (executable.getParameters().size() < method.getMethod().getParameters().size()) {
             throw new IllegalArgumentException(String.format("Method parameter count mismatch %s != %s.", executable.getParameters(), method.getMethod().getParameters()));
         }
@@ -66,6 +69,14 @@ public class ExecutableTypeData extends TemplateMethod {
         return getMethod().getModifiers().contains(Modifier.ABSTRACT);
     }
 
+    /**
+     * Returns {@code true} if the method is marked with {@link DelegatingExecute}, so generated
+     * specializations may override it.
+     */
+    public boolean isDelegating() {
+        return delegating;
+    }
+
     public int getEvaluatedCount() {
         int count = 0;
         for (ActualParameter parameter : getParameters()) {
@@ -28,6 +28,7 @@ import java.util.*;
 import javax.lang.model.element.*;
 import javax.lang.model.type.*;
 
+import com.oracle.truffle.api.dsl.*;
 import com.oracle.truffle.dsl.processor.*;
 import com.oracle.truffle.dsl.processor.template.*;
 import com.oracle.truffle.dsl.processor.typesystem.*;
@@ -81,7 +82,8 @@ public class ExecutableTypeMethodParser extends NodeMethodParser<ExecutableTypeD
     @Override
     public ExecutableTypeData create(TemplateMethod method, boolean invalid) {
         TypeData resolvedType = method.getReturnType().getTypeSystemType();
-        return new ExecutableTypeData(method, method.getMethod(), getNode().getTypeSystem(), resolvedType);
+        boolean delegating = Utils.findAnnotationMirror(getContext().getEnvironment(), method.getMethod(), DelegatingExecute.class) != null;
+        return new ExecutableTypeData(method, method.getMethod(), getNode().getTypeSystem(), resolvedType, delegating);
     }
 
     @Override
@@ -1793,6 +1793,7 @@ public class NodeCodeGenerator extends CompilationUnitFactory<NodeData> {
 
             boolean needsTry = castExecutable.hasUnexpectedValue(getContext());
             boolean returnVoid = type.isVoid();
+            ImplicitCastData implicitCast = returnVoid ? null : node.getTypeSystem().lookupCast(primaryType, type);
 
             List<ActualParameter> executeParameters = new ArrayList<>();
             for (ActualParameter sourceParameter : executable.getSignatureParameters()) {
@@ -1838,7 +1839,7 @@ public class NodeCodeGenerator extends CompilationUnitFactory<NodeData> {
 
                 if (!returnVoid) {
                     builder.startReturn();
-                    builder.tree(createExpectExecutableType(node, castExecutable.getReturnType().getTypeSystemType(), executable, CodeTreeBuilder.singleString("value")));
+                    builder.tree(createCastingExecuteResult(builder, node, castExecutable, executable, implicitCast, CodeTreeBuilder.singleString("value")));
                     builder.end();
                 }
             } else {
@@ -1846,7 +1847,7 @@ public class NodeCodeGenerator extends CompilationUnitFactory<NodeData> {
                     builder.statement(primaryExecuteCall);
                 } else {
                     builder.startReturn();
-                    builder.tree(createExpectExecutableType(node, castExecutable.getReturnType().getTypeSystemType(), executable, primaryExecuteCall));
+                    builder.tree(createCastingExecuteResult(builder, node, castExecutable, executable, implicitCast, primaryExecuteCall));
                     builder.end();
                 }
             }
@@ -1854,6 +1855,13 @@ public class NodeCodeGenerator extends CompilationUnitFactory<NodeData> {
             return builder.getRoot();
         }
 
+        private CodeTree createCastingExecuteResult(CodeTreeBuilder parent, NodeData node, ExecutableTypeData castExecutable, ExecutableTypeData executable, ImplicitCastData implicitCast, CodeTree value) {
+            if (implicitCast != null) {
+                return createImplicitCast(parent, node.getTypeSystem(), implicitCast, value);
+            }
+            return createExpectExecutableType(node, castExecutable.getReturnType().getTypeSystemType(), executable, value);
+        }
+
         protected CodeTree createExpectExecutableType(NodeData node, TypeData sourceType, ExecutableTypeData castedType, CodeTree value) {
             boolean hasUnexpected = castedType.hasUnexpectedValue(getContext());
             return createCastType(node.getTypeSystem(), sourceType, castedType.getType(), hasUnexpected, value);
@@ -2719,7 +2727,7 @@ public class NodeCodeGenerator extends CompilationUnitFactory<NodeData> {
 
             if (primaryExecutes.contains(execType) || primaryExecutes.isEmpty()) {
                 builder.tree(createFunctionalExecute(builder, specialization, execType));
-            } else if (needsCastingExecuteMethod(execType)) {
+            } else if (needsCastingExecuteMethod(execType, primaryExecutes.get(0))) {
                 assert !primaryExecutes.isEmpty();
                 builder.tree(createCastingExecute(builder, specialization, execType, primaryExecutes.get(0)));
             } else {
@@ -2785,14 +2793,26 @@ public class NodeCodeGenerator extends CompilationUnitFactory<NodeData> {
             return method;
         }
 
-        private boolean needsCastingExecuteMethod(ExecutableTypeData execType) {
+        private boolean needsCastingExecuteMethod(ExecutableTypeData execType, ExecutableTypeData primaryExecute) {
             if (execType.isAbstract()) {
                 return true;
             }
             if (execType.getType().isGeneric()) {
                 return true;
             }
-            return false;
+            if (!execType.isDelegating()) {
+                return false;
+            }
+            /*
+             * A delegating execute method goes through the generic one, which boxes the result of a
+             * typed specialization. A void method can discard the result of the typed execute
+             * method instead, and a typed method can convert it with an implicit cast.
+             */
+            TypeData primaryType = primaryExecute.getType();
+            if (execType.getType().isVoid()) {
+                return !primaryType.isGeneric();
+            }
+            return execType.getTypeSystem().lookupCast(primaryType, execType.getType()) != null;
         }
 
         private List<ExecutableTypeData> findFunctionalExecutableType(SpecializationData specialization, int evaluatedCount) {
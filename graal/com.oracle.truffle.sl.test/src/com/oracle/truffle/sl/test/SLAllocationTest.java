@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.sl.test;
+
+import java.io.*;
+import java.lang.management.*;
+
+import org.junit.*;
+
+import com.oracle.truffle.api.*;
+import com.oracle.truffle.api.frame.*;
+import com.oracle.truffle.api.nodes.*;
+import com.oracle.truffle.api.source.*;
+import com.oracle.truffle.sl.nodes.*;
+import com.oracle.truffle.sl.nodes.local.*;
+import com.oracle.truffle.sl.runtime.*;
+
+/**
+ * Checks that the interpreter does not box the primitive results of specialized statements. The
+ * assignments in the loop below are executed for their side effect only; before the DSL generated
+ * {@code executeVoid} for typed specializations, each of them boxed its {@code long} result via
+ * {@code executeGeneric}.
+ * <p>
+ * {@link #testExecuteVoid} checks that the specialized assignments override {@code executeVoid}.
+ * {@link #testArithmeticLoop} measures the allocation of the loop. A JIT compiler running the
+ * interpreter may remove the boxes by escape analysis, so the measurement only runs when the host
+ * VM interprets, e.g. with {@code -Xint}. The remaining allocation comes from the default frame,
+ * which stores locals as objects.
+ */
+public class SLAllocationTest {
+
+    private static final int ITERATIONS = 100000;
+
+    /* Starts above the range of the Long cache so that every box is a real allocation. */
+    private static final String CODE = "" + //
+                    "function loop(n) {\n" + //
+                    "  i = 1000000;\n" + //
+                    "  sum = 1000000;\n" + //
+                    "  while (i < n) {\n" + //
+                    "    sum = sum + i * 3;\n" + //
+                    "    i = i + 1;\n" + //
+                    "  }\n" + //
+                    "  return sum;\n" + //
+                    "}\n";
+
+    /* Two long locals are boxed into the frame per iteration, plus some slack. */
+    private static final int MAX_BOXES_PER_ITERATION = 3;
+
+    private static final Long N = 1000000L + ITERATIONS;
+
+    private static RootCallTarget parseLoop() {
+        SLContext context = new SLContext(new BufferedReader(new StringReader("")), new PrintStream(new ByteArrayOutputStream()));
+        context.parse(Source.fromText(CODE, "Allocation.sl"));
+        RootCallTarget loop = context.getFunctionRegistry().lookup("loop").getCallTarget();
+
+        /* Specialize all nodes. */
+        loop.call(N);
+        return loop;
+    }
+
+    @Test
+    public void testExecuteVoid() throws NoSuchMethodException {
+        RootCallTarget loop = parseLoop();
+        int assignments = 0;
+        for (SLWriteLocalVariableNode node : NodeUtil.findAllNodeInstances(loop.getRootNode(), SLWriteLocalVariableNode.class)) {
+            Class<?> declaringClass = node.getClass().getMethod("executeVoid", VirtualFrame.class).getDeclaringClass();
+            Assert.assertTrue(node.getClass().getName() + " does not override executeVoid", declaringClass != SLExpressionNode.class);
+            assignments++;
+        }
+        /* The parameter n is assigned to a local variable as well. */
+        Assert.assertEquals(5, assignments);
+    }
+
+    @Test
+    public void testArithmeticLoop() {
+        Assume.assumeTrue(System.getProperty("java.vm.info", "").contains("interpreted mode"));
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocation = (com.sun.management.ThreadMXBean) threads;
+        Assume.assumeTrue(allocation.isThreadAllocatedMemorySupported() && allocation.isThreadAllocatedMemoryEnabled());
+
+        RootCallTarget loop = parseLoop();
+
+        long threadId = Thread.currentThread().getId();
+        long before = allocation.getThreadAllocatedBytes(threadId);
+        loop.call(N);
+        long bytes = allocation.getThreadAllocatedBytes(threadId) - before;
+
+        long boxSize = measureBoxSize(allocation, threadId);
+        Assert.assertTrue("allocated " + bytes / ITERATIONS + " bytes per iteration, a box takes " + boxSize, bytes / ITERATIONS <= MAX_BOXES_PER_ITERATION * boxSize);
+    }
+
+    private static long measureBoxSize(com.sun.management.ThreadMXBean allocation, long threadId) {
+        Object[] boxes = new Object[ITERATIONS];
+        long before = allocation.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < boxes.length; i++) {
+            boxes[i] = Long.valueOf(1000000L + i);
+        }
+        return (allocation.getThreadAllocatedBytes(threadId) - before) / boxes.length;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.sl.test;
+
+import java.io.*;
+import java.nio.file.*;
+
+import com.oracle.truffle.api.source.*;
+import com.oracle.truffle.sl.parser.*;
+import com.oracle.truffle.sl.runtime.*;
+
+/**
+ * Measures the startup time of a large generated SL program, once parsed from source and once
+ * loaded from a {@link SLParseCache}:
+ *
+ * <pre>
+ * java -cp &lt;class path&gt; com.oracle.truffle.sl.test.SLParseCacheBenchmark [&lt;functions&gt; [&lt;iterations&gt;]]
+ * </pre>
+ */
+public final class SLParseCacheBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int functions = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        Source source = Source.fromText(generate(functions), "Generated.sl");
+        File directory = Files.createTempDirectory("slcache").toFile();
+        try {
+            SLParseCache cache = new SLParseCache(directory);
+            /* Populate the cache. */
+            cache.parse(newContext(), source);
+
+            for (int i = 0; i < iterations; i++) {
+                long parseTime = time(null, source);
+                long loadTime = time(cache, source);
+                System.out.println(String.format("%d functions, %d bytes | parse %6.1fms | cache %6.1fms", functions, source.getCode().length(), parseTime / 1000000.0, loadTime / 1000000.0));
+            }
+        } finally {
+            for (File file : directory.listFiles()) {
+                file.delete();
+            }
+            directory.delete();
+        }
+    }
+
+    private static long time(SLParseCache cache, Source source) {
+        SLContext context = newContext();
+        context.setParseCache(cache);
+        long start = System.nanoTime();
+        context.parse(source);
+        return System.nanoTime() - start;
+    }
+
+    private static SLContext newContext() {
+        return new SLContext(new BufferedReader(new StringReader("")), new PrintStream(new ByteArrayOutputStream()));
+    }
+
+    private static String generate(int functions) {
+        StringBuilder code = new StringBuilder();
+        for (int i = 0; i < functions; i++) {
+            code.append("function f").append(i).append("(a, b) {\n");
+            code.append("  i = 0;\n");
+            code.append("  s = \"f").append(i).append("\";\n");
+            code.append("  while (i < a) {\n");
+            code.append("    if (i == b) { break; } else { s = s + i; }\n");
+            code.append("    i = i + 1;\n");
+            code.append("  }\n");
+            code.append("  return i * ").append(i).append(" + 12345678901234567890;\n");
+            code.append("}\n");
+        }
+        code.append("function main() {\n");
+        for (int i = 0; i < functions; i++) {
+            code.append("  f").append(i).append("(3, 2);\n");
+        }
+        code.append("}\n");
+        return code.toString();
+    }
+}
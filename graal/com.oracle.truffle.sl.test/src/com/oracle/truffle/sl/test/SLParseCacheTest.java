@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.sl.test;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+import org.junit.*;
+
+import com.oracle.truffle.api.nodes.*;
+import com.oracle.truffle.api.source.*;
+import com.oracle.truffle.sl.nodes.*;
+import com.oracle.truffle.sl.parser.*;
+import com.oracle.truffle.sl.runtime.*;
+
+public class SLParseCacheTest {
+
+    private static final String CODE = "" + //
+                    "function add(a, b) { return a + b; }\n" + //
+                    "function apply(f, x) { return f(x, 1); }\n" + //
+                    "function main() {\n" + //
+                    "  i = 0;\n" + //
+                    "  s = \"\";\n" + //
+                    "  while (i < 10) {\n" + //
+                    "    i = i + 1;\n" + //
+                    "    if (i == 3) { continue; }\n" + //
+                    "    if (i > 7) { break; } else { s = s + i; }\n" + //
+                    "  }\n" + //
+                    "  println(s);\n" + //
+                    "  println(apply(add, 9223372036854775807));\n" + //
+                    "  return i;\n" + //
+                    "}\n";
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("slcache").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    private SLContext createContext(ByteArrayOutputStream out) {
+        SLContext context = new SLContext(new BufferedReader(new StringReader("")), new PrintStream(out));
+        context.setParseCache(new SLParseCache(directory));
+        return context;
+    }
+
+    @Test
+    public void testRoundTrip() {
+        Source source = Source.fromText(CODE, "ParseCache.sl");
+
+        ByteArrayOutputStream parsedOut = new ByteArrayOutputStream();
+        SLContext parsedContext = createContext(parsedOut);
+        List<SLRootNode> parsed = parsedContext.parse(source);
+        Assert.assertTrue(parsedContext.getParseCache().getFile(source).isFile());
+
+        ByteArrayOutputStream loadedOut = new ByteArrayOutputStream();
+        SLContext loadedContext = createContext(loadedOut);
+        List<SLRootNode> loaded = loadedContext.parse(source);
+
+        Assert.assertEquals(parsed.size(), loaded.size());
+        for (int i = 0; i < parsed.size(); i++) {
+            SLRootNode expected = parsed.get(i);
+            SLRootNode actual = loaded.get(i);
+            Assert.assertNotSame(expected, actual);
+            Assert.assertEquals(expected.getName(), actual.getName());
+            Assert.assertEquals(expected.getFrameDescriptor().getIdentifiers(), actual.getFrameDescriptor().getIdentifiers());
+            Assert.assertEquals(NodeUtil.printCompactTreeToString(expected), NodeUtil.printCompactTreeToString(actual));
+            Assert.assertEquals(NodeUtil.printSourceAttributionTree(expected), NodeUtil.printSourceAttributionTree(actual));
+            Assert.assertSame(actual, loadedContext.getFunctionRegistry().lookup(actual.getName()).getCallTarget().getRootNode());
+        }
+
+        Object parsedResult = parsedContext.getFunctionRegistry().lookup("main").getCallTarget().call();
+        Object loadedResult = loadedContext.getFunctionRegistry().lookup("main").getCallTarget().call();
+        Assert.assertEquals(parsedResult, loadedResult);
+        Assert.assertEquals(parsedOut.toString(), loadedOut.toString());
+    }
+
+    @Test
+    public void testChangedSource() {
+        Source source = Source.fromText("function main() { return 1; }", "Changed.sl");
+        Source changed = Source.fromText("function main() { return 2; }", "Changed.sl");
+
+        createContext(new ByteArrayOutputStream()).parse(source);
+        SLContext context = createContext(new ByteArrayOutputStream());
+        context.parse(changed);
+        Assert.assertEquals(2L, context.getFunctionRegistry().lookup("main").getCallTarget().call());
+        Assert.assertEquals(2, directory.listFiles().length);
+    }
+}
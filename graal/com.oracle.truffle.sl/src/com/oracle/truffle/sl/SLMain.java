@@ -29,9 +29,11 @@ import com.oracle.truffle.api.*;
 import com.oracle.truffle.api.dsl.*;
 import com.oracle.truffle.api.instrument.*;
 import com.oracle.truffle.api.nodes.*;
+import com.oracle.truffle.api.object.*;
 import com.oracle.truffle.api.source.*;
 import com.oracle.truffle.sl.builtins.*;
 import com.oracle.truffle.sl.nodes.*;
+import com.oracle.truffle.sl.nodes.access.*;
 import com.oracle.truffle.sl.nodes.call.*;
 import com.oracle.truffle.sl.nodes.controlflow.*;
 import com.oracle.truffle.sl.nodes.expression.*;
@@ -42,7 +44,7 @@ import com.oracle.truffle.sl.runtime.*;
 /**
  * SL is a simple language to demonstrate and showcase features of Truffle. The implementation is as
  * simple and clean as possible in order to help understanding the ideas and concepts of Truffle.
- * The language has first class functions, but no object model.
+ * The language has first class functions and objects with named properties.
  * <p>
  * SL is dynamically typed, i.e., there are no type names specified by the programmer. SL is
  * strongly typed, i.e., there is no automatic conversion between types. If an operation is not
@@ -60,6 +62,10 @@ import com.oracle.truffle.sl.runtime.*;
  * <li>Boolean: implemented as the Java primitive type {@code boolean}.
  * <li>String: implemented as the Java standard type {@link String}.
  * <li>Function: implementation type {@link SLFunction}.
+ * <li>Object: a collection of named properties, implemented as {@link DynamicObject}. The layout of
+ * an object is described by its {@link Shape}.
+ * <li>Array: a growable sequence of values, implemented as {@link SLArray}. Numbers are stored
+ * without boxing them.
  * <li>Null (with only one value {@code null}): implemented as the singleton
  * {@link SLNull#SINGLETON}.
  * </ul>
@@ -83,6 +89,12 @@ import com.oracle.truffle.sl.runtime.*;
  * {@link SLReturnNode return}.
  * <li>Function calls: {@link SLInvokeNode invocations} are efficiently implemented with
  * {@link SLAbstractDispatchNode polymorphic inline caches}.
+ * <li>Property accesses: {@link SLReadPropertyNode reads} and {@link SLWritePropertyNode writes} of
+ * object properties with the dot operator are implemented with polymorphic inline caches on the
+ * shape of the object. Reading a property that the object does not have results in null.
+ * <li>Array accesses: {@link SLReadArrayNode reads} and {@link SLWriteArrayNode writes} of array
+ * elements with the index operator are specialized on the storage of the array. Writing at the
+ * index just past the end of the array appends the element.
  * </ul>
  *
  * <p>
@@ -110,6 +122,9 @@ import com.oracle.truffle.sl.runtime.*;
  * <li>{@link SLDefineFunctionBuiltin defineFunction}: Parses the functions provided as a String
  * argument and adds them to the function registry. Functions that are already defined are replaced
  * with the new version.
+ * <li>{@link SLNewObjectBuiltin new}: Creates a new object without properties.
+ * <li>{@link SLNewArrayBuiltin newArray}: Creates a new, empty array.
+ * <li>{@link SLArrayLengthBuiltin length}: Returns the number of elements of an array.
  * </ul>
  */
 public class SLMain {
@@ -152,7 +167,7 @@ public class SLMain {
         if (sourceCallback != null) {
             sourceCallback.startLoading(source);
         }
-        Parser.parseSL(context, source, null);
+        context.parse(source);
         if (sourceCallback != null) {
             sourceCallback.endLoading(source);
         }
@@ -271,6 +286,10 @@ public class SLMain {
                     result.append("String \"").append(value).append("\"");
                 } else if (value instanceof SLFunction) {
                     result.append("Function ").append(value);
+                } else if (value instanceof SLArray) {
+                    result.append("Array ").append(value);
+                } else if (value instanceof DynamicObject) {
+                    result.append("Object ").append(value);
                 } else if (value == SLNull.SINGLETON) {
                     result.append("NULL");
                 } else if (value == null) {
@@ -27,6 +27,7 @@ import java.math.*;
 import com.oracle.truffle.api.dsl.*;
 import com.oracle.truffle.api.frame.*;
 import com.oracle.truffle.api.nodes.*;
+import com.oracle.truffle.api.object.*;
 import com.oracle.truffle.api.source.*;
 import com.oracle.truffle.sl.runtime.*;
 
@@ -51,9 +52,11 @@ public abstract class SLExpressionNode extends SLStatementNode {
 
     /**
      * When we use an expression at places where a {@link SLStatementNode statement} is already
-     * sufficient, the return value is just discarded.
+     * sufficient, the return value is just discarded. Type-specialized subclasses overwrite it to
+     * call their typed execute method, so that the discarded result is not boxed.
      */
     @Override
+    @DelegatingExecute
     public void executeVoid(VirtualFrame frame) {
         executeGeneric(frame);
     }
@@ -61,29 +64,46 @@ public abstract class SLExpressionNode extends SLStatementNode {
     /*
      * Execute methods for specialized types. They all follow the same pattern: they call the
      * generic execution method and then expect a result of their return type. Type-specialized
-     * subclasses overwrite the appropriate methods.
+     * subclasses overwrite the appropriate methods, including the ones their result can be
+     * implicitly cast to.
      */
 
+    @DelegatingExecute
     public long executeLong(VirtualFrame frame) throws UnexpectedResultException {
         return SLTypesGen.SLTYPES.expectLong(executeGeneric(frame));
     }
 
+    @DelegatingExecute
     public BigInteger executeBigInteger(VirtualFrame frame) throws UnexpectedResultException {
         return SLTypesGen.SLTYPES.expectBigInteger(executeGeneric(frame));
     }
 
+    @DelegatingExecute
     public boolean executeBoolean(VirtualFrame frame) throws UnexpectedResultException {
         return SLTypesGen.SLTYPES.expectBoolean(executeGeneric(frame));
     }
 
+    @DelegatingExecute
     public String executeString(VirtualFrame frame) throws UnexpectedResultException {
         return SLTypesGen.SLTYPES.expectString(executeGeneric(frame));
     }
 
+    @DelegatingExecute
     public SLFunction executeFunction(VirtualFrame frame) throws UnexpectedResultException {
         return SLTypesGen.SLTYPES.expectSLFunction(executeGeneric(frame));
     }
 
+    @DelegatingExecute
+    public DynamicObject executeObject(VirtualFrame frame) throws UnexpectedResultException {
+        return SLTypesGen.SLTYPES.expectDynamicObject(executeGeneric(frame));
+    }
+
+    @DelegatingExecute
+    public SLArray executeArray(VirtualFrame frame) throws UnexpectedResultException {
+        return SLTypesGen.SLTYPES.expectSLArray(executeGeneric(frame));
+    }
+
+    @DelegatingExecute
     public SLNull executeNull(VirtualFrame frame) throws UnexpectedResultException {
         return SLTypesGen.SLTYPES.expectSLNull(executeGeneric(frame));
     }
@@ -50,9 +50,13 @@ public final class SLRootNode extends RootNode {
     private final String name;
 
     public SLRootNode(FrameDescriptor frameDescriptor, SLExpressionNode bodyNode, String name) {
-        super(null, frameDescriptor);
         /* Deep copy the body before any specialization occurs during execution. */
-        this.uninitializedBodyNode = NodeUtil.cloneNode(bodyNode);
+        this(frameDescriptor, bodyNode, NodeUtil.cloneNode(bodyNode), name);
+    }
+
+    private SLRootNode(FrameDescriptor frameDescriptor, SLExpressionNode bodyNode, SLExpressionNode uninitializedBodyNode, String name) {
+        super(null, frameDescriptor);
+        this.uninitializedBodyNode = uninitializedBodyNode;
         this.bodyNode = bodyNode;
         this.name = name;
     }
@@ -69,7 +73,23 @@ public final class SLRootNode extends RootNode {
 
     @Override
     public RootNode split() {
-        return new SLRootNode(getFrameDescriptor().shallowCopy(), NodeUtil.cloneNode(uninitializedBodyNode), name);
+        /*
+         * The uninitialized body is never executed, so all splits can share it as their template.
+         * Depending on the Truffle options, the split body is a deep copy or shares the subtrees that
+         * have not been rewritten yet.
+         */
+        return new SLRootNode(getFrameDescriptor().shallowCopy(), NodeUtil.splitNode(uninitializedBodyNode), uninitializedBodyNode, name);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the body of the function as it was before any specialization occurred.
+     */
+    public SLExpressionNode getUninitializedBodyNode() {
+        return uninitializedBodyNode;
     }
 
     @Override
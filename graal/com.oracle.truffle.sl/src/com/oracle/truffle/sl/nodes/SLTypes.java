@@ -25,6 +25,7 @@ package com.oracle.truffle.sl.nodes;
 import java.math.*;
 
 import com.oracle.truffle.api.dsl.*;
+import com.oracle.truffle.api.object.*;
 import com.oracle.truffle.sl.*;
 import com.oracle.truffle.sl.runtime.*;
 
@@ -34,7 +35,7 @@ import com.oracle.truffle.sl.runtime.*;
  * conversion methods for all types. In this class, we only cover types where the automatically
  * generated ones would not be sufficient.
  */
-@TypeSystem({long.class, BigInteger.class, boolean.class, String.class, SLFunction.class, SLNull.class})
+@TypeSystem({long.class, BigInteger.class, boolean.class, String.class, SLFunction.class, DynamicObject.class, SLArray.class, SLNull.class})
 public abstract class SLTypes {
 
     /**
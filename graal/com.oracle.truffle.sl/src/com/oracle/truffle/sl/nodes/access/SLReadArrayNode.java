@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.sl.nodes.access;
+
+import com.oracle.truffle.api.dsl.*;
+import com.oracle.truffle.api.nodes.*;
+import com.oracle.truffle.api.source.*;
+import com.oracle.truffle.sl.nodes.*;
+import com.oracle.truffle.sl.runtime.*;
+
+/**
+ * The node for reading an array element. The specializations follow the storage strategy of the
+ * {@link SLArray}: for an array with {@code long[]} storage, the element is returned as a primitive
+ * {@code long}, so numbers are never boxed. When the storage of the array changes, the guard fails
+ * and the Truffle DSL rewrites the node to a polymorphic node that handles both storages.
+ */
+@NodeInfo(shortName = "[]")
+@NodeChildren({@NodeChild(value = "arrayNode", type = SLExpressionNode.class), @NodeChild(value = "indexNode", type = SLExpressionNode.class)})
+public abstract class SLReadArrayNode extends SLExpressionNode {
+
+    public SLReadArrayNode(SourceSection src) {
+        super(src);
+    }
+
+    @Specialization(order = 1, guards = "isLongStorage")
+    protected long readLong(SLArray array, long index) {
+        return array.getLong(index);
+    }
+
+    @Specialization(order = 2, guards = "isObjectStorage")
+    protected Object readObject(SLArray array, long index) {
+        return array.getObject(index);
+    }
+
+    @Specialization(order = 3, guards = "isEmptyStorage")
+    protected Object readEmpty(SLArray array, long index) {
+        /* Always fails, an empty array has no elements. */
+        return array.get(index);
+    }
+
+    protected boolean isLongStorage(SLArray array) {
+        return array.isLongStorage();
+    }
+
+    protected boolean isObjectStorage(SLArray array) {
+        return array.isObjectStorage();
+    }
+
+    protected boolean isEmptyStorage(SLArray array) {
+        return array.isEmptyStorage();
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.sl.nodes.access;
+
+import com.oracle.truffle.api.*;
+import com.oracle.truffle.api.nodes.*;
+import com.oracle.truffle.api.object.*;
+import com.oracle.truffle.sl.runtime.*;
+
+/**
+ * The polymorphic inline cache for {@link SLReadPropertyNode reading a property}. It works like the
+ * {@link com.oracle.truffle.sl.nodes.call.SLAbstractDispatchNode dispatch chain of calls}: the
+ * chain starts as an {@link UninitializedReadNode}, which adds a cache entry for every
+ * {@link Shape} it encounters. If there are more than {@link #INLINE_CACHE_SIZE} shapes, the whole
+ * chain is replaced by a {@link GenericReadNode} that looks up the property every time.
+ * <p>
+ * A cache entry checks the shape of the object and then loads the value from the cached
+ * {@link Location}, so in compiled code a read is a shape comparison followed by a field load. The
+ * entry also depends on the {@link Shape#getValidAssumption() assumption} that the shape is still
+ * valid, which costs nothing in compiled code. When a property of the shape is generalized, the
+ * entry removes itself from the chain.
+ */
+public abstract class SLReadPropertyCacheNode extends Node {
+
+    protected static final int INLINE_CACHE_SIZE = 3;
+
+    protected final String propertyName;
+
+    protected SLReadPropertyCacheNode(String propertyName) {
+        this.propertyName = propertyName;
+    }
+
+    public static SLReadPropertyCacheNode create(String propertyName) {
+        return new UninitializedReadNode(propertyName);
+    }
+
+    public abstract Object executeRead(DynamicObject receiver);
+
+    private static final class UninitializedReadNode extends SLReadPropertyCacheNode {
+
+        UninitializedReadNode(String propertyName) {
+            super(propertyName);
+        }
+
+        @Override
+        public Object executeRead(DynamicObject receiver) {
+            CompilerDirectives.transferToInterpreterAndInvalidate();
+
+            /* Objects with an obsolete shape are migrated first, so that we never cache it. */
+            receiver.updateShape();
+
+            Node cur = this;
+            int depth = 0;
+            while (cur.getParent() instanceof SLReadPropertyCacheNode) {
+                cur = cur.getParent();
+                depth++;
+            }
+
+            SLReadPropertyCacheNode replacement;
+            if (depth < INLINE_CACHE_SIZE) {
+                Shape shape = receiver.getShape();
+                Property property = shape.getProperty(propertyName);
+                SLReadPropertyCacheNode next = new UninitializedReadNode(propertyName);
+                if (property == null) {
+                    replacement = new MissingReadNode(propertyName, shape, next);
+                } else {
+                    replacement = new CachedReadNode(propertyName, shape, property.getLocation(), next);
+                }
+                replace(replacement);
+            } else {
+                replacement = new GenericReadNode(propertyName);
+                ((SLReadPropertyCacheNode) cur).replace(replacement);
+            }
+            return replacement.executeRead(receiver);
+        }
+    }
+
+    private abstract static class ShapeCheckNode extends SLReadPropertyCacheNode {
+
+        protected final Shape shape;
+        private final Assumption shapeValid;
+        @Child protected SLReadPropertyCacheNode nextNode;
+
+        ShapeCheckNode(String propertyName, Shape shape, SLReadPropertyCacheNode next) {
+            super(propertyName);
+            this.shape = shape;
+            this.shapeValid = shape.getValidAssumption();
+            this.nextNode = next;
+        }
+
+        @Override
+        public final Object executeRead(DynamicObject receiver) {
+            /* The shape must be a final field so that the compiler can optimize the check. */
+            boolean condition = receiver.getShape() == shape;
+            if (condition) {
+                try {
+                    shapeValid.check();
+                    return readCached(receiver, condition);
+                } catch (InvalidAssumptionException ex) {
+                    /* A property of the shape was generalized, remove ourself from the chain. */
+                    replace(nextNode);
+                }
+            }
+            return nextNode.executeRead(receiver);
+        }
+
+        protected abstract Object readCached(DynamicObject receiver, boolean condition);
+    }
+
+    private static final class CachedReadNode extends ShapeCheckNode {
+
+        private final Location location;
+
+        CachedReadNode(String propertyName, Shape shape, Location location, SLReadPropertyCacheNode next) {
+            super(propertyName, shape, next);
+            this.location = location;
+        }
+
+        @Override
+        protected Object readCached(DynamicObject receiver, boolean condition) {
+            return location.get(receiver, condition);
+        }
+    }
+
+    /**
+     * Objects of the cached shape do not have the property, so reading it results in null.
+     */
+    private static final class MissingReadNode extends ShapeCheckNode {
+
+        MissingReadNode(String propertyName, Shape shape, SLReadPropertyCacheNode next) {
+            super(propertyName, shape, next);
+        }
+
+        @Override
+        protected Object readCached(DynamicObject receiver, boolean condition) {
+            return SLNull.SINGLETON;
+        }
+    }
+
+    private static final class GenericReadNode extends SLReadPropertyCacheNode {
+
+        GenericReadNode(String propertyName) {
+            super(propertyName);
+        }
+
+        @Override
+        public Object executeRead(DynamicObject receiver) {
+            return receiver.get(propertyName, SLNull.SINGLETON);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.sl.nodes.access;
+
+import com.oracle.truffle.api.dsl.*;
+import com.oracle.truffle.api.nodes.*;
+import com.oracle.truffle.api.object.*;
+import com.oracle.truffle.api.source.*;
+import com.oracle.truffle.sl.nodes.*;
+
+/**
+ * The node for reading a property of an object. When executed, this node first evaluates the
+ * object expression on the left side of the dot operator and then reads the named property. The
+ * lookup of the property is delegated to a chain of {@link SLReadPropertyCacheNode}s that form a
+ * polymorphic inline cache on the {@link Shape} of the object.
+ * <p>
+ * Reading a property of a value that is not an object is a type error, reported by the
+ * specialization code that the Truffle DSL generates.
+ */
+@NodeInfo(shortName = ".")
+@NodeChild(value = "receiverNode", type = SLExpressionNode.class)
+public abstract class SLReadPropertyNode extends SLExpressionNode {
+
+    @Child protected SLReadPropertyCacheNode cacheNode;
+    private final String propertyName;
+
+    public SLReadPropertyNode(SourceSection src, String propertyName) {
+        super(src);
+        this.propertyName = propertyName;
+        this.cacheNode = SLReadPropertyCacheNode.create(propertyName);
+    }
+
+    /**
+     * Copy constructor used by the specialization code that the Truffle DSL generates.
+     */
+    protected SLReadPropertyNode(SLReadPropertyNode copy) {
+        super(copy.getSourceSection());
+        this.propertyName = copy.propertyName;
+        this.cacheNode = copy.cacheNode;
+    }
+
+    @Specialization
+    protected Object read(DynamicObject receiver) {
+        return cacheNode.executeRead(receiver);
+    }
+
+    public String getPropertyName() {
+        return propertyName;
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.sl.nodes.access;
+
+import com.oracle.truffle.api.dsl.*;
+import com.oracle.truffle.api.nodes.*;
+import com.oracle.truffle.api.source.*;
+import com.oracle.truffle.sl.nodes.*;
+import com.oracle.truffle.sl.runtime.*;
+
+/**
+ * The node for writing an array element. Writing at the index just past the end of the array
+ * appends the element. The value of the assignment is the written value.
+ * <p>
+ * Numbers are written unboxed into an array with {@code long[]} storage; the first number written
+ * to an empty array creates such a storage. Any other value {@link SLArray#generalize()
+ * generalizes} the storage to an {@code Object[]} first. Since the storage of an array is only
+ * ever generalized, each guard fails at most once per array.
+ */
+@NodeInfo(shortName = "[]=")
+@NodeChildren({@NodeChild(value = "arrayNode", type = SLExpressionNode.class), @NodeChild(value = "indexNode", type = SLExpressionNode.class),
+                @NodeChild(value = "valueNode", type = SLExpressionNode.class)})
+public abstract class SLWriteArrayNode extends SLExpressionNode {
+
+    public SLWriteArrayNode(SourceSection src) {
+        super(src);
+    }
+
+    @Specialization(order = 1, guards = "isLongOrEmptyStorage")
+    protected long writeLong(SLArray array, long index, long value) {
+        array.setLong(index, value);
+        return value;
+    }
+
+    @Specialization(order = 2, guards = "isObjectStorage")
+    protected Object writeObject(SLArray array, long index, Object value) {
+        array.setObject(index, value);
+        return value;
+    }
+
+    @Specialization(order = 3, guards = "needsGeneralization")
+    protected Object writeGeneralize(SLArray array, long index, Object value) {
+        array.generalize();
+        array.setObject(index, value);
+        return value;
+    }
+
+    protected boolean isLongOrEmptyStorage(SLArray array) {
+        return array.isLongStorage() || array.isEmptyStorage();
+    }
+
+    /**
+     * Guard for values that the current storage cannot hold. It must not match numbers written to a
+     * {@code long[]} storage, even when the node has already seen arrays that needed to be
+     * generalized.
+     */
+    protected boolean needsGeneralization(SLArray array, long index, Object value) {
+        return isLongOrEmptyStorage(array) && !(value instanceof Long);
+    }
+
+    protected boolean isObjectStorage(SLArray array) {
+        return array.isObjectStorage();
+    }
+}
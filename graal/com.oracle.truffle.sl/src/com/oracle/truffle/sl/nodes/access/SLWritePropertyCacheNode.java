@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.sl.nodes.access;
+
+import com.oracle.truffle.api.*;
+import com.oracle.truffle.api.nodes.*;
+import com.oracle.truffle.api.object.*;
+
+/**
+ * The polymorphic inline cache for {@link SLWritePropertyNode writing a property}, built like the
+ * {@link SLReadPropertyCacheNode read cache}. A cache entry either stores the value to the location
+ * of an existing property, or adds the property to objects of the cached shape by changing the
+ * shape to the cached transition target. Both check that the location can hold the value without
+ * boxing a primitive.
+ * <p>
+ * A value that does not fit the location of an existing property, for example a string written to
+ * a property that so far contained only numbers, generalizes the property on the slow path. This
+ * invalidates the shape, so all cache entries for it remove themselves.
+ */
+public abstract class SLWritePropertyCacheNode extends Node {
+
+    protected static final int INLINE_CACHE_SIZE = 3;
+
+    protected final String propertyName;
+
+    protected SLWritePropertyCacheNode(String propertyName) {
+        this.propertyName = propertyName;
+    }
+
+    public static SLWritePropertyCacheNode create(String propertyName) {
+        return new UninitializedWriteNode(propertyName);
+    }
+
+    public abstract void executeWrite(DynamicObject receiver, Object value);
+
+    private static final class UninitializedWriteNode extends SLWritePropertyCacheNode {
+
+        UninitializedWriteNode(String propertyName) {
+            super(propertyName);
+        }
+
+        @Override
+        public void executeWrite(DynamicObject receiver, Object value) {
+            CompilerDirectives.transferToInterpreterAndInvalidate();
+
+            receiver.updateShape();
+
+            Node cur = this;
+            int depth = 0;
+            while (cur.getParent() instanceof SLWritePropertyCacheNode) {
+                cur = cur.getParent();
+                depth++;
+            }
+
+            Shape oldShape = receiver.getShape();
+            Property property = oldShape.getProperty(propertyName);
+            if (property != null && !property.getLocation().canStore(value)) {
+                /*
+                 * The property is generalized, which invalidates the current shape. We do not cache
+                 * anything: the next execution sees the new shape.
+                 */
+                receiver.set(propertyName, value);
+                return;
+            }
+
+            SLWritePropertyCacheNode replacement;
+            if (depth < INLINE_CACHE_SIZE) {
+                SLWritePropertyCacheNode next = new UninitializedWriteNode(propertyName);
+                if (property == null) {
+                    Shape newShape = oldShape.addProperty(propertyName, value);
+                    replacement = new AddPropertyWriteNode(propertyName, oldShape, newShape, next);
+                } else {
+                    replacement = new CachedWriteNode(propertyName, oldShape, property.getLocation(), next);
+                }
+                replace(replacement);
+            } else {
+                replacement = new GenericWriteNode(propertyName);
+                ((SLWritePropertyCacheNode) cur).replace(replacement);
+            }
+            replacement.executeWrite(receiver, value);
+        }
+    }
+
+    /**
+     * Writes an existing property of objects with the cached shape.
+     */
+    private static final class CachedWriteNode extends SLWritePropertyCacheNode {
+
+        private final Shape shape;
+        private final Location location;
+        private final Assumption shapeValid;
+        @Child protected SLWritePropertyCacheNode nextNode;
+
+        CachedWriteNode(String propertyName, Shape shape, Location location, SLWritePropertyCacheNode next) {
+            super(propertyName);
+            this.shape = shape;
+            this.location = location;
+            this.shapeValid = shape.getValidAssumption();
+            this.nextNode = next;
+        }
+
+        @Override
+        public void executeWrite(DynamicObject receiver, Object value) {
+            if (receiver.getShape() == shape && location.canStore(value)) {
+                try {
+                    shapeValid.check();
+                    location.set(receiver, value);
+                    return;
+                } catch (InvalidAssumptionException ex) {
+                    replace(nextNode);
+                }
+            }
+            nextNode.executeWrite(receiver, value);
+        }
+    }
+
+    /**
+     * Adds the property to objects with the cached old shape, using the cached transition to the new
+     * shape.
+     */
+    private static final class AddPropertyWriteNode extends SLWritePropertyCacheNode {
+
+        private final Shape oldShape;
+        private final Shape newShape;
+        private final Location newLocation;
+        private final Assumption oldShapeValid;
+        private final Assumption newShapeValid;
+        @Child protected SLWritePropertyCacheNode nextNode;
+
+        AddPropertyWriteNode(String propertyName, Shape oldShape, Shape newShape, SLWritePropertyCacheNode next) {
+            super(propertyName);
+            this.oldShape = oldShape;
+            this.newShape = newShape;
+            this.newLocation = newShape.getLastProperty().getLocation();
+            this.oldShapeValid = oldShape.getValidAssumption();
+            this.newShapeValid = newShape.getValidAssumption();
+            this.nextNode = next;
+        }
+
+        @Override
+        public void executeWrite(DynamicObject receiver, Object value) {
+            if (receiver.getShape() == oldShape && newLocation.canStore(value)) {
+                try {
+                    oldShapeValid.check();
+                    newShapeValid.check();
+                    receiver.setShapeAndGrow(oldShape, newShape);
+                    newLocation.set(receiver, value);
+                    return;
+                } catch (InvalidAssumptionException ex) {
+                    replace(nextNode);
+                }
+            }
+            nextNode.executeWrite(receiver, value);
+        }
+    }
+
+    private static final class GenericWriteNode extends SLWritePropertyCacheNode {
+
+        GenericWriteNode(String propertyName) {
+            super(propertyName);
+        }
+
+        @Override
+        public void executeWrite(DynamicObject receiver, Object value) {
+            receiver.set(propertyName, value);
+        }
+    }
+}
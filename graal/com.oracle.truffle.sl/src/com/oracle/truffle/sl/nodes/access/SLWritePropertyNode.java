@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.sl.nodes.access;
+
+import com.oracle.truffle.api.dsl.*;
+import com.oracle.truffle.api.nodes.*;
+import com.oracle.truffle.api.object.*;
+import com.oracle.truffle.api.source.*;
+import com.oracle.truffle.sl.nodes.*;
+
+/**
+ * The node for writing a property of an object. When executed, this node first evaluates the
+ * object expression on the left side of the dot operator, then the value to be written, and then
+ * writes the named property. A property that the object does not have yet is added. The value of
+ * the assignment is the written value.
+ * <p>
+ * The lookup of the property is delegated to a chain of {@link SLWritePropertyCacheNode}s that form
+ * a polymorphic inline cache on the {@link Shape} of the object.
+ */
+@NodeInfo(shortName = ".=")
+@NodeChildren({@NodeChild(value = "receiverNode", type = SLExpressionNode.class), @NodeChild(value = "valueNode", type = SLExpressionNode.class)})
+public abstract class SLWritePropertyNode extends SLExpressionNode {
+
+    @Child protected SLWritePropertyCacheNode cacheNode;
+    private final String propertyName;
+
+    public SLWritePropertyNode(SourceSection src, String propertyName) {
+        super(src);
+        this.propertyName = propertyName;
+        this.cacheNode = SLWritePropertyCacheNode.create(propertyName);
+    }
+
+    /**
+     * Copy constructor used by the specialization code that the Truffle DSL generates.
+     */
+    protected SLWritePropertyNode(SLWritePropertyNode copy) {
+        super(copy.getSourceSection());
+        this.propertyName = copy.propertyName;
+        this.cacheNode = copy.cacheNode;
+    }
+
+    @Specialization
+    protected Object write(DynamicObject receiver, Object value) {
+        cacheNode.executeWrite(receiver, value);
+        return value;
+    }
+
+    public String getPropertyName() {
+        return propertyName;
+    }
+}
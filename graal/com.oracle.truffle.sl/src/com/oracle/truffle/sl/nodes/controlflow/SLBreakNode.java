@@ -31,7 +31,7 @@ import com.oracle.truffle.sl.nodes.*;
  * Implementation of the SL break statement. We need to unwind an unknown number of interpreter
  * frames that are between this {@link SLBreakNode} and the {@link SLWhileNode} of the loop we are
  * breaking out. This is done by throwing an {@link SLBreakException exception} that is caught by
- * the {@link SLWhileNode#executeVoid loop node}.
+ * the {@link SLWhileRepeatingNode#executeRepeating loop node}.
  */
 @NodeInfo(shortName = "break", description = "The node implementing a break statement")
 public final class SLBreakNode extends SLStatementNode {
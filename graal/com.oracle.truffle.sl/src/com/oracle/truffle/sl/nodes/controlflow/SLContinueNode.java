@@ -31,7 +31,7 @@ import com.oracle.truffle.sl.nodes.*;
  * Implementation of the SL continue statement. We need to unwind an unknown number of interpreter
  * frames that are between this {@link SLContinueNode} and the {@link SLWhileNode} of the loop we
  * are continuing. This is done by throwing an {@link SLContinueException exception} that is caught
- * by the {@link SLWhileNode#executeVoid loop node}.
+ * by the {@link SLWhileRepeatingNode#executeRepeating loop node}.
  */
 @NodeInfo(shortName = "continue", description = "The node implementing a continue statement")
 public final class SLContinueNode extends SLStatementNode {
@@ -26,6 +26,7 @@ import java.math.*;
 
 import com.oracle.truffle.api.dsl.*;
 import com.oracle.truffle.api.nodes.*;
+import com.oracle.truffle.api.object.*;
 import com.oracle.truffle.api.source.*;
 import com.oracle.truffle.sl.nodes.*;
 import com.oracle.truffle.sl.runtime.*;
@@ -76,6 +77,18 @@ public abstract class SLEqualNode extends SLBinaryNode {
         return left == right;
     }
 
+    @Specialization
+    protected boolean equal(DynamicObject left, DynamicObject right) {
+        /* Objects are compared by identity. */
+        return left == right;
+    }
+
+    @Specialization
+    protected boolean equal(SLArray left, SLArray right) {
+        /* Arrays are compared by identity. */
+        return left == right;
+    }
+
     @Specialization
     protected boolean equal(SLNull left, SLNull right) {
         /* There is only the singleton instance of SLNull, so we do not need equals(). */
@@ -28,6 +28,7 @@ import com.oracle.truffle.api.CompilerDirectives.*;
 import com.oracle.truffle.api.frame.*;
 import com.oracle.truffle.api.instrument.*;
 import com.oracle.truffle.api.nodes.*;
+import com.oracle.truffle.api.object.*;
 import com.oracle.truffle.sl.nodes.*;
 import com.oracle.truffle.sl.runtime.*;
 
@@ -38,7 +39,11 @@ import com.oracle.truffle.sl.runtime.*;
  * with the AST. <br/>
  * {@link SLExpressionWrapper} specifically wraps {@link SLExpressionNode}s and overrides the
  * various execute functions in {@link SLExpressionNode} to operate on the child of the wrapper
- * instead of the wrapper itself.
+ * instead of the wrapper itself. The typed execute functions call the same typed function of the
+ * child, so that wrapping a node does not box its result.
+ * <p>
+ * While no instrument is attached to the probe, partial evaluation folds the probe's events away
+ * and the compiled code of a wrapper is that of its child.
  *
  */
 public final class SLExpressionWrapper extends SLExpressionNode implements Wrapper {
@@ -51,6 +56,7 @@ public final class SLExpressionWrapper extends SLExpressionNode implements Wrapp
         assert !(child instanceof SLExpressionWrapper);
         this.child = insert(child);
         this.probe = context.getProbe(child.getSourceSection());
+        this.probe.tagAs(StandardSyntaxTag.STATEMENT);
     }
 
     @Override
@@ -87,7 +93,6 @@ public final class SLExpressionWrapper extends SLExpressionNode implements Wrapp
 
     @Override
     public Object executeGeneric(VirtualFrame frame) {
-        this.tagAs(StandardSyntaxTag.STATEMENT);
         probe.enter(child, frame);
         Object result;
 
@@ -103,37 +108,123 @@ public final class SLExpressionWrapper extends SLExpressionNode implements Wrapp
 
     @Override
     public long executeLong(VirtualFrame frame) throws UnexpectedResultException {
-        this.tagAs(StandardSyntaxTag.STATEMENT);
-        return SLTypesGen.SLTYPES.expectLong(executeGeneric(frame));
+        probe.enter(child, frame);
+        long result;
+
+        try {
+            result = child.executeLong(frame);
+            probe.leave(child, frame, result);
+        } catch (UnexpectedResultException e) {
+            probe.leave(child, frame, e.getResult());
+            throw (e);
+        } catch (Exception e) {
+            probe.leaveExceptional(child, frame, e);
+            throw (e);
+        }
+        return result;
     }
 
     @Override
     public BigInteger executeBigInteger(VirtualFrame frame) throws UnexpectedResultException {
-        this.tagAs(StandardSyntaxTag.STATEMENT);
-        return SLTypesGen.SLTYPES.expectBigInteger(executeGeneric(frame));
+        probe.enter(child, frame);
+        BigInteger result;
+
+        try {
+            result = child.executeBigInteger(frame);
+            probe.leave(child, frame, result);
+        } catch (UnexpectedResultException e) {
+            probe.leave(child, frame, e.getResult());
+            throw (e);
+        } catch (Exception e) {
+            probe.leaveExceptional(child, frame, e);
+            throw (e);
+        }
+        return result;
     }
 
     @Override
     public boolean executeBoolean(VirtualFrame frame) throws UnexpectedResultException {
-        this.tagAs(StandardSyntaxTag.STATEMENT);
-        return SLTypesGen.SLTYPES.expectBoolean(executeGeneric(frame));
+        probe.enter(child, frame);
+        boolean result;
+
+        try {
+            result = child.executeBoolean(frame);
+            probe.leave(child, frame, result);
+        } catch (UnexpectedResultException e) {
+            probe.leave(child, frame, e.getResult());
+            throw (e);
+        } catch (Exception e) {
+            probe.leaveExceptional(child, frame, e);
+            throw (e);
+        }
+        return result;
     }
 
     @Override
     public String executeString(VirtualFrame frame) throws UnexpectedResultException {
-        this.tagAs(StandardSyntaxTag.STATEMENT);
-        return SLTypesGen.SLTYPES.expectString(executeGeneric(frame));
+        probe.enter(child, frame);
+        String result;
+
+        try {
+            result = child.executeString(frame);
+            probe.leave(child, frame, result);
+        } catch (UnexpectedResultException e) {
+            probe.leave(child, frame, e.getResult());
+            throw (e);
+        } catch (Exception e) {
+            probe.leaveExceptional(child, frame, e);
+            throw (e);
+        }
+        return result;
     }
 
     @Override
     public SLFunction executeFunction(VirtualFrame frame) throws UnexpectedResultException {
-        this.tagAs(StandardSyntaxTag.STATEMENT);
         probe.enter(child, frame);
         SLFunction result;
 
         try {
             result = child.executeFunction(frame);
             probe.leave(child, frame, result);
+        } catch (UnexpectedResultException e) {
+            probe.leave(child, frame, e.getResult());
+            throw (e);
+        } catch (Exception e) {
+            probe.leaveExceptional(child, frame, e);
+            throw (e);
+        }
+        return result;
+    }
+
+    @Override
+    public DynamicObject executeObject(VirtualFrame frame) throws UnexpectedResultException {
+        probe.enter(child, frame);
+        DynamicObject result;
+
+        try {
+            result = child.executeObject(frame);
+            probe.leave(child, frame, result);
+        } catch (UnexpectedResultException e) {
+            probe.leave(child, frame, e.getResult());
+            throw (e);
+        } catch (Exception e) {
+            probe.leaveExceptional(child, frame, e);
+            throw (e);
+        }
+        return result;
+    }
+
+    @Override
+    public SLArray executeArray(VirtualFrame frame) throws UnexpectedResultException {
+        probe.enter(child, frame);
+        SLArray result;
+
+        try {
+            result = child.executeArray(frame);
+            probe.leave(child, frame, result);
+        } catch (UnexpectedResultException e) {
+            probe.leave(child, frame, e.getResult());
+            throw (e);
         } catch (Exception e) {
             probe.leaveExceptional(child, frame, e);
             throw (e);
@@ -143,6 +234,19 @@ public final class SLExpressionWrapper extends SLExpressionNode implements Wrapp
 
     @Override
     public SLNull executeNull(VirtualFrame frame) throws UnexpectedResultException {
-        return SLTypesGen.SLTYPES.expectSLNull(executeGeneric(frame));
+        probe.enter(child, frame);
+        SLNull result;
+
+        try {
+            result = child.executeNull(frame);
+            probe.leave(child, frame, result);
+        } catch (UnexpectedResultException e) {
+            probe.leave(child, frame, e.getResult());
+            throw (e);
+        } catch (Exception e) {
+            probe.leaveExceptional(child, frame, e);
+            throw (e);
+        }
+        return result;
     }
 }
@@ -50,6 +50,7 @@ public final class SLStatementWrapper extends SLStatementNode implements Wrapper
         assert !(child instanceof SLStatementWrapper);
         this.child = insert(child);
         this.probe = context.getProbe(child.getSourceSection());
+        this.probe.tagAs(StandardSyntaxTag.STATEMENT);
     }
 
     @Override
@@ -82,7 +83,6 @@ public final class SLStatementWrapper extends SLStatementNode implements Wrapper
 
     @Override
     public void executeVoid(VirtualFrame frame) {
-        this.tagAs(StandardSyntaxTag.STATEMENT);
         probe.enter(child, frame);
 
         try {
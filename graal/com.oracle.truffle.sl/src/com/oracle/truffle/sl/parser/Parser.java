@@ -40,7 +40,7 @@ public class Parser {
 	public static final int _identifier = 1;
 	public static final int _stringLiteral = 2;
 	public static final int _numericLiteral = 3;
-	public static final int maxT = 30;
+	public static final int maxT = 33;
 
     static final boolean T = true;
     static final boolean x = false;
@@ -199,7 +199,7 @@ public class Parser {
 			Expect(11);
 			break;
 		}
-		default: SynErr(31); break;
+		default: SynErr(34); break;
 		}
 		return result;
 	}
@@ -367,7 +367,7 @@ public class Parser {
 				result = factory.createAssignment(nameToken, value);
 			} else if (StartOf(4)) {
 				result = factory.createRead(nameToken);
-			} else SynErr(32);
+			} else SynErr(35);
 		} else if (la.kind == 2) {
 			Get();
 			result = factory.createStringLiteral(t);
@@ -378,7 +378,33 @@ public class Parser {
 			Get();
 			result = Expression();
 			Expect(7);
-		} else SynErr(33);
+		} else SynErr(36);
+		while (la.kind == 30 || la.kind == 31) {
+			if (la.kind == 30) {
+				Get();
+				Expect(1);
+				Token nameToken = t;
+				if (la.kind == 29) {
+					Get();
+					SLExpressionNode value = Expression();
+					result = factory.createWriteProperty(result, nameToken, value);
+				} else if (StartOf(4)) {
+					result = factory.createReadProperty(result, nameToken);
+				} else SynErr(37);
+			} else {
+				Get();
+				SLExpressionNode index = Expression();
+				Expect(32);
+				Token finalToken = t;
+				if (la.kind == 29) {
+					Get();
+					SLExpressionNode value = Expression();
+					result = factory.createWriteArray(result, index, value);
+				} else if (StartOf(4)) {
+					result = factory.createReadArray(result, index, finalToken);
+				} else SynErr(38);
+			}
+		}
 		return result;
 	}
 
@@ -394,15 +420,19 @@ public class Parser {
     }
 
     private static final boolean[][] set = {
-		{T,x,x,x, x,x,x,x, x,x,x,x, x,x,x,x, x,x,x,x, x,x,x,x, x,x,x,x, x,x,x,x},
-		{x,T,T,T, x,T,x,x, x,x,T,x, T,T,T,x, T,x,x,x, x,x,x,x, x,x,x,x, x,x,x,x},
-		{x,T,T,T, x,T,x,x, x,x,x,x, x,x,x,x, x,x,x,x, x,x,x,x, x,x,x,x, x,x,x,x},
-		{x,x,x,x, x,x,x,x, x,x,x,x, x,x,x,x, x,x,x,T, T,T,T,T, T,x,x,x, x,x,x,x},
-		{x,x,x,x, x,x,T,T, x,x,x,T, x,x,x,x, x,T,T,T, T,T,T,T, T,T,T,T, T,x,x,x}
+		{T,x,x,x, x,x,x,x, x,x,x,x, x,x,x,x, x,x,x,x, x,x,x,x, x,x,x,x, x,x,x,x, x,x,x,x},
+		{x,T,T,T, x,T,x,x, x,x,T,x, T,T,T,x, T,x,x,x, x,x,x,x, x,x,x,x, x,x,x,x, x,x,x,x},
+		{x,T,T,T, x,T,x,x, x,x,x,x, x,x,x,x, x,x,x,x, x,x,x,x, x,x,x,x, x,x,x,x, x,x,x,x},
+		{x,x,x,x, x,x,x,x, x,x,x,x, x,x,x,x, x,x,x,T, T,T,T,T, T,x,x,x, x,x,x,x, x,x,x,x},
+		{x,x,x,x, x,x,T,T, x,x,x,T, x,x,x,x, x,T,T,T, T,T,T,T, T,T,T,T, T,x,T,T, T,x,x,x}
 
     };
 
-    public static void parseSL(SLContext context, Source source, SLNodeProber astProber) {
+    /**
+     * Parses the source and registers all functions it defines. Returns the root nodes of the
+     * defined functions, in the order in which they appear in the source.
+     */
+    public static List<SLRootNode> parseSL(SLContext context, Source source, SLNodeProber astProber) {
         Parser parser = new Parser(context, source, astProber);
         parser.Parse();
         if (parser.errors.errors.size() > 0) {
@@ -412,6 +442,7 @@ public class Parser {
             }
             throw new SLException(msg.toString());
         }
+        return parser.factory.getParsedFunctions();
     }
 } // end Parser
 
@@ -471,10 +502,15 @@ class Errors {
 			case 27: s = "\"*\" expected"; break;
 			case 28: s = "\"/\" expected"; break;
 			case 29: s = "\"=\" expected"; break;
-			case 30: s = "??? expected"; break;
-			case 31: s = "invalid Statement"; break;
-			case 32: s = "invalid Factor"; break;
-			case 33: s = "invalid Factor"; break;
+			case 30: s = "\".\" expected"; break;
+			case 31: s = "\"[\" expected"; break;
+			case 32: s = "\"]\" expected"; break;
+			case 33: s = "??? expected"; break;
+			case 34: s = "invalid Statement"; break;
+			case 35: s = "invalid Factor"; break;
+			case 36: s = "invalid Factor"; break;
+			case 37: s = "invalid Factor"; break;
+			case 38: s = "invalid Factor"; break;
             default:
                 s = "error " + n;
                 break;
@@ -29,6 +29,7 @@ import com.oracle.truffle.api.frame.*;
 import com.oracle.truffle.api.nodes.*;
 import com.oracle.truffle.api.source.*;
 import com.oracle.truffle.sl.nodes.*;
+import com.oracle.truffle.sl.nodes.access.*;
 import com.oracle.truffle.sl.nodes.call.*;
 import com.oracle.truffle.sl.nodes.controlflow.*;
 import com.oracle.truffle.sl.nodes.expression.*;
@@ -63,6 +64,7 @@ public class SLNodeFactory {
     /* State while parsing a source unit. */
     private final SLContext context;
     private final Source source;
+    private final List<SLRootNode> parsedFunctions = new ArrayList<>();
 
     /* State while parsing a function. */
     private String functionName;
@@ -81,6 +83,13 @@ public class SLNodeFactory {
         this.prober = prober;
     }
 
+    /**
+     * Returns the root nodes of all functions parsed so far, in source order.
+     */
+    public List<SLRootNode> getParsedFunctions() {
+        return parsedFunctions;
+    }
+
     public void startFunction(Token nameToken) {
         assert functionName == null;
         assert parameterCount == 0;
@@ -115,6 +124,7 @@ public class SLNodeFactory {
         SLRootNode rootNode = new SLRootNode(frameDescriptor, functionBodyNode, functionName);
 
         context.getFunctionRegistry().register(functionName, rootNode);
+        parsedFunctions.add(rootNode);
 
         functionName = null;
         parameterCount = 0;
@@ -270,6 +280,34 @@ public class SLNodeFactory {
         }
     }
 
+    public SLExpressionNode createReadProperty(SLExpressionNode receiverNode, Token nameToken) {
+        final int start = receiverNode.getSourceSection().getCharIndex();
+        final int length = nameToken.charPos + nameToken.val.length() - start;
+        final SourceSection src = source.createSection(".", start, length);
+        return SLReadPropertyNodeFactory.create(src, nameToken.val, receiverNode);
+    }
+
+    public SLExpressionNode createWriteProperty(SLExpressionNode receiverNode, Token nameToken, SLExpressionNode valueNode) {
+        final int start = receiverNode.getSourceSection().getCharIndex();
+        final int length = valueNode.getSourceSection().getCharEndIndex() - start;
+        final SourceSection src = source.createSection("=", start, length);
+        return SLWritePropertyNodeFactory.create(src, nameToken.val, receiverNode, valueNode);
+    }
+
+    public SLExpressionNode createReadArray(SLExpressionNode arrayNode, SLExpressionNode indexNode, Token finalToken) {
+        final int start = arrayNode.getSourceSection().getCharIndex();
+        final int length = finalToken.charPos + finalToken.val.length() - start;
+        final SourceSection src = source.createSection("[]", start, length);
+        return SLReadArrayNodeFactory.create(src, arrayNode, indexNode);
+    }
+
+    public SLExpressionNode createWriteArray(SLExpressionNode arrayNode, SLExpressionNode indexNode, SLExpressionNode valueNode) {
+        final int start = arrayNode.getSourceSection().getCharIndex();
+        final int length = valueNode.getSourceSection().getCharEndIndex() - start;
+        final SourceSection src = source.createSection("[]=", start, length);
+        return SLWriteArrayNodeFactory.create(src, arrayNode, indexNode, valueNode);
+    }
+
     public SLExpressionNode createStringLiteral(Token literalToken) {
         /* Remove the trailing and ending " */
         String literal = literalToken.val;
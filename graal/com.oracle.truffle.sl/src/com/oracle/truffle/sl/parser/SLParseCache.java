@@ -0,0 +1,549 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.sl.parser;
+
+import java.io.*;
+import java.math.*;
+import java.net.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.security.*;
+import java.util.*;
+
+import com.oracle.truffle.api.*;
+import com.oracle.truffle.api.frame.*;
+import com.oracle.truffle.api.nodes.serial.*;
+import com.oracle.truffle.api.source.*;
+import com.oracle.truffle.api.utilities.*;
+import com.oracle.truffle.sl.nodes.*;
+import com.oracle.truffle.sl.runtime.*;
+
+/**
+ * A persistent cache of parsed SL functions. The uninitialized ASTs of all functions of a source
+ * are serialized with the {@link PostOrderSerializer} into one file per source, named after a hash
+ * of the source code, the Truffle runtime and the class files of SL and Truffle. Loading a source
+ * that was seen before maps that file into memory and deserializes the ASTs instead of parsing the
+ * source again. The {@link SourceSection source sections} of the nodes are preserved, so error
+ * messages, stack traces and instrumentation see the same source attribution as after parsing.
+ * <p>
+ * The cache is best effort: if a file cannot be read or written, or an AST contains a value that
+ * the cache cannot persist, the source is parsed as usual. The cache is disabled if the class files
+ * of SL or Truffle cannot be read.
+ */
+public final class SLParseCache {
+
+    /**
+     * The system property that enables a parse cache for every new {@link SLContext}. Its value is
+     * the directory in which the cache files are kept.
+     */
+    public static final String DIRECTORY_PROPERTY = "sl.ParseCacheDirectory";
+
+    private static final int MAGIC = 0x534C4143;
+    private static final String SUFFIX = ".slc";
+
+    private static final byte TAG_INT = 0;
+    private static final byte TAG_LONG = 1;
+    private static final byte TAG_FLOAT = 2;
+    private static final byte TAG_DOUBLE = 3;
+    private static final byte TAG_CLASS = 4;
+    private static final byte TAG_STRING = 5;
+    private static final byte TAG_BIG_INTEGER = 6;
+    private static final byte TAG_SOURCE_SECTION = 7;
+    private static final byte TAG_FRAME_SLOT = 8;
+    private static final byte TAG_BRANCH_PROFILE = 9;
+    private static final byte TAG_FUNCTION = 10;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * A hash of the class files or jars that contain SL and Truffle, so that a cache file is only
+     * used by the node classes and the serializer that wrote it. {@code null} if they cannot be read.
+     * Hashing them takes a while, so it is only done when a cache is actually used.
+     */
+    private static final class Fingerprint {
+
+        static final byte[] VALUE = computeFingerprint(SLParseCache.class, Truffle.class);
+    }
+
+    private final File directory;
+
+    public SLParseCache(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Returns a cache for the directory specified by the {@value #DIRECTORY_PROPERTY} system
+     * property, or {@code null} if the property is not set.
+     */
+    public static SLParseCache fromSystemProperties() {
+        String path = System.getProperty(DIRECTORY_PROPERTY);
+        return path == null ? null : new SLParseCache(new File(path));
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Registers the functions of the source in the given context, either by loading them from the
+     * cache or by parsing the source. In the latter case, the parsed functions are added to the
+     * cache.
+     */
+    public List<SLRootNode> parse(SLContext context, Source source) {
+        if (Fingerprint.VALUE == null) {
+            return Parser.parseSL(context, source, null);
+        }
+        File file = getFile(source);
+        if (file.isFile()) {
+            List<SLRootNode> functions = null;
+            try {
+                functions = load(context, source, file);
+            } catch (IOException | RuntimeException e) {
+                /* A stale or damaged cache file is simply replaced below. */
+            }
+            if (functions != null) {
+                for (SLRootNode function : functions) {
+                    context.getFunctionRegistry().register(function.getName(), function);
+                }
+                return functions;
+            }
+        }
+
+        List<SLRootNode> functions = Parser.parseSL(context, source, null);
+        try {
+            store(source, functions, file);
+        } catch (IOException | UnsupportedConstantPoolTypeException e) {
+            /* The functions are still defined, they are just not cached. */
+        }
+        return functions;
+    }
+
+    /**
+     * Returns the cache file for the source. The name is derived from the code only, so renamed or
+     * copied source files share their cache entry.
+     */
+    public File getFile(Source source) {
+        MessageDigest digest = newDigest();
+        if (Fingerprint.VALUE != null) {
+            digest.update(Fingerprint.VALUE);
+        }
+        digest.update(Truffle.getRuntime().getName().getBytes(UTF8));
+        digest.update((byte) 0);
+        digest.update(source.getCode().getBytes(UTF8));
+
+        StringBuilder name = new StringBuilder();
+        for (byte b : digest.digest()) {
+            name.append(String.format("%02x", b & 0xFF));
+        }
+        return new File(directory, name.append(SUFFIX).toString());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] computeFingerprint(Class<?>... classes) {
+        MessageDigest digest = newDigest();
+        Set<Path> locations = new LinkedHashSet<>();
+        try {
+            for (Class<?> clazz : classes) {
+                CodeSource codeSource = clazz.getProtectionDomain().getCodeSource();
+                if (codeSource == null || codeSource.getLocation() == null) {
+                    return null;
+                }
+                locations.add(Paths.get(codeSource.getLocation().toURI()));
+            }
+            for (Path location : locations) {
+                if (Files.isDirectory(location)) {
+                    List<Path> classFiles = new ArrayList<>();
+                    collectClassFiles(location, classFiles);
+                    Collections.sort(classFiles);
+                    for (Path classFile : classFiles) {
+                        digest.update(location.relativize(classFile).toString().getBytes(UTF8));
+                        digest.update(Files.readAllBytes(classFile));
+                    }
+                } else {
+                    digest.update(Files.readAllBytes(location));
+                }
+            }
+        } catch (IOException | URISyntaxException | SecurityException | IllegalArgumentException | FileSystemNotFoundException e) {
+            return null;
+        }
+        return digest.digest();
+    }
+
+    private static void collectClassFiles(Path directory, List<Path> classFiles) throws IOException {
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                if (Files.isDirectory(entry)) {
+                    collectClassFiles(entry, classFiles);
+                } else if (entry.getFileName().toString().endsWith(".class")) {
+                    classFiles.add(entry);
+                }
+            }
+        }
+    }
+
+    private static List<SLRootNode> load(SLContext context, Source source, File file) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.getInt() != MAGIC) {
+            return null;
+        }
+        byte[] fingerprint = new byte[Fingerprint.VALUE.length];
+        buffer.get(fingerprint);
+        if (!Arrays.equals(fingerprint, Fingerprint.VALUE)) {
+            return null;
+        }
+
+        ConstantPool cp = ConstantPool.read(buffer, context, source);
+        PostOrderDeserializer deserializer = new PostOrderDeserializer(cp, true);
+
+        int functionCount = buffer.getInt();
+        List<SLRootNode> functions = new ArrayList<>(functionCount);
+        for (int i = 0; i < functionCount; i++) {
+            String name = getString(buffer);
+            FrameDescriptor frameDescriptor = new FrameDescriptor();
+            int slotCount = buffer.getInt();
+            for (int j = 0; j < slotCount; j++) {
+                String identifier = getString(buffer);
+                frameDescriptor.addFrameSlot(identifier, FrameSlotKind.values()[buffer.get()]);
+            }
+            cp.frameDescriptor = frameDescriptor;
+
+            int bodyLength = buffer.getInt();
+            ByteBuffer body = buffer.slice();
+            body.limit(bodyLength);
+            buffer.position(buffer.position() + bodyLength);
+
+            SLExpressionNode bodyNode = deserializer.deserialize(body, SLExpressionNode.class);
+            functions.add(new SLRootNode(frameDescriptor, bodyNode, name));
+        }
+        return functions;
+    }
+
+    private void store(Source source, List<SLRootNode> functions, File file) throws IOException {
+        ConstantPool cp = new ConstantPool(source);
+        PostOrderSerializer serializer = new PostOrderSerializer(cp, true);
+
+        List<byte[]> bodies = new ArrayList<>(functions.size());
+        for (SLRootNode function : functions) {
+            cp.frameDescriptor = function.getFrameDescriptor();
+            bodies.add(serializer.serialize(function.getUninitializedBodyNode()));
+        }
+
+        directory.mkdirs();
+        File tempFile = File.createTempFile(file.getName(), ".tmp", directory);
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+                out.writeInt(MAGIC);
+                out.write(Fingerprint.VALUE);
+                cp.write(out);
+                out.writeInt(functions.size());
+                for (int i = 0; i < functions.size(); i++) {
+                    SLRootNode function = functions.get(i);
+                    putString(out, function.getName());
+                    List<? extends FrameSlot> slots = function.getFrameDescriptor().getSlots();
+                    out.writeInt(slots.size());
+                    for (FrameSlot slot : slots) {
+                        if (!(slot.getIdentifier() instanceof String)) {
+                            throw new UnsupportedConstantPoolTypeException("Unsupported frame slot identifier " + slot.getIdentifier());
+                        }
+                        putString(out, (String) slot.getIdentifier());
+                        out.writeByte(slot.getKind().ordinal());
+                    }
+                    byte[] body = bodies.get(i);
+                    out.writeInt(body.length);
+                    out.write(body);
+                }
+            }
+            /* Readers either see the complete file or no file at all. */
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            tempFile.delete();
+        }
+    }
+
+    private static void putString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(UTF8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, UTF8);
+    }
+
+    /**
+     * The constant pool of one cache file. Values are identified by their index in the pool. Frame
+     * slots are stored as their index in the frame descriptor of the function that is currently
+     * serialized or deserialized, and {@link SLFunction functions} by their name.
+     */
+    private static final class ConstantPool implements SerializerConstantPool {
+
+        private final Source source;
+        private final SLContext context;
+
+        private final List<Object> values = new ArrayList<>();
+        private final List<Byte> tags = new ArrayList<>();
+        private final Map<List<Object>, Integer> indices = new HashMap<>();
+
+        FrameDescriptor frameDescriptor;
+
+        ConstantPool(Source source) {
+            this(source, null);
+        }
+
+        private ConstantPool(Source source, SLContext context) {
+            this.source = source;
+            this.context = context;
+        }
+
+        private int put(byte tag, Object value) {
+            List<Object> key = Arrays.asList(tag, value);
+            Integer index = indices.get(key);
+            if (index == null) {
+                index = values.size();
+                values.add(value);
+                tags.add(tag);
+                indices.put(key, index);
+            }
+            return index;
+        }
+
+        private byte getTag(int cpi) {
+            if (cpi < 0 || cpi >= values.size()) {
+                throw new IllegalArgumentException("Invalid constant pool index " + cpi);
+            }
+            return tags.get(cpi);
+        }
+
+        private Object get(byte tag, int cpi) {
+            if (getTag(cpi) != tag) {
+                throw new IllegalArgumentException("Invalid constant pool index " + cpi);
+            }
+            return values.get(cpi);
+        }
+
+        public int putObject(Class<?> clazz, Object value) throws UnsupportedConstantPoolTypeException {
+            if (value instanceof String) {
+                return put(TAG_STRING, value);
+            } else if (value instanceof BigInteger) {
+                return put(TAG_BIG_INTEGER, value);
+            } else if (value instanceof SourceSection) {
+                SourceSection section = (SourceSection) value;
+                if (section.getSource() != source || section.getIdentifier() == null) {
+                    throw new UnsupportedConstantPoolTypeException("Unsupported source section " + section);
+                }
+                return put(TAG_SOURCE_SECTION, Arrays.asList(section.getIdentifier(), section.getStartLine(), section.getStartColumn(), section.getCharIndex(), section.getCharLength()));
+            } else if (value instanceof FrameSlot) {
+                FrameSlot slot = (FrameSlot) value;
+                if (slot.getFrameDescriptor() != frameDescriptor) {
+                    throw new UnsupportedConstantPoolTypeException("Frame slot of another function: " + slot);
+                }
+                return put(TAG_FRAME_SLOT, slot.getIndex());
+            } else if (value instanceof BranchProfile) {
+                return put(TAG_BRANCH_PROFILE, null);
+            } else if (value instanceof SLFunction) {
+                return put(TAG_FUNCTION, ((SLFunction) value).getName());
+            }
+            throw new UnsupportedConstantPoolTypeException("Unsupported constant of " + value.getClass());
+        }
+
+        public Object getObject(Class<?> clazz, int cpi) throws UnsupportedConstantPoolTypeException {
+            byte tag = getTag(cpi);
+            Object value = values.get(cpi);
+            switch (tag) {
+                case TAG_STRING:
+                case TAG_BIG_INTEGER:
+                case TAG_SOURCE_SECTION:
+                    return value;
+                case TAG_FRAME_SLOT:
+                    return frameDescriptor.getSlots().get((Integer) value);
+                case TAG_BRANCH_PROFILE:
+                    /* Profiles must not be shared between nodes. */
+                    return new BranchProfile();
+                case TAG_FUNCTION:
+                    return context.getFunctionRegistry().lookup((String) value);
+                default:
+                    throw new UnsupportedConstantPoolTypeException("Unexpected constant pool tag " + tag);
+            }
+        }
+
+        public int putClass(Class<?> value) {
+            return put(TAG_CLASS, value);
+        }
+
+        public Class<?> getClass(int cpi) {
+            return (Class<?>) get(TAG_CLASS, cpi);
+        }
+
+        public int putInt(int value) {
+            return put(TAG_INT, value);
+        }
+
+        public int getInt(int cpi) {
+            return (Integer) get(TAG_INT, cpi);
+        }
+
+        public int putLong(long value) {
+            return put(TAG_LONG, value);
+        }
+
+        public long getLong(int cpi) {
+            return (Long) get(TAG_LONG, cpi);
+        }
+
+        public int putDouble(double value) {
+            return put(TAG_DOUBLE, value);
+        }
+
+        public double getDouble(int cpi) {
+            return (Double) get(TAG_DOUBLE, cpi);
+        }
+
+        public int putFloat(float value) {
+            return put(TAG_FLOAT, value);
+        }
+
+        public float getFloat(int cpi) {
+            return (Float) get(TAG_FLOAT, cpi);
+        }
+
+        @SuppressWarnings("unchecked")
+        void write(DataOutputStream out) throws IOException {
+            out.writeInt(values.size());
+            for (int i = 0; i < values.size(); i++) {
+                byte tag = tags.get(i);
+                Object value = values.get(i);
+                out.writeByte(tag);
+                switch (tag) {
+                    case TAG_INT:
+                    case TAG_FRAME_SLOT:
+                        out.writeInt((Integer) value);
+                        break;
+                    case TAG_LONG:
+                        out.writeLong((Long) value);
+                        break;
+                    case TAG_FLOAT:
+                        out.writeFloat((Float) value);
+                        break;
+                    case TAG_DOUBLE:
+                        out.writeDouble((Double) value);
+                        break;
+                    case TAG_CLASS:
+                        putString(out, ((Class<?>) value).getName());
+                        break;
+                    case TAG_STRING:
+                    case TAG_FUNCTION:
+                        putString(out, (String) value);
+                        break;
+                    case TAG_BIG_INTEGER:
+                        putString(out, value.toString());
+                        break;
+                    case TAG_SOURCE_SECTION:
+                        List<Object> section = (List<Object>) value;
+                        putString(out, (String) section.get(0));
+                        for (int j = 1; j < section.size(); j++) {
+                            out.writeInt((Integer) section.get(j));
+                        }
+                        break;
+                    case TAG_BRANCH_PROFILE:
+                        break;
+                    default:
+                        throw new IllegalStateException("Unexpected constant pool tag " + tag);
+                }
+            }
+        }
+
+        static ConstantPool read(ByteBuffer buffer, SLContext context, Source source) throws IOException {
+            ConstantPool cp = new ConstantPool(source, context);
+            int size = buffer.getInt();
+            for (int i = 0; i < size; i++) {
+                byte tag = buffer.get();
+                Object value;
+                switch (tag) {
+                    case TAG_INT:
+                    case TAG_FRAME_SLOT:
+                        value = buffer.getInt();
+                        break;
+                    case TAG_LONG:
+                        value = buffer.getLong();
+                        break;
+                    case TAG_FLOAT:
+                        value = buffer.getFloat();
+                        break;
+                    case TAG_DOUBLE:
+                        value = buffer.getDouble();
+                        break;
+                    case TAG_CLASS:
+                        try {
+                            value = Class.forName(getString(buffer), true, SLParseCache.class.getClassLoader());
+                        } catch (ClassNotFoundException e) {
+                            throw new IOException(e);
+                        }
+                        break;
+                    case TAG_STRING:
+                    case TAG_FUNCTION:
+                        value = getString(buffer);
+                        break;
+                    case TAG_BIG_INTEGER:
+                        value = new BigInteger(getString(buffer));
+                        break;
+                    case TAG_SOURCE_SECTION:
+                        /*
+                         * The line and column are stored as well, so that no line map of the
+                         * source has to be built. They are valid because the file name is derived
+                         * from the code.
+                         */
+                        String identifier = getString(buffer);
+                        int startLine = buffer.getInt();
+                        int startColumn = buffer.getInt();
+                        int charIndex = buffer.getInt();
+                        int length = buffer.getInt();
+                        value = source.createSection(identifier, startLine, startColumn, charIndex, length);
+                        break;
+                    case TAG_BRANCH_PROFILE:
+                        value = null;
+                        break;
+                    default:
+                        throw new IOException("Unexpected constant pool tag " + tag);
+                }
+                cp.values.add(value);
+                cp.tags.add(tag);
+            }
+            return cp;
+        }
+    }
+}
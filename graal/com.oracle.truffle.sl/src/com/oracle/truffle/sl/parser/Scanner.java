@@ -311,8 +311,8 @@ public class Scanner {
 
     static final char EOL = '\n';
     static final int eofSym = 0;
-	static final int maxT = 30;
-	static final int noSym = 30;
+	static final int maxT = 33;
+	static final int noSym = 33;
 
 
     public Buffer buffer; // scanner buffer
@@ -357,6 +357,9 @@ public class Scanner {
 		start.set(45, 22); 
 		start.set(42, 23); 
 		start.set(47, 24); 
+		start.set(46, 28); 
+		start.set(91, 29); 
+		start.set(93, 30); 
 		start.set(Buffer.EOF, -1);
 		literals.put("function", new Integer(4));
 		literals.put("break", new Integer(10));
@@ -587,6 +590,12 @@ public class Scanner {
 					recEnd = pos; recKind = 29;
 					if (ch == '=') {AddCh(); state = 18; break;}
 					else {t.kind = 29; break loop;}
+				case 28:
+					{t.kind = 30; break loop;}
+				case 29:
+					{t.kind = 31; break loop;}
+				case 30:
+					{t.kind = 32; break loop;}
 
             }
         }
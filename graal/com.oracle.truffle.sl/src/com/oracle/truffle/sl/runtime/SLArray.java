@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.sl.runtime;
+
+import java.util.*;
+
+import com.oracle.truffle.api.*;
+import com.oracle.truffle.api.CompilerDirectives.SlowPath;
+import com.oracle.truffle.sl.*;
+
+/**
+ * The SL type for arrays. An array starts empty and grows when an element is written at the index
+ * just past its end.
+ * <p>
+ * The elements are kept in one of several storage strategies: an array without elements has no
+ * storage, an array that only ever contained numbers that fit into 64 bits uses a {@code long[]},
+ * and all other arrays use an {@code Object[]}. Writing an element that the current storage cannot
+ * hold switches to the more general storage. The {@link com.oracle.truffle.sl.nodes.access
+ * array access nodes} specialize on the storage, so reading and writing numbers never boxes them.
+ */
+public final class SLArray {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    /** Either null, a long[] or an Object[]; the capacity can exceed the {@link #length}. */
+    private Object store;
+    private int length;
+
+    public boolean isEmptyStorage() {
+        return store == null;
+    }
+
+    public boolean isLongStorage() {
+        return store instanceof long[];
+    }
+
+    public boolean isObjectStorage() {
+        return store instanceof Object[];
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public long getLong(long index) {
+        checkReadIndex(index);
+        return ((long[]) store)[(int) index];
+    }
+
+    public Object getObject(long index) {
+        checkReadIndex(index);
+        return ((Object[]) store)[(int) index];
+    }
+
+    /**
+     * Writes an element of an array with {@code long[]} storage, or of an empty array, which then
+     * gets a {@code long[]} storage.
+     */
+    public void setLong(long index, long value) {
+        checkWriteIndex(index);
+        if (store == null) {
+            store = new long[INITIAL_CAPACITY];
+        }
+        long[] longStore = (long[]) store;
+        if (index == length) {
+            if (length == longStore.length) {
+                longStore = Arrays.copyOf(longStore, length * 2);
+                store = longStore;
+            }
+            length++;
+        }
+        longStore[(int) index] = value;
+    }
+
+    /**
+     * Writes an element of an array with {@code Object[]} storage.
+     */
+    public void setObject(long index, Object value) {
+        checkWriteIndex(index);
+        Object[] objectStore = (Object[]) store;
+        if (index == length) {
+            if (length == objectStore.length) {
+                objectStore = Arrays.copyOf(objectStore, length * 2);
+                store = objectStore;
+            }
+            length++;
+        }
+        objectStore[(int) index] = value;
+    }
+
+    /**
+     * Switches to {@code Object[]} storage, so that the array can hold values of any type.
+     */
+    @SlowPath
+    public void generalize() {
+        if (store == null) {
+            store = new Object[INITIAL_CAPACITY];
+        } else if (store instanceof long[]) {
+            long[] longStore = (long[]) store;
+            Object[] objectStore = new Object[longStore.length];
+            for (int i = 0; i < length; i++) {
+                objectStore[i] = longStore[i];
+            }
+            store = objectStore;
+        }
+    }
+
+    /**
+     * Reads an element, regardless of the storage.
+     */
+    @SlowPath
+    public Object get(long index) {
+        if (isLongStorage()) {
+            return getLong(index);
+        } else if (isObjectStorage()) {
+            return getObject(index);
+        } else {
+            /* An empty array has no elements. */
+            throw outOfBounds(index);
+        }
+    }
+
+    private void checkReadIndex(long index) {
+        if (index < 0 || index >= length) {
+            CompilerDirectives.transferToInterpreter();
+            throw outOfBounds(index);
+        }
+    }
+
+    private void checkWriteIndex(long index) {
+        if (index < 0 || index > length) {
+            CompilerDirectives.transferToInterpreter();
+            throw outOfBounds(index);
+        }
+    }
+
+    private SLException outOfBounds(long index) {
+        return new SLException("Array index out of bounds: " + index + " (length " + length + ")");
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            Object element = get(i);
+            sb.append(element instanceof SLArray ? "[...]" : element);
+        }
+        return sb.append("]").toString();
+    }
+}
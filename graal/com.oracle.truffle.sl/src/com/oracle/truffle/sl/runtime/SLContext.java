@@ -23,12 +23,14 @@
 package com.oracle.truffle.sl.runtime;
 
 import java.io.*;
+import java.util.*;
 
 import com.oracle.truffle.api.*;
 import com.oracle.truffle.api.dsl.*;
 import com.oracle.truffle.api.frame.*;
 import com.oracle.truffle.api.instrument.*;
 import com.oracle.truffle.api.nodes.*;
+import com.oracle.truffle.api.object.*;
 import com.oracle.truffle.api.source.*;
 import com.oracle.truffle.sl.*;
 import com.oracle.truffle.sl.builtins.*;
@@ -51,13 +53,16 @@ public final class SLContext extends ExecutionContext {
     private final BufferedReader input;
     private final PrintStream output;
     private final SLFunctionRegistry functionRegistry;
+    private final Shape emptyShape;
     private SourceCallback sourceCallback = null;
     private SLASTProber astProber;
+    private SLParseCache parseCache = SLParseCache.fromSystemProperties();
 
     public SLContext(BufferedReader input, PrintStream output) {
         this.input = input;
         this.output = output;
         this.functionRegistry = new SLFunctionRegistry();
+        this.emptyShape = Shape.createRootShape();
         installBuiltins();
     }
 
@@ -94,6 +99,15 @@ public final class SLContext extends ExecutionContext {
         return functionRegistry;
     }
 
+    /**
+     * Creates a new object without properties. All objects of one context share the same shape
+     * tree, so objects that get the same properties in the same order end up with the same
+     * {@link Shape}.
+     */
+    public DynamicObject createObject() {
+        return new DynamicObject(emptyShape);
+    }
+
     public SourceCallback getSourceCallback() {
         return sourceCallback;
     }
@@ -109,6 +123,9 @@ public final class SLContext extends ExecutionContext {
         installBuiltin(SLDefineFunctionBuiltinFactory.getInstance());
         installBuiltin(SLStackTraceBuiltinFactory.getInstance());
         installBuiltin(SLHelloEqualsWorldBuiltinFactory.getInstance());
+        installBuiltin(SLNewObjectBuiltinFactory.getInstance());
+        installBuiltin(SLNewArrayBuiltinFactory.getInstance());
+        installBuiltin(SLArrayLengthBuiltinFactory.getInstance());
     }
 
     private void installBuiltin(NodeFactory<? extends SLBuiltinNode> factory) {
@@ -144,7 +161,7 @@ public final class SLContext extends ExecutionContext {
             sourceCallback.startLoading(source);
         }
 
-        Parser.parseSL(this, source, astProber);
+        parse(source);
 
         if (sourceCallback != null) {
             sourceCallback.endLoading(source);
@@ -157,6 +174,30 @@ public final class SLContext extends ExecutionContext {
         main.getCallTarget().call();
     }
 
+    /**
+     * Parses the source and registers the functions it defines. If a {@link SLParseCache} is set,
+     * the functions are loaded from the cache when the same code was parsed before. ASTs that are
+     * instrumented with an {@link #setASTNodeProber AST prober} are never cached.
+     */
+    public List<SLRootNode> parse(Source source) {
+        if (parseCache != null && astProber == null) {
+            return parseCache.parse(this, source);
+        }
+        return Parser.parseSL(this, source, astProber);
+    }
+
+    public SLParseCache getParseCache() {
+        return parseCache;
+    }
+
+    /**
+     * Sets the cache used by {@link #parse}, or {@code null} to always parse. The default is
+     * specified by the {@value SLParseCache#DIRECTORY_PROPERTY} system property.
+     */
+    public void setParseCache(SLParseCache parseCache) {
+        this.parseCache = parseCache;
+    }
+
     public void setASTNodeProber(SLASTProber astProber) {
         // TODO Auto-generated method stub
         this.astProber = astProber;
@@ -1949,6 +1949,16 @@ def sl(args):
     vmArgs, slArgs = _extract_VM_args(args)
     vm(vmArgs + ['-cp', mx.classpath(["TRUFFLE", "com.oracle.truffle.sl"]), "com.oracle.truffle.sl.SLMain"] + slArgs)
 
+def slbench(args):
+    """run SL benchmarks, by default the programs in com.oracle.truffle.sl.test/benchmarks
+
+    The runner options are [-warmup <n>] [-iterations <n>] [-format csv|json] [-output <file>] [-probed]."""
+    vmArgs, benchArgs = _extract_VM_args(args)
+    if not [a for a in benchArgs if a.endswith('.sl')]:
+        benchDir = join(mx.project('com.oracle.truffle.sl.test').dir, 'benchmarks')
+        benchArgs = benchArgs + [join(benchDir, f) for f in sorted(os.listdir(benchDir)) if f.endswith('.sl')]
+    vm(vmArgs + ['-cp', mx.classpath(["com.oracle.graal.truffle.test"]), "com.oracle.graal.truffle.test.sl.SLBenchmarkRunner"] + benchArgs)
+
 def isGraalEnabled(vm):
     return vm != 'original' and not vm.endswith('nograal')
 
@@ -2189,6 +2199,7 @@ def mx_init(suite):
         'deoptalot' : [deoptalot, '[n]'],
         'longtests' : [longtests, ''],
         'sl' : [sl, '[SL args|@VM options]'],
+        'slbench' : [slbench, '[options] [SL files|@VM options]'],
         'jol' : [jol, ''],
     }
 
@@ -27,6 +27,7 @@
 #include "graal/graalCompiler.hpp"
 #include "graal/graalEnv.hpp"
 #include "graal/graalRuntime.hpp"
+#include "runtime/atomic.hpp"
 #include "runtime/compilationPolicy.hpp"
 #include "runtime/globals_extension.hpp"
 
@@ -36,6 +37,7 @@ GraalCompiler::GraalCompiler() : AbstractCompiler(graal) {
 #ifdef COMPILERGRAAL
   _bootstrapping = false;
   _methodsCompiled = 0;
+  _compilationsInProgress = 0;
 #endif
   assert(_instance == NULL, "only one instance allowed");
   _instance = this;
@@ -72,6 +74,42 @@ void GraalCompiler::initialize() {
 }
 
 #ifdef COMPILERGRAAL
+
+// Methods of Graal invoked less often than this while the compiler was
+// initialized are left to the normal counter based compilation policy.
+static const int BootstrapMinInvocations = 100;
+
+static GrowableArray<Method*>* _bootstrap_methods = NULL;
+
+static int bootstrap_hotness(Method* m) {
+  return m->invocation_count() + m->backedge_count();
+}
+
+static bool is_bootstrap_candidate(Method* m) {
+  if (m->is_native() || m->is_abstract() || m->code() != NULL) {
+    return false;
+  }
+  Symbol* holder = m->method_holder()->name();
+  if (!holder->starts_with("com/oracle/graal/") && !holder->starts_with("com/oracle/truffle/")) {
+    return false;
+  }
+  return bootstrap_hotness(m) >= BootstrapMinInvocations;
+}
+
+static void collect_bootstrap_method(Method* m) {
+  if (is_bootstrap_candidate(m)) {
+    _bootstrap_methods->append(m);
+  }
+}
+
+// Orders methods by descending hotness so that the methods needed most
+// urgently by the compiler are compiled first.
+static int compare_bootstrap_methods(Method** a, Method** b) {
+  int ha = bootstrap_hotness(*a);
+  int hb = bootstrap_hotness(*b);
+  return ha > hb ? -1 : (ha < hb ? 1 : 0);
+}
+
 void GraalCompiler::bootstrap() {
   JavaThread* THREAD = JavaThread::current();
   _bootstrapping = true;
@@ -82,35 +120,68 @@ void GraalCompiler::bootstrap() {
   }
   jlong start = os::javaTimeMillis();
 
-  Array<Method*>* objectMethods = InstanceKlass::cast(SystemDictionary::Object_klass())->methods();
-  // Initialize compile queue with a selected set of methods.
-  int len = objectMethods->length();
-  for (int i = 0; i < len; i++) {
-    methodHandle mh = objectMethods->at(i);
-    if (!mh->is_native() && !mh->is_static() && !mh->is_initializer()) {
+  // Initialize the compile queue with the methods of Object and with the
+  // methods of the compiler itself that were already used while it was
+  // initialized, hottest first. Without tiered compilation the compile
+  // queue hands out tasks in the order they were added, so this keeps all
+  // compiler threads busy with the methods that will be needed soonest.
+  // With tiered compilation, the policy picks tasks by its own event rate
+  // and the order is only a hint.
+  int seeded;
+  {
+    // The array only lives while the queue is seeded.
+    ResourceMark rm;
+    _bootstrap_methods = new GrowableArray<Method*>(1024);
+    Array<Method*>* objectMethods = InstanceKlass::cast(SystemDictionary::Object_klass())->methods();
+    for (int i = 0; i < objectMethods->length(); i++) {
+      Method* m = objectMethods->at(i);
+      if (!m->is_native() && !m->is_static() && !m->is_initializer()) {
+        _bootstrap_methods->append(m);
+      }
+    }
+    {
+      MutexLocker ml(SystemDictionary_lock, THREAD);
+      SystemDictionary::methods_do(collect_bootstrap_method);
+    }
+    _bootstrap_methods->sort(&compare_bootstrap_methods);
+
+    seeded = _bootstrap_methods->length();
+    for (int i = 0; i < seeded; i++) {
       ResourceMark rm;
-      int hot_count = 10; // TODO: what's the appropriate value?
+      methodHandle mh(THREAD, _bootstrap_methods->at(i));
+      int hot_count = MAX2(bootstrap_hotness(mh()), 10);
       CompileBroker::compile_method(mh, InvocationEntryBci, CompLevel_full_optimization, mh, hot_count, "bootstrap", THREAD);
     }
+    _bootstrap_methods = NULL;
   }
+  jlong seeded_time = os::javaTimeMillis();
 
+  // Wait until the queue is empty and all compilations taken from it
+  // (including those for methods that became hot in the meantime) are done.
   int qsize;
-  jlong sleep_time = 1000;
   int z = 0;
+  jlong drained_time = 0;
   do {
-    os::sleep(THREAD, sleep_time, true);
-    sleep_time = 100;
+    os::sleep(THREAD, 10, true);
     qsize = CompileBroker::queue_size(CompLevel_full_optimization);
+    if (qsize == 0 && drained_time == 0) {
+      drained_time = os::javaTimeMillis();
+    } else if (qsize != 0) {
+      drained_time = 0;
+    }
     if (PrintBootstrap) {
       while (z < (_methodsCompiled / 100)) {
         ++z;
         tty->print_raw(".");
       }
     }
-  } while (qsize != 0);
+  } while (qsize != 0 || _compilationsInProgress != 0);
+  jlong end = os::javaTimeMillis();
 
   if (PrintBootstrap) {
-    tty->print_cr(" in %d ms (compiled %d methods)", os::javaTimeMillis() - start, _methodsCompiled);
+    tty->print_cr(" in %d ms (compiled %d methods)", (int) (end - start), _methodsCompiled);
+    tty->print_cr("  %d compiler threads: seeded %d methods in %d ms, queue empty after %d ms, last compilation done after %d ms",
+                  num_compiler_threads(), seeded, (int) (seeded_time - start), (int) (drained_time - start), (int) (end - start));
   }
   _bootstrapping = false;
 }
@@ -133,7 +204,9 @@ void GraalCompiler::compile_method(methodHandle method, int entry_bci, CompileTa
   args.push_int(entry_bci);
   args.push_long((jlong) (address) task);
   args.push_int(task->compile_id());
+  Atomic::inc(&_compilationsInProgress);
   JavaCalls::call_static(&result, SystemDictionary::CompilationTask_klass(), vmSymbols::compileMetaspaceMethod_name(), vmSymbols::compileMetaspaceMethod_signature(), &args, CHECK_ABORT);
+  Atomic::dec(&_compilationsInProgress);
 
   _methodsCompiled++;
 }
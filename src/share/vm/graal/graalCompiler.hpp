@@ -39,6 +39,11 @@ private:
    */
   volatile int  _methodsCompiled;
 
+  /**
+   * Number of compilations currently being performed by Graal compiler threads.
+   */
+  volatile jint _compilationsInProgress;
+
 #endif
 
   static GraalCompiler* _instance;
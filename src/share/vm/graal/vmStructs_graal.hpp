@@ -36,6 +36,7 @@
   nonstatic_field(ThreadShadow,  _pending_failed_speculation, oop)            \
   nonstatic_field(ThreadShadow,  _pending_transfer_to_interpreter, bool)      \
   nonstatic_field(MethodData,    _graal_node_count, int)                      \
+  static_field(JvmtiExport,      _redefinition_count, int)                    \
 
 #define VM_TYPES_GRAAL(declare_type, declare_toplevel_type)                   \
 
@@ -2446,6 +2446,8 @@ typedef BinaryTreeDictionary<Metablock, FreeList> MetablockTreeDictionary;
                                                                           \
   declare_constant(DataLayout::cell_size)                                 \
   declare_constant(DataLayout::no_tag)                                    \
+  declare_constant(DataLayout::trap_shift)                                \
+  declare_constant(DataLayout::trap_mask)                                 \
   declare_constant(DataLayout::bit_data_tag)                              \
   declare_constant(DataLayout::counter_data_tag)                          \
   declare_constant(DataLayout::jump_data_tag)                             \